@@ -2,9 +2,12 @@
 package org.ldaptive.beans.spring.parser;
 
 import org.ldaptive.pool.BlockingConnectionPool;
+import org.ldaptive.pool.ConcurrentConnectionPool;
+import org.ldaptive.pool.ConnectionPoolType;
 import org.ldaptive.pool.IdlePruneStrategy;
 import org.ldaptive.pool.PoolConfig;
 import org.ldaptive.pool.SearchValidator;
+import org.ldaptive.pool.SoftLimitConnectionPool;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.w3c.dom.Element;
 
@@ -17,6 +20,43 @@ public abstract class AbstractConnectionPoolBeanDefinitionParser extends Abstrac
 {
 
 
+  /**
+   * Returns the connection pool class for the pool type configured on the supplied element. Defaults to {@link
+   * BlockingConnectionPool} if no pool type is configured.
+   *
+   * @param  element  containing configuration
+   *
+   * @return  connection pool class
+   */
+  protected Class<? extends BlockingConnectionPool> getConnectionPoolClass(final Element element)
+  {
+    ConnectionPoolType poolType = ConnectionPoolType.BLOCKING;
+    if (element.hasAttribute("poolType")) {
+      poolType = ConnectionPoolType.valueOf(element.getAttribute("poolType"));
+    }
+
+    final Class<? extends BlockingConnectionPool> poolClass;
+    switch (poolType) {
+
+    case BLOCKING:
+      poolClass = BlockingConnectionPool.class;
+      break;
+
+    case SOFTLIMIT:
+      poolClass = SoftLimitConnectionPool.class;
+      break;
+
+    case CONCURRENT:
+      poolClass = ConcurrentConnectionPool.class;
+      break;
+
+    default:
+      throw new IllegalArgumentException("Unknown pool type: " + poolType);
+    }
+    return poolClass;
+  }
+
+
   /**
    * Creates a blocking connection pool.
    *
@@ -35,7 +75,7 @@ public abstract class AbstractConnectionPoolBeanDefinitionParser extends Abstrac
   {
     BeanDefinitionBuilder pool = builder;
     if (pool == null) {
-      pool = BeanDefinitionBuilder.genericBeanDefinition(BlockingConnectionPool.class);
+      pool = BeanDefinitionBuilder.genericBeanDefinition(getConnectionPoolClass(element));
     }
     pool.addPropertyValue("name", name);
     pool.addPropertyValue(
@@ -51,6 +91,7 @@ public abstract class AbstractConnectionPoolBeanDefinitionParser extends Abstrac
 
 
     pool.addPropertyValue("failFastInitialize", element.getAttribute("failFastInitialize"));
+    pool.addPropertyValue("jmxEnabled", element.getAttribute("jmxEnabled"));
     final BeanDefinitionBuilder pruneStrategy = BeanDefinitionBuilder.genericBeanDefinition(IdlePruneStrategy.class);
     final BeanDefinitionBuilder prunePeriod =  BeanDefinitionBuilder.rootBeanDefinition(
       AbstractAuthenticatorBeanDefinitionParser.class,
@@ -1,11 +1,15 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.beans.spring.parser;
 
+import org.ldaptive.auth.CachingDnResolver;
 import org.ldaptive.auth.PooledSearchDnResolver;
 import org.ldaptive.auth.SearchDnResolver;
 import org.ldaptive.auth.SearchEntryResolver;
 import org.ldaptive.pool.PooledConnectionFactory;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionReaderUtils;
+import org.springframework.beans.factory.support.ManagedList;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.w3c.dom.Element;
 
@@ -41,12 +45,27 @@ public abstract class AbstractSearchAuthenticatorBeanDefinitionParser extends Ab
 
     final BeanDefinitionBuilder authHandler = parseAuthHandler(element);
     final BeanDefinitionBuilder authResponseHandler = parseAuthResponseHandler(builder, authHandler, element);
+    final ManagedList<Object> authResponseHandlers = new ManagedList<>();
     if (authResponseHandler != null) {
-      builder.addPropertyValue("authenticationResponseHandlers", authResponseHandler.getBeanDefinition());
+      authResponseHandlers.add(authResponseHandler.getBeanDefinition());
     }
 
-    builder.addConstructorArgValue(dnResolver.getBeanDefinition());
+    final BeanDefinitionBuilder cachingDnResolver = parseCachingDnResolver(element, dnResolver);
+    if (cachingDnResolver != null) {
+      // the caching dn resolver is also a response handler, register it so both properties share one instance
+      final String cachingDnResolverName = BeanDefinitionReaderUtils.registerWithGeneratedName(
+        cachingDnResolver.getBeanDefinition(),
+        context.getRegistry());
+      final RuntimeBeanReference cachingDnResolverRef = new RuntimeBeanReference(cachingDnResolverName);
+      authResponseHandlers.add(cachingDnResolverRef);
+      builder.addConstructorArgValue(cachingDnResolverRef);
+    } else {
+      builder.addConstructorArgValue(dnResolver.getBeanDefinition());
+    }
     builder.addConstructorArgValue(authHandler.getBeanDefinition());
+    if (!authResponseHandlers.isEmpty()) {
+      builder.addPropertyValue("authenticationResponseHandlers", authResponseHandlers);
+    }
 
     final BeanDefinitionBuilder entryResolver = parseEntryResolver(element, connectionFactory);
     builder.addPropertyValue("entryResolver", entryResolver.getBeanDefinition());
@@ -83,6 +102,44 @@ public abstract class AbstractSearchAuthenticatorBeanDefinitionParser extends Ab
   }
 
 
+  /**
+   * Creates a caching DN resolver if any DN cache attributes are present.
+   *
+   * @param  element  containing configuration
+   * @param  dnResolver  to cache
+   *
+   * @return  caching dn resolver bean definition builder or null if DN caching is not configured
+   */
+  protected BeanDefinitionBuilder parseCachingDnResolver(
+    final Element element,
+    final BeanDefinitionBuilder dnResolver)
+  {
+    if (!element.hasAttribute("dnCacheTimeToLive") && !element.hasAttribute("dnCacheNegativeTimeToLive") &&
+        !element.hasAttribute("dnCacheMaxSize")) {
+      return null;
+    }
+    final BeanDefinitionBuilder cachingDnResolver = BeanDefinitionBuilder.genericBeanDefinition(
+      CachingDnResolver.class);
+    cachingDnResolver.addConstructorArgValue(dnResolver.getBeanDefinition());
+    if (element.hasAttribute("dnCacheTimeToLive")) {
+      final BeanDefinitionBuilder ttl =  BeanDefinitionBuilder.rootBeanDefinition(
+        AbstractAuthenticatorBeanDefinitionParser.class,
+        "parseDuration");
+      ttl.addConstructorArgValue(element.getAttribute("dnCacheTimeToLive"));
+      cachingDnResolver.addPropertyValue("timeToLive", ttl.getBeanDefinition());
+    }
+    if (element.hasAttribute("dnCacheNegativeTimeToLive")) {
+      final BeanDefinitionBuilder ttl =  BeanDefinitionBuilder.rootBeanDefinition(
+        AbstractAuthenticatorBeanDefinitionParser.class,
+        "parseDuration");
+      ttl.addConstructorArgValue(element.getAttribute("dnCacheNegativeTimeToLive"));
+      cachingDnResolver.addPropertyValue("negativeTimeToLive", ttl.getBeanDefinition());
+    }
+    setIfPresent(element, "dnCacheMaxSize", "maxSize", cachingDnResolver);
+    return cachingDnResolver;
+  }
+
+
   /**
    * Creates an entry resolver.
    *
@@ -1,7 +1,6 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.beans.spring.parser;
 
-import org.ldaptive.pool.BlockingConnectionPool;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
@@ -35,7 +34,7 @@ public class ConnectionPoolBeanDefinitionParser extends AbstractConnectionPoolBe
   @Override
   protected Class<?> getBeanClass(final Element element)
   {
-    return BlockingConnectionPool.class;
+    return getConnectionPoolClass(element);
   }
 
 
@@ -0,0 +1,266 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.ldaptive.BindConnectionInitializer;
+import org.ldaptive.BindRequest;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.Credential;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.EmbeddedLdapServer;
+import org.ldaptive.LdapException;
+import org.ldaptive.auth.AuthenticationRequest;
+import org.ldaptive.auth.AuthenticationResponse;
+import org.ldaptive.auth.Authenticator;
+import org.ldaptive.auth.PipelinedBindAuthenticationHandler;
+import org.ldaptive.auth.PooledBindAuthenticationHandler;
+import org.ldaptive.auth.PooledSearchEntryResolver;
+import org.ldaptive.auth.SearchDnResolver;
+import org.ldaptive.pool.BindPassivator;
+import org.ldaptive.pool.BlockingConnectionPool;
+import org.ldaptive.pool.ConcurrentConnectionPool;
+import org.ldaptive.pool.ConnectionPoolType;
+import org.ldaptive.pool.PoolConfig;
+import org.ldaptive.pool.PooledConnectionFactory;
+import org.ldaptive.pool.SoftLimitConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures logins against an {@link EmbeddedLdapServer}, so no directory or network access is required. Each login
+ * resolves the DN of a random user with a {@link SearchDnResolver} on a service account pool, binds as the user and
+ * resolves the user's entry. {@link #login()} reports logins per second and {@link #loginLatency()} reports latency
+ * percentiles.
+ *
+ * <p>The <em>pooled</em> handler is a {@link PooledBindAuthenticationHandler} whose pool rebinds as the service account
+ * with a {@link BindPassivator}, the entry is searched on the user's connection. The <em>pipelined</em> handler is a
+ * {@link PipelinedBindAuthenticationHandler} on a bind pool without a passivator, the entry is searched on the service
+ * account pool in parallel with the bind.</p>
+ *
+ * <p>Thread counts are set with the JMH <code>-t</code> option. {@link #main(String[])} runs the benchmark once for
+ * each of 1, 4 and 16 threads, e.g. <code>mvn -Pbenchmark exec:exec
+ * -Djmh.main=org.ldaptive.benchmark.AuthenticatorBenchmark -Djmh.args="-f 1"</code>.</p>
+ *
+ * @author  Middleware Services
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticatorBenchmark
+{
+
+  /** Number of users seeded in the server. */
+  private static final int USER_COUNT = 1000;
+
+  /** Thread counts run by {@link #main(String[])}. */
+  private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+  /** Type of pool used for binds and searches. */
+  @Param({"BLOCKING", "SOFTLIMIT", "CONCURRENT"})
+  protected String poolType;
+
+  /** Size of each pool. */
+  @Param({"4", "16"})
+  protected int poolSize;
+
+  /** Type of authentication handler. */
+  @Param({"pooled", "pipelined"})
+  protected String handlerType;
+
+  /** Directory stand-in. */
+  private EmbeddedLdapServer server;
+
+  /** Pool bound as the service account. */
+  private BlockingConnectionPool searchPool;
+
+  /** Pool the users bind on. */
+  private BlockingConnectionPool bindPool;
+
+  /** Pipelined handler, if configured. */
+  private PipelinedBindAuthenticationHandler pipelinedHandler;
+
+  /** Authenticator to benchmark. */
+  private Authenticator authenticator;
+
+
+  /**
+   * Runs the benchmark for each thread count.
+   *
+   * @param  args  JMH command line options
+   *
+   * @throws  CommandLineOptionException  if the options cannot be parsed
+   * @throws  RunnerException  if the benchmark fails
+   */
+  public static void main(final String[] args)
+    throws CommandLineOptionException, RunnerException
+  {
+    final CommandLineOptions options = new CommandLineOptions(args);
+    for (int threads : THREAD_COUNTS) {
+      new Runner(
+        new OptionsBuilder()
+          .parent(options)
+          .include(AuthenticatorBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build()).run();
+    }
+  }
+
+
+  /**
+   * Starts the server and initializes the pools and authenticator.
+   *
+   * @throws  IOException  if the server cannot be started
+   */
+  @Setup
+  public void setup()
+    throws IOException
+  {
+    server = new EmbeddedLdapServer(USER_COUNT);
+    server.start();
+
+    final ConnectionConfig searchConfig = new ConnectionConfig(server.getLdapUrl());
+    final Credential managerCredential = new Credential(EmbeddedLdapServer.MANAGER_PASSWORD);
+    searchConfig.setConnectionInitializer(
+      new BindConnectionInitializer(EmbeddedLdapServer.MANAGER_DN, managerCredential));
+    searchPool = createPool(new DefaultConnectionFactory(searchConfig));
+    searchPool.initialize();
+    bindPool = createPool(new DefaultConnectionFactory(server.getLdapUrl()));
+
+    final SearchDnResolver dnResolver = new SearchDnResolver(new PooledConnectionFactory(searchPool));
+    dnResolver.setBaseDn(EmbeddedLdapServer.PEOPLE_DN);
+    dnResolver.setUserFilter("(uid={user})");
+
+    if ("pipelined".equals(handlerType)) {
+      bindPool.initialize();
+      pipelinedHandler = new PipelinedBindAuthenticationHandler(new PooledConnectionFactory(bindPool));
+      pipelinedHandler.setEntryResolver(new PooledSearchEntryResolver(new PooledConnectionFactory(searchPool)));
+      authenticator = new Authenticator(dnResolver, pipelinedHandler);
+      authenticator.setEntryResolver(pipelinedHandler.createEntryResolver());
+    } else {
+      bindPool.setPassivator(new BindPassivator(new BindRequest(EmbeddedLdapServer.MANAGER_DN, managerCredential)));
+      bindPool.initialize();
+      authenticator = new Authenticator(
+        dnResolver,
+        new PooledBindAuthenticationHandler(new PooledConnectionFactory(bindPool)));
+    }
+    authenticator.setReturnAttributes("cn", "mail");
+  }
+
+
+  /** Closes the pools and stops the server. */
+  @TearDown
+  public void tearDown()
+  {
+    if (pipelinedHandler != null) {
+      pipelinedHandler.shutdown();
+    }
+    bindPool.close();
+    searchPool.close();
+    server.close();
+  }
+
+
+  /**
+   * Authenticates a random user, measuring throughput.
+   *
+   * @return  authentication response
+   *
+   * @throws  LdapException  if the authentication fails
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public AuthenticationResponse login()
+    throws LdapException
+  {
+    return authenticate();
+  }
+
+
+  /**
+   * Authenticates a random user, sampling latency.
+   *
+   * @return  authentication response
+   *
+   * @throws  LdapException  if the authentication fails
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public AuthenticationResponse loginLatency()
+    throws LdapException
+  {
+    return authenticate();
+  }
+
+
+  /**
+   * Authenticates a random user.
+   *
+   * @return  authentication response
+   *
+   * @throws  LdapException  if an LDAP error occurs
+   */
+  private AuthenticationResponse authenticate()
+    throws LdapException
+  {
+    final int i = ThreadLocalRandom.current().nextInt(USER_COUNT);
+    final Credential credential = new Credential(EmbeddedLdapServer.getUserPassword(i));
+    final AuthenticationResponse response = authenticator.authenticate(
+      new AuthenticationRequest(EmbeddedLdapServer.getUserId(i), credential));
+    if (!response.getResult() || response.getLdapEntry().getAttribute("mail") == null) {
+      throw new IllegalStateException("Authentication failed: " + response);
+    }
+    return response;
+  }
+
+
+  /**
+   * Creates an uninitialized pool of {@link #poolType} with a fixed size of {@link #poolSize}.
+   *
+   * @param  cf  connection factory for the pool
+   *
+   * @return  connection pool
+   */
+  private BlockingConnectionPool createPool(final DefaultConnectionFactory cf)
+  {
+    final PoolConfig pc = new PoolConfig();
+    pc.setMinPoolSize(poolSize);
+    pc.setMaxPoolSize(poolSize);
+
+    BlockingConnectionPool pool;
+    switch (ConnectionPoolType.valueOf(poolType)) {
+
+    case SOFTLIMIT:
+      pool = new SoftLimitConnectionPool(pc, cf);
+      break;
+
+    case CONCURRENT:
+      pool = new ConcurrentConnectionPool(pc, cf);
+      break;
+
+    default:
+      pool = new BlockingConnectionPool(pc, cf);
+      break;
+    }
+    return pool;
+  }
+}
@@ -0,0 +1,183 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.LdapException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of creating and opening connections with a {@link DefaultConnectionFactory}. The <em>cached</em>
+ * factory reuses its provider connection factory, the <em>uncached</em> factory creates a new one for every connection,
+ * which is how connections were created previously. Connections are opened against a local socket that accepts and
+ * discards all data, so no LDAP server is required.
+ *
+ * @author  Middleware Services
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionFactoryBenchmark
+{
+
+  /** Whether the provider connection factory is reused. */
+  @Param({"cached", "uncached"})
+  protected String factoryType;
+
+  /** Socket that accepts connections. */
+  private ServerSocket server;
+
+  /** Factory for connections to the local socket. */
+  private DefaultConnectionFactory factory;
+
+  /** Factory for LDAPS connections, which are never opened. */
+  private DefaultConnectionFactory sslFactory;
+
+
+  /**
+   * Starts the local socket and creates the connection factories.
+   *
+   * @throws  IOException  if the socket cannot be created
+   */
+  @Setup
+  public void setup()
+    throws IOException
+  {
+    server = new ServerSocket(0);
+    final Thread acceptor = new Thread(this::accept, "ldaptive-benchmark-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+
+    final boolean cached = "cached".equals(factoryType);
+    factory = cached ? new DefaultConnectionFactory() : new UncachedConnectionFactory();
+    factory.setConnectionConfig(new ConnectionConfig("ldap://localhost:" + server.getLocalPort()));
+    sslFactory = cached ? new DefaultConnectionFactory() : new UncachedConnectionFactory();
+    sslFactory.setConnectionConfig(new ConnectionConfig("ldaps://localhost:" + server.getLocalPort()));
+  }
+
+
+  /**
+   * Closes the local socket.
+   *
+   * @throws  IOException  if the socket cannot be closed
+   */
+  @TearDown
+  public void tearDown()
+    throws IOException
+  {
+    server.close();
+  }
+
+
+  /**
+   * Creates an LDAP connection without opening it.
+   *
+   * @return  connection
+   */
+  @Benchmark
+  public Connection getConnection()
+  {
+    return factory.getConnection();
+  }
+
+
+  /**
+   * Creates an LDAPS connection without opening it.
+   *
+   * @return  connection
+   */
+  @Benchmark
+  public Connection getSslConnection()
+  {
+    return sslFactory.getConnection();
+  }
+
+
+  /**
+   * Creates, opens and closes an LDAP connection.
+   *
+   * @return  connection
+   *
+   * @throws  LdapException  if the connection cannot be opened
+   */
+  @Benchmark
+  public Connection openClose()
+    throws LdapException
+  {
+    final Connection conn = factory.getConnection();
+    conn.open();
+    conn.close();
+    return conn;
+  }
+
+
+  /** Accepts connections on the local socket and discards everything they send. */
+  private void accept()
+  {
+    while (!server.isClosed()) {
+      try {
+        final Socket s = server.accept();
+        final Thread reader = new Thread(() -> discard(s));
+        reader.setDaemon(true);
+        reader.start();
+      } catch (IOException e) {
+        // server socket closed by tear down
+      }
+    }
+  }
+
+
+  /**
+   * Reads the supplied socket until it is closed.
+   *
+   * @param  s  socket to read
+   */
+  private static void discard(final Socket s)
+  {
+    try (InputStream in = s.getInputStream()) {
+      // CheckStyle:MagicNumber OFF
+      final byte[] buf = new byte[256];
+      // CheckStyle:MagicNumber ON
+      int n = in.read(buf);
+      while (n != -1) {
+        n = in.read(buf);
+      }
+    } catch (IOException e) {
+      // connection closed by the client
+    }
+  }
+
+
+  /** Connection factory that creates a new provider connection factory for every connection. */
+  public static class UncachedConnectionFactory extends DefaultConnectionFactory
+  {
+
+
+    @Override
+    public Connection getConnection()
+    {
+      invalidateProviderConnectionFactory();
+      return super.getConnection();
+    }
+  }
+}
@@ -0,0 +1,233 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import org.ldaptive.ad.control.DirSyncControl;
+import org.ldaptive.asn1.ConstructedDEREncoder;
+import org.ldaptive.asn1.ContextType;
+import org.ldaptive.asn1.DERParser;
+import org.ldaptive.asn1.DERPath;
+import org.ldaptive.asn1.DERTag;
+import org.ldaptive.asn1.IntegerType;
+import org.ldaptive.asn1.OctetStringType;
+import org.ldaptive.asn1.ParseHandler;
+import org.ldaptive.asn1.UniversalDERTag;
+import org.ldaptive.control.PagedResultsControl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of decoding control values with {@link DERParser}. Each invocation creates a parser, registers the
+ * paths used by the corresponding control and parses the encoded value, which is how controls are decoded. The
+ * <em>trie</em> parser is {@link DERParser}, the <em>permutation</em> parser matches every permutation of the current
+ * path against a map of handlers, which is how paths were matched previously.
+ *
+ * @author  Middleware Services
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DERParserBenchmark
+{
+
+  /** Type of parser. */
+  @Param({"trie", "permutation"})
+  protected String parserType;
+
+  /** Control value to decode. */
+  @Param({"pagedResults", "syncState", "sortResponse", "dirSync"})
+  protected String payload;
+
+  /** Encoded control value. */
+  private byte[] encoded;
+
+  /** Paths registered by the control. */
+  private String[] paths;
+
+  /** Number of bytes passed to handlers. */
+  private long consumed;
+
+  /** Handler that records the number of bytes it receives. */
+  private final ParseHandler handler = (parser, e) -> consumed += e.remaining();
+
+
+  /** Encodes the control value. */
+  @Setup
+  public void setup()
+  {
+    final byte[] cookie = new byte[64];
+    for (int i = 0; i < cookie.length; i++) {
+      cookie[i] = (byte) i;
+    }
+    switch (payload) {
+
+    case "pagedResults":
+      encoded = new PagedResultsControl(1000, cookie, true).encode();
+      paths = new String[] {"/SEQ/INT", "/SEQ/OCTSTR"};
+      break;
+
+    case "syncState":
+      encoded = new ConstructedDEREncoder(
+        UniversalDERTag.SEQ,
+        new IntegerType(UniversalDERTag.ENUM, 1),
+        new OctetStringType(new byte[16]),
+        new OctetStringType(cookie)).encode();
+      paths = new String[] {"/SEQ/ENUM", "/SEQ/OCTSTR[1]", "/SEQ/OCTSTR[2]"};
+      break;
+
+    case "sortResponse":
+      encoded = new ConstructedDEREncoder(
+        UniversalDERTag.SEQ,
+        new IntegerType(UniversalDERTag.ENUM, 0),
+        new ContextType(0, "givenName")).encode();
+      paths = new String[] {"/SEQ/ENUM", "/SEQ/CTX(0)"};
+      break;
+
+    case "dirSync":
+      encoded = new DirSyncControl(new DirSyncControl.Flag[] {DirSyncControl.Flag.OBJECT_SECURITY}, cookie, 1000, true)
+        .encode();
+      paths = new String[] {"/SEQ/INT[0]", "/SEQ/INT[1]", "/SEQ/OCTSTR"};
+      break;
+
+    default:
+      throw new IllegalArgumentException("Unknown payload: " + payload);
+    }
+  }
+
+
+  /**
+   * Creates a parser, registers the control paths and parses the control value.
+   *
+   * @return  number of bytes passed to handlers
+   */
+  @Benchmark
+  public long parse()
+  {
+    final DERParser parser = "permutation".equals(parserType) ? new PermutationDERParser() : new DERParser();
+    for (String path : paths) {
+      parser.registerHandler(path, handler);
+    }
+    parser.parse(ByteBuffer.wrap(encoded));
+    return consumed;
+  }
+
+
+  /** DER parser that matches every permutation of the current path, which is how paths were matched previously. */
+  public static class PermutationDERParser extends DERParser
+  {
+
+    /** Handlers for DER paths. */
+    private final Map<DERPath, ParseHandler> handlerMap = new HashMap<>();
+
+    /** Permutations of the current path. */
+    private final Queue<DERPath> permutations = new ArrayDeque<>();
+
+
+    @Override
+    public void registerHandler(final DERPath path, final ParseHandler h)
+    {
+      handlerMap.put(path, h);
+    }
+
+
+    @Override
+    public void parse(final ByteBuffer e)
+    {
+      parseTags(e);
+    }
+
+
+    /**
+     * Reads the supplied DER encoded bytes and invokes handlers as configured paths are encountered.
+     *
+     * @param  e  to parse
+     */
+    private void parseTags(final ByteBuffer e)
+    {
+      int index = 0;
+      while (e.position() < e.limit()) {
+        final DERTag tag = readTag(e);
+        if (tag != null) {
+          addTag(tag, index++);
+          parseTag(tag, e);
+          removeTag();
+        }
+      }
+    }
+
+
+    /**
+     * Invokes the parse handler for the current path and advances to the next position in the encoded bytes.
+     *
+     * @param  tag  to inspect for internal tags
+     * @param  e  to parse
+     */
+    private void parseTag(final DERTag tag, final ByteBuffer e)
+    {
+      final int end = readLength(e) + e.position();
+      final int start = e.position();
+      for (DERPath p : permutations) {
+        final ParseHandler h = handlerMap.get(p);
+        if (h != null) {
+          e.position(start).limit(end);
+          h.handle(this, e);
+        }
+      }
+      if (tag.isConstructed()) {
+        parseTags(e);
+      }
+      e.position(end).limit(e.capacity());
+    }
+
+
+    /**
+     * Adds the supplied tag to all permutations of the current path, doubling the number of permutations.
+     *
+     * @param  tag  to add to path.
+     * @param  index  of tag relative to parent.
+     */
+    private void addTag(final DERTag tag, final int index)
+    {
+      if (permutations.isEmpty()) {
+        permutations.add(new DERPath().pushNode(tag.name()));
+        permutations.add(new DERPath().pushNode(tag.name(), index));
+      } else {
+        final Collection<DERPath> generation = new ArrayDeque<>(permutations.size());
+        for (DERPath p : permutations) {
+          generation.add(new DERPath(p).pushNode(tag.name()));
+          p.pushNode(tag.name(), index);
+        }
+        permutations.addAll(generation);
+      }
+    }
+
+
+    /** Removes the leaf tag from all permutations of the current path, halving the number of permutations. */
+    private void removeTag()
+    {
+      final int half = permutations.size() / 2;
+      while (permutations.size() > half) {
+        permutations.remove();
+      }
+      permutations.forEach(DERPath::popNode);
+    }
+  }
+}
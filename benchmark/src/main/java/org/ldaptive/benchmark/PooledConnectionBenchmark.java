@@ -0,0 +1,143 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.pool.BlockingConnectionPool;
+import org.ldaptive.pool.PoolConfig;
+import org.ldaptive.pool.PoolException;
+import org.ldaptive.pool.PooledConnectionProxy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of checking connections out of and into a pool, and of invoking methods on a pooled connection.
+ * The <em>direct</em> pool hands out the connection wrappers created by the pool, the <em>reflection</em> pool hands
+ * out {@link Proxy} instances backed by the same pooled connection proxy. Connections are never opened, so no LDAP
+ * server is required.
+ *
+ * @author  Middleware Services
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledConnectionBenchmark
+{
+
+  /** Type of connection handed out by the pool. */
+  @Param({"direct", "reflection"})
+  protected String connectionType;
+
+  /** Pool to benchmark. */
+  private BlockingConnectionPool pool;
+
+  /** Connection held for the duration of the benchmark. */
+  private Connection conn;
+
+
+  /**
+   * Initializes the pool and checks out a connection.
+   *
+   * @throws  PoolException  if the connection cannot be checked out
+   */
+  @Setup
+  public void setup()
+    throws PoolException
+  {
+    final PoolConfig pc = new PoolConfig();
+    pc.setMinPoolSize(2);
+    pc.setMaxPoolSize(2);
+    pool = "reflection".equals(connectionType) ? new ReflectionConnectionPool() : new BlockingConnectionPool();
+    pool.setPoolConfig(pc);
+    pool.setConnectionFactory(new DefaultConnectionFactory("ldap://localhost:389"));
+    pool.setConnectOnCreate(false);
+    pool.initialize();
+    conn = pool.getConnection();
+  }
+
+
+  /** Returns the held connection and closes the pool. */
+  @TearDown
+  public void tearDown()
+  {
+    conn.close();
+    pool.close();
+  }
+
+
+  /**
+   * Checks a connection out of the pool and returns it.
+   *
+   * @return  connection that was checked out
+   *
+   * @throws  PoolException  if the connection cannot be checked out
+   */
+  @Benchmark
+  public Connection checkOutCheckIn()
+    throws PoolException
+  {
+    final Connection c = pool.getConnection();
+    c.close();
+    return c;
+  }
+
+
+  /**
+   * Invokes {@link Connection#isOpen()} on a pooled connection.
+   *
+   * @return  whether the connection is open
+   */
+  @Benchmark
+  public boolean isOpen()
+  {
+    return conn.isOpen();
+  }
+
+
+  /**
+   * Invokes {@link Connection#getConnectionConfig()} on a pooled connection.
+   *
+   * @return  connection config
+   */
+  @Benchmark
+  public ConnectionConfig getConnectionConfig()
+  {
+    return conn.getConnectionConfig();
+  }
+
+
+  /** Blocking pool that hands out reflection proxies, which is how pooled connections were implemented previously. */
+  public static class ReflectionConnectionPool extends BlockingConnectionPool
+  {
+
+
+    @Override
+    protected Connection createConnectionProxy(final PooledConnectionProxy pc)
+    {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] {Connection.class}, pc);
+    }
+
+
+    @Override
+    protected PooledConnectionProxy retrieveConnectionProxy(final Connection proxy)
+    {
+      return (PooledConnectionProxy) Proxy.getInvocationHandler(proxy);
+    }
+  }
+}
@@ -2,6 +2,8 @@
 package org.ldaptive;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.ldaptive.handler.AbstractRetryOperationExceptionHandler;
 import org.ldaptive.handler.Handler;
 import org.ldaptive.handler.HandlerResult;
@@ -121,35 +123,121 @@ public abstract class AbstractOperation<Q extends Request, S> implements Operati
   {
     logger.debug("execute request={} with connection={}", request, connection);
 
-    Response<S> response = null;
+    final Response<S> response;
     try {
       response = invoke(request);
     } catch (OperationException e) {
-      if (operationExceptionHandler == null) {
-        throw e;
-      }
-      logger.debug("Error performing LDAP operation, invoking exception handler: {}", operationExceptionHandler, e);
+      return handleOperationException(request, e);
+    }
+    return processResponse(request, response);
+  }
 
-      final HandlerResult<Response<S>> hr = operationExceptionHandler.handle(connection, request, response);
-      if (hr.getAbort()) {
-        throw e;
-      }
-      response = hr.getResult();
+
+  /**
+   * Invokes the operation exception handler for the supplied exception and processes the response it produces. The
+   * supplied exception is thrown if there is no handler or the handler aborts.
+   *
+   * @param  request  ldap request
+   * @param  e  thrown by the operation
+   *
+   * @return  processed ldap response produced by the handler
+   *
+   * @throws  LdapException  if the exception is not handled or an error occurs processing a handler
+   */
+  protected Response<S> handleOperationException(final Q request, final OperationException e)
+    throws LdapException
+  {
+    if (operationExceptionHandler == null) {
+      throw e;
     }
+    logger.debug("Error performing LDAP operation, invoking exception handler: {}", operationExceptionHandler, e);
 
-    if (ResultCode.REFERRAL == response.getResultCode()) {
+    final HandlerResult<Response<S>> hr = operationExceptionHandler.handle(connection, request, null);
+    if (hr.getAbort()) {
+      throw e;
+    }
+    return processResponse(request, hr.getResult());
+  }
+
+
+  /**
+   * Executes this operation without waiting for the response. Providers that implement asynchronous operations allow
+   * many requests to be outstanding on a single connection, other providers perform the operation before this method
+   * returns. The referral handler and operation response handlers are invoked when the response arrives, on the thread
+   * that completes the future, so they should not block. The operation exception handler is not invoked, since it may
+   * reopen the connection; subclasses that invoke it must do so on a thread that may block, see {@link
+   * #handleOperationException(Request, OperationException)}.
+   *
+   * @param  request  ldap request
+   *
+   * @return  future that completes with the ldap response or completes exceptionally with an {@link LdapException}
+   */
+  public CompletableFuture<Response<S>> executeAsync(final Q request)
+  {
+    logger.debug("execute async request={} with connection={}", request, connection);
+
+    CompletableFuture<Response<S>> future;
+    try {
+      future = invokeAsync(request);
+    } catch (LdapException | RuntimeException e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    return future.thenApply(
+      response -> {
+        try {
+          return processResponse(request, response);
+        } catch (LdapException e) {
+          throw new CompletionException(e);
+        }
+      });
+  }
+
+
+  /**
+   * Call the provider specific asynchronous implementation of this ldap operation. The default implementation invokes
+   * {@link #invoke(Request)} and returns a completed future.
+   *
+   * @param  request  ldap request
+   *
+   * @return  future ldap response
+   *
+   * @throws  LdapException  if the invocation fails
+   */
+  protected CompletableFuture<Response<S>> invokeAsync(final Q request)
+    throws LdapException
+  {
+    return CompletableFuture.completedFuture(invoke(request));
+  }
+
+
+  /**
+   * Invokes the referral handler if the response is a referral and then the operation response handlers.
+   *
+   * @param  request  ldap request
+   * @param  response  ldap response
+   *
+   * @return  processed ldap response
+   *
+   * @throws  LdapException  if an error occurs processing a handler
+   */
+  private Response<S> processResponse(final Q request, final Response<S> response)
+    throws LdapException
+  {
+    Response<S> processed = response;
+    if (ResultCode.REFERRAL == processed.getResultCode()) {
       @SuppressWarnings("unchecked")
       final ReferralHandler<Q, S> handler = request.getReferralHandler();
       if (handler != null) {
         logger.debug("Encountered referral, invoking referral handler: {}", handler);
 
-        final HandlerResult<Response<S>> hr = handler.handle(connection, request, response);
-        response = hr.getResult();
+        final HandlerResult<Response<S>> hr = handler.handle(connection, request, processed);
+        processed = hr.getResult();
       }
     }
 
     // execute response handlers
-    final HandlerResult<Response<S>> hr = executeHandlers(getOperationResponseHandlers(), request, response);
+    final HandlerResult<Response<S>> hr = executeHandlers(getOperationResponseHandlers(), request, processed);
 
     logger.debug("execute response={} for request={} with connection={}", hr.getResult(), request, connection);
     return hr.getResult();
@@ -0,0 +1,370 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection strategy that orders URLs by the connection metrics of the connection factory. URLs are ranked by the
+ * least connection latency or the least in-flight connection attempts, ties keep the configured order. A URL that fails
+ * {@link #getFailureThreshold()} consecutive connection attempts is ejected and moved to the end of the list. Ejected
+ * URLs are probed in the background after an exponential backoff and reinstated once a probe succeeds. Metrics are only
+ * available if the connection factory tracks them, see {@link ConnectionFactoryMetadata#getLdapUrlMetrics(String)};
+ * otherwise URLs are returned in the configured order.
+ *
+ * @author  Middleware Services
+ */
+public class AdaptiveConnectionStrategy implements ConnectionStrategy
+{
+
+  /** Default number of consecutive failures that eject a URL, value is {@value}. */
+  public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+  /** Default time a URL is ejected before it is first probed. */
+  public static final Duration DEFAULT_BASE_EJECTION_TIME = Duration.ofSeconds(1);
+
+  /** Default maximum time a URL is ejected before it is probed. */
+  public static final Duration DEFAULT_MAX_EJECTION_TIME = Duration.ofMinutes(5);
+
+  /** Default timeout of a probe. */
+  public static final Duration DEFAULT_PROBE_TIMEOUT = Duration.ofSeconds(5);
+
+  // CheckStyle:JavadocVariable OFF
+  /** Executor that runs probes for all strategies. */
+  private static final ScheduledExecutorService PROBE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+    r -> {
+      final Thread t = new Thread(r, "ldaptive-" + AdaptiveConnectionStrategy.class.getSimpleName());
+      t.setDaemon(true);
+      return t;
+    });
+  // CheckStyle:JavadocVariable ON
+
+  /** Types of ranking. */
+  public enum Ranking {
+
+    /** Rank by the moving average of the connection latency. */
+    LEAST_LATENCY,
+
+    /** Rank by the number of in-flight connection attempts, then by connection latency. */
+    LEAST_OUTSTANDING,
+  }
+
+  /** Logger for this class. */
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Ranking of URLs that are not ejected. */
+  private final Ranking ranking;
+
+  /** Number of consecutive failures that eject a URL. */
+  private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+  /** Time a URL is ejected before it is first probed. */
+  private Duration baseEjectionTime = DEFAULT_BASE_EJECTION_TIME;
+
+  /** Maximum time a URL is ejected before it is probed. */
+  private Duration maxEjectionTime = DEFAULT_MAX_EJECTION_TIME;
+
+  /** Timeout of a probe. */
+  private Duration probeTimeout = DEFAULT_PROBE_TIMEOUT;
+
+
+  /** Creates a new adaptive connection strategy that ranks by least latency. */
+  public AdaptiveConnectionStrategy()
+  {
+    this(Ranking.LEAST_LATENCY);
+  }
+
+
+  /**
+   * Creates a new adaptive connection strategy.
+   *
+   * @param  r  ranking of URLs
+   */
+  public AdaptiveConnectionStrategy(final Ranking r)
+  {
+    if (r == null) {
+      throw new IllegalArgumentException("Ranking cannot be null");
+    }
+    ranking = r;
+  }
+
+
+  /**
+   * Returns the ranking of URLs.
+   *
+   * @return  ranking
+   */
+  public Ranking getRanking()
+  {
+    return ranking;
+  }
+
+
+  /**
+   * Returns the number of consecutive failures that eject a URL.
+   *
+   * @return  failure threshold
+   */
+  public int getFailureThreshold()
+  {
+    return failureThreshold;
+  }
+
+
+  /**
+   * Sets the number of consecutive failures that eject a URL.
+   *
+   * @param  threshold  failure threshold
+   */
+  public void setFailureThreshold(final int threshold)
+  {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("Failure threshold must be greater than zero");
+    }
+    failureThreshold = threshold;
+  }
+
+
+  /**
+   * Returns the time a URL is ejected before it is first probed. The time doubles for each ejection since the last
+   * successful connection.
+   *
+   * @return  base ejection time
+   */
+  public Duration getBaseEjectionTime()
+  {
+    return baseEjectionTime;
+  }
+
+
+  /**
+   * Sets the time a URL is ejected before it is first probed.
+   *
+   * @param  time  base ejection time
+   */
+  public void setBaseEjectionTime(final Duration time)
+  {
+    if (time == null || time.isNegative() || time.isZero()) {
+      throw new IllegalArgumentException("Base ejection time must be positive");
+    }
+    baseEjectionTime = time;
+  }
+
+
+  /**
+   * Returns the maximum time a URL is ejected before it is probed.
+   *
+   * @return  maximum ejection time
+   */
+  public Duration getMaxEjectionTime()
+  {
+    return maxEjectionTime;
+  }
+
+
+  /**
+   * Sets the maximum time a URL is ejected before it is probed.
+   *
+   * @param  time  maximum ejection time
+   */
+  public void setMaxEjectionTime(final Duration time)
+  {
+    if (time == null || time.isNegative() || time.isZero()) {
+      throw new IllegalArgumentException("Max ejection time must be positive");
+    }
+    maxEjectionTime = time;
+  }
+
+
+  /**
+   * Returns the timeout of a probe.
+   *
+   * @return  probe timeout
+   */
+  public Duration getProbeTimeout()
+  {
+    return probeTimeout;
+  }
+
+
+  /**
+   * Sets the timeout of a probe.
+   *
+   * @param  time  probe timeout
+   */
+  public void setProbeTimeout(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Probe timeout cannot be null or negative");
+    }
+    probeTimeout = time;
+  }
+
+
+  /**
+   * Returns the URLs that are not ejected ordered by their ranking, followed by the ejected URLs in the configured
+   * order. URLs that have reached the failure threshold are ejected by this method.
+   *
+   * @param  metadata  which can be used to produce the URL list
+   *
+   * @return  list of URLs to attempt connections to
+   */
+  @Override
+  public String[] getLdapUrls(final ConnectionFactoryMetadata metadata)
+  {
+    if (metadata == null || metadata.getLdapUrl() == null) {
+      return null;
+    }
+
+    final List<Ranked> available = new ArrayList<>();
+    final List<String> ejected = new ArrayList<>();
+    for (String url : metadata.getLdapUrl().split(" ")) {
+      final LdapUrlMetrics m = metadata.getLdapUrlMetrics(url);
+      if (m != null && !m.isEjected() && m.getConsecutiveFailures() >= failureThreshold && m.eject()) {
+        logger.info("Ejecting {} after {} consecutive failures", url, m.getConsecutiveFailures());
+        scheduleProbe(m, m.getEjectionCount());
+      }
+      if (m != null && m.isEjected()) {
+        ejected.add(url);
+      } else {
+        available.add(new Ranked(url, m));
+      }
+    }
+
+    Comparator<Ranked> c = Comparator.comparingLong(r -> r.latency);
+    if (ranking == Ranking.LEAST_OUTSTANDING) {
+      c = Comparator.<Ranked>comparingInt(r -> r.inFlight).thenComparing(c);
+    }
+    available.sort(c);
+
+    final String[] urls = new String[available.size() + ejected.size()];
+    int i = 0;
+    for (Ranked r : available) {
+      urls[i++] = r.url;
+    }
+    for (String url : ejected) {
+      urls[i++] = url;
+    }
+    return urls;
+  }
+
+
+  /**
+   * Schedules a probe of an ejected URL. The delay is the base ejection time doubled for each previous attempt, up to
+   * the maximum ejection time. If the probe succeeds the URL is reinstated, otherwise another probe is scheduled.
+   *
+   * @param  metrics  of the ejected URL
+   * @param  attempt  number of the ejection or failed probe, starting at 1
+   */
+  protected void scheduleProbe(final LdapUrlMetrics metrics, final int attempt)
+  {
+    final long delay = getEjectionTime(attempt).toMillis();
+    logger.debug("Probing {} in {}ms", metrics.getLdapUrl(), delay);
+    PROBE_EXECUTOR.schedule(
+      () -> {
+        if (!metrics.isEjected()) {
+          logger.trace("{} was reinstated before it was probed", metrics.getLdapUrl());
+        } else if (probe(metrics.getLdapUrl())) {
+          logger.info("Reinstating {}", metrics.getLdapUrl());
+          metrics.reinstate();
+        } else {
+          scheduleProbe(metrics, attempt + 1);
+        }
+      },
+      delay,
+      TimeUnit.MILLISECONDS);
+  }
+
+
+  /**
+   * Returns the time a URL is ejected for the supplied attempt.
+   *
+   * @param  attempt  number of the ejection or failed probe, starting at 1
+   *
+   * @return  ejection time
+   */
+  protected Duration getEjectionTime(final int attempt)
+  {
+    final int shift = Math.min(Math.max(attempt - 1, 0), Long.SIZE - 2);
+    final long millis = baseEjectionTime.toMillis();
+    if (millis > maxEjectionTime.toMillis() >> shift) {
+      return maxEjectionTime;
+    }
+    return Duration.ofMillis(millis << shift);
+  }
+
+
+  /**
+   * Returns whether the supplied URL accepts TCP connections. Override to probe with an LDAP operation.
+   *
+   * @param  url  to probe
+   *
+   * @return  whether the probe succeeded
+   */
+  protected boolean probe(final String url)
+  {
+    final LdapURL.Entry entry = new LdapURL(url).getEntry();
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(entry.getHostname(), entry.getPort()), (int) probeTimeout.toMillis());
+      return true;
+    } catch (IOException e) {
+      logger.debug("Probe of {} failed", url, e);
+    }
+    return false;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::ranking=%s, failureThreshold=%s, baseEjectionTime=%s, maxEjectionTime=%s, probeTimeout=%s]",
+        getClass().getName(),
+        hashCode(),
+        ranking,
+        failureThreshold,
+        baseEjectionTime,
+        maxEjectionTime,
+        probeTimeout);
+  }
+
+
+  /** URL with a snapshot of the metrics used for ranking. */
+  private static final class Ranked
+  {
+
+    /** LDAP URL. */
+    private final String url;
+
+    /** Connection latency. */
+    private final long latency;
+
+    /** In-flight connection attempts. */
+    private final int inFlight;
+
+
+    /**
+     * Creates a new ranked URL.
+     *
+     * @param  u  LDAP URL
+     * @param  m  metrics of the URL, may be null
+     */
+    Ranked(final String u, final LdapUrlMetrics m)
+    {
+      url = u;
+      latency = m != null ? m.getConnectLatency() : 0;
+      inFlight = m != null ? m.getInFlight() : 0;
+    }
+  }
+}
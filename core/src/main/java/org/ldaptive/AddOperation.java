@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Executes an ldap add operation.
  *
@@ -27,4 +29,12 @@ public class AddOperation extends AbstractOperation<AddRequest, Void>
   {
     return getConnection().getProviderConnection().add(request);
   }
+
+
+  @Override
+  protected CompletableFuture<Response<Void>> invokeAsync(final AddRequest request)
+    throws LdapException
+  {
+    return getConnection().getProviderConnection().addAsync(request);
+  }
 }
@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Executes an ldap bind operation.
  *
@@ -27,4 +29,12 @@ public class BindOperation extends AbstractOperation<BindRequest, Void>
   {
     return getConnection().getProviderConnection().bind(request);
   }
+
+
+  @Override
+  protected CompletableFuture<Response<Void>> invokeAsync(final BindRequest request)
+    throws LdapException
+  {
+    return getConnection().getProviderConnection().bindAsync(request);
+  }
 }
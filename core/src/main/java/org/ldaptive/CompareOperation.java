@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Executes an ldap compare operation.
  *
@@ -27,4 +29,12 @@ public class CompareOperation extends AbstractOperation<CompareRequest, Boolean>
   {
     return getConnection().getProviderConnection().compare(request);
   }
+
+
+  @Override
+  protected CompletableFuture<Response<Boolean>> invokeAsync(final CompareRequest request)
+    throws LdapException
+  {
+    return getConnection().getProviderConnection().compareAsync(request);
+  }
 }
@@ -24,4 +24,17 @@ public interface ConnectionFactoryMetadata
    * @return  connection count
    */
   int getConnectionCount();
+
+
+  /**
+   * Returns the connection attempt metrics for the supplied LDAP URL.
+   *
+   * @param  url  one of the LDAP URLs produced by a connection strategy
+   *
+   * @return  ldap url metrics or null if this metadata does not track metrics
+   */
+  default LdapUrlMetrics getLdapUrlMetrics(final String url)
+  {
+    return null;
+  }
 }
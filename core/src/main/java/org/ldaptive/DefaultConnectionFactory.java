@@ -29,6 +29,9 @@ public class DefaultConnectionFactory implements ConnectionFactory
   /** Connection configuration used by this factory. */
   private ConnectionConfig config;
 
+  /** Provider connection factory shared by the connections of this factory. */
+  private volatile ProviderConnectionFactory<?> providerConnectionFactory;
+
 
   /** Default constructor. */
   public DefaultConnectionFactory() {}
@@ -90,6 +93,7 @@ public class DefaultConnectionFactory implements ConnectionFactory
   {
     config = cc;
     config.makeImmutable();
+    invalidateProviderConnectionFactory();
   }
 
 
@@ -112,6 +116,40 @@ public class DefaultConnectionFactory implements ConnectionFactory
   public void setProvider(final Provider<?> p)
   {
     provider = p;
+    invalidateProviderConnectionFactory();
+  }
+
+
+  /**
+   * Returns the provider connection factory used to create connections. The factory is created from the provider and
+   * connection config on first use and shared by every connection of this factory, so that provider resources such as
+   * SSL socket factories are initialized once.
+   *
+   * @return  provider connection factory
+   */
+  public ProviderConnectionFactory<?> getProviderConnectionFactory()
+  {
+    ProviderConnectionFactory<?> cf = providerConnectionFactory;
+    if (cf == null) {
+      synchronized (this) {
+        cf = providerConnectionFactory;
+        if (cf == null) {
+          cf = provider.getConnectionFactory(config);
+          providerConnectionFactory = cf;
+        }
+      }
+    }
+    return cf;
+  }
+
+
+  /**
+   * Discards the provider connection factory, the next connection creates a new one. This is invoked when the
+   * connection config or provider is set, and must be invoked if the provider config changes.
+   */
+  public void invalidateProviderConnectionFactory()
+  {
+    providerConnectionFactory = null;
   }
 
 
@@ -124,7 +162,7 @@ public class DefaultConnectionFactory implements ConnectionFactory
   @Override
   public Connection getConnection()
   {
-    return new DefaultConnection(config, provider.getConnectionFactory(config));
+    return new DefaultConnection(config, getProviderConnectionFactory());
   }
 
 
@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Executes an ldap delete operation.
  *
@@ -27,4 +29,12 @@ public class DeleteOperation extends AbstractOperation<DeleteRequest, Void>
   {
     return getConnection().getProviderConnection().delete(request);
   }
+
+
+  @Override
+  protected CompletableFuture<Response<Void>> invokeAsync(final DeleteRequest request)
+    throws LdapException
+  {
+    return getConnection().getProviderConnection().deleteAsync(request);
+  }
 }
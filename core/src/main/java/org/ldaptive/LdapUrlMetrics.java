@@ -0,0 +1,213 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection attempt metrics for a single LDAP URL. Tracks connection latency, failures, in-flight connection attempts
+ * and whether the URL has been ejected by a connection strategy. Metrics are updated without locking.
+ *
+ * @author  Middleware Services
+ */
+public class LdapUrlMetrics
+{
+
+  /** Weight of previous latency samples in the moving average, a new sample contributes 1/LATENCY_WEIGHT. */
+  private static final int LATENCY_WEIGHT = 8;
+
+  /** LDAP URL. */
+  private final String ldapUrl;
+
+  /** Number of connection attempts in progress. */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /** Exponentially weighted moving average of the connection latency in nanoseconds. */
+  private final AtomicLong connectLatency = new AtomicLong();
+
+  /** Number of successful connection attempts. */
+  private final AtomicLong successCount = new AtomicLong();
+
+  /** Number of failed connection attempts. */
+  private final AtomicLong failureCount = new AtomicLong();
+
+  /** Number of failed connection attempts since the last success. */
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+  /** Whether this URL is ejected. */
+  private final AtomicBoolean ejected = new AtomicBoolean();
+
+  /** Number of times this URL has been ejected since the last successful connection. */
+  private final AtomicInteger ejectionCount = new AtomicInteger();
+
+
+  /**
+   * Creates new LDAP URL metrics.
+   *
+   * @param  url  LDAP URL
+   */
+  public LdapUrlMetrics(final String url)
+  {
+    ldapUrl = url;
+  }
+
+
+  /**
+   * Returns the LDAP URL.
+   *
+   * @return  ldap url
+   */
+  public String getLdapUrl()
+  {
+    return ldapUrl;
+  }
+
+
+  /**
+   * Returns the number of connection attempts in progress.
+   *
+   * @return  in-flight connection attempts
+   */
+  public int getInFlight()
+  {
+    return inFlight.get();
+  }
+
+
+  /**
+   * Returns the moving average of the connection latency, including the time taken by failed attempts.
+   *
+   * @return  connection latency in nanoseconds or 0 if no connection has been attempted
+   */
+  public long getConnectLatency()
+  {
+    return connectLatency.get();
+  }
+
+
+  /**
+   * Returns the number of successful connection attempts.
+   *
+   * @return  success count
+   */
+  public long getSuccessCount()
+  {
+    return successCount.get();
+  }
+
+
+  /**
+   * Returns the number of failed connection attempts.
+   *
+   * @return  failure count
+   */
+  public long getFailureCount()
+  {
+    return failureCount.get();
+  }
+
+
+  /**
+   * Returns the number of failed connection attempts since the last successful attempt.
+   *
+   * @return  consecutive failures
+   */
+  public int getConsecutiveFailures()
+  {
+    return consecutiveFailures.get();
+  }
+
+
+  /**
+   * Returns whether this URL is ejected.
+   *
+   * @return  whether this URL is ejected
+   */
+  public boolean isEjected()
+  {
+    return ejected.get();
+  }
+
+
+  /**
+   * Returns the number of times this URL has been ejected since the last successful connection.
+   *
+   * @return  ejection count
+   */
+  public int getEjectionCount()
+  {
+    return ejectionCount.get();
+  }
+
+
+  /** Records the start of a connection attempt. */
+  public void connectStarted()
+  {
+    inFlight.incrementAndGet();
+  }
+
+
+  /**
+   * Records the end of a connection attempt.
+   *
+   * @param  nanos  duration of the attempt in nanoseconds
+   * @param  success  whether a connection was established
+   */
+  public void connectFinished(final long nanos, final boolean success)
+  {
+    inFlight.decrementAndGet();
+    connectLatency.updateAndGet(l -> l == 0 ? Math.max(nanos, 1) : l + (nanos - l) / LATENCY_WEIGHT);
+    if (success) {
+      successCount.incrementAndGet();
+      consecutiveFailures.set(0);
+      ejectionCount.set(0);
+    } else {
+      failureCount.incrementAndGet();
+      consecutiveFailures.incrementAndGet();
+    }
+  }
+
+
+  /**
+   * Ejects this URL if it is not already ejected.
+   *
+   * @return  whether this invocation ejected the URL
+   */
+  public boolean eject()
+  {
+    if (ejected.compareAndSet(false, true)) {
+      ejectionCount.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+
+  /** Reinstates this URL and clears its consecutive failures. */
+  public void reinstate()
+  {
+    consecutiveFailures.set(0);
+    ejected.set(false);
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::ldapUrl=%s, inFlight=%s, connectLatency=%s, successCount=%s, failureCount=%s, " +
+        "consecutiveFailures=%s, ejected=%s, ejectionCount=%s]",
+        getClass().getName(),
+        hashCode(),
+        ldapUrl,
+        inFlight,
+        connectLatency,
+        successCount,
+        failureCount,
+        consecutiveFailures,
+        ejected,
+        ejectionCount);
+  }
+}
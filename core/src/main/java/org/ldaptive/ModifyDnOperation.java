@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Executes an ldap modify dn operation.
  *
@@ -27,4 +29,12 @@ public class ModifyDnOperation extends AbstractOperation<ModifyDnRequest, Void>
   {
     return getConnection().getProviderConnection().modifyDn(request);
   }
+
+
+  @Override
+  protected CompletableFuture<Response<Void>> invokeAsync(final ModifyDnRequest request)
+    throws LdapException
+  {
+    return getConnection().getProviderConnection().modifyDnAsync(request);
+  }
 }
@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Executes an ldap modify operation.
  *
@@ -27,4 +29,12 @@ public class ModifyOperation extends AbstractOperation<ModifyRequest, Void>
   {
     return getConnection().getProviderConnection().modify(request);
   }
+
+
+  @Override
+  protected CompletableFuture<Response<Void>> invokeAsync(final ModifyRequest request)
+    throws LdapException
+  {
+    return getConnection().getProviderConnection().modifyAsync(request);
+  }
 }
@@ -0,0 +1,288 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.ldaptive.handler.HandlerResult;
+import org.ldaptive.intermediate.IntermediateResponse;
+import org.ldaptive.provider.SearchItem;
+import org.ldaptive.provider.SearchIterator;
+import org.ldaptive.referral.ReferralHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates over the entries of a search as they are read from the provider, without collecting them into a {@link
+ * SearchResult}. Search entry, search reference and intermediate response handlers are invoked as each item is read.
+ * Entries returned by followed referrals are included in the iteration, references that were not followed are
+ * available from {@link #getSearchReferences()}.
+ *
+ * <p>Only the next entry is held by this iterator, so memory use does not grow with the size of the result. How far the
+ * provider reads ahead of the caller is determined by the provider, e.g. the java.naming.batchsize property of the JNDI
+ * provider. Closing this iterator before the search completes closes the provider iterator, which abandons the search
+ * if the provider supports it. Instances must be closed, use try-with-resources or {@link Stream#close()}.</p>
+ *
+ * <p>Errors that occur while reading the search are thrown as {@link IllegalStateException} with the {@link
+ * LdapException} as the cause. These are the same errors that cause the execute method of {@link SearchOperation} to
+ * throw, the provider raises them for result codes it is configured to treat as exceptions. A search that completes
+ * with any other result code ends the iteration normally, just as execute returns such a response; check the result
+ * code from {@link #getResponse()}. If the search completes with a referral and the request has a referral handler,
+ * that handler is invoked and the entries it returns are included in the iteration.</p>
+ *
+ * @author  Middleware Services
+ */
+public class SearchEntryIterator implements Iterator<LdapEntry>, AutoCloseable
+{
+
+  /** Logger for this class. */
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Operation used to invoke handlers. */
+  private final SearchOperation operation;
+
+  /** Request the search was performed with. */
+  private final SearchRequest request;
+
+  /** Provider search iterator. */
+  private final SearchIterator searchIterator;
+
+  /** Entries that have been read and not yet returned, more than one if a referral was followed. */
+  private final Queue<LdapEntry> pendingEntries = new ArrayDeque<>();
+
+  /** References that were not followed. */
+  private final List<SearchReference> searchReferences = new ArrayList<>();
+
+  /** Next entry to return. */
+  private LdapEntry nextEntry;
+
+  /** Whether the provider iterator is exhausted or a handler aborted the search. */
+  private boolean done;
+
+  /** Whether this iterator has been closed. */
+  private boolean closed;
+
+  /** Response produced by the referral handler, if one was invoked. */
+  private Response<Void> referralResponse;
+
+
+  /**
+   * Creates a new search entry iterator.
+   *
+   * @param  op  search operation used to invoke handlers
+   * @param  sr  search request
+   * @param  si  provider search iterator
+   */
+  public SearchEntryIterator(final SearchOperation op, final SearchRequest sr, final SearchIterator si)
+  {
+    operation = op;
+    request = sr;
+    searchIterator = si;
+  }
+
+
+  @Override
+  public boolean hasNext()
+  {
+    if (nextEntry == null && !closed) {
+      try {
+        nextEntry = readEntry();
+      } catch (LdapException e) {
+        throw new IllegalStateException("Error reading search entry", e);
+      }
+    }
+    return nextEntry != null;
+  }
+
+
+  @Override
+  public LdapEntry next()
+  {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    final LdapEntry entry = nextEntry;
+    nextEntry = null;
+    return entry;
+  }
+
+
+  /**
+   * Returns the references that were received and not followed.
+   *
+   * @return  search references
+   */
+  public List<SearchReference> getSearchReferences()
+  {
+    return searchReferences;
+  }
+
+
+  /**
+   * Returns the response data associated with this search or null if the search has not completed.
+   *
+   * @return  response data
+   */
+  public Response<Void> getResponse()
+  {
+    return referralResponse != null ? referralResponse : searchIterator.getResponse();
+  }
+
+
+  /**
+   * Returns a sequential stream of the remaining entries. Closing the stream closes this iterator.
+   *
+   * @return  stream of entries
+   */
+  public Stream<LdapEntry> stream()
+  {
+    return
+      StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+        false).onClose(this::close);
+  }
+
+
+  /** Closes the provider iterator. Subsequent calls to {@link #hasNext()} return false. */
+  @Override
+  public void close()
+  {
+    if (!closed) {
+      closed = true;
+      nextEntry = null;
+      pendingEntries.clear();
+      try {
+        searchIterator.close();
+      } catch (LdapException e) {
+        logger.warn("Error closing search iterator for request={}", request, e);
+      }
+    }
+  }
+
+
+  /**
+   * Reads items from the provider iterator until an entry is available or the search completes.
+   *
+   * @return  next entry or null if the search has completed
+   *
+   * @throws  LdapException  if an error occurs reading the search
+   */
+  private LdapEntry readEntry()
+    throws LdapException
+  {
+    while (pendingEntries.isEmpty() && !done) {
+      if (searchIterator.hasNext()) {
+        readItem(searchIterator.next());
+      } else {
+        done = true;
+        readResponse(searchIterator.getResponse());
+      }
+    }
+    return pendingEntries.poll();
+  }
+
+
+  /**
+   * Invokes the referral handler of the request if the supplied response of a completed search is a referral. Entries
+   * returned by the handler are added to {@link #pendingEntries}.
+   *
+   * @param  response  of the provider iterator
+   *
+   * @throws  LdapException  if an error occurs invoking the referral handler
+   */
+  @SuppressWarnings("unchecked")
+  private void readResponse(final Response<Void> response)
+    throws LdapException
+  {
+    if (response == null || response.getResultCode() != ResultCode.REFERRAL || request.getReferralHandler() == null) {
+      return;
+    }
+
+    final ReferralHandler<SearchRequest, SearchResult> handler = request.getReferralHandler();
+    logger.debug("Encountered referral, invoking referral handler: {}", handler);
+
+    final HandlerResult<Response<SearchResult>> hr = handler.handle(
+      operation.getConnection(),
+      request,
+      new Response<>(
+        new SearchResult(request.getSortBehavior()),
+        response.getResultCode(),
+        response.getMessage(),
+        response.getMatchedDn(),
+        response.getControls(),
+        response.getReferralURLs(),
+        response.getMessageId()));
+    final Response<SearchResult> processed = hr.getResult();
+    if (processed != null) {
+      if (processed.getResult() != null) {
+        pendingEntries.addAll(processed.getResult().getEntries());
+        searchReferences.addAll(processed.getResult().getReferences());
+      }
+      referralResponse = new Response<>(
+        null,
+        processed.getResultCode(),
+        processed.getMessage(),
+        processed.getMatchedDn(),
+        processed.getControls(),
+        processed.getReferralURLs(),
+        processed.getMessageId());
+    }
+  }
+
+
+  /**
+   * Invokes the handlers for the supplied item. Entries to return are added to {@link #pendingEntries}.
+   *
+   * @param  item  read from the provider iterator
+   *
+   * @throws  LdapException  if an error occurs invoking a handler
+   */
+  private void readItem(final SearchItem item)
+    throws LdapException
+  {
+    logger.trace("Received search item={}", item);
+    boolean abort = false;
+    if (item.isSearchEntry() && item.getSearchEntry() != null) {
+      final HandlerResult<SearchEntry> hr = operation.executeHandlers(
+        request.getSearchEntryHandlers(),
+        request,
+        item.getSearchEntry());
+      if (hr.getResult() != null) {
+        pendingEntries.add(hr.getResult());
+      }
+      abort = hr.getAbort();
+    } else if (item.isSearchReference() && item.getSearchReference() != null) {
+      final HandlerResult<SearchReference> hr = operation.executeHandlers(
+        request.getSearchReferenceHandlers(),
+        request,
+        item.getSearchReference());
+      if (hr.getResult() != null) {
+        final Response<SearchResult> refResponse = hr.getResult().getReferenceResponse();
+        if (refResponse != null && refResponse.getResultCode() == ResultCode.SUCCESS) {
+          pendingEntries.addAll(refResponse.getResult().getEntries());
+        } else {
+          searchReferences.add(hr.getResult());
+        }
+      }
+      abort = hr.getAbort();
+    } else if (item.isIntermediateResponse() && item.getIntermediateResponse() != null) {
+      final HandlerResult<IntermediateResponse> hr = operation.executeHandlers(
+        request.getIntermediateResponseHandlers(),
+        request,
+        item.getIntermediateResponse());
+      abort = hr.getAbort();
+    }
+    if (abort) {
+      logger.debug("Aborting search on item={}", item);
+      done = true;
+    }
+  }
+}
@@ -1,7 +1,9 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive;
 
+import java.util.stream.Stream;
 import org.ldaptive.cache.Cache;
+import org.ldaptive.cache.CoalescingCache;
 import org.ldaptive.handler.HandlerResult;
 import org.ldaptive.intermediate.IntermediateResponse;
 import org.ldaptive.provider.SearchItem;
@@ -45,7 +47,8 @@ public class SearchOperation extends AbstractOperation<SearchRequest, SearchResu
 
   /**
    * Returns the cache to check when performing search operations. When a cache is provided it will be populated as new
-   * searches are performed and used when a search request hits the cache.
+   * searches are performed and used when a search request hits the cache. If the cache is a {@link CoalescingCache},
+   * concurrent searches for the same request share a single search.
    *
    * @return  cache
    */
@@ -71,7 +74,10 @@ public class SearchOperation extends AbstractOperation<SearchRequest, SearchResu
     throws LdapException
   {
     Response<SearchResult> response;
-    if (cache != null) {
+    if (cache instanceof CoalescingCache) {
+      response = ((CoalescingCache<SearchRequest>) cache).get(request, this::executeSearch);
+      logger.debug("invoke returned result={} from coalescing cache", response.getResult());
+    } else if (cache != null) {
       final SearchResult sr = cache.get(request);
       if (sr == null) {
         response = executeSearch(request);
@@ -88,6 +94,56 @@ public class SearchOperation extends AbstractOperation<SearchRequest, SearchResu
   }
 
 
+  /**
+   * Performs the ldap search and returns an iterator over the entries as they are read. Unlike {@code execute}, entries
+   * are not collected into a {@link SearchResult}, so large results can be processed with constant memory. The iterator
+   * must be closed.
+   *
+   * <p>The search entry, search reference, intermediate response and referral handlers of the request are invoked as
+   * they are by {@code execute}, and result codes are handled the same way: the provider throws for the result codes it
+   * treats as exceptions, any other result code is available from {@link SearchEntryIterator#getResponse()}. This
+   * operation differs from {@code execute} in that:</p>
+   *
+   * <ul>
+   *   <li>the cache is not used</li>
+   *   <li>the operation response handlers are not invoked, since there is no {@link SearchResult} to give them</li>
+   *   <li>the operation exception handler is not invoked and the search is not retried, an exception thrown by the
+   *     provider when the search is started is thrown from this method, an exception thrown while reading is thrown
+   *     from the iterator as described in {@link SearchEntryIterator}</li>
+   * </ul>
+   *
+   * @param  request  to invoke search with
+   *
+   * @return  search entry iterator
+   *
+   * @throws  LdapException  if an error occurs
+   */
+  public SearchEntryIterator iterate(final SearchRequest request)
+    throws LdapException
+  {
+    logger.debug("iterate request={} with connection={}", request, getConnection());
+    return new SearchEntryIterator(this, request, getConnection().getProviderConnection().search(request));
+  }
+
+
+  /**
+   * Performs the ldap search and returns a stream of the entries as they are read. See {@link
+   * #iterate(SearchRequest)}. The stream must be closed, closing it before it is consumed abandons the search if the
+   * provider supports it.
+   *
+   * @param  request  to invoke search with
+   *
+   * @return  stream of entries
+   *
+   * @throws  LdapException  if an error occurs
+   */
+  public Stream<LdapEntry> stream(final SearchRequest request)
+    throws LdapException
+  {
+    return iterate(request).stream();
+  }
+
+
   /**
    * Performs the ldap search.
    *
@@ -106,8 +106,6 @@ public class NotificationClient
         {
           try {
             logger.debug("received {}", response);
-            search.shutdown();
-
             queue.put(new NotificationItem(response));
           } catch (Exception e) {
             logger.warn("Unable to enqueue response {}", response);
@@ -137,7 +135,6 @@ public class NotificationClient
       (conn, request1, exception) -> {
         try {
           logger.debug("received exception:", exception);
-          search.shutdown();
           queue.put(new NotificationItem(exception));
         } catch (Exception e) {
           logger.warn("Unable to enqueue exception:", exception);
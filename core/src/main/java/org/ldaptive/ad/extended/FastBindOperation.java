@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.ad.extended;
 
+import java.util.concurrent.CompletableFuture;
 import org.ldaptive.AbstractOperation;
 import org.ldaptive.Connection;
 import org.ldaptive.ConnectionInitializer;
@@ -38,6 +39,16 @@ public class FastBindOperation extends AbstractOperation<FastBindRequest, Void>
   }
 
 
+  @Override
+  @SuppressWarnings("unchecked")
+  protected CompletableFuture<Response<Void>> invokeAsync(final FastBindRequest request)
+    throws LdapException
+  {
+    return
+      getConnection().getProviderConnection().extendedOperationAsync(request).thenApply(r -> (Response<Void>) r);
+  }
+
+
   /** Connection initializer that executes the {@link FastBindOperation}. */
   public static class FastBindConnectionInitializer implements ConnectionInitializer
   {
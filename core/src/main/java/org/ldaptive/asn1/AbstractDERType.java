@@ -44,32 +44,72 @@ public abstract class AbstractDERType
       itemLength += b.length;
     }
 
-    byte[] lengthBytes;
-    if (itemLength <= SHORT_FORM_INT_LENGTH) {
-      lengthBytes = new byte[] {(byte) itemLength};
-    } else {
-      // use 4 bytes for all long form integers
-      // CheckStyle:MagicNumber OFF
-      lengthBytes = new byte[] {
-        (byte) 0x84,
-        (byte) (itemLength >>> 24),
-        (byte) (itemLength >>> 16),
-        (byte) (itemLength >>> 8),
-        (byte) itemLength,
-      };
-      // CheckStyle:MagicNumber ON
+    final ByteBuffer encodedItem = ByteBuffer.allocate(getEncodedLength(itemLength));
+    encodeHeader(encodedItem, itemLength);
+    for (byte[] b : items) {
+      encodedItem.put(b);
     }
+    return encodedItem.array();
+  }
 
-    // add 1 for the type tag, 1 or 5 for the length
-    final ByteBuffer encodedItem = ByteBuffer.allocate(itemLength + 1 + lengthBytes.length);
-    encodedItem.put((byte) derTag);
-    for (byte b : lengthBytes) {
-      encodedItem.put(b);
+
+  /**
+   * DER encode the supplied items with the tag associated with this type into the supplied buffer.
+   *
+   * @param  buffer  to write to
+   * @param  items  to encode
+   */
+  protected void encode(final ByteBuffer buffer, final byte[]... items)
+  {
+    int itemLength = 0;
+    for (byte[] b : items) {
+      itemLength += b.length;
     }
+    encodeHeader(buffer, itemLength);
     for (byte[] b : items) {
-      encodedItem.put(b);
+      buffer.put(b);
+    }
+  }
+
+
+  /**
+   * Returns the number of bytes needed to encode a value of the supplied length, including the tag and length.
+   *
+   * @param  valueLength  length of the value
+   *
+   * @return  length of the DER encoding
+   */
+  protected int getEncodedLength(final int valueLength)
+  {
+    // add 1 for the type tag, 1 or 5 for the length
+    // CheckStyle:MagicNumber OFF
+    return valueLength + (valueLength <= SHORT_FORM_INT_LENGTH ? 2 : 6);
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  /**
+   * Writes the tag associated with this type and the supplied length into the supplied buffer. If the length is greater
+   * than 127 bytes the long form is always expressed using 4 bytes.
+   *
+   * @param  buffer  to write to
+   * @param  valueLength  length of the value that follows
+   */
+  protected void encodeHeader(final ByteBuffer buffer, final int valueLength)
+  {
+    buffer.put((byte) derTag);
+    if (valueLength <= SHORT_FORM_INT_LENGTH) {
+      buffer.put((byte) valueLength);
+    } else {
+      // use 4 bytes for all long form integers
+      // CheckStyle:MagicNumber OFF
+      buffer.put((byte) 0x84)
+        .put((byte) (valueLength >>> 24))
+        .put((byte) (valueLength >>> 16))
+        .put((byte) (valueLength >>> 8))
+        .put((byte) valueLength);
+      // CheckStyle:MagicNumber ON
     }
-    return encodedItem.array();
   }
 
 
@@ -8,7 +8,7 @@ import java.nio.ByteBuffer;
  *
  * @author  Middleware Services
  */
-public class BooleanType extends AbstractDERType implements DEREncoder
+public class BooleanType extends AbstractDERType implements DERBufferEncoder
 {
 
   /** Boolean true byte representation. */
@@ -58,6 +58,20 @@ public class BooleanType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int getEncodedLength()
+  {
+    return getEncodedLength(derItem.length);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer buffer)
+  {
+    encode(buffer, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to a boolean by reading from the current position to the limit.
    *
@@ -1,20 +1,28 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.asn1;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
- * Encodes constructed types to their DER format.
+ * Encodes constructed types to their DER format. Lengths are computed bottom-up when the encoder is created, so the
+ * entire structure is written into a single buffer without copying the encoding of each child. Children that do not
+ * implement {@link DERBufferEncoder} are encoded once with {@link DEREncoder#encode()} when the encoder is created and
+ * copied into the buffer. Instances are immutable and may be encoded any number of times by concurrent threads.
  *
  * @author  Middleware Services
  */
-public class ConstructedDEREncoder extends AbstractDERType implements DEREncoder
+public class ConstructedDEREncoder extends AbstractDERType implements DERBufferEncoder
 {
 
   /** Encoders in this sequence. */
   private final DEREncoder[] derEncoders;
 
+  /** Encodings of the children that do not implement {@link DERBufferEncoder}, null if every child does. */
+  private final byte[][] childEncodings;
+
+  /** Length of the encoded children. */
+  private final int valueLength;
+
 
   /**
    * Creates a new sequence encoder.
@@ -31,25 +39,52 @@ public class ConstructedDEREncoder extends AbstractDERType implements DEREncoder
     if (encoders == null || encoders.length == 0) {
       throw new IllegalArgumentException("Encoders cannot be null or empty");
     }
-    derEncoders = encoders;
+    derEncoders = encoders.clone();
+
+    byte[][] encodings = null;
+    int length = 0;
+    for (int i = 0; i < derEncoders.length; i++) {
+      if (derEncoders[i] instanceof DERBufferEncoder) {
+        length += ((DERBufferEncoder) derEncoders[i]).getEncodedLength();
+      } else {
+        if (encodings == null) {
+          encodings = new byte[derEncoders.length][];
+        }
+        encodings[i] = derEncoders[i].encode();
+        length += encodings[i].length;
+      }
+    }
+    childEncodings = encodings;
+    valueLength = length;
   }
 
 
   @Override
   public byte[] encode()
   {
-    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-    try {
-      try {
-        for (DEREncoder encoder : derEncoders) {
-          bytes.write(encoder.encode());
-        }
-      } finally {
-        bytes.close();
+    final ByteBuffer buffer = ByteBuffer.allocate(getEncodedLength());
+    encode(buffer);
+    return buffer.array();
+  }
+
+
+  @Override
+  public int getEncodedLength()
+  {
+    return getEncodedLength(valueLength);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer buffer)
+  {
+    encodeHeader(buffer, valueLength);
+    for (int i = 0; i < derEncoders.length; i++) {
+      if (derEncoders[i] instanceof DERBufferEncoder) {
+        ((DERBufferEncoder) derEncoders[i]).encode(buffer);
+      } else {
+        buffer.put(childEncodings[i]);
       }
-    } catch (IOException e) {
-      throw new IllegalStateException("Encode failed", e);
     }
-    return encode(bytes.toByteArray());
   }
 }
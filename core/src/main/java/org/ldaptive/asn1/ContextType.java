@@ -2,13 +2,14 @@
 package org.ldaptive.asn1;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 /**
  * Converts context types to their DER encoded format.
  *
  * @author  Middleware Services
  */
-public class ContextType extends AbstractDERType implements DEREncoder
+public class ContextType extends AbstractDERType implements DERBufferEncoder
 {
 
   /** Data to encode. */
@@ -69,4 +70,18 @@ public class ContextType extends AbstractDERType implements DEREncoder
   {
     return encode(derItem);
   }
+
+
+  @Override
+  public int getEncodedLength()
+  {
+    return getEncodedLength(derItem.length);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer buffer)
+  {
+    encode(buffer, derItem);
+  }
 }
@@ -0,0 +1,34 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.asn1;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for encoding DER objects directly into a buffer. The length of the encoding is known before it is written,
+ * so a constructed type can size a single buffer for itself and all of its children and have each child write into it
+ * in turn.
+ *
+ * @author  Middleware Services
+ */
+public interface DERBufferEncoder extends DEREncoder
+{
+
+
+  /**
+   * Returns the number of bytes written by {@link #encode(ByteBuffer)}, including the tag and length.
+   *
+   * @return  length of the DER encoded object
+   */
+  int getEncodedLength();
+
+
+  /**
+   * Encode this object into it's DER type at the current position of the supplied buffer. The buffer position is
+   * advanced by {@link #getEncodedLength()} bytes.
+   *
+   * @param  buffer  to write to
+   *
+   * @throws  java.nio.BufferOverflowException  if the buffer does not have enough remaining space
+   */
+  void encode(ByteBuffer buffer);
+}
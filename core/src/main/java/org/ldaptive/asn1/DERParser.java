@@ -2,11 +2,7 @@
 package org.ldaptive.asn1;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Queue;
+import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,20 +11,55 @@ import org.slf4j.LoggerFactory;
  * be registered to handlers via the {@link #registerHandler} methods. {@link DERPath} strings are used to map handlers
  * to elements of interest.
  *
+ * <p>Registered paths are compiled into a trie. While parsing, the parser tracks the trie nodes that match the current
+ * path at each depth, so each tag is matched by comparing its identifier against the children of those nodes. No
+ * objects are created per tag, and elements that cannot match any registered path are skipped without being parsed.
+ * Parsing reads between the position and limit of the supplied buffer and never writes to it, so read-only buffers and
+ * slices of a larger buffer may be parsed directly.</p>
+ *
  * @author  Middleware Services
  * @see  DERPath
  */
 public class DERParser
 {
 
+  /** Universal tags indexed by the low five bits of the tag byte. */
+  // CheckStyle:MagicNumber OFF
+  private static final UniversalDERTag[] UNIVERSAL_TAGS = new UniversalDERTag[32];
+  // CheckStyle:MagicNumber ON
+
+  /** Initial number of depths and matching nodes per depth. */
+  private static final int INITIAL_CAPACITY = 4;
+
   /** Logger for this class. */
   protected final Logger logger = LoggerFactory.getLogger(getClass());
 
-  /** Handlers for DER paths. */
-  private final Map<DERPath, ParseHandler> handlerMap = new HashMap<>();
+  /** Root of the trie of registered paths. */
+  private final PathNode root = new PathNode();
 
-  /** Permutations of the current path. */
-  private final Queue<DERPath> permutations = new ArrayDeque<>();
+  /** Trie nodes that match the current path, indexed by depth. */
+  private PathNode[][] matches = new PathNode[INITIAL_CAPACITY][];
+
+  /** Number of trie nodes that match the current path, indexed by depth. */
+  private int[] matchCounts = new int[INITIAL_CAPACITY];
+
+
+  /**
+   * Class initializer.
+   */
+  static {
+    for (UniversalDERTag tag : UniversalDERTag.values()) {
+      UNIVERSAL_TAGS[tag.getTagNo()] = tag;
+    }
+  }
+
+
+  /** Creates a new DER parser. */
+  public DERParser()
+  {
+    matches[0] = new PathNode[] {root};
+    matchCounts[0] = 1;
+  }
 
 
   /**
@@ -51,7 +82,11 @@ public class DERParser
    */
   public void registerHandler(final DERPath path, final ParseHandler handler)
   {
-    handlerMap.put(path, handler);
+    PathNode node = root;
+    for (DERPath.Node n : path.getNodes()) {
+      node = node.addChild(toIdentifier(n.getName()), n.getChildIndex());
+    }
+    node.handler = handler;
   }
 
 
@@ -63,7 +98,7 @@ public class DERParser
    */
   public void parse(final ByteBuffer encoded)
   {
-    parseTags(encoded);
+    parseTags(encoded, 1, encoded.limit());
   }
 
 
@@ -145,93 +180,254 @@ public class DERParser
 
 
   /**
-   * Reads the supplied DER encoded bytes and invokes handlers as configured paths are encountered.
+   * Reads the supplied DER encoded bytes up to the supplied limit and invokes handlers as configured paths are
+   * encountered.
    *
    * @param  encoded  to parse
+   * @param  depth  of the tags being read, the outermost tags have a depth of one
+   * @param  limit  position at which the enclosing element ends
    */
-  private void parseTags(final ByteBuffer encoded)
+  private void parseTags(final ByteBuffer encoded, final int depth, final int limit)
   {
     int index = 0;
-    while (encoded.position() < encoded.limit()) {
-      final DERTag tag = readTag(encoded);
-      if (tag != null) {
-        addTag(tag, index++);
-        parseTag(tag, encoded);
-        removeTag();
+    while (encoded.position() < limit) {
+      // CheckStyle:MagicNumber OFF
+      final int b = encoded.get() & 0xFF;
+      final int tagClass = b & 0xC0;
+      final int tagNo = b & 0x1F;
+      final boolean constructed;
+      switch (tagClass) {
+
+      case UniversalDERTag.TAG_CLASS:
+        if (UNIVERSAL_TAGS[tagNo] == null) {
+          throw new IllegalArgumentException("Unknown tag number: " + tagNo);
+        }
+        constructed = UNIVERSAL_TAGS[tagNo].isConstructed();
+        break;
+
+      case ApplicationDERTag.TAG_CLASS:
+      case ContextDERTag.TAG_CLASS:
+        constructed = (b & 0x20) == 0x20;
+        break;
+
+      default:
+        // Private class (class 11b)
+        throw new IllegalArgumentException("Private classes not supported.");
+      }
+      // CheckStyle:MagicNumber ON
+      final int length = readLength(encoded, limit);
+      final int start = encoded.position();
+      final int end = start + length;
+      if (end > limit || end < start) {
+        throw new IllegalArgumentException("Length " + length + " exceeds enclosing element");
+      }
+      if (match(depth, identifier(tagClass, tagNo), index++)) {
+        invokeHandlers(encoded, depth, start, end);
+        if (constructed) {
+          encoded.limit(end).position(start);
+          parseTags(encoded, depth + 1, end);
+        }
       }
+      encoded.limit(limit).position(end);
     }
   }
 
 
   /**
-   * Invokes the parse handler for the current path and advances to the next position in the encoded bytes.
+   * Reads the length of a DER-encoded value without changing the limit of the buffer.
    *
-   * @param  tag  to inspect for internal tags
-   * @param  encoded  to parse
+   * @param  encoded  buffer positioned at the start of the length byte(s)
+   * @param  limit  position at which the enclosing element ends
+   *
+   * @return  number of bytes occupied by the value
    */
-  private void parseTag(final DERTag tag, final ByteBuffer encoded)
+  private static int readLength(final ByteBuffer encoded, final int limit)
   {
-    final int end = readLength(encoded) + encoded.position();
-    final int start = encoded.position();
+    if (encoded.position() >= limit) {
+      throw new IllegalArgumentException("Missing length");
+    }
+    // CheckStyle:MagicNumber OFF
+    final int b = encoded.get() & 0xFF;
+    if ((b & 0x80) == 0) {
+      return b;
+    }
 
-    // Invoke handlers for all permutations of current path
-    ParseHandler handler;
-    for (DERPath p : permutations) {
-      handler = handlerMap.get(p);
-      if (handler != null) {
-        encoded.position(start).limit(end);
-        handler.handle(this, encoded);
+    final int len = b & 0x7F;
+    if (len > 4 || encoded.position() + len > limit) {
+      throw new IllegalArgumentException("Invalid length of " + len + " bytes");
+    }
+    int length = 0;
+    for (int i = 0; i < len; i++) {
+      length = (length << 8) | (encoded.get() & 0xFF);
+    }
+    // CheckStyle:MagicNumber ON
+    return length;
+  }
+
+
+  /**
+   * Collects the trie nodes at the supplied depth that match a tag, given the nodes that matched its parent.
+   *
+   * @param  depth  of the tag
+   * @param  identifier  of the tag, see {@link #identifier(int, int)}
+   * @param  index  of the tag relative to its parent
+   *
+   * @return  whether any trie node matched the tag
+   */
+  private boolean match(final int depth, final int identifier, final int index)
+  {
+    if (depth == matches.length) {
+      matches = Arrays.copyOf(matches, depth * 2);
+      matchCounts = Arrays.copyOf(matchCounts, depth * 2);
+    }
+    int count = 0;
+    final PathNode[] parents = matches[depth - 1];
+    for (int i = 0; i < matchCounts[depth - 1]; i++) {
+      final PathNode parent = parents[i];
+      for (int j = 0; j < parent.childCount; j++) {
+        final PathNode child = parent.children[j];
+        if (child.identifier == identifier && (child.childIndex < 0 || child.childIndex == index)) {
+          if (matches[depth] == null) {
+            matches[depth] = new PathNode[INITIAL_CAPACITY];
+          } else if (count == matches[depth].length) {
+            matches[depth] = Arrays.copyOf(matches[depth], count * 2);
+          }
+          matches[depth][count++] = child;
+        }
       }
     }
+    matchCounts[depth] = count;
+    return count > 0;
+  }
 
-    if (tag.isConstructed()) {
-      parseTags(encoded);
+
+  /**
+   * Invokes the handler of each trie node that matches the tag at the supplied depth.
+   *
+   * @param  encoded  to pass to handlers
+   * @param  depth  of the tag
+   * @param  start  position of the value
+   * @param  end  position after the value
+   */
+  private void invokeHandlers(final ByteBuffer encoded, final int depth, final int start, final int end)
+  {
+    for (int i = 0; i < matchCounts[depth]; i++) {
+      final ParseHandler handler = matches[depth][i].handler;
+      if (handler != null) {
+        encoded.limit(end).position(start);
+        handler.handle(this, encoded);
+      }
     }
-    encoded.position(end).limit(encoded.capacity());
   }
 
 
   /**
-   * Add the given tag at the specified index to all permutations of the current parser path and increases the number of
-   * permutations as necessary to satisfy the following relation:
+   * Returns the identifier for the supplied path node name.
    *
-   * <pre>size = 2^n</pre>
+   * @param  name  of a path node, e.g. SEQ or CTX(0)
    *
-   * <p>where n is the path length.</p>
+   * @return  tag identifier
    *
-   * @param  tag  to add to path.
-   * @param  index  of tag relative to parent.
+   * @throws  IllegalArgumentException  if the name is not a valid node name
    */
-  private void addTag(final DERTag tag, final int index)
+  private static int toIdentifier(final String name)
   {
-    if (permutations.isEmpty()) {
-      permutations.add(new DERPath().pushNode(tag.name()));
-      permutations.add(new DERPath().pushNode(tag.name(), index));
+    final UniversalDERTag tag = UniversalDERTag.fromTagName(name);
+    if (tag != null) {
+      return identifier(UniversalDERTag.TAG_CLASS, tag.getTagNo());
+    }
+
+    final int open = name.indexOf('(');
+    final String tagName = open > 0 && name.endsWith(")") ? name.substring(0, open) : null;
+    final int tagClass;
+    if (ApplicationDERTag.TAG_NAME.equals(tagName)) {
+      tagClass = ApplicationDERTag.TAG_CLASS;
+    } else if (ContextDERTag.TAG_NAME.equals(tagName)) {
+      tagClass = ContextDERTag.TAG_CLASS;
     } else {
-      final Collection<DERPath> generation = new ArrayDeque<>(permutations.size());
-      for (DERPath p : permutations) {
-        generation.add(new DERPath(p).pushNode(tag.name()));
-        p.pushNode(tag.name(), index);
-      }
-      permutations.addAll(generation);
+      throw new IllegalArgumentException("Invalid node name: " + name);
     }
+    return identifier(tagClass, Integer.parseInt(name.substring(open + 1, name.length() - 1)));
   }
 
 
   /**
-   * Removes the tag at the leaf position of all permutations of the current parser path, and reduces the number of
-   * permutations as necessary to satisfy the following relation:
+   * Returns an identifier that is unique for the supplied tag class and number, regardless of whether the tag is
+   * constructed.
    *
-   * <pre>size = 2^n</pre>
+   * @param  tagClass  of the tag
+   * @param  tagNo  of the tag
    *
-   * <p>where n is the path length.</p>
+   * @return  tag identifier
    */
-  private void removeTag()
+  private static int identifier(final int tagClass, final int tagNo)
   {
-    final int half = permutations.size() / 2;
-    while (permutations.size() > half) {
-      permutations.remove();
+    // CheckStyle:MagicNumber OFF
+    return tagClass << 24 | tagNo;
+    // CheckStyle:MagicNumber ON
+  }
+
+
+  /** Node in the trie of registered paths. */
+  private static class PathNode
+  {
+
+    /** Tag identifier of this node. */
+    private final int identifier;
+
+    /** Child index of this node or -1 to match any index. */
+    private final int childIndex;
+
+    /** Handler registered for the path ending at this node. */
+    private ParseHandler handler;
+
+    /** Child nodes. */
+    private PathNode[] children = new PathNode[0];
+
+    /** Number of child nodes. */
+    private int childCount;
+
+
+    /** Creates a new root node. */
+    PathNode()
+    {
+      this(0, -1);
+    }
+
+
+    /**
+     * Creates a new path node.
+     *
+     * @param  id  tag identifier
+     * @param  index  child index or -1 to match any index
+     */
+    PathNode(final int id, final int index)
+    {
+      identifier = id;
+      childIndex = index;
+    }
+
+
+    /**
+     * Returns the child with the supplied identifier and index, creating it if it does not exist.
+     *
+     * @param  id  tag identifier
+     * @param  index  child index or -1 to match any index
+     *
+     * @return  child node
+     */
+    PathNode addChild(final int id, final int index)
+    {
+      for (int i = 0; i < childCount; i++) {
+        if (children[i].identifier == id && children[i].childIndex == index) {
+          return children[i];
+        }
+      }
+      if (childCount == children.length) {
+        children = Arrays.copyOf(children, Math.max(INITIAL_CAPACITY, childCount * 2));
+      }
+      children[childCount] = new PathNode(id, index);
+      return children[childCount++];
     }
-    permutations.forEach(DERPath::popNode);
   }
 }
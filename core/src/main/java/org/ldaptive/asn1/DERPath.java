@@ -195,6 +195,17 @@ public class DERPath
   }
 
 
+  /**
+   * Returns the nodes in this path, from the root to the leaf.
+   *
+   * @return  path nodes
+   */
+  Node[] getNodes()
+  {
+    return nodeStack.toArray(new Node[nodeStack.size()]);
+  }
+
+
   @Override
   public boolean equals(final Object o)
   {
@@ -9,7 +9,7 @@ import java.nio.ByteBuffer;
  *
  * @author  Middleware Services
  */
-public class IntegerType extends AbstractDERType implements DEREncoder
+public class IntegerType extends AbstractDERType implements DERBufferEncoder
 {
 
   /** Integer to encode. */
@@ -83,6 +83,20 @@ public class IntegerType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int getEncodedLength()
+  {
+    return getEncodedLength(derItem.length);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer buffer)
+  {
+    encode(buffer, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to an integer by reading from the current position to the limit, which assumes the
    * bytes of the integer are in big-endian order.
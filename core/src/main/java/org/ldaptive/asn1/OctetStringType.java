@@ -9,7 +9,7 @@ import java.nio.charset.StandardCharsets;
  *
  * @author  Middleware Services
  */
-public class OctetStringType extends AbstractDERType implements DEREncoder
+public class OctetStringType extends AbstractDERType implements DERBufferEncoder
 {
 
   /** String to encode. */
@@ -78,6 +78,20 @@ public class OctetStringType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int getEncodedLength()
+  {
+    return getEncodedLength(derItem.length);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer buffer)
+  {
+    encode(buffer, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to a string by reading from the current position to the limit, which assumes the bytes
    * of the string are in big-endian order.
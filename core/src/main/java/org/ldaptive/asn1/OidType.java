@@ -11,7 +11,7 @@ import java.util.StringTokenizer;
  *
  * @author  Middleware Services
  */
-public class OidType extends AbstractDERType implements DEREncoder
+public class OidType extends AbstractDERType implements DERBufferEncoder
 {
 
   /** Integer to encode. */
@@ -85,6 +85,20 @@ public class OidType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int getEncodedLength()
+  {
+    return getEncodedLength(derItem.length);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer buffer)
+  {
+    encode(buffer, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to an OID by reading from the current position to the limit, which assumes the bytes
    * of the integer are in big-endian order.
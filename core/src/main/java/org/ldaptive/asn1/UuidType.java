@@ -9,7 +9,7 @@ import java.util.UUID;
  *
  * @author  Middleware Services
  */
-public class UuidType extends AbstractDERType implements DEREncoder
+public class UuidType extends AbstractDERType implements DERBufferEncoder
 {
 
   /** Number of bytes in a uuid. */
@@ -56,6 +56,20 @@ public class UuidType extends AbstractDERType implements DEREncoder
   }
 
 
+  @Override
+  public int getEncodedLength()
+  {
+    return getEncodedLength(derItem.length);
+  }
+
+
+  @Override
+  public void encode(final ByteBuffer buffer)
+  {
+    encode(buffer, derItem);
+  }
+
+
   /**
    * Converts bytes in the buffer to a uuid by reading from the current position to the limit.
    *
@@ -39,4 +39,24 @@ public interface AsyncRequest
    */
   void abandon(RequestControl[] controls)
     throws LdapException;
+
+
+  /**
+   * Stops the provider from reading further responses to the operation until {@link #resumeReading()} is invoked.
+   * Providers that multiplex operations over a single connection stop reading the connection, which delays the
+   * responses to every operation on it. Responses that have already been read may still be delivered. The default
+   * implementation does nothing and returns false.
+   *
+   * @return  whether the provider supports pausing reads
+   */
+  default boolean pauseReading()
+  {
+    return false;
+  }
+
+
+  /**
+   * Resumes reading responses to the operation after {@link #pauseReading()}. The default implementation does nothing.
+   */
+  default void resumeReading() {}
 }
@@ -1,12 +1,17 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.async;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.ldaptive.Connection;
 import org.ldaptive.LdapException;
+import org.ldaptive.OperationException;
 import org.ldaptive.Response;
 import org.ldaptive.SearchEntry;
 import org.ldaptive.SearchReference;
@@ -19,33 +24,72 @@ import org.ldaptive.provider.SearchItem;
 import org.ldaptive.provider.SearchListener;
 
 /**
- * Executes an asynchronous ldap search operation.
+ * Executes an asynchronous ldap search operation. The search is started on the calling thread and no thread is held
+ * while waiting for the response; handlers are invoked on the thread the provider uses to deliver results.
+ *
+ * <p>When the listener is multi-threaded, results are dispatched to an executor instead. The executor is shared by all
+ * operations unless one is supplied, so thread count does not grow with the number of searches. When {@link
+ * #getListenerQueueSize()} results of a search are dispatched but not yet processed, the provider is asked to pause
+ * reading with {@link AsyncRequest#pauseReading()}, and reading resumes once half of those results have been processed.
+ * This does not block the provider thread, which is typically an I/O thread shared by other connections or operations.
+ * Providers that multiplex operations over a single connection pause every operation on that connection. Providers
+ * that do not support pausing deliver results on a thread dedicated to the connection or operation; once the queue is
+ * full, further results are processed on that thread, which stops it reading until they are handled. The response is
+ * not delivered until every dispatched result has been processed.</p>
+ *
+ * <p>{@link #execute(SearchRequest)} invokes the operation exception handler, by default a {@link
+ * ReopenOperationExceptionHandler}, when the search fails with an {@link OperationException}. The handler runs on the
+ * executor, since reopening the connection and retrying the search blocks. {@code executeAsync} does not
+ * invoke it.</p>
  *
  * @author  Middleware Services
  */
 public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest, SearchResult>
 {
 
-  /** Cached thread executor to submit async operations to. */
-  private final ExecutorService executorService = Executors.newCachedThreadPool();
+  /** Default number of results that may be dispatched but not processed, value is {@value}. */
+  public static final int DEFAULT_LISTENER_QUEUE_SIZE = 256;
+
+  /** Executor to process results on when the listener is multi-threaded. */
+  private final Executor executor;
 
-  /** Whether the listener should spawn a new thread to process each result. */
+  /** Whether the listener should process each result on the executor. */
   private boolean useMultiThreadedListener;
 
+  /** Number of results that may be dispatched to the executor before the provider is asked to pause reading. */
+  private int listenerQueueSize = DEFAULT_LISTENER_QUEUE_SIZE;
+
 
   /**
-   * Creates a new async search operation.
+   * Creates a new async search operation that uses a shared executor for multi-threaded listeners.
    *
    * @param  conn  connection
    */
   public AsyncSearchOperation(final Connection conn)
+  {
+    this(conn, SharedExecutor.INSTANCE);
+  }
+
+
+  /**
+   * Creates a new async search operation. The executor is used only if the listener is multi-threaded and is not shut
+   * down by this operation.
+   *
+   * @param  conn  connection
+   * @param  e  executor to process results on
+   */
+  public AsyncSearchOperation(final Connection conn, final Executor e)
   {
     super(conn);
+    if (e == null) {
+      throw new NullPointerException("Executor cannot be null");
+    }
+    executor = e;
   }
 
 
   /**
-   * Returns whether the listener should spawn a new thread to process each result.
+   * Returns whether the listener should process each result on the executor.
    *
    * @return  whether the listener is multi-threaded
    */
@@ -56,7 +100,7 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
 
 
   /**
-   * Sets whether the listener should spawn a new thread to process each result.
+   * Sets whether the listener should process each result on the executor.
    *
    * @param  b  make the listener multi-threaded
    */
@@ -66,23 +110,95 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
   }
 
 
+  /**
+   * Returns the number of results of each search that may be dispatched to the executor before the provider is asked
+   * to pause reading.
+   *
+   * @return  listener queue size
+   */
+  public int getListenerQueueSize()
+  {
+    return listenerQueueSize;
+  }
+
+
+  /**
+   * Sets the number of results of each search that may be dispatched to the executor before the provider is asked to
+   * pause reading.
+   *
+   * @param  size  listener queue size
+   *
+   * @throws  IllegalArgumentException  if size is less than one
+   */
+  public void setListenerQueueSize(final int size)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Listener queue size must be greater than zero");
+    }
+    listenerQueueSize = size;
+  }
+
+
   @Override
   public FutureResponse<SearchResult> execute(final SearchRequest request)
     throws LdapException
   {
-    final Future<Response<SearchResult>> future = executorService.submit(
-      () -> {
-        final ExceptionHandler handler = getExceptionHandler();
-        try {
-          return AsyncSearchOperation.super.execute(request);
-        } catch (LdapException | RuntimeException e) {
-          if (handler != null) {
-            handler.handle(getConnection(), request, e);
+    final ExceptionHandler handler = getExceptionHandler();
+    CompletableFuture<Response<SearchResult>> future = executeAsync(request);
+    if (getOperationExceptionHandler() != null) {
+      future = retryOnOperationException(request, future);
+    }
+    if (handler != null) {
+      future = future.whenComplete(
+        (response, e) -> {
+          final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+          if (cause instanceof Exception) {
+            handler.handle(getConnection(), request, (Exception) cause);
+          }
+        });
+    }
+    return new FutureResponse<>(future);
+  }
+
+
+  /**
+   * Returns a future that completes with the supplied future, unless it fails with an {@link OperationException}. In
+   * that case the operation exception handler is invoked on the executor and the future completes with its response.
+   *
+   * @param  request  ldap search request
+   * @param  future  of the search
+   *
+   * @return  future response
+   */
+  private CompletableFuture<Response<SearchResult>> retryOnOperationException(
+    final SearchRequest request,
+    final CompletableFuture<Response<SearchResult>> future)
+  {
+    final CompletableFuture<Response<SearchResult>> result = new CompletableFuture<>();
+    future.whenComplete(
+      (response, e) -> {
+        final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof OperationException) {
+          try {
+            executor.execute(
+              () -> {
+                try {
+                  result.complete(handleOperationException(request, (OperationException) cause));
+                } catch (LdapException | RuntimeException ex) {
+                  result.completeExceptionally(ex);
+                }
+              });
+          } catch (RuntimeException ex) {
+            logger.warn("Could not dispatch operation exception handler", ex);
+            result.completeExceptionally(cause);
           }
-          throw e;
+        } else if (cause != null) {
+          result.completeExceptionally(cause);
+        } else {
+          result.complete(response);
         }
       });
-    return new FutureResponse<>(future);
+    return result;
   }
 
 
@@ -90,33 +206,37 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
   protected Response<SearchResult> invoke(final SearchRequest request)
     throws LdapException
   {
-    final AsyncSearchListener listener = new AsyncSearchListener(request);
-    getConnection().getProviderConnection().searchAsync(request, listener);
     try {
-      return listener.getResponse();
+      return invokeAsync(request).get();
     } catch (InterruptedException e) {
       throw new LdapException("Asynchronous search interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LdapException) {
+        throw (LdapException) e.getCause();
+      }
+      throw new LdapException(e);
     }
   }
 
 
-  /** Invokes {@link ExecutorService#shutdown()} on the underlying executor service. */
-  public void shutdown()
+  @Override
+  protected CompletableFuture<Response<SearchResult>> invokeAsync(final SearchRequest request)
+    throws LdapException
   {
-    executorService.shutdown();
+    final AsyncSearchListener listener = new AsyncSearchListener(request);
+    getConnection().getProviderConnection().searchAsync(request, listener);
+    return listener.getFuture();
   }
 
 
-  @Override
-  protected void finalize()
-    throws Throwable
-  {
-    try {
-      shutdown();
-    } finally {
-      super.finalize();
-    }
-  }
+  /**
+   * This operation no longer owns an executor, so this method does nothing. Shut down the executor supplied to {@link
+   * #AsyncSearchOperation(Connection, Executor)} instead.
+   *
+   * @deprecated  executors are shared or owned by the caller
+   */
+  @Deprecated
+  public void shutdown() {}
 
 
   /** Async search listener used to build a search result and invoke search request handlers. */
@@ -129,14 +249,26 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
     /** To build as results arrive. */
     private final SearchResult searchResult;
 
-    /** Wait for the response to arrive. */
-    private final Semaphore responseLock = new Semaphore(0);
+    /** Completes when a response is received or the operation is aborted. */
+    private final CompletableFuture<Response<SearchResult>> future = new CompletableFuture<>();
+
+    /** Number of dispatched results at which the provider is asked to pause reading. */
+    private final int queueSize = listenerQueueSize;
+
+    /** Number of results dispatched to the executor and not yet processed. */
+    private final AtomicInteger dispatched = new AtomicInteger();
+
+    /** Completes the future once every dispatched result has been processed. */
+    private final AtomicReference<Runnable> completion = new AtomicReference<>();
+
+    /** Guards {@link #asyncRequest} and {@link #paused}. */
+    private final Object flowLock = new Object();
 
-    /** To return when a response is received or the operation is aborted. */
-    private Response<SearchResult> searchResponse;
+    /** Async request used to pause and resume reading, null until the provider supplies it. */
+    private AsyncRequest asyncRequest;
 
-    /** Thrown by the async search operation. */
-    private LdapException searchException;
+    /** Whether the provider has paused reading for this search. */
+    private boolean paused;
 
 
     /**
@@ -155,23 +287,18 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
     public void asyncRequestReceived(final AsyncRequest request)
     {
       logger.trace("received async request={}", request);
-      if (useMultiThreadedListener) {
-        executorService.submit(
-          () -> {
-            try {
-              processAsyncRequest(request);
-            } catch (LdapException e) {
-              logger.warn("Handler exception ignored", e);
-            }
-            return null;
-          });
-      } else {
-        try {
-          processAsyncRequest(request);
-        } catch (LdapException e) {
-          logger.warn("Handler exception ignored", e);
-        }
+      synchronized (flowLock) {
+        asyncRequest = request;
       }
+      updateFlow();
+      dispatch(
+        () -> {
+          try {
+            processAsyncRequest(request);
+          } catch (LdapException e) {
+            logger.warn("Handler exception ignored", e);
+          }
+        });
     }
 
 
@@ -179,38 +306,32 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
     public void searchItemReceived(final SearchItem item)
     {
       logger.trace("received search item={}", item);
-      if (useMultiThreadedListener) {
-        executorService.submit(
-          () -> {
-            try {
-              processSearchItem(item);
-            } catch (LdapException e) {
-              logger.warn("Handler exception ignored", e);
-            }
-            return null;
-          });
-      } else {
-        try {
-          processSearchItem(item);
-        } catch (LdapException e) {
-          logger.warn("Handler exception ignored", e);
-        }
-      }
+      dispatch(
+        () -> {
+          try {
+            processSearchItem(item);
+          } catch (LdapException e) {
+            logger.warn("Handler exception ignored", e);
+          }
+        });
     }
 
 
     @Override
     public void responseReceived(final Response<Void> response)
     {
-      searchResponse = new Response<>(
-        searchResult,
-        response.getResultCode(),
-        response.getMessage(),
-        response.getMatchedDn(),
-        response.getControls(),
-        response.getReferralURLs(),
-        response.getMessageId());
-      responseLock.release();
+      completeDispatched(() -> complete(response));
+    }
+
+
+    /**
+     * Returns the future response of this search.
+     *
+     * @return  future that completes with the response or completes exceptionally if the search fails
+     */
+    public CompletableFuture<Response<SearchResult>> getFuture()
+    {
+      return future;
     }
 
 
@@ -225,11 +346,11 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
     public Response<SearchResult> getResponse()
       throws InterruptedException, LdapException
     {
-      responseLock.acquire();
-      if (searchException != null) {
-        throw searchException;
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        throw (LdapException) e.getCause();
       }
-      return searchResponse;
     }
 
 
@@ -237,18 +358,157 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
     public void exceptionReceived(final Exception exception)
     {
       logger.trace("received exception={}", exception);
-      if (exception instanceof LdapException) {
-        searchException = (LdapException) exception;
+      completeDispatched(
+        () -> {
+          if (exception instanceof LdapException) {
+            future.completeExceptionally(exception);
+          } else {
+            future.completeExceptionally(new LdapException(exception));
+          }
+        });
+    }
+
+
+    /**
+     * Runs the supplied task on the executor if the listener is multi-threaded, otherwise on the calling thread. The
+     * provider is asked to pause reading while the number of dispatched but unprocessed results is at the queue size.
+     * If the provider cannot pause and the queue is full, the task runs on the calling thread instead.
+     *
+     * @param  task  to run
+     */
+    protected void dispatch(final Runnable task)
+    {
+      if (!useMultiThreadedListener) {
+        task.run();
+        return;
+      }
+      dispatched.incrementAndGet();
+      updateFlow();
+      if (isQueueFull()) {
+        logger.trace("provider did not pause reading, processing result on the calling thread");
+        runDispatched(task);
       } else {
-        searchException = new LdapException(exception);
+        try {
+          executor.execute(() -> runDispatched(task));
+        } catch (RuntimeException e) {
+          logger.warn("Could not dispatch result, processing on the calling thread", e);
+          runDispatched(task);
+        }
+      }
+    }
+
+
+    /**
+     * Runs the supplied dispatched task and records that it has been processed.
+     *
+     * @param  task  to run
+     */
+    private void runDispatched(final Runnable task)
+    {
+      try {
+        task.run();
+      } finally {
+        processed();
+      }
+    }
+
+
+    /**
+     * Runs the supplied completion once every result dispatched to the executor has been processed. Runs it on the
+     * calling thread if nothing is outstanding, otherwise on the thread that processes the last result.
+     *
+     * @param  task  that completes the future
+     */
+    protected void completeDispatched(final Runnable task)
+    {
+      if (!useMultiThreadedListener) {
+        task.run();
+        return;
+      }
+      completion.set(task);
+      if (dispatched.get() == 0) {
+        runCompletion();
+      }
+    }
+
+
+    /** Records that a dispatched result has been processed. */
+    private void processed()
+    {
+      if (dispatched.decrementAndGet() == 0) {
+        runCompletion();
+      }
+      updateFlow();
+    }
+
+
+    /** Runs the pending completion, if any. Only one caller runs it. */
+    private void runCompletion()
+    {
+      final Runnable task = completion.getAndSet(null);
+      if (task != null) {
+        task.run();
+      }
+    }
+
+
+    /**
+     * Returns whether more than the queue size of results have been dispatched and the provider has not paused reading.
+     *
+     * @return  whether the calling thread should process the next result
+     */
+    private boolean isQueueFull()
+    {
+      synchronized (flowLock) {
+        return !paused && dispatched.get() > queueSize;
+      }
+    }
+
+
+    /**
+     * Asks the provider to pause reading when the number of dispatched results reaches the queue size and to resume
+     * once it falls to half of the queue size.
+     */
+    private void updateFlow()
+    {
+      synchronized (flowLock) {
+        if (asyncRequest != null) {
+          final int count = dispatched.get();
+          if (!paused && count >= queueSize) {
+            paused = asyncRequest.pauseReading();
+            logger.trace("paused reading={} with {} dispatched results", paused, count);
+          } else if (paused && count <= queueSize / 2) {
+            asyncRequest.resumeReading();
+            paused = false;
+            logger.trace("resumed reading with {} dispatched results", count);
+          }
+        }
       }
-      responseLock.release();
     }
 
 
     /**
-     * Invokes the handlers for the supplied async request. Calls {@link #responseReceived(Response)} if a handler
-     * aborts the operation.
+     * Completes the future with a search response built from the supplied response. Has no effect if the future has
+     * already completed.
+     *
+     * @param  response  containing the result code, message and controls
+     */
+    protected void complete(final Response<Void> response)
+    {
+      future.complete(
+        new Response<>(
+          searchResult,
+          response.getResultCode(),
+          response.getMessage(),
+          response.getMatchedDn(),
+          response.getControls(),
+          response.getReferralURLs(),
+          response.getMessageId()));
+    }
+
+
+    /**
+     * Invokes the handlers for the supplied async request. Completes the future if a handler aborts the operation.
      *
      * @param  request  to handle
      *
@@ -262,14 +522,13 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
       final HandlerResult<AsyncRequest> hr = executeHandlers(getAsyncRequestHandlers(), searchRequest, request);
       if (hr.getAbort()) {
         logger.debug("Aborting search on async request=%s", request);
-        responseReceived(new Response<>(null, null));
+        complete(new Response<>(null, null));
       }
     }
 
 
     /**
-     * Invokes the handlers for the supplied search item. Calls {@link #responseReceived(Response)} if a handler aborts
-     * the operation.
+     * Invokes the handlers for the supplied search item. Completes the future if a handler aborts the operation.
      *
      * @param  item  to handle
      *
@@ -287,11 +546,13 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
             searchRequest,
             se);
           if (hr.getResult() != null) {
-            searchResult.addEntry(hr.getResult());
+            synchronized (searchResult) {
+              searchResult.addEntry(hr.getResult());
+            }
           }
           if (hr.getAbort()) {
             logger.debug("Aborting search on entry=%s", se);
-            responseReceived(new Response<>(null, null));
+            complete(new Response<>(null, null));
           }
         }
       } else if (item.isSearchReference()) {
@@ -302,11 +563,13 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
             searchRequest,
             sr);
           if (hr.getResult() != null) {
-            searchResult.addReference(hr.getResult());
+            synchronized (searchResult) {
+              searchResult.addReference(hr.getResult());
+            }
           }
           if (hr.getAbort()) {
             logger.debug("Aborting search on reference=%s", sr);
-            responseReceived(new Response<>(null, null));
+            complete(new Response<>(null, null));
           }
         }
       } else if (item.isIntermediateResponse()) {
@@ -318,10 +581,31 @@ public class AsyncSearchOperation extends AbstractAsyncOperation<SearchRequest,
             ir);
           if (hr.getAbort()) {
             logger.debug("Aborting search on intermediate response=%s", ir);
-            responseReceived(new Response<>(null, null));
+            complete(new Response<>(null, null));
           }
         }
       }
     }
   }
+
+
+  /** Lazily creates the executor shared by operations that were not supplied one. */
+  private static final class SharedExecutor
+  {
+
+    // CheckStyle:JavadocVariable OFF
+    /** Fixed size pool of daemon threads. */
+    private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(),
+      r -> {
+        final Thread t = new Thread(r, "ldaptive-async-search");
+        t.setDaemon(true);
+        return t;
+      });
+    // CheckStyle:JavadocVariable ON
+
+
+    /** Default constructor. */
+    private SharedExecutor() {}
+  }
 }
@@ -222,21 +222,46 @@ public abstract class AbstractSearchDnResolver extends AbstractSearchOperationFa
   @Override
   public String resolve(final User user)
     throws LdapException
+  {
+    final LdapEntry entry = resolveEntry(user);
+    final String dn = entry != null ? resolveDn(entry) : null;
+    logger.debug("resolved dn={} for user={}", dn, user);
+    return dn;
+  }
+
+
+  /**
+   * Attempts to find the entry for the supplied user. This performs the same search as {@link #resolve(User)}, but
+   * returns the supplied attributes. Use this to resolve a user's DN and entry with a single search.
+   *
+   * @param  user  to find entry for
+   * @param  attrs  attributes to return, null to return no attributes
+   *
+   * @return  user entry or null if the user does not exist
+   *
+   * @throws  LdapException  if the entry resolution fails
+   */
+  public LdapEntry resolveEntry(final User user, final String... attrs)
+    throws LdapException
   {
     logger.debug("resolve user={}", user);
 
-    String dn = null;
+    LdapEntry entry = null;
     if (user != null) {
       // create the search filter
       final SearchFilter filter = createSearchFilter(user);
 
       if (filter != null && filter.getFilter() != null) {
-        final SearchResult result = performLdapSearch(filter);
+        final SearchRequest request = createSearchRequest(filter);
+        if (attrs != null && attrs.length > 0) {
+          request.setReturnAttributes(attrs);
+        }
+        final SearchResult result = performLdapSearch(request);
         final Iterator<LdapEntry> answer = result.getEntries().iterator();
 
         // return first match, otherwise user doesn't exist
         if (answer != null && answer.hasNext()) {
-          dn = resolveDn(answer.next());
+          entry = answer.next();
           if (answer.hasNext()) {
             logger.debug("multiple results found for user={} using filter={}", user, filter);
             if (!allowMultipleDns) {
@@ -252,8 +277,7 @@ public abstract class AbstractSearchDnResolver extends AbstractSearchOperationFa
     } else {
       logger.warn("DN resolution cannot occur, user is null");
     }
-    logger.debug("resolved dn={} for user={}", dn, user);
-    return dn;
+    return entry;
   }
 
 
@@ -338,7 +362,22 @@ public abstract class AbstractSearchDnResolver extends AbstractSearchOperationFa
   protected SearchResult performLdapSearch(final SearchFilter filter)
     throws LdapException
   {
-    final SearchRequest request = createSearchRequest(filter);
+    return performLdapSearch(createSearchRequest(filter));
+  }
+
+
+  /**
+   * Executes the supplied ldap search request.
+   *
+   * @param  request  to execute
+   *
+   * @return  ldap search result
+   *
+   * @throws  LdapException  if an error occurs
+   */
+  protected SearchResult performLdapSearch(final SearchRequest request)
+    throws LdapException
+  {
     try (Connection conn = getConnection()) {
       final SearchOperation op = createSearchOperation(conn);
       return op.execute(request).getResult();
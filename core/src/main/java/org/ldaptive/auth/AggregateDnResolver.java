@@ -1,16 +1,22 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.auth;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
 import org.slf4j.Logger;
@@ -18,30 +24,65 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Looks up a user's DN using multiple DN resolvers. Each DN resolver is invoked on a separate thread. If multiple DNs
- * are allowed then the first one retrieved is returned.
+ * are allowed then the first one retrieved is returned and the remaining DN resolvers are cancelled. Otherwise every DN
+ * resolver must complete so that duplicate DNs can be detected. DN resolvers that do not complete within {@link
+ * #getResolveTimeout()} are cancelled and ignored.
+ *
+ * <p>Unless an executor service is supplied, DN resolvers are invoked on a bounded executor that is shared by all
+ * aggregate DN resolvers.</p>
  *
  * @author  Middleware Services
  */
 public class AggregateDnResolver implements DnResolver
 {
 
+  /** Number of threads in the shared executor service. */
+  private static final int SHARED_POOL_SIZE = 64;
+
+  /** Maximum number of entries retained by {@link #setEntryAttributes(String...)}. */
+  private static final int MAX_RESOLVED_ENTRIES = 1000;
+
+  /** Executor service shared by aggregate DN resolvers that are not supplied one. */
+  private static final ExecutorService SHARED_SERVICE = createSharedExecutorService();
+
   /** Logger for this class. */
   protected final Logger logger = LoggerFactory.getLogger(getClass());
 
   /** To submit operations to. */
   private final ExecutorService service;
 
+  /** Entries found by the DN resolvers, keyed by labeled DN. */
+  private final Map<String, LdapEntry> resolvedEntries = Collections.synchronizedMap(
+    new LinkedHashMap<String, LdapEntry>() {
+
+      /** serialVersionUID. */
+      private static final long serialVersionUID = -2419021396538137641L;
+
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, LdapEntry> eldest)
+      {
+        return size() > MAX_RESOLVED_ENTRIES;
+      }
+    });
+
   /** Labeled DN resolvers. */
   private Map<String, DnResolver> dnResolvers;
 
   /** Whether to throw an exception if multiple DNs are found. */
   private boolean allowMultipleDns;
 
+  /** Time to wait for the DN resolvers. */
+  private Duration resolveTimeout = Duration.ZERO;
+
+  /** Attributes to return with the DN search. */
+  private String[] entryAttributes;
+
 
   /** Default constructor. */
   public AggregateDnResolver()
   {
-    service = Executors.newCachedThreadPool();
+    service = SHARED_SERVICE;
   }
 
 
@@ -52,7 +93,7 @@ public class AggregateDnResolver implements DnResolver
    */
   public AggregateDnResolver(final Map<String, DnResolver> resolvers)
   {
-    this(resolvers, Executors.newCachedThreadPool());
+    this(resolvers, SHARED_SERVICE);
   }
 
 
@@ -116,6 +157,60 @@ public class AggregateDnResolver implements DnResolver
   }
 
 
+  /**
+   * Returns the time to wait for the DN resolvers. Zero waits indefinitely.
+   *
+   * @return  resolve timeout
+   */
+  public Duration getResolveTimeout()
+  {
+    return resolveTimeout;
+  }
+
+
+  /**
+   * Sets the time to wait for the DN resolvers. DN resolvers that have not completed when the timeout expires are
+   * cancelled. If no DN was found and a DN resolver timed out, an exception is thrown.
+   *
+   * @param  time  resolve timeout, zero waits indefinitely
+   */
+  public void setResolveTimeout(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Resolve timeout cannot be null or negative");
+    }
+    logger.trace("setting resolveTimeout: {}", time);
+    resolveTimeout = time;
+  }
+
+
+  /**
+   * Returns the attributes to return with the DN search.
+   *
+   * @return  entry attributes
+   */
+  public String[] getEntryAttributes()
+  {
+    return entryAttributes;
+  }
+
+
+  /**
+   * Sets the attributes to return with the DN search. If set, DN resolvers that extend {@link
+   * AbstractSearchDnResolver} retrieve the user's entry with the same search that resolves the DN. Entry resolvers
+   * created with {@link #createEntryResolver(org.ldaptive.auth.EntryResolver)} return that entry instead of searching
+   * again, if it contains all the requested attributes. Only use this when the entry resolver would search the same
+   * directory with the same privileges as the DN resolver.
+   *
+   * @param  attrs  attributes to return, null to resolve only the DN
+   */
+  public void setEntryAttributes(final String... attrs)
+  {
+    logger.trace("setting entryAttributes: {}", Arrays.toString(attrs));
+    entryAttributes = attrs;
+  }
+
+
   /**
    * Creates an aggregate entry resolver using the labels from the DN resolver and the supplied entry resolver.
    *
@@ -129,7 +224,7 @@ public class AggregateDnResolver implements DnResolver
     for (String label : dnResolvers.keySet()) {
       resolvers.put(label, resolver);
     }
-    return new EntryResolver(resolvers);
+    return entryAttributes != null ? new EntryResolver(resolvers, this) : new EntryResolver(resolvers);
   }
 
 
@@ -138,37 +233,49 @@ public class AggregateDnResolver implements DnResolver
     throws LdapException
   {
     final CompletionService<String> cs = new ExecutorCompletionService<>(service);
-    final List<String> results = new ArrayList<>(dnResolvers.size());
+    final List<Future<String>> futures = new ArrayList<>(dnResolvers.size());
     for (final Map.Entry<String, DnResolver> entry : dnResolvers.entrySet()) {
-      cs.submit(
-        () -> {
-          final String dn = entry.getValue().resolve(user);
-          logger.debug("DN resolver {} resolved dn {} for user {}", entry.getValue(), dn, user);
-          if (dn != null && !dn.isEmpty()) {
-            return String.format("%s:%s", entry.getKey(), dn);
-          }
-          return null;
-        });
+      futures.add(cs.submit(() -> resolveLabeledDn(entry.getKey(), entry.getValue(), user)));
       logger.debug("submitted DN resolver {}", entry.getValue());
     }
-    for (int i = 1; i <= dnResolvers.size(); i++) {
-      try {
-        logger.trace("waiting on DN resolver {} of {}", i, dnResolvers.size());
-        final String dn = cs.take().get();
-        if (dn != null) {
-          results.add(dn);
-        }
-      } catch (ExecutionException e) {
-        if (e.getCause() instanceof LdapException) {
-          throw (LdapException) e.getCause();
-        } else if (e.getCause() instanceof RuntimeException) {
-          throw (RuntimeException) e.getCause();
-        } else {
-          logger.warn("ExecutionException thrown, ignoring", e);
+    final long deadline = System.nanoTime() + resolveTimeout.toNanos();
+    final List<String> results = new ArrayList<>(dnResolvers.size());
+    int pending = dnResolvers.size();
+    try {
+      while (pending > 0 && (results.isEmpty() || !allowMultipleDns)) {
+        try {
+          logger.trace("waiting on {} of {} DN resolvers", pending, dnResolvers.size());
+          final Future<String> future = resolveTimeout.isZero() ?
+            cs.take() : cs.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (future == null) {
+            logger.warn("Timed out waiting on {} of {} DN resolvers for user {}", pending, dnResolvers.size(), user);
+            break;
+          }
+          pending--;
+          final String dn = future.get();
+          if (dn != null) {
+            results.add(dn);
+          }
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof LdapException) {
+            throw (LdapException) e.getCause();
+          } else if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          } else {
+            logger.warn("ExecutionException thrown, ignoring", e);
+          }
+        } catch (InterruptedException e) {
+          logger.warn("InterruptedException thrown, ignoring", e);
         }
-      } catch (InterruptedException e) {
-        logger.warn("InterruptedException thrown, ignoring", e);
       }
+    } finally {
+      // cancel DN resolvers whose result is no longer needed
+      for (Future<String> future : futures) {
+        future.cancel(true);
+      }
+    }
+    if (results.isEmpty() && pending > 0) {
+      throw new LdapException("Timed out waiting on " + pending + " DN resolvers for: " + user);
     }
     if (results.size() > 1 && !allowMultipleDns) {
       throw new LdapException("Found more than (1) DN for: " + user);
@@ -178,10 +285,94 @@ public class AggregateDnResolver implements DnResolver
   }
 
 
-  /** Invokes {@link ExecutorService#shutdown()} on the underlying executor service. */
+  /**
+   * Resolves the DN for the supplied user with the supplied DN resolver. If {@link #getEntryAttributes()} is set and
+   * the DN resolver performs a search, the entry found is retained for the entry resolver.
+   *
+   * @param  label  of the DN resolver
+   * @param  resolver  to resolve the DN with
+   * @param  user  to find DN for
+   *
+   * @return  labeled DN or null if no DN was found
+   *
+   * @throws  LdapException  if the DN resolver fails
+   */
+  private String resolveLabeledDn(final String label, final DnResolver resolver, final User user)
+    throws LdapException
+  {
+    String dn;
+    if (entryAttributes != null && resolver instanceof AbstractSearchDnResolver) {
+      final AbstractSearchDnResolver searchResolver = (AbstractSearchDnResolver) resolver;
+      final LdapEntry entry = searchResolver.resolveEntry(user, entryAttributes);
+      dn = entry != null ? searchResolver.resolveDn(entry) : null;
+      if (dn != null && !dn.isEmpty()) {
+        resolvedEntries.put(String.format("%s:%s", label, dn), entry);
+      }
+    } else {
+      dn = resolver.resolve(user);
+    }
+    logger.debug("DN resolver {} resolved dn {} for user {}", resolver, dn, user);
+    return dn != null && !dn.isEmpty() ? String.format("%s:%s", label, dn) : null;
+  }
+
+
+  /**
+   * Removes and returns the entry found while resolving the supplied labeled DN, if it contains all of the supplied
+   * attributes.
+   *
+   * @param  labeledDn  resolved by this DN resolver
+   * @param  attrs  that the entry must contain
+   *
+   * @return  ldap entry or null
+   */
+  private LdapEntry removeResolvedEntry(final String labeledDn, final String[] attrs)
+  {
+    final LdapEntry entry = resolvedEntries.remove(labeledDn);
+    if (entry == null || attrs == null) {
+      return null;
+    }
+    final boolean containsAll = Arrays.stream(attrs).allMatch(
+      attr -> Arrays.stream(entryAttributes).anyMatch(attr::equalsIgnoreCase));
+    if (!containsAll) {
+      logger.debug("Resolved entry for {} does not contain attributes {}", labeledDn, Arrays.toString(attrs));
+    }
+    return containsAll ? entry : null;
+  }
+
+
+  /**
+   * Invokes {@link ExecutorService#shutdown()} on the underlying executor service. The shared executor service is not
+   * shut down.
+   */
   public void shutdown()
   {
-    service.shutdown();
+    if (service != SHARED_SERVICE) {
+      service.shutdown();
+    }
+  }
+
+
+  /**
+   * Creates the executor service that is shared by aggregate DN resolvers. Threads are daemons and are released when
+   * idle.
+   *
+   * @return  shared executor service
+   */
+  private static ExecutorService createSharedExecutorService()
+  {
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      SHARED_POOL_SIZE,
+      SHARED_POOL_SIZE,
+      1,
+      TimeUnit.MINUTES,
+      new LinkedBlockingQueue<>(),
+      r -> {
+        final Thread t = new Thread(r, "ldaptive-" + AggregateDnResolver.class.getSimpleName());
+        t.setDaemon(true);
+        return t;
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
 
@@ -278,6 +469,9 @@ public class AggregateDnResolver implements DnResolver
     /** Labeled entry resolvers. */
     private Map<String, org.ldaptive.auth.EntryResolver> entryResolvers;
 
+    /** DN resolver that retains the entries found during DN resolution. */
+    private AggregateDnResolver dnResolver;
+
 
     /** Default constructor. */
     public EntryResolver() {}
@@ -294,6 +488,21 @@ public class AggregateDnResolver implements DnResolver
     }
 
 
+    /**
+     * Creates a new aggregate entry resolver that returns the entries found by the supplied DN resolver.
+     *
+     * @param  resolvers  entry resolvers
+     * @param  resolver  aggregate DN resolver
+     */
+    private EntryResolver(
+      final Map<String, org.ldaptive.auth.EntryResolver> resolvers,
+      final AggregateDnResolver resolver)
+    {
+      setEntryResolvers(resolvers);
+      dnResolver = resolver;
+    }
+
+
     /**
      * Returns the entry resolvers to aggregate over.
      *
@@ -321,12 +530,23 @@ public class AggregateDnResolver implements DnResolver
     public LdapEntry resolve(final AuthenticationCriteria criteria, final AuthenticationHandlerResponse response)
       throws LdapException
     {
-      final String[] labeledDn = criteria.getDn().split(":", 2);
-      final org.ldaptive.auth.EntryResolver er = entryResolvers.get(labeledDn[0]);
-      if (er == null) {
-        throw new LdapException("Could not find entry resolver for label: " + labeledDn[0]);
+      LdapEntry entry = null;
+      if (dnResolver != null) {
+        entry = dnResolver.removeResolvedEntry(
+          criteria.getDn(),
+          criteria.getAuthenticationRequest().getReturnAttributes());
+      }
+      if (entry == null) {
+        final String[] labeledDn = criteria.getDn().split(":", 2);
+        final org.ldaptive.auth.EntryResolver er = entryResolvers.get(labeledDn[0]);
+        if (er == null) {
+          throw new LdapException("Could not find entry resolver for label: " + labeledDn[0]);
+        }
+        entry = er.resolve(new AuthenticationCriteria(labeledDn[1], criteria.getAuthenticationRequest()), response);
+      } else {
+        logger.debug("Returning entry for {} found during DN resolution", criteria.getDn());
       }
-      return er.resolve(new AuthenticationCriteria(labeledDn[1], criteria.getAuthenticationRequest()), response);
+      return entry;
     }
   }
 
@@ -0,0 +1,405 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.ldaptive.LdapException;
+import org.ldaptive.ResultCode;
+import org.ldaptive.cache.CacheStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DN resolver that caches the DNs returned by another DN resolver, keyed by user identifier. DNs are cached for {@link
+ * #getTimeToLive()} and the least recently used DN is evicted once {@link #getMaxSize()} users are cached. Users that
+ * cannot be resolved are cached for {@link #getNegativeTimeToLive()}, which is disabled by default. Users with a
+ * context are not cached, since the context may change the DN that is resolved. Exceptions are never cached.
+ *
+ * <p>This resolver is also an {@link AuthenticationResponseHandler}. When it is added to the authenticator's response
+ * handlers, a failed authentication with one of {@link #getInvalidateResultCodes()} removes the DN from the cache, so a
+ * user that has been moved or deleted is resolved again on the next attempt.</p>
+ *
+ * @author  Middleware Services
+ */
+public class CachingDnResolver implements DnResolver, AuthenticationResponseHandler
+{
+
+  /** Default time to live of resolved DNs. */
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+  /** Default maximum number of cached users, value is {@value}. */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  /** Initial capacity of the hash map. */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** Load factor of the hash map. */
+  private static final float LOAD_FACTOR = 0.75f;
+
+  /** Logger for this class. */
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** DN resolver to cache. */
+  private final DnResolver dnResolver;
+
+  /** Cached DNs keyed by user identifier, in access order. */
+  private final Map<String, Item> cache;
+
+  /** Hit, miss and eviction statistics. */
+  private final CacheStatistics statistics = new CacheStatistics();
+
+  /** Time to live of resolved DNs. */
+  private Duration timeToLive = DEFAULT_TIME_TO_LIVE;
+
+  /** Time to live of users that could not be resolved. */
+  private Duration negativeTimeToLive = Duration.ZERO;
+
+  /** Maximum number of cached users. */
+  private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+  /** Result codes of a failed authentication that invalidate the cached DN. */
+  private ResultCode[] invalidateResultCodes = {ResultCode.INVALID_CREDENTIALS, ResultCode.NO_SUCH_OBJECT};
+
+
+  /**
+   * Creates a new caching dn resolver.
+   *
+   * @param  resolver  dn resolver to cache
+   */
+  public CachingDnResolver(final DnResolver resolver)
+  {
+    if (resolver == null) {
+      throw new IllegalArgumentException("DN resolver cannot be null");
+    }
+    dnResolver = resolver;
+    cache = new LinkedHashMap<String, Item>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+
+      /** serialVersionUID. */
+      private static final long serialVersionUID = 6140218634873961935L;
+
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Item> entry)
+      {
+        if (size() > maxSize) {
+          statistics.recordEviction();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+
+  /**
+   * Returns the DN resolver that is cached.
+   *
+   * @return  dn resolver
+   */
+  public DnResolver getDnResolver()
+  {
+    return dnResolver;
+  }
+
+
+  /**
+   * Returns the time to live of resolved DNs.
+   *
+   * @return  time to live
+   */
+  public Duration getTimeToLive()
+  {
+    return timeToLive;
+  }
+
+
+  /**
+   * Sets the time to live of resolved DNs.
+   *
+   * @param  time  to live
+   */
+  public void setTimeToLive(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Time to live cannot be null or negative");
+    }
+    timeToLive = time;
+  }
+
+
+  /**
+   * Returns the time to live of users that could not be resolved. Zero disables negative caching.
+   *
+   * @return  negative time to live
+   */
+  public Duration getNegativeTimeToLive()
+  {
+    return negativeTimeToLive;
+  }
+
+
+  /**
+   * Sets the time to live of users that could not be resolved. This should be short, so that new users can
+   * authenticate soon after they are created.
+   *
+   * @param  time  to live, zero disables negative caching
+   */
+  public void setNegativeTimeToLive(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Negative time to live cannot be null or negative");
+    }
+    negativeTimeToLive = time;
+  }
+
+
+  /**
+   * Returns the maximum number of cached users.
+   *
+   * @return  maximum size
+   */
+  public int getMaxSize()
+  {
+    return maxSize;
+  }
+
+
+  /**
+   * Sets the maximum number of cached users.
+   *
+   * @param  size  maximum size
+   */
+  public void setMaxSize(final int size)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Max size must be greater than zero");
+    }
+    maxSize = size;
+  }
+
+
+  /**
+   * Returns the result codes of a failed authentication that invalidate the cached DN.
+   *
+   * @return  result codes
+   */
+  public ResultCode[] getInvalidateResultCodes()
+  {
+    return invalidateResultCodes;
+  }
+
+
+  /**
+   * Sets the result codes of a failed authentication that invalidate the cached DN.
+   *
+   * @param  codes  result codes
+   */
+  public void setInvalidateResultCodes(final ResultCode... codes)
+  {
+    invalidateResultCodes = codes;
+  }
+
+
+  /**
+   * Returns the hit, miss and eviction statistics for this cache.
+   *
+   * @return  cache statistics
+   */
+  public CacheStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+
+  @Override
+  public String resolve(final User user)
+    throws LdapException
+  {
+    if (user == null || user.getIdentifier() == null || user.getContext() != null) {
+      return dnResolver.resolve(user);
+    }
+
+    final long now = System.nanoTime();
+    final Item item = get(user.getIdentifier(), now);
+    String dn;
+    if (item != null) {
+      dn = item.dn;
+    } else {
+      dn = dnResolver.resolve(user);
+      put(user.getIdentifier(), dn, now);
+    }
+    return dn;
+  }
+
+
+  @Override
+  public void handle(final AuthenticationResponse response)
+  {
+    if (!response.getResult() && response.getResolvedDn() != null && invalidateResultCodes != null) {
+      for (ResultCode code : invalidateResultCodes) {
+        if (code == response.getResultCode()) {
+          invalidateDn(response.getResolvedDn());
+          break;
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Removes the supplied user from the cache.
+   *
+   * @param  user  to remove
+   */
+  public void invalidate(final User user)
+  {
+    if (user != null && user.getIdentifier() != null) {
+      synchronized (cache) {
+        cache.remove(user.getIdentifier());
+      }
+    }
+  }
+
+
+  /**
+   * Removes every user that resolved to the supplied DN from the cache.
+   *
+   * @param  dn  to remove
+   */
+  public void invalidateDn(final String dn)
+  {
+    logger.debug("Invalidating cached DN {}", dn);
+    synchronized (cache) {
+      cache.values().removeIf(item -> dn.equalsIgnoreCase(item.dn));
+    }
+  }
+
+
+  /** Removes all users from the cache. */
+  public void clear()
+  {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+
+  /**
+   * Returns the number of cached users.
+   *
+   * @return  size of this cache
+   */
+  public int size()
+  {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+
+  /**
+   * Returns the cached item for the supplied identifier, removing it if it has expired.
+   *
+   * @param  identifier  of the user
+   * @param  now  current time in nanoseconds
+   *
+   * @return  cached item or null
+   */
+  private Item get(final String identifier, final long now)
+  {
+    Item item;
+    synchronized (cache) {
+      item = cache.get(identifier);
+      if (item != null && item.isExpired(now)) {
+        cache.remove(identifier);
+        statistics.recordExpiration();
+        item = null;
+      }
+    }
+    if (item != null) {
+      statistics.recordHit();
+    } else {
+      statistics.recordMiss();
+    }
+    return item;
+  }
+
+
+  /**
+   * Caches the supplied DN. A null or empty DN is only cached if negative caching is enabled.
+   *
+   * @param  identifier  of the user
+   * @param  dn  resolved for the user
+   * @param  now  current time in nanoseconds
+   */
+  private void put(final String identifier, final String dn, final long now)
+  {
+    final boolean resolved = dn != null && !dn.isEmpty();
+    final Duration ttl = resolved ? timeToLive : negativeTimeToLive;
+    if (ttl.isZero()) {
+      return;
+    }
+    synchronized (cache) {
+      cache.put(identifier, new Item(resolved ? dn : null, now + ttl.toNanos()));
+    }
+    statistics.recordPut();
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::dnResolver=%s, timeToLive=%s, negativeTimeToLive=%s, maxSize=%s, invalidateResultCodes=%s, " +
+        "statistics=%s]",
+        getClass().getName(),
+        hashCode(),
+        dnResolver,
+        timeToLive,
+        negativeTimeToLive,
+        maxSize,
+        Arrays.toString(invalidateResultCodes),
+        statistics);
+  }
+
+
+  /** Container for a cached DN. */
+  private static class Item
+  {
+
+    /** Resolved DN, null if the user could not be resolved. */
+    private final String dn;
+
+    /** Time this item expires in nanoseconds. */
+    private final long expireTime;
+
+
+    /**
+     * Creates a new item.
+     *
+     * @param  s  resolved DN
+     * @param  expire  time this item expires in nanoseconds
+     */
+    Item(final String s, final long expire)
+    {
+      dn = s;
+      expireTime = expire;
+    }
+
+
+    /**
+     * Returns whether this item has expired.
+     *
+     * @param  now  current time in nanoseconds
+     *
+     * @return  whether this item has expired
+     */
+    boolean isExpired(final long now)
+    {
+      return now - expireTime >= 0;
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.ldaptive.Connection;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.ad.extended.FastBindOperation;
+import org.ldaptive.ad.extended.FastBindRequest;
+import org.ldaptive.pool.BindPassivator;
+import org.ldaptive.pool.PooledConnectionFactory;
+import org.ldaptive.provider.ProviderConnection;
+
+/**
+ * Pooled bind authentication handler that performs a single bind per authentication. Connections are borrowed from a
+ * dedicated bind pool and remain bound as the last user that authenticated on them, so the pool should <b>not</b> be
+ * configured with a {@link BindPassivator}. Pool validation must likewise succeed for an arbitrary user identity.
+ *
+ * <p>If {@link #getFastBind()} is set, the active directory {@link FastBindOperation} is executed once on each
+ * underlying connection before its first bind. Subsequent binds on that connection only verify the credential and do
+ * not build a security context.</p>
+ *
+ * <p>If an {@link #getEntryResolver()} is configured, it is invoked on a separate thread when the bind is started, so
+ * the entry lookup and the bind complete in one round trip. The entry resolver must not use the connection in the
+ * authentication handler response, use a {@link PooledSearchEntryResolver} backed by a service account pool. The
+ * resolved entry is returned by the entry resolver created with {@link #createEntryResolver()}, which must be set on
+ * the {@link Authenticator}. Lookups for failed binds are cancelled if they have not started.</p>
+ *
+ * @author  Middleware Services
+ */
+public class PipelinedBindAuthenticationHandler extends PooledBindAuthenticationHandler
+{
+
+  /** To submit entry lookups to. */
+  private final ExecutorService service;
+
+  /** Underlying connections that have executed the fast bind operation. */
+  private final Set<ProviderConnection> fastBoundConnections = Collections.synchronizedSet(
+    Collections.newSetFromMap(new WeakHashMap<>()));
+
+  /** Whether to execute the active directory fast bind operation. */
+  private boolean fastBind;
+
+  /** Entry resolver that is invoked in parallel with the bind. */
+  private EntryResolver entryResolver;
+
+
+  /** Default constructor. */
+  public PipelinedBindAuthenticationHandler()
+  {
+    service = Executors.newCachedThreadPool();
+  }
+
+
+  /**
+   * Creates a new pipelined bind authentication handler.
+   *
+   * @param  cf  bind pool connection factory
+   */
+  public PipelinedBindAuthenticationHandler(final PooledConnectionFactory cf)
+  {
+    this(cf, Executors.newCachedThreadPool());
+  }
+
+
+  /**
+   * Creates a new pipelined bind authentication handler.
+   *
+   * @param  cf  bind pool connection factory
+   * @param  es  executor service for invoking the entry resolver
+   */
+  public PipelinedBindAuthenticationHandler(final PooledConnectionFactory cf, final ExecutorService es)
+  {
+    super(cf);
+    service = es;
+  }
+
+
+  @Override
+  public void setConnectionFactory(final PooledConnectionFactory cf)
+  {
+    if (cf != null && cf.getConnectionPool() != null &&
+        cf.getConnectionPool().getPassivator() instanceof BindPassivator) {
+      logger.warn("Bind pool {} rebinds connections on check in, configure a pool without a bind passivator", cf);
+    }
+    super.setConnectionFactory(cf);
+  }
+
+
+  /**
+   * Returns whether to execute the active directory fast bind operation on each connection.
+   *
+   * @return  whether to use fast bind
+   */
+  public boolean getFastBind()
+  {
+    return fastBind;
+  }
+
+
+  /**
+   * Sets whether to execute the active directory fast bind operation on each connection.
+   *
+   * @param  b  whether to use fast bind
+   */
+  public void setFastBind(final boolean b)
+  {
+    fastBind = b;
+  }
+
+
+  /**
+   * Returns the entry resolver that is invoked in parallel with the bind.
+   *
+   * @return  entry resolver
+   */
+  public EntryResolver getEntryResolver()
+  {
+    return entryResolver;
+  }
+
+
+  /**
+   * Sets the entry resolver that is invoked in parallel with the bind. The resolver receives a null authentication
+   * handler response.
+   *
+   * @param  resolver  entry resolver
+   */
+  public void setEntryResolver(final EntryResolver resolver)
+  {
+    entryResolver = resolver;
+  }
+
+
+  /**
+   * Returns an entry resolver that waits for the lookup started by this handler. If no lookup was started, or it was
+   * cancelled because the bind failed, the configured entry resolver is invoked directly.
+   *
+   * @return  entry resolver to set on the authenticator
+   */
+  public EntryResolver createEntryResolver()
+  {
+    return new PipelinedEntryResolver();
+  }
+
+
+  @Override
+  protected AuthenticationHandlerResponse authenticateInternal(
+    final Connection c,
+    final AuthenticationCriteria criteria)
+    throws LdapException
+  {
+    final CompletableFuture<LdapEntry> lookup = entryResolver != null ? CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return entryResolver.resolve(criteria, null);
+        } catch (LdapException e) {
+          throw new CompletionException(e);
+        }
+      },
+      service) : null;
+
+    final AuthenticationHandlerResponse response;
+    try {
+      if (fastBind) {
+        fastBind(c);
+      }
+      response = super.authenticateInternal(c, criteria);
+    } catch (LdapException | RuntimeException e) {
+      if (lookup != null) {
+        lookup.cancel(false);
+      }
+      throw e;
+    }
+    if (lookup == null) {
+      return response;
+    }
+    if (!response.getResult()) {
+      lookup.cancel(false);
+    }
+    return new PipelinedResponse(response, lookup);
+  }
+
+
+  /**
+   * Executes the fast bind operation on the supplied connection if it has not been executed on the underlying
+   * connection.
+   *
+   * @param  c  to execute the fast bind operation on
+   *
+   * @throws  LdapException  if the fast bind operation fails
+   */
+  protected void fastBind(final Connection c)
+    throws LdapException
+  {
+    final ProviderConnection pc = c.getProviderConnection();
+    if (pc != null && !fastBoundConnections.contains(pc)) {
+      logger.debug("Executing fast bind on {}", c);
+      new FastBindOperation(c).execute(new FastBindRequest());
+      fastBoundConnections.add(pc);
+    }
+  }
+
+
+  /** Invokes {@link ExecutorService#shutdown()} on the underlying executor service. */
+  public void shutdown()
+  {
+    service.shutdown();
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::factory=%s, fastBind=%s, entryResolver=%s, saslConfig=%s, controls=%s]",
+        getClass().getName(),
+        hashCode(),
+        getConnectionFactory(),
+        fastBind,
+        entryResolver,
+        getAuthenticationSaslConfig(),
+        Arrays.toString(getAuthenticationControls()));
+  }
+
+
+  /** Authentication handler response that carries the entry lookup started with the bind. */
+  private static class PipelinedResponse extends AuthenticationHandlerResponse
+  {
+
+    /** Entry lookup. */
+    private final CompletableFuture<LdapEntry> lookup;
+
+
+    /**
+     * Creates a new pipelined response.
+     *
+     * @param  response  of the bind
+     * @param  future  entry lookup
+     */
+    PipelinedResponse(final AuthenticationHandlerResponse response, final CompletableFuture<LdapEntry> future)
+    {
+      super(
+        response.getResult(),
+        response.getResultCode(),
+        response.getConnection(),
+        response.getMessage(),
+        response.getControls(),
+        response.getMessageId());
+      lookup = future;
+    }
+  }
+
+
+  /** Entry resolver that returns the result of the pipelined entry lookup. */
+  private class PipelinedEntryResolver implements EntryResolver
+  {
+
+
+    @Override
+    public LdapEntry resolve(final AuthenticationCriteria criteria, final AuthenticationHandlerResponse response)
+      throws LdapException
+    {
+      if (!(response instanceof PipelinedResponse) || ((PipelinedResponse) response).lookup.isCancelled()) {
+        return entryResolver != null ? entryResolver.resolve(criteria, response) : null;
+      }
+      try {
+        return ((PipelinedResponse) response).lookup.get();
+      } catch (InterruptedException e) {
+        throw new LdapException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof LdapException) {
+          throw (LdapException) e.getCause();
+        } else if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new LdapException(e);
+      }
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return String.format("[%s@%d::entryResolver=%s]", getClass().getName(), hashCode(), entryResolver);
+    }
+  }
+}
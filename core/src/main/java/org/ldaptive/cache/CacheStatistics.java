@@ -0,0 +1,147 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters for a cache. Counters are updated without locking.
+ *
+ * @author  Middleware Services
+ */
+public class CacheStatistics
+{
+
+  /** Number of lookups that found a result. */
+  private final LongAdder hitCount = new LongAdder();
+
+  /** Number of lookups that did not find a result. */
+  private final LongAdder missCount = new LongAdder();
+
+  /** Number of results stored. */
+  private final LongAdder putCount = new LongAdder();
+
+  /** Number of results evicted to honor the maximum weight. */
+  private final LongAdder evictionCount = new LongAdder();
+
+  /** Number of results removed because their time to live elapsed. */
+  private final LongAdder expirationCount = new LongAdder();
+
+
+  /**
+   * Returns the number of lookups that found a result.
+   *
+   * @return  hit count
+   */
+  public long getHitCount()
+  {
+    return hitCount.sum();
+  }
+
+
+  /**
+   * Returns the number of lookups that did not find a result.
+   *
+   * @return  miss count
+   */
+  public long getMissCount()
+  {
+    return missCount.sum();
+  }
+
+
+  /**
+   * Returns the fraction of lookups that found a result.
+   *
+   * @return  hit rate between 0 and 1, or 0 if there have been no lookups
+   */
+  public double getHitRate()
+  {
+    final long hits = hitCount.sum();
+    final long total = hits + missCount.sum();
+    return total > 0 ? (double) hits / total : 0;
+  }
+
+
+  /**
+   * Returns the number of results stored.
+   *
+   * @return  put count
+   */
+  public long getPutCount()
+  {
+    return putCount.sum();
+  }
+
+
+  /**
+   * Returns the number of results evicted to honor the maximum weight.
+   *
+   * @return  eviction count
+   */
+  public long getEvictionCount()
+  {
+    return evictionCount.sum();
+  }
+
+
+  /**
+   * Returns the number of results removed because their time to live elapsed.
+   *
+   * @return  expiration count
+   */
+  public long getExpirationCount()
+  {
+    return expirationCount.sum();
+  }
+
+
+  /** Increments the hit count. */
+  public void recordHit()
+  {
+    hitCount.increment();
+  }
+
+
+  /** Increments the miss count. */
+  public void recordMiss()
+  {
+    missCount.increment();
+  }
+
+
+  /** Increments the put count. */
+  public void recordPut()
+  {
+    putCount.increment();
+  }
+
+
+  /** Increments the eviction count. */
+  public void recordEviction()
+  {
+    evictionCount.increment();
+  }
+
+
+  /** Increments the expiration count. */
+  public void recordExpiration()
+  {
+    expirationCount.increment();
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::hitCount=%s, missCount=%s, putCount=%s, evictionCount=%s, expirationCount=%s]",
+        getClass().getName(),
+        hashCode(),
+        getHitCount(),
+        getMissCount(),
+        getPutCount(),
+        getEvictionCount(),
+        getExpirationCount());
+  }
+}
@@ -0,0 +1,202 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+
+/**
+ * Cache decorator that coalesces concurrent searches for the same request. When a request misses the cache, the first
+ * caller performs the search while subsequent callers with an equivalent request, see {@link SearchCacheKey}, wait for
+ * it to complete and receive the same response. This prevents a burst of identical searches against the directory when
+ * a popular result expires or the cache is empty. Used by {@link org.ldaptive.SearchOperation} when configured as its
+ * cache.
+ *
+ * @param  <Q>  type of search request
+ *
+ * @author  Middleware Services
+ */
+public class CoalescingCache<Q extends SearchRequest> implements Cache<Q>
+{
+
+  /** Underlying cache. */
+  private final Cache<Q> cache;
+
+  /** Searches that are in progress. */
+  private final ConcurrentHashMap<SearchCacheKey, CompletableFuture<Response<SearchResult>>> inFlight =
+    new ConcurrentHashMap<>();
+
+
+  /**
+   * Creates a new coalescing cache.
+   *
+   * @param  c  cache to store results in
+   */
+  public CoalescingCache(final Cache<Q> c)
+  {
+    cache = c;
+  }
+
+
+  /**
+   * Returns the underlying cache.
+   *
+   * @return  cache
+   */
+  public Cache<Q> getCache()
+  {
+    return cache;
+  }
+
+
+  @Override
+  public SearchResult get(final Q request)
+  {
+    return cache.get(request);
+  }
+
+
+  @Override
+  public void put(final Q request, final SearchResult result)
+  {
+    cache.put(request, result);
+  }
+
+
+  /**
+   * Returns the cached result for the supplied request or performs the search using the supplied function. Only one
+   * search is performed for concurrent, equal requests. The result of that search is stored in the cache and returned
+   * to every caller.
+   *
+   * @param  request  to find ldap result with
+   * @param  search  function to perform the search if the result is not cached
+   *
+   * @return  ldap response, which has a null result code if it was found in the cache
+   *
+   * @throws  LdapException  if the search fails or the thread is interrupted while waiting for another search
+   */
+  public Response<SearchResult> get(final Q request, final SearchFunction<Q> search)
+    throws LdapException
+  {
+    final SearchResult sr = cache.get(request);
+    if (sr != null) {
+      return new Response<>(sr, null);
+    }
+
+    final SearchCacheKey key = new SearchCacheKey(request);
+    final CompletableFuture<Response<SearchResult>> future = new CompletableFuture<>();
+    final CompletableFuture<Response<SearchResult>> existing = inFlight.putIfAbsent(key, future);
+    return existing != null ? await(existing) : search(request, key, search, future);
+  }
+
+
+  /**
+   * Performs the search on behalf of all callers with an equal request and completes the supplied future with the
+   * response.
+   *
+   * @param  request  to find ldap result with
+   * @param  key  cache key of the request
+   * @param  search  function to perform the search if the result is not cached
+   * @param  future  to complete with the response
+   *
+   * @return  ldap response
+   *
+   * @throws  LdapException  if the search fails
+   */
+  private Response<SearchResult> search(
+    final Q request,
+    final SearchCacheKey key,
+    final SearchFunction<Q> search,
+    final CompletableFuture<Response<SearchResult>> future)
+    throws LdapException
+  {
+    try {
+      // another search may have completed after the first cache lookup
+      final SearchResult cached = cache.get(request);
+      final Response<SearchResult> response = cached != null ? new Response<>(cached, null) : search.apply(request);
+      if (cached == null) {
+        cache.put(request, response.getResult());
+      }
+      future.complete(response);
+      return response;
+    } catch (LdapException | RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+
+  /**
+   * Returns the number of searches currently in progress.
+   *
+   * @return  number of in flight searches
+   */
+  public int getInFlightCount()
+  {
+    return inFlight.size();
+  }
+
+
+  /**
+   * Waits for the supplied search to complete.
+   *
+   * @param  future  search in progress
+   *
+   * @return  ldap response
+   *
+   * @throws  LdapException  if the search failed or the thread is interrupted
+   */
+  private Response<SearchResult> await(final CompletableFuture<Response<SearchResult>> future)
+    throws LdapException
+  {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LdapException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LdapException) {
+        throw new LdapException((LdapException) e.getCause(), ((LdapException) e.getCause()).getResultCode());
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new LdapException(e);
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return String.format("[%s@%d::cache=%s, inFlight=%s]", getClass().getName(), hashCode(), cache, inFlight.size());
+  }
+
+
+  /**
+   * Performs a search for a request that was not found in the cache.
+   *
+   * @param  <Q>  type of search request
+   */
+  public interface SearchFunction<Q extends SearchRequest>
+  {
+
+
+    /**
+     * Performs the search.
+     *
+     * @param  request  to search with
+     *
+     * @return  ldap response
+     *
+     * @throws  LdapException  if the search fails
+     */
+    Response<SearchResult> apply(Q request)
+      throws LdapException;
+  }
+}
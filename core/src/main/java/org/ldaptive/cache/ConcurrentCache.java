@@ -0,0 +1,392 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+
+/**
+ * Cache implementation that supports concurrent access without a global lock. Reads never lock. Results are bounded by
+ * the sum of their weights, see {@link Weigher}, and evicted in approximately least-recently-used order using a second
+ * chance (CLOCK) queue. Each result expires once its time to live elapses. Expired results are removed by a timer wheel
+ * that only visits the results due in each tick, rather than scanning the whole cache. Results are keyed by {@link
+ * SearchCacheKey}, so equivalent search requests share a result.
+ *
+ * @param  <Q>  type of search request
+ *
+ * @author  Middleware Services
+ */
+public class ConcurrentCache<Q extends SearchRequest> implements Cache<Q>
+{
+
+  /** Number of buckets in the timer wheel. */
+  private static final int WHEEL_SIZE = 512;
+
+  /** Map to cache search results. */
+  private final ConcurrentHashMap<SearchCacheKey, Node> cache = new ConcurrentHashMap<>();
+
+  /** Maximum sum of the weights of all cached results. */
+  private final long maxWeight;
+
+  /** Computes the weight of each result. */
+  private final Weigher weigher;
+
+  /** Time to live of each result in nanoseconds. */
+  private final long timeToLive;
+
+  /** Duration of each tick of the timer wheel in nanoseconds. */
+  private final long tickDuration;
+
+  /** Sum of the weights of all cached results. */
+  private final AtomicLong weight = new AtomicLong();
+
+  /** Results in insertion order, used to select results to evict. */
+  private final Queue<Node> evictionQueue = new ConcurrentLinkedQueue<>();
+
+  /** Number of removed results that have not been drained from the eviction queue. */
+  private final AtomicInteger staleCount = new AtomicInteger();
+
+  /** Lock for evicting results. */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /** Timer wheel of results, each bucket holds results that expire in the same tick. */
+  private final Queue<Node>[] wheel;
+
+  /** Time this cache was created, ticks are relative to this time. */
+  private final long startTime = System.nanoTime();
+
+  /** Next tick to be processed by the timer wheel. */
+  private volatile long currentTick;
+
+  /** Hit, miss and eviction statistics. */
+  private final CacheStatistics statistics = new CacheStatistics();
+
+  /** Executor for performing expiration. */
+  // CheckStyle:JavadocVariable OFF
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+    r -> {
+      final Thread t = new Thread(r);
+      t.setDaemon(true);
+      return t;
+    });
+  // CheckStyle:JavadocVariable ON
+
+
+  /**
+   * Creates a new concurrent cache that holds at most the supplied number of results.
+   *
+   * @param  size  number of results to cache
+   * @param  ttl  that results should stay in the cache
+   * @param  interval  to enforce timeToLive
+   */
+  public ConcurrentCache(final int size, final Duration ttl, final Duration interval)
+  {
+    this(size, result -> 1, ttl, interval);
+  }
+
+
+  /**
+   * Creates a new concurrent cache bounded by the weight of its results.
+   *
+   * @param  max  maximum sum of the weights of all cached results
+   * @param  w  weigher to compute the weight of each result
+   * @param  ttl  that results should stay in the cache
+   * @param  interval  to enforce timeToLive
+   *
+   * @throws  IllegalArgumentException  if max is less than one, ttl is negative or interval is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public ConcurrentCache(final long max, final Weigher w, final Duration ttl, final Duration interval)
+  {
+    if (max < 1) {
+      throw new IllegalArgumentException("Maximum weight must be greater than zero");
+    }
+    if (ttl.isNegative()) {
+      throw new IllegalArgumentException("Time to live cannot be negative");
+    }
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("Interval must be greater than zero");
+    }
+    maxWeight = max;
+    weigher = w;
+    timeToLive = ttl.toNanos();
+    tickDuration = interval.toNanos();
+    wheel = new Queue[WHEEL_SIZE];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new ConcurrentLinkedQueue<>();
+    }
+    executor.scheduleAtFixedRate(this::expire, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+
+  /**
+   * Returns the hit, miss and eviction statistics for this cache.
+   *
+   * @return  cache statistics
+   */
+  public CacheStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+
+  /** Removes all data from this cache. */
+  public void clear()
+  {
+    for (Node node : cache.values()) {
+      remove(node);
+    }
+  }
+
+
+  @Override
+  public SearchResult get(final Q request)
+  {
+    final Node node = cache.get(new SearchCacheKey(request));
+    if (node != null && node.isExpired(System.nanoTime())) {
+      if (remove(node)) {
+        statistics.recordExpiration();
+      }
+    } else if (node != null) {
+      if (!node.accessed) {
+        node.accessed = true;
+      }
+      statistics.recordHit();
+      return node.result;
+    }
+    statistics.recordMiss();
+    return null;
+  }
+
+
+  @Override
+  public void put(final Q request, final SearchResult result)
+  {
+    if (result == null) {
+      return;
+    }
+
+    final long now = System.nanoTime();
+    final Node node = new Node(new SearchCacheKey(request), result, weigher.weigh(result), now + timeToLive);
+    weight.addAndGet(node.weight);
+    final Node previous = cache.put(node.key, node);
+    if (previous != null) {
+      previous.removed = true;
+      weight.addAndGet(-previous.weight);
+      staleCount.incrementAndGet();
+    }
+    evictionQueue.add(node);
+    wheel[(int) (Math.max(tick(node.expireTime) + 1, currentTick) % WHEEL_SIZE)].add(node);
+    statistics.recordPut();
+    if (weight.get() > maxWeight || staleCount.get() > cache.size()) {
+      evict();
+    }
+  }
+
+
+  /**
+   * Returns the number of items in this cache.
+   *
+   * @return  size of this cache
+   */
+  public int size()
+  {
+    return cache.size();
+  }
+
+
+  /**
+   * Returns the sum of the weights of all cached results.
+   *
+   * @return  weight of this cache
+   */
+  public long getWeight()
+  {
+    return weight.get();
+  }
+
+
+  /** Frees any resources associated with this cache. */
+  public void close()
+  {
+    executor.shutdown();
+    clear();
+  }
+
+
+  /**
+   * Returns the timer wheel tick that contains the supplied time.
+   *
+   * @param  time  in nanoseconds
+   *
+   * @return  tick
+   */
+  private long tick(final long time)
+  {
+    return (time - startTime) / tickDuration;
+  }
+
+
+  /**
+   * Removes the supplied node from the cache if it is still mapped to its key.
+   *
+   * @param  node  to remove
+   *
+   * @return  whether the node was removed
+   */
+  private boolean remove(final Node node)
+  {
+    if (cache.remove(node.key, node)) {
+      node.removed = true;
+      weight.addAndGet(-node.weight);
+      staleCount.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+
+  /**
+   * Evicts results until the weight of the cache is no greater than the maximum weight. Results that have been read
+   * since they were last considered are given a second chance. Drains removed results from the eviction queue if they
+   * outnumber the cached results.
+   */
+  private void evict()
+  {
+    evictionLock.lock();
+    try {
+      if (staleCount.get() > cache.size()) {
+        evictionQueue.removeIf(n -> n.removed);
+        staleCount.set(0);
+      }
+      while (weight.get() > maxWeight) {
+        final Node node = evictionQueue.poll();
+        if (node == null) {
+          break;
+        }
+        if (node.removed) {
+          staleCount.decrementAndGet();
+        } else if (node.accessed) {
+          node.accessed = false;
+          evictionQueue.add(node);
+        } else if (cache.remove(node.key, node)) {
+          node.removed = true;
+          weight.addAndGet(-node.weight);
+          statistics.recordEviction();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+
+  /**
+   * Advances the timer wheel to the current time. Expired results in each bucket that has been passed are removed,
+   * other results are returned to their bucket to be examined on the next turn of the wheel.
+   */
+  private void expire()
+  {
+    final long now = System.nanoTime();
+    final long tick = tick(now);
+    while (currentTick <= tick) {
+      final Queue<Node> bucket = wheel[(int) (currentTick % WHEEL_SIZE)];
+      final List<Node> pending = new ArrayList<>();
+      Node node = bucket.poll();
+      while (node != null) {
+        if (node.isExpired(now)) {
+          if (remove(node)) {
+            statistics.recordExpiration();
+          }
+        } else if (!node.removed) {
+          pending.add(node);
+        }
+        node = bucket.poll();
+      }
+      bucket.addAll(pending);
+      currentTick++;
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::maxWeight=%s, weigher=%s, timeToLive=%s, size=%s, weight=%s, statistics=%s]",
+        getClass().getName(),
+        hashCode(),
+        maxWeight,
+        weigher,
+        Duration.ofNanos(timeToLive),
+        size(),
+        getWeight(),
+        statistics);
+  }
+
+
+  /** Container for data related to cached ldap results. */
+  private static class Node
+  {
+
+    /** Cache key of the search request. */
+    private final SearchCacheKey key;
+
+    /** Ldap result. */
+    private final SearchResult result;
+
+    /** Weight of the result. */
+    private final int weight;
+
+    /** Time this node expires in nanoseconds. */
+    private final long expireTime;
+
+    /** Whether this node has been read since it was last considered for eviction. */
+    private volatile boolean accessed;
+
+    /** Whether this node has been removed from the cache. */
+    private volatile boolean removed;
+
+
+    /**
+     * Creates a new node.
+     *
+     * @param  k  cache key of the search request
+     * @param  sr  search result
+     * @param  w  weight of the search result
+     * @param  expire  time this node expires in nanoseconds
+     */
+    Node(final SearchCacheKey k, final SearchResult sr, final int w, final long expire)
+    {
+      key = k;
+      result = sr;
+      weight = w;
+      expireTime = expire;
+    }
+
+
+    /**
+     * Returns whether this node has expired.
+     *
+     * @param  now  current time in nanoseconds
+     *
+     * @return  whether this node has expired
+     */
+    boolean isExpired(final long now)
+    {
+      return now - expireTime >= 0;
+    }
+  }
+}
@@ -12,7 +12,8 @@ import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResult;
 
 /**
- * Least-Recently-Used cache implementation. Leverages a {@link LinkedHashMap}.
+ * Least-Recently-Used cache implementation. Leverages a {@link LinkedHashMap}. Results are keyed by {@link
+ * SearchCacheKey}, so equivalent search requests share a result.
  *
  * @param  <Q>  type of search request
  *
@@ -28,7 +29,7 @@ public class LRUCache<Q extends SearchRequest> implements Cache<Q>
   private static final float LOAD_FACTOR = 0.75f;
 
   /** Map to cache search results. */
-  private Map<Q, Item> cache;
+  private Map<SearchCacheKey, Item> cache;
 
   /** Executor for performing eviction. */
   private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
@@ -50,14 +51,14 @@ public class LRUCache<Q extends SearchRequest> implements Cache<Q>
    */
   public LRUCache(final int size, final Duration timeToLive, final Duration interval)
   {
-    cache = new LinkedHashMap<Q, Item>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+    cache = new LinkedHashMap<SearchCacheKey, Item>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
 
       /** serialVersionUID. */
       private static final long serialVersionUID = -4082551016104288539L;
 
 
       @Override
-      protected boolean removeEldestEntry(final Map.Entry<Q, Item> entry)
+      protected boolean removeEldestEntry(final Map.Entry<SearchCacheKey, Item> entry)
       {
         return size() > size;
       }
@@ -91,12 +92,10 @@ public class LRUCache<Q extends SearchRequest> implements Cache<Q>
   @Override
   public SearchResult get(final Q request)
   {
+    final SearchCacheKey key = new SearchCacheKey(request);
     synchronized (cache) {
-      if (cache.containsKey(request)) {
-        return cache.get(request).result;
-      } else {
-        return null;
-      }
+      final Item item = cache.get(key);
+      return item != null ? item.result : null;
     }
   }
 
@@ -104,8 +103,9 @@ public class LRUCache<Q extends SearchRequest> implements Cache<Q>
   @Override
   public void put(final Q request, final SearchResult result)
   {
+    final SearchCacheKey key = new SearchCacheKey(request);
     synchronized (cache) {
-      cache.put(request, new Item(result));
+      cache.put(key, new Item(result));
     }
   }
 
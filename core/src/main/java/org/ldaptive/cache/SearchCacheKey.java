@@ -0,0 +1,307 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import org.ldaptive.DerefAliases;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchScope;
+import org.ldaptive.SortBehavior;
+import org.ldaptive.control.RequestControl;
+
+/**
+ * Immutable cache key for a search request. The key is built from the fields that determine the result of a search and
+ * normalizes them so that equivalent requests produce equal keys:
+ *
+ * <ul>
+ *   <li>the base DN is lower cased and whitespace around separators is removed</li>
+ *   <li>the filter is formatted with its parameters and enclosed in parentheses</li>
+ *   <li>return and binary attributes are lower cased and sorted</li>
+ *   <li>handlers are captured by their string representation, which includes their configuration, so handlers
+ *     configured differently produce different keys</li>
+ *   <li>controls are captured by their OID, criticality and encoded value</li>
+ * </ul>
+ *
+ * <p>The key does not hold references to the handlers or controls of the request; everything it compares is captured
+ * when the key is created. Subsequent changes to the search request, its handlers or its controls do not affect the
+ * key.</p>
+ *
+ * @author  Middleware Services
+ */
+public final class SearchCacheKey
+{
+
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 10271;
+
+  /** Whitespace surrounding an unescaped DN separator. */
+  private static final Pattern DN_SEPARATOR = Pattern.compile("(?<!\\\\)\\s*([,=+])\\s*");
+
+  /** Normalized base DN. */
+  private final String baseDn;
+
+  /** Formatted search filter. */
+  private final String filter;
+
+  /** Search scope. */
+  private final SearchScope searchScope;
+
+  /** Sorted return attributes. */
+  private final String[] returnAttributes;
+
+  /** Size limit. */
+  private final long sizeLimit;
+
+  /** Time limit. */
+  private final Duration timeLimit;
+
+  /** Alias dereferencing. */
+  private final DerefAliases derefAliases;
+
+  /** Whether only attribute types are returned. */
+  private final boolean typesOnly;
+
+  /** Sorted binary attributes. */
+  private final String[] binaryAttributes;
+
+  /** Sort behavior. */
+  private final SortBehavior sortBehavior;
+
+  /** Snapshot of the search entry handlers. */
+  private final String[] entryHandlers;
+
+  /** Snapshot of the search reference handlers. */
+  private final String[] referenceHandlers;
+
+  /** Snapshot of the request controls. */
+  private final String[] controls;
+
+  /** Precomputed hash code. */
+  private final int hashCode;
+
+
+  /**
+   * Creates a new search cache key.
+   *
+   * @param  request  to create the key for
+   */
+  public SearchCacheKey(final SearchRequest request)
+  {
+    baseDn = normalizeDn(request.getBaseDn());
+    filter = normalizeFilter(request.getSearchFilter() != null ? request.getSearchFilter().format() : null);
+    searchScope = request.getSearchScope();
+    returnAttributes = normalizeAttributes(request.getReturnAttributes());
+    sizeLimit = request.getSizeLimit();
+    timeLimit = request.getTimeLimit();
+    derefAliases = request.getDerefAliases();
+    typesOnly = request.getTypesOnly();
+    binaryAttributes = normalizeAttributes(request.getBinaryAttributes());
+    sortBehavior = request.getSortBehavior();
+    entryHandlers = snapshotHandlers(request.getSearchEntryHandlers());
+    referenceHandlers = snapshotHandlers(request.getSearchReferenceHandlers());
+    controls = snapshotControls(request.getControls());
+    hashCode = LdapUtils.computeHashCode(
+      HASH_CODE_SEED,
+      baseDn,
+      filter,
+      searchScope,
+      returnAttributes,
+      sizeLimit,
+      timeLimit,
+      derefAliases,
+      typesOnly,
+      binaryAttributes,
+      sortBehavior,
+      entryHandlers,
+      referenceHandlers,
+      controls);
+  }
+
+
+  /**
+   * Returns the normalized base DN.
+   *
+   * @return  base DN
+   */
+  public String getBaseDn()
+  {
+    return baseDn;
+  }
+
+
+  /**
+   * Returns the formatted search filter.
+   *
+   * @return  search filter
+   */
+  public String getFilter()
+  {
+    return filter;
+  }
+
+
+  /**
+   * Lower cases the supplied DN and removes whitespace surrounding unescaped separators.
+   *
+   * @param  dn  to normalize
+   *
+   * @return  normalized DN
+   */
+  static String normalizeDn(final String dn)
+  {
+    if (dn == null) {
+      return null;
+    }
+    return DN_SEPARATOR.matcher(dn.trim().toLowerCase()).replaceAll("$1");
+  }
+
+
+  /**
+   * Removes surrounding whitespace from the supplied filter and encloses it in parentheses if necessary.
+   *
+   * @param  f  to normalize
+   *
+   * @return  normalized filter
+   */
+  private static String normalizeFilter(final String f)
+  {
+    if (f == null) {
+      return null;
+    }
+
+    final String s = f.trim();
+    return s.startsWith("(") ? s : "(" + s + ")";
+  }
+
+
+  /**
+   * Returns a sorted, lower case copy of the supplied attribute names.
+   *
+   * @param  attrs  to normalize
+   *
+   * @return  normalized attribute names
+   */
+  private static String[] normalizeAttributes(final String[] attrs)
+  {
+    if (attrs == null) {
+      return null;
+    }
+
+    final String[] normalized = new String[attrs.length];
+    for (int i = 0; i < attrs.length; i++) {
+      normalized[i] = attrs[i] != null ? attrs[i].trim().toLowerCase() : null;
+    }
+    Arrays.sort(normalized, (a, b) -> a == null ? (b == null ? 0 : -1) : (b == null ? 1 : a.compareTo(b)));
+    return normalized;
+  }
+
+
+  /**
+   * Returns the string representation of each of the supplied handlers. Handlers in this library include their
+   * configuration in their string representation.
+   *
+   * @param  handlers  to snapshot
+   *
+   * @return  handler snapshots
+   */
+  private static String[] snapshotHandlers(final Object[] handlers)
+  {
+    if (handlers == null) {
+      return null;
+    }
+
+    final String[] snapshot = new String[handlers.length];
+    for (int i = 0; i < handlers.length; i++) {
+      snapshot[i] = handlers[i] != null ? handlers[i].toString() : null;
+    }
+    return snapshot;
+  }
+
+
+  /**
+   * Returns the OID, criticality and base64 encoded value of each of the supplied controls.
+   *
+   * @param  requestControls  to snapshot
+   *
+   * @return  control snapshots
+   */
+  private static String[] snapshotControls(final RequestControl[] requestControls)
+  {
+    if (requestControls == null) {
+      return null;
+    }
+
+    final String[] snapshot = new String[requestControls.length];
+    for (int i = 0; i < requestControls.length; i++) {
+      final RequestControl c = requestControls[i];
+      if (c != null) {
+        final byte[] value = c.encode();
+        snapshot[i] = String.format(
+          "%s:%s:%s", c.getOID(), c.getCriticality(), value != null ? LdapUtils.base64Encode(value) : "");
+      }
+    }
+    return snapshot;
+  }
+
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof SearchCacheKey) {
+      final SearchCacheKey v = (SearchCacheKey) o;
+      return hashCode == v.hashCode &&
+             sizeLimit == v.sizeLimit &&
+             typesOnly == v.typesOnly &&
+             searchScope == v.searchScope &&
+             derefAliases == v.derefAliases &&
+             sortBehavior == v.sortBehavior &&
+             LdapUtils.areEqual(baseDn, v.baseDn) &&
+             LdapUtils.areEqual(filter, v.filter) &&
+             LdapUtils.areEqual(timeLimit, v.timeLimit) &&
+             Arrays.equals(returnAttributes, v.returnAttributes) &&
+             Arrays.equals(binaryAttributes, v.binaryAttributes) &&
+             Arrays.equals(entryHandlers, v.entryHandlers) &&
+             Arrays.equals(referenceHandlers, v.referenceHandlers) &&
+             Arrays.equals(controls, v.controls);
+    }
+    return false;
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    return hashCode;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::baseDn=%s, filter=%s, searchScope=%s, returnAttributes=%s, sizeLimit=%s, timeLimit=%s, " +
+        "derefAliases=%s, typesOnly=%s, binaryAttributes=%s, sortBehavior=%s, entryHandlers=%s, " +
+        "referenceHandlers=%s, controls=%s]",
+        getClass().getName(),
+        hashCode(),
+        baseDn,
+        filter,
+        searchScope,
+        Arrays.toString(returnAttributes),
+        sizeLimit,
+        timeLimit,
+        derefAliases,
+        typesOnly,
+        Arrays.toString(binaryAttributes),
+        sortBehavior,
+        Arrays.toString(entryHandlers),
+        Arrays.toString(referenceHandlers),
+        Arrays.toString(controls));
+  }
+}
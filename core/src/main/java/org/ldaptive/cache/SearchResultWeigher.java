@@ -0,0 +1,70 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.SearchReference;
+import org.ldaptive.SearchResult;
+
+/**
+ * Weighs a search result by its estimated size in bytes. The estimate counts the characters of every DN, attribute name
+ * and string value as two bytes and the length of every binary value, plus a fixed overhead for each entry, attribute
+ * and value.
+ *
+ * @author  Middleware Services
+ */
+public class SearchResultWeigher implements Weigher
+{
+
+  /** Estimated overhead of an entry, attribute or value in bytes. */
+  private static final int OBJECT_OVERHEAD = 32;
+
+
+  @Override
+  public int weigh(final SearchResult result)
+  {
+    long weight = OBJECT_OVERHEAD;
+    for (LdapEntry entry : result.getEntries()) {
+      weight += OBJECT_OVERHEAD + length(entry.getDn());
+      for (LdapAttribute attr : entry.getAttributes()) {
+        weight += OBJECT_OVERHEAD + length(attr.getName());
+        if (attr.isBinary()) {
+          for (byte[] value : attr.getBinaryValues()) {
+            weight += OBJECT_OVERHEAD + value.length;
+          }
+        } else {
+          for (String value : attr.getStringValues()) {
+            weight += OBJECT_OVERHEAD + length(value);
+          }
+        }
+      }
+    }
+    for (SearchReference ref : result.getReferences()) {
+      weight += OBJECT_OVERHEAD;
+      for (String url : ref.getReferralUrls()) {
+        weight += length(url);
+      }
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+
+  /**
+   * Returns the estimated size of the supplied string in bytes.
+   *
+   * @param  s  string to measure
+   *
+   * @return  two bytes per character or zero if s is null
+   */
+  private static long length(final String s)
+  {
+    return s != null ? 2L * s.length() : 0;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return String.format("[%s@%d]", getClass().getName(), hashCode());
+  }
+}
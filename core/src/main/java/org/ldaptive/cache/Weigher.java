@@ -0,0 +1,24 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import org.ldaptive.SearchResult;
+
+/**
+ * Computes the weight of a cached search result. Caches bounded by weight evict results once the sum of the weights
+ * exceeds the configured maximum.
+ *
+ * @author  Middleware Services
+ */
+public interface Weigher
+{
+
+
+  /**
+   * Returns the weight of the supplied search result. The weight of a result must not change while it is cached.
+   *
+   * @param  result  to weigh
+   *
+   * @return  non-negative weight
+   */
+  int weigh(SearchResult result);
+}
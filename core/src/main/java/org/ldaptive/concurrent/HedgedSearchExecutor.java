@@ -0,0 +1,534 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionFactory;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.SearchFilter;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.ldaptive.handler.SearchEntryHandler;
+
+/**
+ * Executes a search against a primary connection factory and, if no response has arrived within the hedge delay, sends
+ * the same search to a secondary connection factory. The first response wins and the other search is cancelled. If the
+ * primary search fails before the hedge delay the secondary search is sent immediately. The primary and secondary
+ * factories should connect to different replicas of the same directory. Connections are only ever closed by the thread
+ * that performed the search, so pooled connection factories return each connection to the pool once, after its search
+ * has completed or been interrupted.
+ *
+ * <p>Cancelling the losing search is best-effort: its thread is interrupted and no LDAP abandon request is sent, since
+ * searches are performed with the blocking search operation, which does not expose a message ID. Providers whose
+ * blocking I/O does not respond to interruption, such as JNDI, keep reading the losing search until it completes, and
+ * its connection is held until then. Configure a response timeout on both connection factories to bound this.</p>
+ *
+ * <p>The hedge delay is the configured percentile of recent primary search latencies, bounded by {@link
+ * #getMinHedgeDelay()} and {@link #getMaxHedgeDelay()}. Only primary searches that succeed are sampled, so searches won
+ * by the secondary factory do not lower the delay. Until enough searches have completed the max hedge delay is used.
+ * Each search runs on its own connection, so hedging adds at most one connection per search. A cached thread pool is
+ * used by default.</p>
+ *
+ * @author  Middleware Services
+ */
+public class HedgedSearchExecutor extends AbstractSearchExecutor
+{
+
+  /** Default latency percentile after which a search is hedged, value is {@value}. */
+  public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+
+  /** Default minimum hedge delay. */
+  public static final Duration DEFAULT_MIN_HEDGE_DELAY = Duration.ofMillis(5);
+
+  /** Default maximum hedge delay. */
+  public static final Duration DEFAULT_MAX_HEDGE_DELAY = Duration.ofSeconds(1);
+
+  /** Number of latency samples kept, value is {@value}. */
+  private static final int SAMPLE_SIZE = 256;
+
+  /** Number of latency samples required before the percentile is used, value is {@value}. */
+  private static final int MIN_SAMPLES = 20;
+
+  /** Recent search latencies. */
+  private final LatencySamples latencies = new LatencySamples(SAMPLE_SIZE);
+
+  /** Number of searches executed. */
+  private final LongAdder searchCount = new LongAdder();
+
+  /** Number of searches sent to the secondary connection factory. */
+  private final LongAdder hedgeCount = new LongAdder();
+
+  /** Number of searches answered first by the secondary connection factory. */
+  private final LongAdder hedgeWinCount = new LongAdder();
+
+  /** Latency percentile after which a search is hedged. */
+  private double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+
+  /** Minimum hedge delay. */
+  private Duration minHedgeDelay = DEFAULT_MIN_HEDGE_DELAY;
+
+  /** Maximum hedge delay. */
+  private Duration maxHedgeDelay = DEFAULT_MAX_HEDGE_DELAY;
+
+
+  /** Default constructor. */
+  public HedgedSearchExecutor()
+  {
+    this(Executors.newCachedThreadPool());
+  }
+
+
+  /**
+   * Creates a new hedged search executor.
+   *
+   * @param  es  executor service
+   */
+  public HedgedSearchExecutor(final ExecutorService es)
+  {
+    super(es);
+  }
+
+
+  /**
+   * Returns the latency percentile after which a search is hedged.
+   *
+   * @return  hedge percentile
+   */
+  public double getHedgePercentile()
+  {
+    return hedgePercentile;
+  }
+
+
+  /**
+   * Sets the latency percentile after which a search is hedged.
+   *
+   * @param  percentile  between 0 and 1, exclusive
+   */
+  public void setHedgePercentile(final double percentile)
+  {
+    if (percentile <= 0 || percentile >= 1) {
+      throw new IllegalArgumentException("Hedge percentile must be between 0 and 1");
+    }
+    hedgePercentile = percentile;
+  }
+
+
+  /**
+   * Returns the minimum hedge delay.
+   *
+   * @return  minimum hedge delay
+   */
+  public Duration getMinHedgeDelay()
+  {
+    return minHedgeDelay;
+  }
+
+
+  /**
+   * Sets the minimum hedge delay.
+   *
+   * @param  time  minimum hedge delay
+   */
+  public void setMinHedgeDelay(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Min hedge delay cannot be null or negative");
+    }
+    minHedgeDelay = time;
+  }
+
+
+  /**
+   * Returns the maximum hedge delay. This delay is also used until enough searches have completed to compute the
+   * percentile.
+   *
+   * @return  maximum hedge delay
+   */
+  public Duration getMaxHedgeDelay()
+  {
+    return maxHedgeDelay;
+  }
+
+
+  /**
+   * Sets the maximum hedge delay.
+   *
+   * @param  time  maximum hedge delay
+   */
+  public void setMaxHedgeDelay(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Max hedge delay cannot be null or negative");
+    }
+    maxHedgeDelay = time;
+  }
+
+
+  /**
+   * Returns the time to wait for the primary search before sending the secondary search.
+   *
+   * @return  hedge delay
+   */
+  public Duration getHedgeDelay()
+  {
+    final long percentile = latencies.percentile(hedgePercentile, MIN_SAMPLES);
+    if (percentile < 0) {
+      return maxHedgeDelay;
+    }
+    return Duration.ofNanos(Math.min(Math.max(percentile, minHedgeDelay.toNanos()), maxHedgeDelay.toNanos()));
+  }
+
+
+  /**
+   * Returns the number of searches executed.
+   *
+   * @return  search count
+   */
+  public long getSearchCount()
+  {
+    return searchCount.sum();
+  }
+
+
+  /**
+   * Returns the number of searches sent to the secondary connection factory, either because the hedge delay elapsed or
+   * because the primary search failed.
+   *
+   * @return  hedge count
+   */
+  public long getHedgeCount()
+  {
+    return hedgeCount.sum();
+  }
+
+
+  /**
+   * Returns the number of searches answered first by the secondary connection factory.
+   *
+   * @return  hedge win count
+   */
+  public long getHedgeWinCount()
+  {
+    return hedgeWinCount.sum();
+  }
+
+
+  /**
+   * Returns the fraction of searches that were sent to the secondary connection factory.
+   *
+   * @return  hedge rate between 0 and 1, or 0 if no searches have been executed
+   */
+  public double getHedgeRate()
+  {
+    final long hedges = hedgeCount.sum();
+    final long searches = searchCount.sum();
+    return searches > 0 ? (double) hedges / searches : 0;
+  }
+
+
+  /**
+   * Performs a search operation with the supplied connection factories.
+   *
+   * @param  primary  to get a connection from
+   * @param  secondary  to get a connection from if the search is hedged
+   * @param  filter  to search with
+   * @param  attrs  to return
+   *
+   * @return  search result
+   *
+   * @throws  LdapException  if both searches fail
+   */
+  public Response<SearchResult> search(
+    final ConnectionFactory primary,
+    final ConnectionFactory secondary,
+    final String filter,
+    final String... attrs)
+    throws LdapException
+  {
+    return search(primary, secondary, new SearchFilter(filter), attrs, (SearchEntryHandler[]) null);
+  }
+
+
+  /**
+   * Performs a search operation with the supplied connection factories.
+   *
+   * @param  primary  to get a connection from
+   * @param  secondary  to get a connection from if the search is hedged
+   * @param  filter  to search with
+   * @param  attrs  to return
+   * @param  handlers  entry handlers
+   *
+   * @return  search result
+   *
+   * @throws  LdapException  if both searches fail
+   */
+  public Response<SearchResult> search(
+    final ConnectionFactory primary,
+    final ConnectionFactory secondary,
+    final SearchFilter filter,
+    final String[] attrs,
+    final SearchEntryHandler... handlers)
+    throws LdapException
+  {
+    final SearchRequest sr = newSearchRequest(this);
+    if (filter != null) {
+      sr.setSearchFilter(filter);
+    }
+    if (attrs != null) {
+      sr.setReturnAttributes(attrs);
+    }
+    if (handlers != null) {
+      sr.setSearchEntryHandlers(handlers);
+    }
+    return search(primary, secondary, sr);
+  }
+
+
+  /**
+   * Performs a search operation with the supplied connection factories.
+   *
+   * @param  primary  to get a connection from
+   * @param  secondary  to get a connection from if the search is hedged
+   * @param  request  to search with
+   *
+   * @return  search result
+   *
+   * @throws  LdapException  if both searches fail
+   */
+  public Response<SearchResult> search(
+    final ConnectionFactory primary,
+    final ConnectionFactory secondary,
+    final SearchRequest request)
+    throws LdapException
+  {
+    searchCount.increment();
+    final long start = System.nanoTime();
+    final CompletionService<Response<SearchResult>> cs = new ExecutorCompletionService<>(getExecutorService());
+    final Attempt first = new Attempt(primary, request);
+    first.submit(cs);
+    Attempt second = null;
+    try {
+      LdapException failure = null;
+      Future<Response<SearchResult>> done = cs.poll(getHedgeDelay().toNanos(), TimeUnit.NANOSECONDS);
+      while (true) {
+        if (done != null) {
+          final Attempt attempt = done == first.future ? first : second;
+          try {
+            final Response<SearchResult> response = done.get();
+            if (attempt == first) {
+              latencies.add(System.nanoTime() - start);
+            }
+            if (attempt == second) {
+              hedgeWinCount.increment();
+              first.abandon();
+            } else if (second != null) {
+              second.abandon();
+            }
+            return response;
+          } catch (ExecutionException e) {
+            logger.debug("Search failed on {}", attempt.factory, e);
+            if (failure == null) {
+              failure = toLdapException(e);
+            }
+          }
+        }
+        if (second != null && first.future.isDone() && second.future.isDone()) {
+          throw failure;
+        }
+        if (second == null) {
+          logger.debug("Hedging search {} to {}", request, secondary);
+          hedgeCount.increment();
+          second = new Attempt(secondary, request);
+          second.submit(cs);
+        }
+        done = cs.take();
+      }
+    } catch (InterruptedException e) {
+      first.abandon();
+      if (second != null) {
+        second.abandon();
+      }
+      Thread.currentThread().interrupt();
+      throw new LdapException("Hedged search interrupted", e);
+    }
+  }
+
+
+  /**
+   * Returns the cause of the supplied exception as an ldap exception.
+   *
+   * @param  e  thrown by a search
+   *
+   * @return  ldap exception
+   */
+  private static LdapException toLdapException(final ExecutionException e)
+  {
+    if (e.getCause() instanceof LdapException) {
+      return (LdapException) e.getCause();
+    }
+    return new LdapException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::service=%s, searchExceptionHandler=%s, searchResponseHandlers=%s, searchCache=%s, " +
+        "hedgePercentile=%s, minHedgeDelay=%s, maxHedgeDelay=%s, searchCount=%s, hedgeCount=%s, hedgeWinCount=%s]",
+        getClass().getName(),
+        hashCode(),
+        getExecutorService(),
+        getSearchExceptionHandler(),
+        Arrays.toString(getSearchResponseHandlers()),
+        getSearchCache(),
+        hedgePercentile,
+        minHedgeDelay,
+        maxHedgeDelay,
+        searchCount,
+        hedgeCount,
+        hedgeWinCount);
+  }
+
+
+  /** Search against a single connection factory that can be abandoned by another thread. */
+  private final class Attempt implements Callable<Response<SearchResult>>
+  {
+
+    /** To get a connection from. */
+    private final ConnectionFactory factory;
+
+    /** To search with. */
+    private final SearchRequest request;
+
+    /** Future response of this attempt. */
+    private Future<Response<SearchResult>> future;
+
+
+    /**
+     * Creates a new attempt.
+     *
+     * @param  cf  connection factory
+     * @param  sr  search request
+     */
+    Attempt(final ConnectionFactory cf, final SearchRequest sr)
+    {
+      factory = cf;
+      request = sr;
+    }
+
+
+    /**
+     * Submits this attempt to the supplied completion service.
+     *
+     * @param  cs  to submit to
+     */
+    void submit(final CompletionService<Response<SearchResult>> cs)
+    {
+      future = cs.submit(this);
+    }
+
+
+    @Override
+    public Response<SearchResult> call()
+      throws LdapException
+    {
+      final Connection conn = factory.getConnection();
+      try {
+        conn.open();
+        return createSearchOperation(conn).execute(request);
+      } finally {
+        conn.close();
+      }
+    }
+
+
+    /**
+     * Cancels this attempt without waiting for it. An attempt that has not started never runs, a running attempt is
+     * interrupted and closes its own connection when its search ends. This is best-effort: no LDAP abandon is sent and
+     * a search blocked in I/O that ignores interruption runs to completion or until its response timeout. The
+     * connection is not closed here, since closing a pooled connection returns it to the pool while the search is still
+     * using it.
+     */
+    void abandon()
+    {
+      future.cancel(true);
+    }
+  }
+
+
+  /** Fixed size ring of latency samples. */
+  private static final class LatencySamples
+  {
+
+    /** Latency samples in nanoseconds. */
+    private final long[] samples;
+
+    /** Number of samples recorded, up to the sample size. */
+    private int count;
+
+    /** Index of the next sample. */
+    private int index;
+
+
+    /**
+     * Creates new latency samples.
+     *
+     * @param  size  number of samples to keep
+     */
+    LatencySamples(final int size)
+    {
+      samples = new long[size];
+    }
+
+
+    /**
+     * Adds a sample, replacing the oldest sample if the ring is full.
+     *
+     * @param  nanos  latency in nanoseconds
+     */
+    synchronized void add(final long nanos)
+    {
+      samples[index] = nanos;
+      index = (index + 1) % samples.length;
+      if (count < samples.length) {
+        count++;
+      }
+    }
+
+
+    /**
+     * Returns the supplied percentile of the samples.
+     *
+     * @param  percentile  between 0 and 1
+     * @param  min  number of samples required
+     *
+     * @return  latency in nanoseconds or -1 if there are fewer than min samples
+     */
+    long percentile(final double percentile, final int min)
+    {
+      final long[] sorted;
+      synchronized (this) {
+        if (count < min) {
+          return -1;
+        }
+        sorted = Arrays.copyOf(samples, count);
+      }
+      Arrays.sort(sorted);
+      return sorted[Math.min((int) Math.ceil(percentile * sorted.length) - 1, sorted.length - 1)];
+    }
+  }
+}
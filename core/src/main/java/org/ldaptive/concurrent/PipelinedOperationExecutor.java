@@ -0,0 +1,385 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.ldaptive.AddOperation;
+import org.ldaptive.AddRequest;
+import org.ldaptive.Connection;
+import org.ldaptive.DeleteOperation;
+import org.ldaptive.DeleteRequest;
+import org.ldaptive.LdapException;
+import org.ldaptive.ModifyDnOperation;
+import org.ldaptive.ModifyDnRequest;
+import org.ldaptive.ModifyOperation;
+import org.ldaptive.ModifyRequest;
+import org.ldaptive.Request;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+
+/**
+ * Executes add, modify, delete and modify DN requests on a single connection without waiting for each response before
+ * sending the next request. Up to {@link #getMaxInFlight()} requests are outstanding at any time. Results are reported
+ * on the calling thread in the order the requests were supplied, regardless of the order the responses arrive.
+ *
+ * <p>Pipelining relies on {@link org.ldaptive.AbstractOperation#executeAsync(Request)}. Providers that cannot execute
+ * an operation asynchronously complete it before returning, in which case requests are effectively executed one at a
+ * time.</p>
+ *
+ * <p>Each response is waited for up to the response timeout of the connection config, indefinitely if it is null or
+ * zero. If a response does not arrive in time, its result contains an {@link LdapException} with {@link
+ * ResultCode#LDAP_TIMEOUT}, no further requests are sent and the remaining requests in flight are cancelled and their
+ * results contain a {@link CancellationException}. Responses to cancelled requests may still arrive, so the
+ * connection should be closed after a timeout.</p>
+ *
+ * @author  Middleware Services
+ */
+public class PipelinedOperationExecutor
+{
+
+  /** Default maximum number of requests in flight, value is {@value}. */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+  /** Maximum number of requests in flight. */
+  private final int maxInFlight;
+
+
+  /** Default constructor. */
+  public PipelinedOperationExecutor()
+  {
+    this(DEFAULT_MAX_IN_FLIGHT);
+  }
+
+
+  /**
+   * Creates a new pipelined operation executor.
+   *
+   * @param  max  maximum number of requests in flight
+   *
+   * @throws  IllegalArgumentException  if max is less than one
+   */
+  public PipelinedOperationExecutor(final int max)
+  {
+    if (max < 1) {
+      throw new IllegalArgumentException("Maximum in flight must be greater than zero");
+    }
+    maxInFlight = max;
+  }
+
+
+  /**
+   * Returns the maximum number of requests in flight.
+   *
+   * @return  maximum number of requests in flight
+   */
+  public int getMaxInFlight()
+  {
+    return maxInFlight;
+  }
+
+
+  /**
+   * Executes the supplied requests on the supplied connection and waits for all of them to complete.
+   *
+   * @param  conn  to execute requests on, must be open
+   * @param  requests  to execute
+   *
+   * @return  results in the same order as the requests
+   *
+   * @throws  IllegalArgumentException  if a request is not an add, modify, delete or modify DN request
+   */
+  public List<Result> execute(final Connection conn, final Request... requests)
+  {
+    final List<Result> results = new ArrayList<>(requests.length);
+    execute(conn, Arrays.asList(requests).iterator(), results::add);
+    return results;
+  }
+
+
+  /**
+   * Executes the supplied requests on the supplied connection and waits for all of them to complete. Requests are read
+   * from the iterator only as the window allows, so the iterator may produce requests lazily. The handler is invoked
+   * once per request, in the order the requests were read. Requests are not read from the iterator after a response
+   * times out.
+   *
+   * @param  conn  to execute requests on, must be open
+   * @param  requests  to execute
+   * @param  handler  to receive each result
+   *
+   * @throws  IllegalArgumentException  if a request is not an add, modify, delete or modify DN request
+   */
+  public void execute(final Connection conn, final Iterator<? extends Request> requests, final ResultHandler handler)
+  {
+    final Operations operations = new Operations(conn);
+    final Duration timeout = conn.getConnectionConfig().getResponseTimeout();
+    final Queue<Pending> inFlight = new ArrayDeque<>(maxInFlight);
+    boolean timedOut = false;
+    try {
+      while (!timedOut && requests.hasNext()) {
+        if (inFlight.size() >= maxInFlight) {
+          timedOut = !handle(inFlight.remove(), timeout, handler);
+        }
+        if (!timedOut) {
+          final Request request = requests.next();
+          inFlight.add(new Pending(request, operations.execute(request)));
+        }
+      }
+    } finally {
+      while (!inFlight.isEmpty()) {
+        final Pending pending = inFlight.remove();
+        if (timedOut) {
+          pending.future.cancel(true);
+          handler.handle(
+            new Result(
+              pending.request,
+              null,
+              new CancellationException("Pipeline cancelled after a response timeout")));
+        } else {
+          timedOut = !handle(pending, timeout, handler);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Waits for the response to the supplied request and passes its result to the handler. If the response does not
+   * arrive in time the request is cancelled.
+   *
+   * @param  pending  request to wait for
+   * @param  timeout  to wait for the response, null or zero to wait indefinitely
+   * @param  handler  to receive the result
+   *
+   * @return  whether the response was received, false if the wait timed out or was interrupted
+   */
+  private boolean handle(final Pending pending, final Duration timeout, final ResultHandler handler)
+  {
+    Result result;
+    boolean received = false;
+    try {
+      final Response<Void> response = timeout == null || timeout.isZero() ?
+        pending.future.get() : pending.future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+      result = new Result(pending.request, response, null);
+      received = true;
+    } catch (ExecutionException e) {
+      result = new Result(pending.request, null, e.getCause());
+      received = true;
+    } catch (TimeoutException e) {
+      pending.future.cancel(true);
+      result = new Result(
+        pending.request,
+        null,
+        new LdapException("No response received in " + timeout, ResultCode.LDAP_TIMEOUT));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pending.future.cancel(true);
+      result = new Result(pending.request, null, new LdapException(e));
+    }
+    handler.handle(result);
+    return received;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return String.format("[%s@%d::maxInFlight=%s]", getClass().getName(), hashCode(), maxInFlight);
+  }
+
+
+  /** Handles the result of each pipelined request. */
+  public interface ResultHandler
+  {
+
+
+    /**
+     * Handle the result of a request.
+     *
+     * @param  result  of a single request
+     */
+    void handle(Result result);
+  }
+
+
+  /** Operations bound to a single connection. */
+  private static class Operations
+  {
+
+    /** Add operation. */
+    private final AddOperation add;
+
+    /** Modify operation. */
+    private final ModifyOperation modify;
+
+    /** Delete operation. */
+    private final DeleteOperation delete;
+
+    /** Modify DN operation. */
+    private final ModifyDnOperation modifyDn;
+
+
+    /**
+     * Creates new operations.
+     *
+     * @param  conn  to execute operations on
+     */
+    Operations(final Connection conn)
+    {
+      add = new AddOperation(conn);
+      modify = new ModifyOperation(conn);
+      delete = new DeleteOperation(conn);
+      modifyDn = new ModifyDnOperation(conn);
+    }
+
+
+    /**
+     * Executes the supplied request asynchronously with the operation for its type.
+     *
+     * @param  request  to execute
+     *
+     * @return  future response
+     *
+     * @throws  IllegalArgumentException  if the request type is not supported
+     */
+    CompletableFuture<Response<Void>> execute(final Request request)
+    {
+      final CompletableFuture<Response<Void>> future;
+      if (request instanceof AddRequest) {
+        future = add.executeAsync((AddRequest) request);
+      } else if (request instanceof ModifyRequest) {
+        future = modify.executeAsync((ModifyRequest) request);
+      } else if (request instanceof DeleteRequest) {
+        future = delete.executeAsync((DeleteRequest) request);
+      } else if (request instanceof ModifyDnRequest) {
+        future = modifyDn.executeAsync((ModifyDnRequest) request);
+      } else {
+        throw new IllegalArgumentException("Unsupported request type: " + request);
+      }
+      return future;
+    }
+  }
+
+
+  /** Request that has been sent and its future response. */
+  private static class Pending
+  {
+
+    /** Request that was sent. */
+    private final Request request;
+
+    /** Future response to the request. */
+    private final CompletableFuture<Response<Void>> future;
+
+
+    /**
+     * Creates a new pending request.
+     *
+     * @param  req  request that was sent
+     * @param  f  future response
+     */
+    Pending(final Request req, final CompletableFuture<Response<Void>> f)
+    {
+      request = req;
+      future = f;
+    }
+  }
+
+
+  /** Contains the request and its response or the exception it produced. */
+  public static class Result
+  {
+
+    /** Request that was executed. */
+    private final Request request;
+
+    /** Response to the request. */
+    private final Response<Void> response;
+
+    /** Exception produced by the request. */
+    private final Throwable exception;
+
+
+    /**
+     * Creates a new result.
+     *
+     * @param  req  request that was executed
+     * @param  res  response to the request, null if the request failed
+     * @param  e  exception produced by the request, null if the request succeeded
+     */
+    public Result(final Request req, final Response<Void> res, final Throwable e)
+    {
+      request = req;
+      response = res;
+      exception = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+
+    /**
+     * Returns the request that was executed.
+     *
+     * @return  request
+     */
+    public Request getRequest()
+    {
+      return request;
+    }
+
+
+    /**
+     * Returns the response to the request or null if the request failed.
+     *
+     * @return  response
+     */
+    public Response<Void> getResponse()
+    {
+      return response;
+    }
+
+
+    /**
+     * Returns whether the request failed.
+     *
+     * @return  whether this result contains an exception
+     */
+    public boolean isException()
+    {
+      return exception != null;
+    }
+
+
+    /**
+     * Returns the exception produced by the request or null if the request succeeded.
+     *
+     * @return  exception
+     */
+    public Throwable getException()
+    {
+      return exception;
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return
+        String.format(
+          "[%s@%d::request=%s, response=%s, exception=%s]",
+          getClass().getName(),
+          hashCode(),
+          request,
+          response,
+          exception);
+    }
+  }
+}
@@ -124,8 +124,6 @@ public class PersistentSearchClient
         {
           try {
             logger.debug("received {}", response);
-            search.shutdown();
-
             queue.put(new PersistentSearchItem(response));
           } catch (Exception e) {
             logger.warn("Unable to enqueue response {}", response);
@@ -155,7 +153,6 @@ public class PersistentSearchClient
       (conn, request1, exception) -> {
         try {
           logger.debug("received exception:", exception);
-          search.shutdown();
           queue.put(new PersistentSearchItem(exception));
         } catch (Exception e) {
           logger.warn("Unable to enqueue exception:", exception);
@@ -138,8 +138,6 @@ public class SyncReplClient
         {
           try {
             logger.debug("received {}", response);
-            search.shutdown();
-
             final SyncReplItem item = new SyncReplItem(new SyncReplItem.Response(response));
             if (item.getResponse().getSyncDoneControl() != null) {
               final byte[] cookie = item.getResponse().getSyncDoneControl().getCookie();
@@ -176,7 +174,6 @@ public class SyncReplClient
       (conn, request1, exception) -> {
         try {
           logger.debug("received exception:", exception);
-          search.shutdown();
           queue.put(new SyncReplItem(exception));
         } catch (Exception e) {
           logger.warn("Unable to enqueue exception:", exception);
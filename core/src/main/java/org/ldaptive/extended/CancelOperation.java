@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.extended;
 
+import java.util.concurrent.CompletableFuture;
 import org.ldaptive.AbstractOperation;
 import org.ldaptive.Connection;
 import org.ldaptive.LdapException;
@@ -34,4 +35,14 @@ public class CancelOperation extends AbstractOperation<CancelRequest, Void>
     final Response<Void> response = (Response<Void>) getConnection().getProviderConnection().extendedOperation(request);
     return response;
   }
+
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected CompletableFuture<Response<Void>> invokeAsync(final CancelRequest request)
+    throws LdapException
+  {
+    return
+      getConnection().getProviderConnection().extendedOperationAsync(request).thenApply(r -> (Response<Void>) r);
+  }
 }
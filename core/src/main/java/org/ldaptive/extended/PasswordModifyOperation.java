@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.extended;
 
+import java.util.concurrent.CompletableFuture;
 import org.ldaptive.AbstractOperation;
 import org.ldaptive.Connection;
 import org.ldaptive.Credential;
@@ -36,4 +37,14 @@ public class PasswordModifyOperation extends AbstractOperation<PasswordModifyReq
       (Response<Credential>) getConnection().getProviderConnection().extendedOperation(request);
     return response;
   }
+
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected CompletableFuture<Response<Credential>> invokeAsync(final PasswordModifyRequest request)
+    throws LdapException
+  {
+    return
+      getConnection().getProviderConnection().extendedOperationAsync(request).thenApply(r -> (Response<Credential>) r);
+  }
 }
@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.extended;
 
+import java.util.concurrent.CompletableFuture;
 import org.ldaptive.AbstractOperation;
 import org.ldaptive.Connection;
 import org.ldaptive.LdapException;
@@ -35,4 +36,14 @@ public class WhoAmIOperation extends AbstractOperation<WhoAmIRequest, String>
       request);
     return response;
   }
+
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected CompletableFuture<Response<String>> invokeAsync(final WhoAmIRequest request)
+    throws LdapException
+  {
+    return
+      getConnection().getProviderConnection().extendedOperationAsync(request).thenApply(r -> (Response<String>) r);
+  }
 }
@@ -1,32 +1,234 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.jaas;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import org.ldaptive.Connection;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
+import org.ldaptive.LdapUtils;
+import org.ldaptive.ReturnAttributes;
+import org.ldaptive.SearchFilter;
 import org.ldaptive.SearchOperation;
 import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
 import org.ldaptive.auth.AbstractSearchOperationFactory;
 
 /**
  * Base class for search role resolver implementations.
  *
+ * <p>{@link #search(SearchRequest, Collection)} resolves the roles of many users with one search per {@link
+ * #getBatchSize()} users. The filter of the supplied request is replaced with a disjunction of equality assertions on
+ * {@link #getMemberAttribute()}, e.g. <code>(|(member=uid=alice,...)(member=uid=bob,...))</code>, and each entry
+ * returned is attributed to the users in its member attribute.</p>
+ *
  * @author  Middleware Services
  */
 public abstract class AbstractSearchRoleResolver extends AbstractSearchOperationFactory implements RoleResolver
 {
 
+  /** Default member attribute, value is {@value}. */
+  public static final String DEFAULT_MEMBER_ATTRIBUTE = "member";
+
+  /** Default number of users per batched search, value is {@value}. */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  /** Attribute of a role entry that contains the DNs of its members. */
+  private String memberAttribute = DEFAULT_MEMBER_ATTRIBUTE;
+
+  /** Maximum number of users per batched search. */
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+
+  /**
+   * Returns the attribute of a role entry that contains the DNs of its members.
+   *
+   * @return  member attribute
+   */
+  public String getMemberAttribute()
+  {
+    return memberAttribute;
+  }
+
+
+  /**
+   * Sets the attribute of a role entry that contains the DNs of its members.
+   *
+   * @param  name  of the member attribute
+   */
+  public void setMemberAttribute(final String name)
+  {
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Member attribute cannot be null or empty");
+    }
+    memberAttribute = name;
+  }
+
+
+  /**
+   * Returns the maximum number of users per batched search.
+   *
+   * @return  batch size
+   */
+  public int getBatchSize()
+  {
+    return batchSize;
+  }
+
+
+  /**
+   * Sets the maximum number of users per batched search.
+   *
+   * @param  size  batch size
+   */
+  public void setBatchSize(final int size)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Batch size must be greater than zero");
+    }
+    batchSize = size;
+  }
+
 
   @Override
   public Set<LdapRole> search(final SearchRequest request)
     throws LdapException
+  {
+    return LdapRole.toRoles(performLdapSearch(request));
+  }
+
+
+  /**
+   * Searches for the roles of each of the supplied user DNs. The base DN, scope and return attributes of the supplied
+   * request are used for every batch, its search filter is ignored. The member attribute is only returned as a role if
+   * it is explicitly listed in the return attributes.
+   *
+   * @param  request  template for the batched searches
+   * @param  dns  of the users to search roles for
+   *
+   * @return  roles keyed by user DN, in the order the DNs were supplied
+   *
+   * @throws  LdapException  if a search fails
+   */
+  public Map<String, Set<LdapRole>> search(final SearchRequest request, final Collection<String> dns)
+    throws LdapException
+  {
+    // role entries may contain member DNs that differ in case from the supplied DNs
+    final Map<String, Set<LdapRole>> roles = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    final List<String> batch = new ArrayList<>(Math.min(batchSize, dns.size()));
+    for (String dn : dns) {
+      if (dn != null && !roles.containsKey(dn)) {
+        roles.put(dn, new HashSet<>());
+        batch.add(dn);
+        if (batch.size() == batchSize) {
+          searchBatch(request, batch, roles);
+          batch.clear();
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      searchBatch(request, batch, roles);
+    }
+
+    final Map<String, Set<LdapRole>> results = new LinkedHashMap<>(dns.size());
+    dns.stream().filter(dn -> dn != null).forEach(dn -> results.put(dn, roles.get(dn)));
+    return results;
+  }
+
+
+  /**
+   * Executes a single search for the roles of the supplied user DNs and adds them to the supplied roles.
+   *
+   * @param  request  template for the search
+   * @param  dns  of the users to search roles for
+   * @param  roles  to add the roles of each user to
+   *
+   * @throws  LdapException  if the search fails
+   */
+  protected void searchBatch(
+    final SearchRequest request,
+    final List<String> dns,
+    final Map<String, Set<LdapRole>> roles)
+    throws LdapException
+  {
+    final String[] attrs = request.getReturnAttributes();
+    final boolean memberIsRole = attrs != null &&
+      Arrays.stream(attrs).anyMatch(a -> a.equalsIgnoreCase(memberAttribute));
+
+    final StringBuilder filter = new StringBuilder("(|");
+    for (int i = 0; i < dns.size(); i++) {
+      filter.append('(').append(memberAttribute).append("={").append(i).append("})");
+    }
+    filter.append(')');
+
+    final SearchRequest sr = new SearchRequest();
+    sr.setBaseDn(request.getBaseDn());
+    sr.setSearchFilter(new SearchFilter(filter.toString(), dns.toArray()));
+    sr.setSearchScope(request.getSearchScope());
+    sr.setDerefAliases(request.getDerefAliases());
+    sr.setTimeLimit(request.getTimeLimit());
+    sr.setSizeLimit(request.getSizeLimit());
+    sr.setBinaryAttributes(request.getBinaryAttributes());
+    sr.setSortBehavior(request.getSortBehavior());
+    sr.setSearchEntryHandlers(request.getSearchEntryHandlers());
+    sr.setReferralHandler(request.getReferralHandler());
+    sr.setControls(request.getControls());
+    if (attrs == null || attrs.length == 0 || ReturnAttributes.ALL_USER.equalsAttributes(attrs)) {
+      sr.setReturnAttributes(attrs);
+    } else if (ReturnAttributes.NONE.equalsAttributes(attrs)) {
+      sr.setReturnAttributes(memberAttribute);
+    } else if (memberIsRole) {
+      sr.setReturnAttributes(attrs);
+    } else {
+      sr.setReturnAttributes(LdapUtils.concatArrays(attrs, new String[] {memberAttribute}));
+    }
+    logger.debug("Searching roles of {} users with {}", dns.size(), sr);
+
+    for (LdapEntry entry : performLdapSearch(sr).getEntries()) {
+      final LdapAttribute members = entry.getAttribute(memberAttribute);
+      if (members == null) {
+        continue;
+      }
+      final Set<LdapRole> entryRoles = LdapRole.toRoles(
+        entry.getAttributes().stream().filter(
+          la -> memberIsRole || !la.getName().equalsIgnoreCase(memberAttribute)).collect(Collectors.toList()));
+      for (String member : members.getStringValues()) {
+        final Set<LdapRole> r = roles.get(member);
+        if (r != null) {
+          r.addAll(entryRoles);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Executes the supplied search request on a connection from {@link #getConnection()}.
+   *
+   * @param  request  to execute
+   *
+   * @return  search result
+   *
+   * @throws  LdapException  if an error occurs
+   */
+  protected SearchResult performLdapSearch(final SearchRequest request)
+    throws LdapException
   {
     Connection conn = null;
     try {
       conn = getConnection();
 
       final SearchOperation op = createSearchOperation(conn);
-      return LdapRole.toRoles(op.execute(request).getResult());
+      return op.execute(request).getResult();
     } finally {
       if (conn != null) {
         conn.close();
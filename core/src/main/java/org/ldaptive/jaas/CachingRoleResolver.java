@@ -0,0 +1,437 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.jaas;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.ldaptive.LdapException;
+import org.ldaptive.SearchFilter;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.cache.CacheStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Role resolver that caches the roles returned by another role resolver. Roles are keyed by the base DN, scope, return
+ * attributes and formatted filter of the search request, so a role filter parameterized with the user's DN caches
+ * roles per user. Roles are cached for {@link #getTimeToLive()} and the least recently used roles are evicted once
+ * {@link #getMaxSize()} users are cached. Requests without a search filter are not cached and exceptions are never
+ * cached.
+ *
+ * <p>Concurrent searches for the same key are collapsed into a single search on the underlying resolver, the other
+ * callers wait for its result.</p>
+ *
+ * @author  Middleware Services
+ */
+public class CachingRoleResolver implements RoleResolver
+{
+
+  /** Default time to live of resolved roles. */
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+  /** Default maximum number of cached users, value is {@value}. */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  /** Initial capacity of the hash map. */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** Load factor of the hash map. */
+  private static final float LOAD_FACTOR = 0.75f;
+
+  /** Logger for this class. */
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Role resolver to cache. */
+  private final RoleResolver roleResolver;
+
+  /** Cached roles keyed by search request, in access order. */
+  private final Map<String, Item> cache;
+
+  /** Searches in progress keyed by search request. */
+  private final Map<String, CompletableFuture<Set<LdapRole>>> loading = new ConcurrentHashMap<>();
+
+  /** Hit, miss and eviction statistics. */
+  private final CacheStatistics statistics = new CacheStatistics();
+
+  /** Time to live of resolved roles. */
+  private Duration timeToLive = DEFAULT_TIME_TO_LIVE;
+
+  /** Maximum number of cached users. */
+  private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+
+  /**
+   * Creates a new caching role resolver.
+   *
+   * @param  resolver  role resolver to cache
+   */
+  public CachingRoleResolver(final RoleResolver resolver)
+  {
+    if (resolver == null) {
+      throw new IllegalArgumentException("Role resolver cannot be null");
+    }
+    roleResolver = resolver;
+    cache = new LinkedHashMap<String, Item>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+
+      /** serialVersionUID. */
+      private static final long serialVersionUID = -3029734414361578216L;
+
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Item> entry)
+      {
+        if (size() > maxSize) {
+          statistics.recordEviction();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+
+  /**
+   * Returns the role resolver that is cached.
+   *
+   * @return  role resolver
+   */
+  public RoleResolver getRoleResolver()
+  {
+    return roleResolver;
+  }
+
+
+  /**
+   * Returns the time to live of resolved roles.
+   *
+   * @return  time to live
+   */
+  public Duration getTimeToLive()
+  {
+    return timeToLive;
+  }
+
+
+  /**
+   * Sets the time to live of resolved roles.
+   *
+   * @param  time  to live
+   */
+  public void setTimeToLive(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Time to live cannot be null or negative");
+    }
+    timeToLive = time;
+  }
+
+
+  /**
+   * Returns the maximum number of cached users.
+   *
+   * @return  maximum size
+   */
+  public int getMaxSize()
+  {
+    return maxSize;
+  }
+
+
+  /**
+   * Sets the maximum number of cached users.
+   *
+   * @param  size  maximum size
+   */
+  public void setMaxSize(final int size)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException("Max size must be greater than zero");
+    }
+    maxSize = size;
+  }
+
+
+  /**
+   * Returns the hit, miss and eviction statistics for this cache.
+   *
+   * @return  cache statistics
+   */
+  public CacheStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+
+  @Override
+  public Set<LdapRole> search(final SearchRequest request)
+    throws LdapException
+  {
+    if (request == null || request.getSearchFilter() == null) {
+      return roleResolver.search(request);
+    }
+
+    final String key = createKey(request);
+    final long now = System.nanoTime();
+    final Item item = get(key, now);
+    final Set<LdapRole> roles;
+    if (item != null) {
+      roles = item.roles;
+    } else {
+      final CompletableFuture<Set<LdapRole>> future = new CompletableFuture<>();
+      final CompletableFuture<Set<LdapRole>> existing = loading.putIfAbsent(key, future);
+      if (existing != null) {
+        logger.trace("Waiting for roles of {}", key);
+        roles = await(existing);
+      } else {
+        roles = load(key, request, future, now);
+      }
+    }
+    return new HashSet<>(roles);
+  }
+
+
+  /**
+   * Removes the roles of the supplied search request from the cache.
+   *
+   * @param  request  to remove
+   */
+  public void invalidate(final SearchRequest request)
+  {
+    if (request != null && request.getSearchFilter() != null) {
+      synchronized (cache) {
+        cache.remove(createKey(request));
+      }
+    }
+  }
+
+
+  /**
+   * Removes the roles of every search request whose filter has a 'dn' parameter equal to the supplied DN from the
+   * cache.
+   *
+   * @param  dn  to remove
+   */
+  public void invalidateDn(final String dn)
+  {
+    logger.debug("Invalidating cached roles of {}", dn);
+    synchronized (cache) {
+      cache.values().removeIf(item -> dn.equalsIgnoreCase(item.dn));
+    }
+  }
+
+
+  /** Removes all roles from the cache. */
+  public void clear()
+  {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+
+  /**
+   * Returns the number of cached users.
+   *
+   * @return  size of this cache
+   */
+  public int size()
+  {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+
+  /**
+   * Returns the cache key for the supplied search request.
+   *
+   * @param  request  to create key for
+   *
+   * @return  cache key
+   */
+  protected String createKey(final SearchRequest request)
+  {
+    return
+      String.format(
+        "%s|%s|%s|%s",
+        request.getBaseDn(),
+        request.getSearchScope(),
+        Arrays.toString(request.getReturnAttributes()),
+        request.getSearchFilter().format());
+  }
+
+
+  /**
+   * Searches the underlying role resolver, caches the roles and completes the supplied future for any callers waiting
+   * on the same key.
+   *
+   * @param  key  of the search request
+   * @param  request  to search with
+   * @param  future  to complete
+   * @param  now  current time in nanoseconds
+   *
+   * @return  roles
+   *
+   * @throws  LdapException  if the search fails
+   */
+  private Set<LdapRole> load(
+    final String key,
+    final SearchRequest request,
+    final CompletableFuture<Set<LdapRole>> future,
+    final long now)
+    throws LdapException
+  {
+    try {
+      final Set<LdapRole> roles = Collections.unmodifiableSet(roleResolver.search(request));
+      put(key, request.getSearchFilter(), roles, now);
+      future.complete(roles);
+      return roles;
+    } catch (LdapException | RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key, future);
+    }
+  }
+
+
+  /**
+   * Waits for the roles loaded by another caller.
+   *
+   * @param  future  to wait for
+   *
+   * @return  roles
+   *
+   * @throws  LdapException  if the search failed or the thread is interrupted
+   */
+  private Set<LdapRole> await(final CompletableFuture<Set<LdapRole>> future)
+    throws LdapException
+  {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      throw new LdapException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LdapException) {
+        throw (LdapException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new LdapException(e);
+    }
+  }
+
+
+  /**
+   * Returns the cached item for the supplied key, removing it if it has expired.
+   *
+   * @param  key  of the search request
+   * @param  now  current time in nanoseconds
+   *
+   * @return  cached item or null
+   */
+  private Item get(final String key, final long now)
+  {
+    Item item;
+    synchronized (cache) {
+      item = cache.get(key);
+      if (item != null && item.isExpired(now)) {
+        cache.remove(key);
+        statistics.recordExpiration();
+        item = null;
+      }
+    }
+    if (item != null) {
+      statistics.recordHit();
+    } else {
+      statistics.recordMiss();
+    }
+    return item;
+  }
+
+
+  /**
+   * Caches the supplied roles.
+   *
+   * @param  key  of the search request
+   * @param  filter  of the search request
+   * @param  roles  resolved for the search request
+   * @param  now  current time in nanoseconds
+   */
+  private void put(final String key, final SearchFilter filter, final Set<LdapRole> roles, final long now)
+  {
+    if (timeToLive.isZero()) {
+      return;
+    }
+    final Object dn = filter.getParameters().get("dn");
+    synchronized (cache) {
+      cache.put(key, new Item(dn != null ? dn.toString() : null, roles, now + timeToLive.toNanos()));
+    }
+    statistics.recordPut();
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::roleResolver=%s, timeToLive=%s, maxSize=%s, statistics=%s]",
+        getClass().getName(),
+        hashCode(),
+        roleResolver,
+        timeToLive,
+        maxSize,
+        statistics);
+  }
+
+
+  /** Container for cached roles. */
+  private static class Item
+  {
+
+    /** DN parameter of the search filter, null if it has none. */
+    private final String dn;
+
+    /** Resolved roles. */
+    private final Set<LdapRole> roles;
+
+    /** Time this item expires in nanoseconds. */
+    private final long expireTime;
+
+
+    /**
+     * Creates a new item.
+     *
+     * @param  s  DN parameter of the search filter
+     * @param  r  resolved roles
+     * @param  expire  time this item expires in nanoseconds
+     */
+    Item(final String s, final Set<LdapRole> r, final long expire)
+    {
+      dn = s;
+      roles = r;
+      expireTime = expire;
+    }
+
+
+    /**
+     * Returns whether this item has expired.
+     *
+     * @param  now  current time in nanoseconds
+     *
+     * @return  whether this item has expired
+     */
+    boolean isExpired(final long now)
+    {
+      return now - expireTime >= 0;
+    }
+  }
+}
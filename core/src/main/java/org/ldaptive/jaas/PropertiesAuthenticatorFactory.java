@@ -1,8 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.jaas;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.ldaptive.auth.AuthenticationHandler;
 import org.ldaptive.auth.AuthenticationRequest;
 import org.ldaptive.auth.Authenticator;
@@ -19,7 +19,7 @@ public class PropertiesAuthenticatorFactory extends AbstractPropertiesFactory im
 {
 
   /** Object CACHE. */
-  private static final Map<String, Authenticator> CACHE = new HashMap<>();
+  private static final Map<String, Authenticator> CACHE = new ConcurrentHashMap<>();
 
 
   @Override
@@ -28,16 +28,14 @@ public class PropertiesAuthenticatorFactory extends AbstractPropertiesFactory im
     Authenticator a;
     if (jaasOptions.containsKey(CACHE_ID)) {
       final String cacheId = (String) jaasOptions.get(CACHE_ID);
-      synchronized (CACHE) {
-        if (!CACHE.containsKey(cacheId)) {
-          a = createAuthenticatorInternal(jaasOptions);
-          logger.trace("Created authenticator: {}", a);
-          CACHE.put(cacheId, a);
-        } else {
-          a = CACHE.get(cacheId);
-          logger.trace("Retrieved authenticator from CACHE: {}", a);
-        }
-      }
+      a = CACHE.computeIfAbsent(
+        cacheId,
+        k -> {
+          final Authenticator created = createAuthenticatorInternal(jaasOptions);
+          logger.trace("Created authenticator: {}", created);
+          return created;
+        });
+      logger.trace("Retrieved authenticator from CACHE: {}", a);
     } else {
       a = createAuthenticatorInternal(jaasOptions);
       logger.trace("Created authenticator {} from {}", a, jaasOptions);
@@ -1,8 +1,9 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.jaas;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.ldaptive.ConnectionFactoryManager;
 import org.ldaptive.DefaultConnectionFactory;
 import org.ldaptive.SearchRequest;
@@ -14,15 +15,24 @@ import org.ldaptive.props.PropertySource.PropertyDomain;
 import org.ldaptive.props.SearchRequestPropertySource;
 
 /**
- * Provides a module role resolver factory implementation that uses the properties package in this library.
+ * Provides a module role resolver factory implementation that uses the properties package in this library. If the
+ * <code>roleCacheTimeToLive</code> or <code>roleCacheMaxSize</code> options are set, the role resolver is wrapped in a
+ * {@link CachingRoleResolver}. Since a new role resolver is created for each login unless a {@link #CACHE_ID} is
+ * configured, the cache is only effective with a cache ID.
  *
  * @author  Middleware Services
  */
 public class PropertiesRoleResolverFactory extends AbstractPropertiesFactory implements RoleResolverFactory
 {
 
+  /** Role cache time to live option used on the JAAS config. */
+  public static final String ROLE_CACHE_TIME_TO_LIVE = "roleCacheTimeToLive";
+
+  /** Role cache max size option used on the JAAS config. */
+  public static final String ROLE_CACHE_MAX_SIZE = "roleCacheMaxSize";
+
   /** Object CACHE. */
-  private static final Map<String, RoleResolver> CACHE = new HashMap<>();
+  private static final Map<String, RoleResolver> CACHE = new ConcurrentHashMap<>();
 
 
   @Override
@@ -31,16 +41,14 @@ public class PropertiesRoleResolverFactory extends AbstractPropertiesFactory imp
     RoleResolver rr;
     if (jaasOptions.containsKey(CACHE_ID)) {
       final String cacheId = (String) jaasOptions.get(CACHE_ID);
-      synchronized (CACHE) {
-        if (!CACHE.containsKey(cacheId)) {
-          rr = createRoleResolverInternal(jaasOptions);
-          logger.trace("Created role resolver: {}", rr);
-          CACHE.put(cacheId, rr);
-        } else {
-          rr = CACHE.get(cacheId);
-          logger.trace("Retrieved role resolver from CACHE: {}", rr);
-        }
-      }
+      rr = CACHE.computeIfAbsent(
+        cacheId,
+        k -> {
+          final RoleResolver r = createRoleResolverInternal(jaasOptions);
+          logger.trace("Created role resolver: {}", r);
+          return r;
+        });
+      logger.trace("Retrieved role resolver from CACHE: {}", rr);
     } else {
       rr = createRoleResolverInternal(jaasOptions);
       logger.trace("Created role resolver {} from {}", rr, jaasOptions);
@@ -89,6 +97,16 @@ public class PropertiesRoleResolverFactory extends AbstractPropertiesFactory imp
       source.initialize();
       cfm.setConnectionFactory(cf);
     }
+    if (options.containsKey(ROLE_CACHE_TIME_TO_LIVE) || options.containsKey(ROLE_CACHE_MAX_SIZE)) {
+      final CachingRoleResolver cache = new CachingRoleResolver(rr);
+      if (options.containsKey(ROLE_CACHE_TIME_TO_LIVE)) {
+        cache.setTimeToLive(Duration.parse((String) options.get(ROLE_CACHE_TIME_TO_LIVE)));
+      }
+      if (options.containsKey(ROLE_CACHE_MAX_SIZE)) {
+        cache.setMaxSize(Integer.parseInt((String) options.get(ROLE_CACHE_MAX_SIZE)));
+      }
+      rr = cache;
+    }
     return rr;
   }
 
@@ -110,9 +128,13 @@ public class PropertiesRoleResolverFactory extends AbstractPropertiesFactory imp
   /** Iterates over the CACHE and closes all role resolvers. */
   public static void close()
   {
-    CACHE.values().stream().filter(rr -> rr instanceof PooledConnectionFactoryManager).forEach(rr -> {
-      final PooledConnectionFactoryManager cfm = (PooledConnectionFactoryManager) rr;
-      cfm.getConnectionFactory().getConnectionPool().close();
-    });
+    for (RoleResolver resolver : CACHE.values()) {
+      final RoleResolver rr = resolver instanceof CachingRoleResolver ?
+        ((CachingRoleResolver) resolver).getRoleResolver() : resolver;
+      if (rr instanceof PooledConnectionFactoryManager) {
+        final PooledConnectionFactoryManager cfm = (PooledConnectionFactoryManager) rr;
+        cfm.getConnectionFactory().getConnectionPool().close();
+      }
+    }
   }
 }
@@ -1,14 +1,15 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.pool;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,11 +22,17 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.ldaptive.BindRequest;
 import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
 import org.ldaptive.DefaultConnectionFactory;
 import org.ldaptive.LdapException;
 import org.ldaptive.LdapUtils;
 import org.ldaptive.Response;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.provider.ProviderConnection;
 
 /**
  * Contains the base implementation for pooling connections. The main design objective for the supplied pooling
@@ -70,6 +77,15 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
   /** Executor for scheduling pool tasks. */
   private ScheduledExecutorService poolExecutor;
 
+  /** Executor for validating connections when a validate timeout is configured. */
+  private ExecutorService validateExecutor;
+
+  /** Executor for creating spare connections. Guarded by {@link #poolLock}. */
+  private ExecutorService growExecutor;
+
+  /** Number of connections being created by the grow executor. Guarded by {@link #poolLock}. */
+  private int pendingCount;
+
   /** Whether {@link #initialize()} has been invoked. */
   private boolean initialized;
 
@@ -78,6 +94,15 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
    */
   private boolean failFastInitialize = true;
 
+  /** Whether to register the pool metrics as a JMX MBean. */
+  private boolean jmxEnabled;
+
+  /** Metrics for this pool. */
+  private final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(this);
+
+  /** Name the pool metrics are registered under. */
+  private ObjectName metricsObjectName;
+
 
   /**
    * Returns the connection factory for this pool.
@@ -172,6 +197,37 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
   }
 
 
+  /**
+   * Returns whether the pool metrics are registered with the platform MBean server when this pool is initialized.
+   *
+   * @return  whether pool metrics are registered as a JMX MBean
+   */
+  public boolean getJmxEnabled()
+  {
+    return jmxEnabled;
+  }
+
+
+  /**
+   * Sets whether the pool metrics are registered with the platform MBean server when this pool is initialized. The
+   * MBean is named org.ldaptive.pool:type=ConnectionPoolMetrics,name=<i>pool name</i>.
+   *
+   * @param  b  whether pool metrics are registered as a JMX MBean
+   */
+  public void setJmxEnabled(final boolean b)
+  {
+    logger.trace("setting jmxEnabled: {}", b);
+    jmxEnabled = b;
+  }
+
+
+  @Override
+  public ConnectionPoolMetrics getConnectionPoolMetrics()
+  {
+    return metrics;
+  }
+
+
   /**
    * Returns whether this pool has been initialized.
    *
@@ -254,7 +310,7 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
     } catch (IllegalStateException e) {
       growException = e;
     }
-    if (available.isEmpty() && getPoolConfig().getMinPoolSize() > 0) {
+    if (availableCount() == 0 && getPoolConfig().getMinPoolSize() > 0) {
       if (failFastInitialize) {
         throw new IllegalStateException(
           "Could not initialize pool size",
@@ -302,6 +358,36 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
       TimeUnit.MILLISECONDS);
     logger.debug("validate pool task scheduled for {}", this);
 
+    if (getPoolConfig().getValidateTimeout() != null) {
+      validateExecutor = Executors.newFixedThreadPool(
+        getPoolConfig().getValidateBatchSize(),
+        r -> {
+          final Thread t = new Thread(r);
+          t.setDaemon(true);
+          return t;
+        });
+    }
+
+    if (getPoolConfig().getSpareConnections() > 0) {
+      growExecutor = Executors.newFixedThreadPool(
+        getPoolConfig().getSpareConnections(),
+        r -> {
+          final Thread t = new Thread(r);
+          t.setDaemon(true);
+          return t;
+        });
+      poolLock.lock();
+      try {
+        growInBackground(0);
+      } finally {
+        poolLock.unlock();
+      }
+    }
+
+    if (jmxEnabled) {
+      registerMetrics();
+    }
+
     initialized = true;
     logger.info("pool initialized {}", this);
   }
@@ -331,40 +417,180 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
    */
   protected void grow(final int size, final boolean throwOnFailure)
   {
-    logger.trace("waiting for pool lock to initialize pool {}", poolLock.getQueueLength());
+    logger.trace("waiting for check out lock to grow pool {}", checkOutLock.getQueueLength());
 
     int count = 0;
-    poolLock.lock();
+    checkOutLock.lock();
     try {
       IllegalStateException lastThrown = null;
-      int currentPoolSize = active.size() + available.size();
+      int currentPoolSize = poolSize();
       logger.debug("checking connection pool size >= {} for {}", size, this);
       while (currentPoolSize < size && count < size * 2) {
         try {
-          final PooledConnectionProxy pc = createAvailableConnection(throwOnFailure);
-          if (pc != null && getPoolConfig().isValidateOnCheckIn()) {
-            if (validate(pc.getConnection())) {
-              logger.trace("connection passed initialize validation: {}", pc);
-            } else {
-              logger.warn("connection failed initialize validation: {}", pc);
-              removeAvailableConnection(pc);
-            }
+          final PooledConnectionProxy pc = createConnection(throwOnFailure);
+          if (pc == null) {
+            logger.warn("unable to create available connection");
+          } else if (getPoolConfig().isValidateOnCheckIn() && !validate(pc.getConnection())) {
+            logger.warn("connection failed initialize validation: {}", pc);
+            pc.getConnection().close();
+          } else {
+            addAvailableConnection(pc);
           }
         } catch (IllegalStateException e) {
           lastThrown = e;
         }
-        currentPoolSize = active.size() + available.size();
+        currentPoolSize = poolSize();
         count++;
       }
       if (lastThrown != null && currentPoolSize < size) {
         throw lastThrown;
       }
+    } finally {
+      checkOutLock.unlock();
+    }
+  }
+
+
+  /**
+   * Returns the number of connections in both the available and active queues, plus any connections that are being
+   * created in the background.
+   *
+   * @return  size of the pool
+   */
+  private int poolSize()
+  {
+    poolLock.lock();
+    try {
+      return available.size() + active.size() + pendingCount;
     } finally {
       poolLock.unlock();
     }
   }
 
 
+  /**
+   * Returns the number of connections that are being created in the background. Must be invoked while holding {@link
+   * #poolLock}.
+   *
+   * @return  number of pending connections
+   */
+  protected int getPendingCount()
+  {
+    return pendingCount;
+  }
+
+
+  /**
+   * Returns whether this pool is configured to open spare connections in the background. See {@link
+   * PoolConfig#getSpareConnections()}.
+   *
+   * @return  whether connections are created in the background
+   */
+  protected boolean isGrowInBackground()
+  {
+    return growExecutor != null;
+  }
+
+
+  /**
+   * Schedules connections to be opened in the background so that the number of available connections, plus those
+   * already being opened, is at least {@link PoolConfig#getSpareConnections()} in addition to the threads waiting for a
+   * connection and the supplied demand. The pool will not grow beyond {@link PoolConfig#getMaxPoolSize()}. Must be
+   * invoked while holding {@link #poolLock}. This method is a no-op if spare connections are not configured.
+   *
+   * @param  demand  number of additional connections needed by the caller
+   */
+  protected void growInBackground(final int demand)
+  {
+    if (growExecutor == null) {
+      return;
+    }
+
+    final int size = available.size() + active.size() + pendingCount;
+    final int waiting = poolLock.getWaitQueueLength(poolNotEmpty);
+    final int count = Math.min(
+      getPoolConfig().getSpareConnections() + waiting + demand - available.size() - pendingCount,
+      getPoolConfig().getMaxPoolSize() - size);
+    for (int i = 0; i < count; i++) {
+      pendingCount++;
+      growExecutor.execute(this::createPendingConnection);
+    }
+    if (count > 0) {
+      logger.debug("scheduled {} connections to be created in pool of size {} for {}", count, size, this);
+    }
+  }
+
+
+  /**
+   * Opens a connection for the grow executor and places it in the available pool. Threads waiting for a connection are
+   * notified whether or not the connection could be opened.
+   */
+  private void createPendingConnection()
+  {
+    PooledConnectionProxy pc = null;
+    boolean discard = false;
+    try {
+      pc = createConnection();
+      if (pc != null && getPoolConfig().isValidateOnCheckIn() && !validate(pc.getConnection())) {
+        logger.warn("connection failed initialize validation: {}", pc);
+        pc.getConnection().close();
+        pc = null;
+      }
+    } finally {
+      poolLock.lock();
+      try {
+        pendingCount--;
+        if (pc == null) {
+          logger.warn("unable to create available connection");
+          poolNotEmpty.signalAll();
+        } else if (growExecutor == null) {
+          discard = true;
+        } else {
+          available.add(pc);
+          pc.getPooledConnectionStatistics().addAvailableStat();
+          logger.info("added available connection: {}", pc);
+          poolNotEmpty.signal();
+        }
+      } finally {
+        poolLock.unlock();
+      }
+    }
+    if (discard) {
+      pc.getConnection().close();
+      logger.debug("pool closed, destroyed connection: {}", pc);
+    }
+  }
+
+
+  /** Registers the metrics for this pool with the platform MBean server. */
+  private void registerMetrics()
+  {
+    final String poolName = getName() != null ? getName() : getClass().getSimpleName() + "@" + hashCode();
+    try {
+      final ObjectName on = new ObjectName(
+        "org.ldaptive.pool:type=ConnectionPoolMetrics,name=" + ObjectName.quote(poolName));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, on);
+      metricsObjectName = on;
+      logger.debug("registered pool metrics as {}", on);
+    } catch (JMException e) {
+      logger.warn("could not register pool metrics for {}", this, e);
+    }
+  }
+
+
+  /** Unregisters the metrics for this pool from the platform MBean server. */
+  private void unregisterMetrics()
+  {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsObjectName);
+      logger.debug("unregistered pool metrics {}", metricsObjectName);
+    } catch (JMException e) {
+      logger.warn("could not unregister pool metrics for {}", this, e);
+    }
+    metricsObjectName = null;
+  }
+
+
   /**
    * Empty this pool, freeing any resources.
    *
@@ -377,6 +603,10 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
     logger.debug("closing connection pool of size {} for {}", available.size() + active.size(), this);
     poolLock.lock();
     try {
+      if (growExecutor != null) {
+        growExecutor.shutdownNow();
+        growExecutor = null;
+      }
       while (!available.isEmpty()) {
         final PooledConnectionProxy pc = available.remove();
         pc.getConnection().close();
@@ -394,7 +624,14 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
 
     logger.debug("shutting down executor");
     poolExecutor.shutdown();
+    if (validateExecutor != null) {
+      validateExecutor.shutdownNow();
+      validateExecutor = null;
+    }
     logger.debug("executor shutdown");
+    if (metricsObjectName != null) {
+      unregisterMetrics();
+    }
     logger.info("pool closed {}", this);
     initialized = false;
   }
@@ -455,6 +692,7 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
         r = c.open();
       } catch (LdapException e) {
         logger.error("{} unable to connect to the ldap", this, e);
+        metrics.incrementCreateFailureCount();
         c = null;
         if (throwOnFailure) {
           throw new IllegalStateException("unable to connect to the ldap", e);
@@ -462,13 +700,29 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
       }
     }
     if (c != null) {
-      return new DefaultPooledConnectionProxy(c, r);
+      metrics.incrementCreateCount();
+      return createPooledConnectionProxy(c, r);
     } else {
       return null;
     }
   }
 
 
+  /**
+   * Creates the pooled connection proxy that tracks the supplied connection in this pool. Implementations that need to
+   * associate additional state with each connection may override this method.
+   *
+   * @param  c  connection to participate in this pool
+   * @param  r  response produced by opening the connection, may be null
+   *
+   * @return  pooled connection proxy
+   */
+  protected PooledConnectionProxy createPooledConnectionProxy(final Connection c, final Response<Void> r)
+  {
+    return new DefaultPooledConnectionProxy(c, r);
+  }
+
+
   /**
    * Create a new connection and place it in the available pool.
    *
@@ -493,14 +747,7 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
   {
     final PooledConnectionProxy pc = createConnection(throwOnFailure);
     if (pc != null) {
-      poolLock.lock();
-      try {
-        available.add(pc);
-        pc.getPooledConnectionStatistics().addAvailableStat();
-        logger.info("added available connection: {}", pc);
-      } finally {
-        poolLock.unlock();
-      }
+      addAvailableConnection(pc);
     } else {
       logger.warn("unable to create available connection");
     }
@@ -508,6 +755,25 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
   }
 
 
+  /**
+   * Places a newly created connection in the available pool and notifies any thread waiting for a connection.
+   *
+   * @param  pc  connection to add to the available pool
+   */
+  private void addAvailableConnection(final PooledConnectionProxy pc)
+  {
+    poolLock.lock();
+    try {
+      available.add(pc);
+      pc.getPooledConnectionStatistics().addAvailableStat();
+      logger.info("added available connection: {}", pc);
+      poolNotEmpty.signal();
+    } finally {
+      poolLock.unlock();
+    }
+  }
+
+
   /**
    * Create a new connection and place it in the active pool.
    *
@@ -642,11 +908,13 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
   {
     if (!activate(pc.getConnection())) {
       logger.warn("connection failed activation: {}", pc);
+      metrics.incrementActivateFailureCount();
       removeAvailableAndActiveConnection(pc);
       throw new ActivationException("Activation of connection failed");
     }
     if (getPoolConfig().isValidateOnCheckOut() && !validate(pc.getConnection())) {
       logger.warn("connection failed check out validation: {}", pc);
+      metrics.incrementValidateFailureCount();
       removeAvailableAndActiveConnection(pc);
       throw new ValidationException("Validation of connection failed");
     }
@@ -672,6 +940,7 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
     if (getPoolConfig().isValidateOnCheckIn()) {
       if (!validate(pc.getConnection())) {
         logger.warn("connection failed check in validation: {}", pc);
+        metrics.incrementValidateFailureCount();
       } else {
         valid = true;
       }
@@ -681,6 +950,7 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
     if (valid && !passivate(pc.getConnection())) {
       valid = false;
       logger.warn("connection failed passivation: {}", pc);
+      metrics.incrementPassivateFailureCount();
     }
     return valid;
   }
@@ -688,17 +958,24 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
 
   /**
    * Attempts to reduce the size of the pool back to it's configured minimum. {@link PoolConfig#setMinPoolSize(int)}.
+   * If spare connections are configured, the pool is not reduced below the number of active connections plus {@link
+   * PoolConfig#getSpareConnections()}. Connections selected by the prune strategy are removed from the pool while
+   * holding the pool lock, but they are closed after the lock has been released.
    *
    * @throws  IllegalStateException  if this pool has not been initialized
    */
   public void prune()
   {
     throwIfNotInitialized();
+    final List<PooledConnectionProxy> pruned = new ArrayList<>();
     logger.trace("waiting for pool lock to prune {}", poolLock.getQueueLength());
     poolLock.lock();
     try {
       if (!available.isEmpty()) {
-        final int minPoolSize = getPoolConfig().getMinPoolSize();
+        int minPoolSize = getPoolConfig().getMinPoolSize();
+        if (growExecutor != null) {
+          minPoolSize = Math.max(minPoolSize, active.size() + getPoolConfig().getSpareConnections());
+        }
         int currentPoolSize = active.size() + available.size();
         if (currentPoolSize > minPoolSize) {
           logger.debug("pruning available pool of size {} for {}", available.size(), this);
@@ -709,12 +986,12 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
             final PooledConnectionProxy pc = connIter.next();
             if (getPruneStrategy().prune(pc)) {
               connIter.remove();
-              pc.getConnection().close();
-              logger.trace("destroyed connection: {}", pc);
+              pruned.add(pc);
+              metrics.incrementPruneCount();
               currentPoolSize--;
             }
           }
-          if (numConnToPrune == available.size()) {
+          if (pruned.isEmpty()) {
             logger.debug("prune strategy did not remove any connections");
           } else {
             logger.info("available pool size pruned to {}", available.size());
@@ -728,72 +1005,67 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
     } finally {
       poolLock.unlock();
     }
+    for (PooledConnectionProxy pc : pruned) {
+      pc.getConnection().close();
+      logger.trace("destroyed connection: {}", pc);
+    }
   }
 
 
   /**
-   * Attempts to validate all objects in the pool. {@link PoolConfig#setValidatePeriodically(boolean)}.
+   * Attempts to validate all objects in the pool. {@link PoolConfig#setValidatePeriodically(boolean)}. Available
+   * connections are moved to the active queue in batches of {@link PoolConfig#getValidateBatchSize()} and validated
+   * without holding the pool lock, so that check outs continue to be serviced while validation is in progress.
+   * Connections that pass validation are returned to the end of the available queue.
    *
    * @throws  IllegalStateException  if this pool has not been initialized
    */
   public void validate()
   {
     throwIfNotInitialized();
-    poolLock.lock();
-    try {
-      if (!available.isEmpty()) {
-        if (getPoolConfig().isValidatePeriodically()) {
-          logger.debug("validate available pool of size {} for {}", available.size(), this);
-
-          final List<PooledConnectionProxy> remove = new ArrayList<>();
-          if (getPoolConfig().getValidateTimeout() == null) {
-            for (PooledConnectionProxy pc : available) {
-              logger.trace("validating {}", pc);
-              if (validate(pc.getConnection())) {
-                logger.trace("{} passed validation", pc);
-              } else {
-                logger.warn("{} failed validation", pc);
-                remove.add(pc);
-              }
+    if (getPoolConfig().isValidatePeriodically()) {
+      int remaining;
+      poolLock.lock();
+      try {
+        remaining = available.size();
+      } finally {
+        poolLock.unlock();
+      }
+      if (remaining > 0) {
+        logger.debug("validate available pool of size {} for {}", remaining, this);
+
+        final int batchSize = getPoolConfig().getValidateBatchSize();
+        while (remaining > 0) {
+          final List<PooledConnectionProxy> batch = new ArrayList<>(Math.min(batchSize, remaining));
+          poolLock.lock();
+          try {
+            while (batch.size() < batchSize && remaining > 0 && !available.isEmpty()) {
+              final PooledConnectionProxy pc = available.remove();
+              active.add(pc);
+              batch.add(pc);
+              remaining--;
             }
-          } else {
-            final ExecutorService es = Executors.newCachedThreadPool();
-            try {
-              final Map<PooledConnectionProxy, Future<Boolean>> results = new HashMap<>(available.size());
-              for (PooledConnectionProxy pc : available) {
-                logger.trace("validating {}", pc);
-                results.put(pc, es.submit(() -> validate(pc.getConnection())));
-              }
-              for (Map.Entry<PooledConnectionProxy, Future<Boolean>> entry : results.entrySet()) {
-                final Future<Boolean> future = entry.getValue();
-                boolean validateResult = false;
-                try {
-                  validateResult = future.get(getPoolConfig().getValidateTimeout().toMillis(), TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                  logger.debug("validating {} interrupted", entry.getKey(), e);
-                  future.cancel(true);
-                } catch (ExecutionException e) {
-                  logger.debug("validating {} threw unexpected exception", entry.getKey(), e);
-                  future.cancel(true);
-                } catch (TimeoutException e) {
-                  logger.debug("validating {} timed out", entry.getKey(), e);
-                  future.cancel(true);
-                }
-
-                if (validateResult) {
-                  logger.trace("{} passed validation", entry.getKey());
-                } else {
-                  logger.warn("{} failed validation", entry.getKey());
-                  remove.add(entry.getKey());
-                }
+          } finally {
+            poolLock.unlock();
+          }
+          if (batch.isEmpty()) {
+            break;
+          }
+
+          final List<PooledConnectionProxy> failed = validateConnections(batch);
+          poolLock.lock();
+          try {
+            for (PooledConnectionProxy pc : batch) {
+              if (active.remove(pc) && !failed.contains(pc)) {
+                available.addLast(pc);
+                poolNotEmpty.signal();
               }
-            } finally {
-              es.shutdownNow();
             }
+          } finally {
+            poolLock.unlock();
           }
-          for (PooledConnectionProxy pc : remove) {
+          for (PooledConnectionProxy pc : failed) {
             logger.trace("removing {} from the pool", pc);
-            available.remove(pc);
             pc.getConnection().close();
             logger.trace("destroyed connection: {}", pc);
           }
@@ -801,11 +1073,67 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
       } else {
         logger.debug("no available connections, no validation performed for {}", this);
       }
-      grow(getPoolConfig().getMinPoolSize());
-      logger.debug("pool size after validation is {}", available.size() + active.size());
-    } finally {
-      poolLock.unlock();
     }
+    grow(getPoolConfig().getMinPoolSize());
+    logger.debug("pool size after validation is {}", poolSize());
+  }
+
+
+  /**
+   * Validates the supplied connections. If {@link PoolConfig#getValidateTimeout()} is set, the connections are
+   * validated concurrently by this pool's validation executor and any validation that exceeds the timeout is considered
+   * a failure. Otherwise connections are validated serially by the calling thread. No locks are held by this method.
+   *
+   * @param  connections  to validate
+   *
+   * @return  connections that failed validation
+   */
+  protected List<PooledConnectionProxy> validateConnections(final List<PooledConnectionProxy> connections)
+  {
+    final List<PooledConnectionProxy> failed = new ArrayList<>();
+    if (validateExecutor == null) {
+      for (PooledConnectionProxy pc : connections) {
+        logger.trace("validating {}", pc);
+        if (validate(pc.getConnection())) {
+          logger.trace("{} passed validation", pc);
+        } else {
+          logger.warn("{} failed validation", pc);
+          metrics.incrementValidateFailureCount();
+          failed.add(pc);
+        }
+      }
+    } else {
+      final Map<PooledConnectionProxy, Future<Boolean>> results = new LinkedHashMap<>(connections.size());
+      for (PooledConnectionProxy pc : connections) {
+        logger.trace("validating {}", pc);
+        results.put(pc, validateExecutor.submit(() -> validate(pc.getConnection())));
+      }
+      for (Map.Entry<PooledConnectionProxy, Future<Boolean>> entry : results.entrySet()) {
+        final Future<Boolean> future = entry.getValue();
+        boolean validateResult = false;
+        try {
+          validateResult = future.get(getPoolConfig().getValidateTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          logger.debug("validating {} interrupted", entry.getKey(), e);
+          future.cancel(true);
+        } catch (ExecutionException e) {
+          logger.debug("validating {} threw unexpected exception", entry.getKey(), e);
+          future.cancel(true);
+        } catch (TimeoutException e) {
+          logger.debug("validating {} timed out", entry.getKey(), e);
+          future.cancel(true);
+        }
+
+        if (validateResult) {
+          logger.trace("{} passed validation", entry.getKey());
+        } else {
+          logger.warn("{} failed validation", entry.getKey());
+          metrics.incrementValidateFailureCount();
+          failed.add(entry.getKey());
+        }
+      }
+    }
+    return failed;
   }
 
 
@@ -852,7 +1180,9 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
 
 
   /**
-   * Creates a connection proxy using the supplied pool connection.
+   * Creates a connection proxy using the supplied pool connection. Connections created by this pool are wrapped in a
+   * {@link PooledConnection} which delegates directly to the underlying connection. Any other implementation of
+   * {@link PooledConnectionProxy} is wrapped in a reflection proxy.
    *
    * @param  pc  pool connection to create proxy with
    *
@@ -860,12 +1190,15 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
    */
   protected Connection createConnectionProxy(final PooledConnectionProxy pc)
   {
+    if (pc instanceof DefaultPooledConnectionProxy) {
+      return ((DefaultPooledConnectionProxy) pc).pooledConnection;
+    }
     return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] {Connection.class}, pc);
   }
 
 
   /**
-   * Retrieves the invocation handler from the supplied connection proxy.
+   * Retrieves the pooled connection proxy from the supplied connection proxy.
    *
    * @param  proxy  connection proxy
    *
@@ -873,6 +1206,9 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
    */
   protected PooledConnectionProxy retrieveConnectionProxy(final Connection proxy)
   {
+    if (proxy instanceof PooledConnection) {
+      return ((PooledConnection) proxy).proxy;
+    }
     return (PooledConnectionProxy) Proxy.getInvocationHandler(proxy);
   }
 
@@ -943,6 +1279,9 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
     private final PooledConnectionStatistics statistics = new PooledConnectionStatistics(
       getPruneStrategy().getStatisticsSize());
 
+    /** Connection handed out to clients of the pool. */
+    private final PooledConnection pooledConnection = new PooledConnection(this);
+
 
     /**
      * Creates a new pooled connection.
@@ -1041,4 +1380,111 @@ public abstract class AbstractConnectionPool extends AbstractPool<Connection> im
       return retValue;
     }
   }
+
+
+  /**
+   * Connection handed out by this pool. Delegates directly to the underlying connection, except that {@link #open()}
+   * only opens the connection if it is closed and {@link #close()} returns the connection to the pool.
+   */
+  protected final class PooledConnection implements Connection
+  {
+
+    /** Pooled connection proxy this connection belongs to. */
+    private final DefaultPooledConnectionProxy proxy;
+
+
+    /**
+     * Creates a new pooled connection.
+     *
+     * @param  pc  pooled connection proxy
+     */
+    private PooledConnection(final DefaultPooledConnectionProxy pc)
+    {
+      proxy = pc;
+    }
+
+
+    @Override
+    public ConnectionConfig getConnectionConfig()
+    {
+      return proxy.conn.getConnectionConfig();
+    }
+
+
+    @Override
+    public Response<Void> open()
+      throws LdapException
+    {
+      // if the connection has been closed, invoke open
+      if (!proxy.conn.isOpen()) {
+        proxy.openResponse = proxy.conn.open();
+      }
+      return proxy.openResponse;
+    }
+
+
+    @Override
+    public Response<Void> open(final BindRequest request)
+      throws LdapException
+    {
+      // if the connection has been closed, invoke open
+      if (!proxy.conn.isOpen()) {
+        proxy.openResponse = proxy.conn.open(request);
+      }
+      return proxy.openResponse;
+    }
+
+
+    @Override
+    public boolean isOpen()
+    {
+      return proxy.conn.isOpen();
+    }
+
+
+    @Override
+    public ProviderConnection getProviderConnection()
+    {
+      return proxy.conn.getProviderConnection();
+    }
+
+
+    @Override
+    public void close()
+    {
+      putConnection(this);
+    }
+
+
+    @Override
+    public void close(final RequestControl[] controls)
+    {
+      putConnection(this);
+    }
+
+
+    @Override
+    public Response<Void> reopen()
+      throws LdapException
+    {
+      proxy.openResponse = proxy.conn.reopen();
+      return proxy.openResponse;
+    }
+
+
+    @Override
+    public Response<Void> reopen(final BindRequest request)
+      throws LdapException
+    {
+      proxy.openResponse = proxy.conn.reopen(request);
+      return proxy.openResponse;
+    }
+
+
+    @Override
+    public String toString()
+    {
+      return String.format("[%s@%d::connection=%s]", getClass().getName(), hashCode(), proxy.conn);
+    }
+  }
 }
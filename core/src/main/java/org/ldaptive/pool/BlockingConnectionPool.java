@@ -12,8 +12,10 @@ import org.ldaptive.DefaultConnectionFactory;
  * size and when the pool is exhausted, requests for new connections will block. The length of time the pool will block
  * is determined by {@link #getBlockWaitTime()}. By default the pool will block indefinitely and there is no guarantee
  * that waiting threads will be serviced in the order in which they made their request. This implementation should be
- * used when you need to control the <em>exact</em> number of connections that can be created. See {@link
- * AbstractConnectionPool}.
+ * used when you need to control the <em>exact</em> number of connections that can be created. If {@link
+ * PoolConfig#getSpareConnections()} is configured, connections are opened on background threads and a request that
+ * finds no available connection waits for whichever connection becomes available first, either returned or newly
+ * opened. See {@link AbstractConnectionPool}.
  *
  * @author  Middleware Services
  */
@@ -83,6 +85,7 @@ public class BlockingConnectionPool extends AbstractConnectionPool
   {
     throwIfNotInitialized();
 
+    final long startTime = System.nanoTime();
     PooledConnectionProxy pc = null;
     boolean create = false;
     logger.trace("waiting on pool lock for check out {}", poolLock.getQueueLength());
@@ -95,10 +98,15 @@ public class BlockingConnectionPool extends AbstractConnectionPool
         try {
           logger.trace("retrieve available connection from pool of size {}", available.size());
           pc = retrieveAvailableConnection();
+          growInBackground(0);
         } catch (NoSuchElementException e) {
           logger.error("could not remove connection from list", e);
           throw new IllegalStateException("Pool is empty", e);
         }
+      } else if (isGrowInBackground()) {
+        logger.trace("pool is empty, block until connection is available or created");
+        growInBackground(1);
+        pc = blockAvailableConnection();
       } else if (active.size() < getPoolConfig().getMaxPoolSize()) {
         logger.trace("pool can grow, attempt to create active connection in pool of " +
           "size {}", active.size());
@@ -138,6 +146,7 @@ public class BlockingConnectionPool extends AbstractConnectionPool
       if (pc == null) {
         if (available.isEmpty() && active.isEmpty()) {
           logger.error("Could not service check out request");
+          getConnectionPoolMetrics().incrementExhaustedCount();
           throw new PoolExhaustedException("Pool is empty and connection creation failed");
         }
         logger.debug("create failed, block until connection is available");
@@ -151,9 +160,11 @@ public class BlockingConnectionPool extends AbstractConnectionPool
       activateAndValidateConnection(pc);
     } else {
       logger.error("Could not service check out request");
+      getConnectionPoolMetrics().incrementExhaustedCount();
       throw new PoolExhaustedException("Pool is empty and connection creation failed");
     }
 
+    getConnectionPoolMetrics().getCheckOutTime().record(System.nanoTime() - startTime);
     return createConnectionProxy(pc);
   }
 
@@ -194,6 +205,7 @@ public class BlockingConnectionPool extends AbstractConnectionPool
   protected PooledConnectionProxy blockAvailableConnection()
     throws PoolException
   {
+    final long startTime = System.nanoTime();
     PooledConnectionProxy pc = null;
     logger.trace("waiting on pool lock for block available {}", poolLock.getQueueLength());
     poolLock.lock();
@@ -203,6 +215,7 @@ public class BlockingConnectionPool extends AbstractConnectionPool
         if (blockWaitTime != null) {
           if (!poolNotEmpty.await(blockWaitTime.toMillis(), TimeUnit.MILLISECONDS)) {
             logger.debug("block time exceeded, throwing exception");
+            getConnectionPoolMetrics().incrementBlockTimeoutCount();
             throw new BlockingTimeoutException("Block time exceeded");
           }
         } else {
@@ -213,6 +226,11 @@ public class BlockingConnectionPool extends AbstractConnectionPool
           pc = retrieveAvailableConnection();
         } catch (NoSuchElementException e) {
           logger.trace("notified to continue but pool was empty");
+          if (isGrowInBackground() && active.isEmpty() && getPendingCount() == 0) {
+            logger.error("Could not service check out request");
+            getConnectionPoolMetrics().incrementExhaustedCount();
+            throw new PoolExhaustedException("Pool is empty and connection creation failed");
+          }
         }
       }
     } catch (InterruptedException e) {
@@ -220,6 +238,7 @@ public class BlockingConnectionPool extends AbstractConnectionPool
       throw new PoolInterruptedException("Interrupted while waiting for an available connection", e);
     } finally {
       poolLock.unlock();
+      getConnectionPoolMetrics().getBlockTime().record(System.nanoTime() - startTime);
     }
     return pc;
   }
@@ -241,6 +260,8 @@ public class BlockingConnectionPool extends AbstractConnectionPool
           pc.getPooledConnectionStatistics().addAvailableStat();
           logger.trace("returned active connection: {}", pc);
           poolNotEmpty.signal();
+        } else {
+          growInBackground(0);
         }
       } else if (available.contains(pc)) {
         logger.warn("returned available connection: {}", pc);
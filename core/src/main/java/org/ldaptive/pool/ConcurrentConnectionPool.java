@@ -0,0 +1,692 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.Connection;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.Response;
+
+/**
+ * Implements a pool of connections that has a set minimum and maximum size and does not acquire a lock for checking
+ * connections in or out unless the pool is exhausted. Periodic validation and pruning only claim idle connections and
+ * never block check outs of other connections. Available connections are kept on a lock-free deque and each
+ * connection carries an atomic state that is used to claim it, so check outs and check ins never contend on the pool
+ * lock. When the queue type is {@link QueueType#LIFO} each thread first attempts to reuse the connection it last
+ * returned, which avoids touching the shared deque entirely for uncontended callers. Connections are created by the
+ * requesting thread without holding any lock and the pool will not grow beyond the maximum size. When the pool is
+ * exhausted requests block for {@link #getBlockWaitTime()}. See {@link AbstractConnectionPool}.
+ *
+ * @author  Middleware Services
+ */
+public class ConcurrentConnectionPool extends BlockingConnectionPool
+{
+
+  /** Connection is not yet or temporarily not participating in the pool. */
+  private static final int STATE_RESERVED = 0;
+
+  /** Connection is available for check out. */
+  private static final int STATE_AVAILABLE = 1;
+
+  /** Connection is checked out. */
+  private static final int STATE_ACTIVE = 2;
+
+  /** Connection has been removed from the pool. */
+  private static final int STATE_REMOVED = 3;
+
+  /** Available connections. May contain connections that have since been claimed. */
+  private final ConcurrentLinkedDeque<ConcurrentPooledConnectionProxy> idle = new ConcurrentLinkedDeque<>();
+
+  /** All connections participating in the pool. */
+  private final List<ConcurrentPooledConnectionProxy> connections = new CopyOnWriteArrayList<>();
+
+  /** Number of connections in the pool, including connections that are being created. */
+  private final AtomicInteger poolSize = new AtomicInteger();
+
+  /** Number of threads blocked waiting for a connection. */
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  /**
+   * Connection last returned by each thread. Weakly referenced so that threads which outlive the pool, such as
+   * application server worker threads, do not keep removed connections or a closed pool reachable.
+   */
+  private final ThreadLocal<WeakReference<ConcurrentPooledConnectionProxy>> lastReturned = new ThreadLocal<>();
+
+
+  /** Creates a new concurrent pool. */
+  public ConcurrentConnectionPool() {}
+
+
+  /**
+   * Creates a new concurrent pool. The pool config is initialized with the default values.
+   *
+   * @param  cf  connection factory
+   */
+  public ConcurrentConnectionPool(final DefaultConnectionFactory cf)
+  {
+    super(new PoolConfig(), cf);
+  }
+
+
+  /**
+   * Creates a new concurrent pool.
+   *
+   * @param  pc  pool configuration
+   * @param  cf  connection factory
+   */
+  public ConcurrentConnectionPool(final PoolConfig pc, final DefaultConnectionFactory cf)
+  {
+    super(pc, cf);
+  }
+
+
+  @Override
+  public Connection getConnection()
+    throws PoolException
+  {
+    throwIfNotInitialized();
+
+    final long startTime = System.nanoTime();
+    // if an available connection exists, use it
+    // if no available connections and the pool can grow, attempt to create
+    // otherwise the pool is full, block until a connection is available
+    PooledConnectionProxy pc = claimAvailableConnection();
+    if (pc == null) {
+      logger.trace("no available connection, attempt to create active connection in pool of size {}", poolSize);
+      pc = createActiveConnection();
+      if (pc == null) {
+        if (poolSize.get() == 0) {
+          logger.error("Could not service check out request");
+          getConnectionPoolMetrics().incrementExhaustedCount();
+          throw new PoolExhaustedException("Pool is empty and connection creation failed");
+        }
+        logger.debug("pool is full or create failed, block until connection is available");
+        pc = blockAvailableConnection();
+      } else {
+        logger.trace("created new active connection: {}", pc);
+      }
+    }
+
+    activateAndValidateConnection(pc);
+    getConnectionPoolMetrics().getCheckOutTime().record(System.nanoTime() - startTime);
+    return createConnectionProxy(pc);
+  }
+
+
+  @Override
+  protected PooledConnectionProxy retrieveAvailableConnection()
+  {
+    final PooledConnectionProxy pc = claimAvailableConnection();
+    if (pc == null) {
+      throw new NoSuchElementException("No available connections");
+    }
+    return pc;
+  }
+
+
+  /**
+   * Attempts to claim an available connection without acquiring any lock. The connection last returned by the current
+   * thread is tried first, then the shared deque of available connections.
+   *
+   * @return  connection that is now active or null if no connection is available
+   */
+  private ConcurrentPooledConnectionProxy claimAvailableConnection()
+  {
+    if (getQueueType() == QueueType.LIFO) {
+      final WeakReference<ConcurrentPooledConnectionProxy> ref = lastReturned.get();
+      final ConcurrentPooledConnectionProxy last = ref != null ? ref.get() : null;
+      if (last != null && last.checkOut()) {
+        logger.trace("retrieved thread local connection: {}", last);
+        return last;
+      }
+      if (ref != null && (last == null || last.getState() == STATE_REMOVED)) {
+        lastReturned.remove();
+      }
+    }
+    ConcurrentPooledConnectionProxy pc = idle.pollFirst();
+    while (pc != null) {
+      pc.dequeued();
+      if (pc.checkOut()) {
+        logger.trace("retrieved available connection: {}", pc);
+        break;
+      }
+      pc = idle.pollFirst();
+    }
+    return pc;
+  }
+
+
+  @Override
+  protected PooledConnectionProxy blockAvailableConnection()
+    throws PoolException
+  {
+    final Duration blockWaitTime = getBlockWaitTime();
+    final long startTime = System.nanoTime();
+    long remaining = blockWaitTime != null ? blockWaitTime.toNanos() : 0;
+    PooledConnectionProxy pc = null;
+    waiting.incrementAndGet();
+    try {
+      while (pc == null) {
+        boolean create = false;
+        logger.trace("waiting on pool lock for block available {}", poolLock.getQueueLength());
+        poolLock.lock();
+        try {
+          pc = claimAvailableConnection();
+          if (pc == null) {
+            logger.trace("available pool is empty, waiting...");
+            if (blockWaitTime != null) {
+              if (remaining <= 0) {
+                logger.debug("block time exceeded, throwing exception");
+                getConnectionPoolMetrics().incrementBlockTimeoutCount();
+                throw new BlockingTimeoutException("Block time exceeded");
+              }
+              remaining = poolNotEmpty.awaitNanos(remaining);
+            } else {
+              poolNotEmpty.await();
+            }
+            logger.trace("notified to continue...");
+            pc = claimAvailableConnection();
+            create = pc == null && poolSize.get() < getPoolConfig().getMaxPoolSize();
+          }
+        } finally {
+          poolLock.unlock();
+        }
+        if (create) {
+          pc = createActiveConnection();
+        }
+      }
+    } catch (InterruptedException e) {
+      logger.error("waiting for available connection interrupted", e);
+      throw new PoolInterruptedException("Interrupted while waiting for an available connection", e);
+    } finally {
+      waiting.decrementAndGet();
+      getConnectionPoolMetrics().getBlockTime().record(System.nanoTime() - startTime);
+    }
+    return pc;
+  }
+
+
+  @Override
+  public void putConnection(final Connection c)
+  {
+    throwIfNotInitialized();
+
+    final PooledConnectionProxy proxy = retrieveConnectionProxy(c);
+    if (!(proxy instanceof ConcurrentPooledConnectionProxy) || proxy.getConnectionPool() != this) {
+      logger.warn("attempt to return unknown connection: {}", proxy);
+      return;
+    }
+
+    final ConcurrentPooledConnectionProxy pc = (ConcurrentPooledConnectionProxy) proxy;
+    if (pc.getState() != STATE_ACTIVE) {
+      logger.warn("returned inactive connection: {}", pc);
+      return;
+    }
+    if (validateAndPassivateConnection(pc)) {
+      pc.getPooledConnectionStatistics().addAvailableStat();
+      if (pc.compareAndSetState(STATE_ACTIVE, STATE_AVAILABLE)) {
+        makeAvailable(pc);
+        if (getQueueType() == QueueType.LIFO) {
+          lastReturned.set(new WeakReference<>(pc));
+        }
+        logger.trace("returned active connection: {}", pc);
+      } else {
+        logger.warn("returned inactive connection: {}", pc);
+      }
+    } else {
+      removeActiveConnection(pc);
+    }
+  }
+
+
+  @Override
+  protected void grow(final int size, final boolean throwOnFailure)
+  {
+    int count = 0;
+    IllegalStateException lastThrown = null;
+    logger.debug("checking connection pool size >= {} for {}", size, this);
+    while (poolSize.get() < size && count < size * 2) {
+      try {
+        final ConcurrentPooledConnectionProxy pc = createReservedConnection(size, throwOnFailure);
+        if (pc != null) {
+          if (getPoolConfig().isValidateOnCheckIn() && !validate(pc.getConnection())) {
+            logger.warn("connection failed initialize validation: {}", pc);
+            destroyConnection(pc);
+          } else {
+            pc.getPooledConnectionStatistics().addAvailableStat();
+            pc.setState(STATE_AVAILABLE);
+            makeAvailable(pc);
+            logger.info("added available connection: {}", pc);
+          }
+        }
+      } catch (IllegalStateException e) {
+        lastThrown = e;
+      }
+      count++;
+    }
+    if (lastThrown != null && poolSize.get() < size) {
+      throw lastThrown;
+    }
+  }
+
+
+  @Override
+  public void close()
+  {
+    throwIfNotInitialized();
+    logger.debug("closing connection pool of size {} for {}", poolSize, this);
+    for (ConcurrentPooledConnectionProxy pc : connections) {
+      destroyConnection(pc);
+    }
+    idle.clear();
+    lastReturned.remove();
+    super.close();
+  }
+
+
+  /**
+   * Spare connections are not supported by this implementation. Connections are opened by the requesting thread without
+   * holding any lock, so creation is never serialized between threads.
+   *
+   * @param  demand  ignored
+   */
+  @Override
+  protected void growInBackground(final int demand) {}
+
+
+  @Override
+  protected PooledConnectionProxy createPooledConnectionProxy(final Connection c, final Response<Void> r)
+  {
+    return new ConcurrentPooledConnectionProxy(c, r);
+  }
+
+
+  @Override
+  protected PooledConnectionProxy createAvailableConnection(final boolean throwOnFailure)
+  {
+    final ConcurrentPooledConnectionProxy pc = createReservedConnection(
+      getPoolConfig().getMaxPoolSize(),
+      throwOnFailure);
+    if (pc != null) {
+      pc.getPooledConnectionStatistics().addAvailableStat();
+      pc.setState(STATE_AVAILABLE);
+      makeAvailable(pc);
+      logger.info("added available connection: {}", pc);
+    } else {
+      logger.warn("unable to create available connection");
+    }
+    return pc;
+  }
+
+
+  @Override
+  protected PooledConnectionProxy createActiveConnection(final boolean throwOnFailure)
+  {
+    final ConcurrentPooledConnectionProxy pc = createReservedConnection(
+      getPoolConfig().getMaxPoolSize(),
+      throwOnFailure);
+    if (pc != null) {
+      pc.getPooledConnectionStatistics().addActiveStat();
+      pc.setState(STATE_ACTIVE);
+      logger.info("added active connection: {}", pc);
+    } else {
+      logger.debug("unable to create active connection");
+    }
+    return pc;
+  }
+
+
+  /**
+   * Creates a new connection if the pool size is less than the supplied limit. The connection is added to the pool in
+   * the reserved state, callers must transition it to either available or active.
+   *
+   * @param  limit  size the pool must be less than in order to create a connection
+   * @param  throwOnFailure  whether to throw illegal state exception
+   *
+   * @return  reserved connection or null if the pool is at the limit or the connection could not be created
+   *
+   * @throws  IllegalStateException  if {@link #createConnection(boolean)} throws
+   */
+  private ConcurrentPooledConnectionProxy createReservedConnection(final int limit, final boolean throwOnFailure)
+  {
+    int size;
+    do {
+      size = poolSize.get();
+      if (size >= limit) {
+        logger.trace("pool at size {}, create not allowed", size);
+        return null;
+      }
+    } while (!poolSize.compareAndSet(size, size + 1));
+
+    ConcurrentPooledConnectionProxy pc = null;
+    try {
+      pc = (ConcurrentPooledConnectionProxy) createConnection(throwOnFailure);
+    } finally {
+      if (pc == null) {
+        poolSize.decrementAndGet();
+        signalWaiting();
+      }
+    }
+    if (pc != null) {
+      connections.add(pc);
+    }
+    return pc;
+  }
+
+
+  @Override
+  protected void removeAvailableConnection(final PooledConnectionProxy pc)
+  {
+    final ConcurrentPooledConnectionProxy cpc = (ConcurrentPooledConnectionProxy) pc;
+    if (cpc.compareAndSetState(STATE_AVAILABLE, STATE_RESERVED)) {
+      destroyConnection(cpc);
+    } else {
+      logger.warn("attempt to remove unknown available connection: {}", pc);
+    }
+  }
+
+
+  @Override
+  protected void removeActiveConnection(final PooledConnectionProxy pc)
+  {
+    final ConcurrentPooledConnectionProxy cpc = (ConcurrentPooledConnectionProxy) pc;
+    if (cpc.getState() == STATE_ACTIVE) {
+      destroyConnection(cpc);
+    } else {
+      logger.warn("attempt to remove unknown active connection: {}", pc);
+    }
+  }
+
+
+  @Override
+  protected void removeAvailableAndActiveConnection(final PooledConnectionProxy pc)
+  {
+    if (!destroyConnection((ConcurrentPooledConnectionProxy) pc)) {
+      logger.debug("attempt to remove unknown connection: {}", pc);
+    }
+  }
+
+
+  /**
+   * Makes the supplied connection available for check out. The connection must already be in the available state.
+   *
+   * @param  pc  connection to make available
+   */
+  private void makeAvailable(final ConcurrentPooledConnectionProxy pc)
+  {
+    if (pc.enqueued()) {
+      if (getQueueType() == QueueType.LIFO) {
+        idle.offerFirst(pc);
+      } else {
+        idle.offerLast(pc);
+      }
+    }
+    signalWaiting();
+  }
+
+
+  /**
+   * Removes the supplied connection from the pool and closes it.
+   *
+   * @param  pc  connection to destroy
+   *
+   * @return  whether the connection was destroyed, false if it was already removed
+   */
+  private boolean destroyConnection(final ConcurrentPooledConnectionProxy pc)
+  {
+    if (pc.getAndSetState(STATE_REMOVED) == STATE_REMOVED) {
+      return false;
+    }
+    connections.remove(pc);
+    poolSize.decrementAndGet();
+    signalWaiting();
+    pc.getConnection().close();
+    logger.info("destroyed connection: {}", pc);
+    return true;
+  }
+
+
+  /** Notifies a blocked thread, if any, that a connection may be available or the pool may grow. */
+  private void signalWaiting()
+  {
+    if (waiting.get() > 0) {
+      poolLock.lock();
+      try {
+        poolNotEmpty.signal();
+      } finally {
+        poolLock.unlock();
+      }
+    }
+  }
+
+
+  @Override
+  public void prune()
+  {
+    throwIfNotInitialized();
+    final int minPoolSize = getPoolConfig().getMinPoolSize();
+    if (poolSize.get() <= minPoolSize) {
+      logger.debug("pool size is {}, no connections pruned for {}", poolSize, this);
+      return;
+    }
+
+    logger.debug("pruning available pool of size {} for {}", availableCount(), this);
+    int pruned = 0;
+    for (ConcurrentPooledConnectionProxy pc : connections) {
+      if (poolSize.get() <= minPoolSize) {
+        break;
+      }
+      if (pc.compareAndSetState(STATE_AVAILABLE, STATE_RESERVED)) {
+        if (getPruneStrategy().prune(pc)) {
+          destroyConnection(pc);
+          getConnectionPoolMetrics().incrementPruneCount();
+          pruned++;
+        } else if (pc.compareAndSetState(STATE_RESERVED, STATE_AVAILABLE)) {
+          makeAvailable(pc);
+        }
+      }
+    }
+    if (pruned == 0) {
+      logger.debug("prune strategy did not remove any connections");
+    } else {
+      logger.info("available pool size pruned to {}", availableCount());
+    }
+  }
+
+
+  @Override
+  public void validate()
+  {
+    throwIfNotInitialized();
+    if (getPoolConfig().isValidatePeriodically()) {
+      logger.debug("validate available pool of size {} for {}", availableCount(), this);
+
+      final int batchSize = getPoolConfig().getValidateBatchSize();
+      final List<PooledConnectionProxy> batch = new ArrayList<>(batchSize);
+      final Iterator<ConcurrentPooledConnectionProxy> iter = connections.iterator();
+      while (iter.hasNext()) {
+        final ConcurrentPooledConnectionProxy pc = iter.next();
+        if (pc.compareAndSetState(STATE_AVAILABLE, STATE_RESERVED)) {
+          batch.add(pc);
+        }
+        if (batch.size() == batchSize || (!iter.hasNext() && !batch.isEmpty())) {
+          final List<PooledConnectionProxy> failed = validateConnections(batch);
+          for (PooledConnectionProxy p : batch) {
+            final ConcurrentPooledConnectionProxy cpc = (ConcurrentPooledConnectionProxy) p;
+            if (failed.contains(cpc)) {
+              destroyConnection(cpc);
+            } else if (cpc.compareAndSetState(STATE_RESERVED, STATE_AVAILABLE)) {
+              makeAvailable(cpc);
+            }
+          }
+          batch.clear();
+        }
+      }
+    }
+    grow(getPoolConfig().getMinPoolSize());
+    logger.debug("pool size after validation is {}", poolSize);
+  }
+
+
+  @Override
+  public int availableCount()
+  {
+    return countState(STATE_AVAILABLE);
+  }
+
+
+  @Override
+  public int activeCount()
+  {
+    return countState(STATE_ACTIVE);
+  }
+
+
+  /**
+   * Returns the number of connections in the supplied state.
+   *
+   * @param  state  of the connection
+   *
+   * @return  number of connections
+   */
+  private int countState(final int state)
+  {
+    int count = 0;
+    for (ConcurrentPooledConnectionProxy pc : connections) {
+      if (pc.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+
+  @Override
+  public Set<PooledConnectionStatistics> getPooledConnectionStatistics()
+  {
+    throwIfNotInitialized();
+
+    final Set<PooledConnectionStatistics> stats = new HashSet<>();
+    for (ConcurrentPooledConnectionProxy pc : connections) {
+      stats.add(pc.getPooledConnectionStatistics());
+    }
+    return Collections.unmodifiableSet(stats);
+  }
+
+
+  /** Pooled connection proxy that tracks its state in the pool with atomic operations. */
+  protected class ConcurrentPooledConnectionProxy extends DefaultPooledConnectionProxy
+  {
+
+    /** State of this connection in the pool. */
+    private final AtomicInteger state = new AtomicInteger(STATE_RESERVED);
+
+    /** Whether this connection is on the available deque. */
+    private final AtomicBoolean queued = new AtomicBoolean();
+
+
+    /**
+     * Creates a new concurrent pooled connection.
+     *
+     * @param  c  connection to participate in this pool
+     * @param  r  response produced by opening the connection
+     */
+    public ConcurrentPooledConnectionProxy(final Connection c, final Response<Void> r)
+    {
+      super(c, r);
+    }
+
+
+    /**
+     * Returns the state of this connection.
+     *
+     * @return  connection state
+     */
+    int getState()
+    {
+      return state.get();
+    }
+
+
+    /**
+     * Sets the state of this connection.
+     *
+     * @param  s  connection state
+     */
+    void setState(final int s)
+    {
+      state.set(s);
+    }
+
+
+    /**
+     * Sets the state of this connection and returns the previous state.
+     *
+     * @param  s  connection state
+     *
+     * @return  previous connection state
+     */
+    int getAndSetState(final int s)
+    {
+      return state.getAndSet(s);
+    }
+
+
+    /**
+     * Atomically sets the state of this connection if it is in the expected state.
+     *
+     * @param  expect  current connection state
+     * @param  update  new connection state
+     *
+     * @return  whether the state was updated
+     */
+    boolean compareAndSetState(final int expect, final int update)
+    {
+      return state.compareAndSet(expect, update);
+    }
+
+
+    /**
+     * Attempts to transition this connection from available to active.
+     *
+     * @return  whether this connection was checked out
+     */
+    boolean checkOut()
+    {
+      if (state.compareAndSet(STATE_AVAILABLE, STATE_ACTIVE)) {
+        getPooledConnectionStatistics().addActiveStat();
+        return true;
+      }
+      return false;
+    }
+
+
+    /**
+     * Marks this connection as being on the available deque.
+     *
+     * @return  whether this connection must be added to the deque, false if it is already present
+     */
+    boolean enqueued()
+    {
+      return queued.compareAndSet(false, true);
+    }
+
+
+    /** Marks this connection as having been removed from the available deque. */
+    void dequeued()
+    {
+      queued.set(false);
+    }
+  }
+}
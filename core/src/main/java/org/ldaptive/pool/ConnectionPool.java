@@ -103,6 +103,18 @@ public interface ConnectionPool
   Set<PooledConnectionStatistics> getPooledConnectionStatistics();
 
 
+  /**
+   * Returns the metrics for this pool, including check out wait times and connection failure counts. The default
+   * implementation returns null for pools that do not record metrics.
+   *
+   * @return  connection pool metrics or null
+   */
+  default ConnectionPoolMetrics getConnectionPoolMetrics()
+  {
+    return null;
+  }
+
+
   /** Empty this pool, freeing any resources. */
   void close();
 }
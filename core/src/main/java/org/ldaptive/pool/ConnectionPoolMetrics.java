@@ -0,0 +1,297 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool level metrics for a connection pool. Counters and histograms are updated without locking so they can be recorded
+ * on every check out. Instances are exposed by {@link ConnectionPool#getConnectionPoolMetrics()} and can optionally be
+ * registered as a JMX MBean, see {@link AbstractConnectionPool#setJmxEnabled(boolean)}.
+ *
+ * @author  Middleware Services
+ */
+public class ConnectionPoolMetrics implements ConnectionPoolMetricsMXBean
+{
+
+  /** Percentile reported by the management interface. */
+  private static final double PERCENTILE = 99;
+
+  /** Pool these metrics belong to. */
+  private final AbstractConnectionPool pool;
+
+  /** Time spent checking out connections. */
+  private final LatencyHistogram checkOutTime = new LatencyHistogram();
+
+  /** Time spent blocked waiting for a connection. */
+  private final LatencyHistogram blockTime = new LatencyHistogram();
+
+  /** Number of check outs that failed because the block wait time was exceeded. */
+  private final LongAdder blockTimeoutCount = new LongAdder();
+
+  /** Number of check outs that failed because the pool was exhausted. */
+  private final LongAdder exhaustedCount = new LongAdder();
+
+  /** Number of connections created by the pool. */
+  private final LongAdder createCount = new LongAdder();
+
+  /** Number of connections the pool failed to create. */
+  private final LongAdder createFailureCount = new LongAdder();
+
+  /** Number of connections that failed activation. */
+  private final LongAdder activateFailureCount = new LongAdder();
+
+  /** Number of connections that failed validation. */
+  private final LongAdder validateFailureCount = new LongAdder();
+
+  /** Number of connections that failed passivation. */
+  private final LongAdder passivateFailureCount = new LongAdder();
+
+  /** Number of connections removed by the prune strategy. */
+  private final LongAdder pruneCount = new LongAdder();
+
+
+  /**
+   * Creates a new connection pool metrics.
+   *
+   * @param  cp  connection pool
+   */
+  public ConnectionPoolMetrics(final AbstractConnectionPool cp)
+  {
+    pool = cp;
+  }
+
+
+  /**
+   * Returns the histogram of time spent checking out connections.
+   *
+   * @return  check out time histogram
+   */
+  public LatencyHistogram getCheckOutTime()
+  {
+    return checkOutTime;
+  }
+
+
+  /**
+   * Returns the histogram of time spent blocked waiting for a connection.
+   *
+   * @return  block time histogram
+   */
+  public LatencyHistogram getBlockTime()
+  {
+    return blockTime;
+  }
+
+
+  @Override
+  public int getAvailableCount()
+  {
+    return pool.availableCount();
+  }
+
+
+  @Override
+  public int getActiveCount()
+  {
+    return pool.activeCount();
+  }
+
+
+  @Override
+  public double getUtilization()
+  {
+    final int max = pool.getPoolConfig().getMaxPoolSize();
+    return max > 0 ? (double) pool.activeCount() / max : 0;
+  }
+
+
+  @Override
+  public long getCheckOutCount()
+  {
+    return checkOutTime.getCount();
+  }
+
+
+  @Override
+  public double getCheckOutTimeMean()
+  {
+    return LatencyHistogram.toMillis(checkOutTime.getMean());
+  }
+
+
+  @Override
+  public double getCheckOutTime99thPercentile()
+  {
+    return LatencyHistogram.toMillis(checkOutTime.getPercentile(PERCENTILE));
+  }
+
+
+  @Override
+  public double getCheckOutTimeMax()
+  {
+    return LatencyHistogram.toMillis(checkOutTime.getMax());
+  }
+
+
+  @Override
+  public long getBlockCount()
+  {
+    return blockTime.getCount();
+  }
+
+
+  @Override
+  public double getBlockTimeMean()
+  {
+    return LatencyHistogram.toMillis(blockTime.getMean());
+  }
+
+
+  @Override
+  public double getBlockTime99thPercentile()
+  {
+    return LatencyHistogram.toMillis(blockTime.getPercentile(PERCENTILE));
+  }
+
+
+  @Override
+  public double getBlockTimeMax()
+  {
+    return LatencyHistogram.toMillis(blockTime.getMax());
+  }
+
+
+  @Override
+  public long getBlockTimeoutCount()
+  {
+    return blockTimeoutCount.sum();
+  }
+
+
+  @Override
+  public long getExhaustedCount()
+  {
+    return exhaustedCount.sum();
+  }
+
+
+  @Override
+  public long getCreateCount()
+  {
+    return createCount.sum();
+  }
+
+
+  @Override
+  public long getCreateFailureCount()
+  {
+    return createFailureCount.sum();
+  }
+
+
+  @Override
+  public long getActivateFailureCount()
+  {
+    return activateFailureCount.sum();
+  }
+
+
+  @Override
+  public long getValidateFailureCount()
+  {
+    return validateFailureCount.sum();
+  }
+
+
+  @Override
+  public long getPassivateFailureCount()
+  {
+    return passivateFailureCount.sum();
+  }
+
+
+  @Override
+  public long getPruneCount()
+  {
+    return pruneCount.sum();
+  }
+
+
+  /** Increments the number of check outs that failed because the block wait time was exceeded. */
+  public void incrementBlockTimeoutCount()
+  {
+    blockTimeoutCount.increment();
+  }
+
+
+  /** Increments the number of check outs that failed because the pool was exhausted. */
+  public void incrementExhaustedCount()
+  {
+    exhaustedCount.increment();
+  }
+
+
+  /** Increments the number of connections created by the pool. */
+  public void incrementCreateCount()
+  {
+    createCount.increment();
+  }
+
+
+  /** Increments the number of connections the pool failed to create. */
+  public void incrementCreateFailureCount()
+  {
+    createFailureCount.increment();
+  }
+
+
+  /** Increments the number of connections that failed activation. */
+  public void incrementActivateFailureCount()
+  {
+    activateFailureCount.increment();
+  }
+
+
+  /** Increments the number of connections that failed validation. */
+  public void incrementValidateFailureCount()
+  {
+    validateFailureCount.increment();
+  }
+
+
+  /** Increments the number of connections that failed passivation. */
+  public void incrementPassivateFailureCount()
+  {
+    passivateFailureCount.increment();
+  }
+
+
+  /** Increments the number of connections removed by the prune strategy. */
+  public void incrementPruneCount()
+  {
+    pruneCount.increment();
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::checkOutTime=%s, blockTime=%s, blockTimeoutCount=%s, exhaustedCount=%s, createCount=%s, " +
+        "createFailureCount=%s, activateFailureCount=%s, validateFailureCount=%s, passivateFailureCount=%s, " +
+        "pruneCount=%s]",
+        getClass().getName(),
+        hashCode(),
+        checkOutTime,
+        blockTime,
+        getBlockTimeoutCount(),
+        getExhaustedCount(),
+        getCreateCount(),
+        getCreateFailureCount(),
+        getActivateFailureCount(),
+        getValidateFailureCount(),
+        getPassivateFailureCount(),
+        getPruneCount());
+  }
+}
@@ -0,0 +1,163 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+/**
+ * Management interface for connection pool metrics. Durations are reported in milliseconds.
+ *
+ * @author  Middleware Services
+ */
+public interface ConnectionPoolMetricsMXBean
+{
+
+
+  /**
+   * Returns the number of available connections in the pool.
+   *
+   * @return  available count
+   */
+  int getAvailableCount();
+
+
+  /**
+   * Returns the number of active connections in the pool.
+   *
+   * @return  active count
+   */
+  int getActiveCount();
+
+
+  /**
+   * Returns the fraction of the maximum pool size that is currently active.
+   *
+   * @return  utilization between 0 and 1
+   */
+  double getUtilization();
+
+
+  /**
+   * Returns the number of connections successfully checked out of the pool.
+   *
+   * @return  check out count
+   */
+  long getCheckOutCount();
+
+
+  /**
+   * Returns the mean time spent checking a connection out of the pool.
+   *
+   * @return  mean check out time in milliseconds
+   */
+  double getCheckOutTimeMean();
+
+
+  /**
+   * Returns the 99th percentile of the time spent checking a connection out of the pool.
+   *
+   * @return  99th percentile check out time in milliseconds
+   */
+  double getCheckOutTime99thPercentile();
+
+
+  /**
+   * Returns the longest time spent checking a connection out of the pool.
+   *
+   * @return  max check out time in milliseconds
+   */
+  double getCheckOutTimeMax();
+
+
+  /**
+   * Returns the number of times a thread blocked waiting for a connection.
+   *
+   * @return  block count
+   */
+  long getBlockCount();
+
+
+  /**
+   * Returns the mean time spent blocked waiting for a connection.
+   *
+   * @return  mean block time in milliseconds
+   */
+  double getBlockTimeMean();
+
+
+  /**
+   * Returns the 99th percentile of the time spent blocked waiting for a connection.
+   *
+   * @return  99th percentile block time in milliseconds
+   */
+  double getBlockTime99thPercentile();
+
+
+  /**
+   * Returns the longest time spent blocked waiting for a connection.
+   *
+   * @return  max block time in milliseconds
+   */
+  double getBlockTimeMax();
+
+
+  /**
+   * Returns the number of check outs that failed because the block wait time was exceeded.
+   *
+   * @return  block timeout count
+   */
+  long getBlockTimeoutCount();
+
+
+  /**
+   * Returns the number of check outs that failed because the pool was exhausted.
+   *
+   * @return  exhausted count
+   */
+  long getExhaustedCount();
+
+
+  /**
+   * Returns the number of connections created by the pool.
+   *
+   * @return  create count
+   */
+  long getCreateCount();
+
+
+  /**
+   * Returns the number of connections the pool failed to create.
+   *
+   * @return  create failure count
+   */
+  long getCreateFailureCount();
+
+
+  /**
+   * Returns the number of connections that failed activation.
+   *
+   * @return  activate failure count
+   */
+  long getActivateFailureCount();
+
+
+  /**
+   * Returns the number of connections that failed validation, either on check out, check in or periodically.
+   *
+   * @return  validate failure count
+   */
+  long getValidateFailureCount();
+
+
+  /**
+   * Returns the number of connections that failed passivation.
+   *
+   * @return  passivate failure count
+   */
+  long getPassivateFailureCount();
+
+
+  /**
+   * Returns the number of connections removed by the prune strategy.
+   *
+   * @return  prune count
+   */
+  long getPruneCount();
+}
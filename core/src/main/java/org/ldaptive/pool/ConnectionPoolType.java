@@ -12,5 +12,8 @@ public enum ConnectionPoolType {
   BLOCKING,
 
   /** soft limit. */
-  SOFTLIMIT
+  SOFTLIMIT,
+
+  /** concurrent. */
+  CONCURRENT
 }
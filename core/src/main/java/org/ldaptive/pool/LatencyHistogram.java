@@ -0,0 +1,214 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations in a fixed set of buckets without locking or allocating. Bucket upper bounds follow a 1-2-5 series
+ * from one microsecond to ten seconds, with a final bucket for anything longer. Percentiles are reported as the upper
+ * bound of the bucket containing the requested rank.
+ *
+ * @author  Middleware Services
+ */
+public class LatencyHistogram
+{
+
+  /** Upper bound of each bucket in nanoseconds. A final, unbounded bucket follows these. */
+  private static final long[] BUCKET_BOUNDS = {
+    1000L, 2000L, 5000L,
+    10000L, 20000L, 50000L,
+    100000L, 200000L, 500000L,
+    1000000L, 2000000L, 5000000L,
+    10000000L, 20000000L, 50000000L,
+    100000000L, 200000000L, 500000000L,
+    1000000000L, 2000000000L, 5000000000L,
+    10000000000L,
+  };
+
+  /** Maximum percentile. */
+  private static final double MAX_PERCENTILE = 100;
+
+  /** Percentile reported by {@link #toString()}. */
+  private static final double TO_STRING_PERCENTILE = 99;
+
+  /** Nanoseconds per millisecond. */
+  private static final double NANOS_PER_MILLI = 1000000d;
+
+  /** Count of durations recorded in each bucket. */
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+  /** Number of durations recorded. */
+  private final LongAdder count = new LongAdder();
+
+  /** Sum of all durations recorded in nanoseconds. */
+  private final LongAdder total = new LongAdder();
+
+  /** Longest duration recorded in nanoseconds. */
+  private final AtomicLong max = new AtomicLong();
+
+
+  /**
+   * Records the supplied duration.
+   *
+   * @param  nanos  duration in nanoseconds
+   */
+  public void record(final long nanos)
+  {
+    final long n = nanos < 0 ? 0 : nanos;
+    buckets.incrementAndGet(bucketIndex(n));
+    count.increment();
+    total.add(n);
+    long current = max.get();
+    while (n > current && !max.compareAndSet(current, n)) {
+      current = max.get();
+    }
+  }
+
+
+  /**
+   * Returns the number of durations recorded.
+   *
+   * @return  count
+   */
+  public long getCount()
+  {
+    return count.sum();
+  }
+
+
+  /**
+   * Returns the mean of all durations recorded.
+   *
+   * @return  mean duration or {@link Duration#ZERO} if nothing has been recorded
+   */
+  public Duration getMean()
+  {
+    final long c = count.sum();
+    return c > 0 ? Duration.ofNanos(total.sum() / c) : Duration.ZERO;
+  }
+
+
+  /**
+   * Returns the longest duration recorded.
+   *
+   * @return  max duration
+   */
+  public Duration getMax()
+  {
+    return Duration.ofNanos(max.get());
+  }
+
+
+  /**
+   * Returns the upper bound of the bucket that contains the supplied percentile. The longest duration recorded is
+   * returned for the unbounded bucket.
+   *
+   * @param  percentile  between 0 and 100
+   *
+   * @return  percentile duration or {@link Duration#ZERO} if nothing has been recorded
+   *
+   * @throws  IllegalArgumentException  if percentile is not between 0 and 100
+   */
+  public Duration getPercentile(final double percentile)
+  {
+    if (percentile < 0 || percentile > MAX_PERCENTILE) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+
+    final long[] counts = getBucketCounts();
+    long c = 0;
+    for (long l : counts) {
+      c += l;
+    }
+    final long rank = (long) Math.ceil(c * percentile / MAX_PERCENTILE);
+    long cumulative = 0;
+    for (int i = 0; i < counts.length && c > 0; i++) {
+      cumulative += counts[i];
+      if (cumulative >= rank && counts[i] > 0) {
+        return i < BUCKET_BOUNDS.length ? Duration.ofNanos(BUCKET_BOUNDS[i]) : getMax();
+      }
+    }
+    return Duration.ZERO;
+  }
+
+
+  /**
+   * Returns the upper bound of each bucket in nanoseconds. The last bucket returned by {@link #getBucketCounts()} has
+   * no upper bound.
+   *
+   * @return  bucket upper bounds
+   */
+  public long[] getBucketBounds()
+  {
+    return BUCKET_BOUNDS.clone();
+  }
+
+
+  /**
+   * Returns the number of durations recorded in each bucket.
+   *
+   * @return  bucket counts
+   */
+  public long[] getBucketCounts()
+  {
+    final long[] counts = new long[buckets.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return counts;
+  }
+
+
+  /**
+   * Returns the supplied duration in fractional milliseconds.
+   *
+   * @param  d  duration
+   *
+   * @return  milliseconds
+   */
+  static double toMillis(final Duration d)
+  {
+    return d.toNanos() / NANOS_PER_MILLI;
+  }
+
+
+  /**
+   * Returns the index of the bucket for the supplied duration.
+   *
+   * @param  nanos  duration in nanoseconds
+   *
+   * @return  bucket index
+   */
+  private static int bucketIndex(final long nanos)
+  {
+    int low = 0;
+    int high = BUCKET_BOUNDS.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (BUCKET_BOUNDS[mid] < nanos) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::count=%s, mean=%s, p99=%s, max=%s]",
+        getClass().getName(),
+        hashCode(),
+        getCount(),
+        getMean(),
+        getPercentile(TO_STRING_PERCENTILE),
+        getMax());
+  }
+}
@@ -33,6 +33,12 @@ public class PoolConfig extends AbstractConfig
   /** Default per connection validate timeout, value is 5 seconds. */
   public static final Duration DEFAULT_VALIDATE_TIMEOUT = Duration.ofSeconds(5);
 
+  /** Default number of connections validated concurrently, value is {@value}. */
+  public static final int DEFAULT_VALIDATE_BATCH_SIZE = 5;
+
+  /** Default number of spare connections, value is {@value}. */
+  public static final int DEFAULT_SPARE_CONNECTIONS = 0;
+
   /** Minimum pool size. */
   private int minPoolSize = DEFAULT_MIN_POOL_SIZE;
 
@@ -54,6 +60,12 @@ public class PoolConfig extends AbstractConfig
   /** Maximum length of time a connection validation should block. */
   private Duration validateTimeout = DEFAULT_VALIDATE_TIMEOUT;
 
+  /** Number of available connections removed from the pool at a time for periodic validation. */
+  private int validateBatchSize = DEFAULT_VALIDATE_BATCH_SIZE;
+
+  /** Number of available connections to keep opened in advance of demand. */
+  private int spareConnections = DEFAULT_SPARE_CONNECTIONS;
+
 
   /**
    * Returns the min pool size. Default value is {@link #DEFAULT_MIN_POOL_SIZE}. This value represents the size of the
@@ -235,13 +247,75 @@ public class PoolConfig extends AbstractConfig
   }
 
 
+  /**
+   * Returns the number of available connections that are removed from the pool and validated together during periodic
+   * validation. Default value is {@link #DEFAULT_VALIDATE_BATCH_SIZE}. If a validate timeout is configured this is also
+   * the number of threads used to perform validation.
+   *
+   * @return  validate batch size
+   */
+  public int getValidateBatchSize()
+  {
+    return validateBatchSize;
+  }
+
+
+  /**
+   * Sets the number of available connections that are removed from the pool and validated together during periodic
+   * validation.
+   *
+   * @param  size  validate batch size
+   */
+  public void setValidateBatchSize(final int size)
+  {
+    checkImmutable();
+    if (size < 1) {
+      throw new IllegalArgumentException("Validate batch size must be greater than zero");
+    }
+    logger.trace("setting validateBatchSize: {}", size);
+    validateBatchSize = size;
+  }
+
+
+  /**
+   * Returns the number of spare connections. Default value is {@link #DEFAULT_SPARE_CONNECTIONS}. When greater than
+   * zero the pool opens connections on background threads so that this many connections are available in advance of
+   * demand, up to the max pool size. Threads that find the pool empty wait for the first connection that is either
+   * returned or newly opened rather than opening a connection themselves. This value may or may not be honored
+   * depending on the pooling implementation.
+   *
+   * @return  spare connections
+   */
+  public int getSpareConnections()
+  {
+    return spareConnections;
+  }
+
+
+  /**
+   * Sets the number of spare connections.
+   *
+   * @param  count  spare connections
+   */
+  public void setSpareConnections(final int count)
+  {
+    checkImmutable();
+    if (count < 0) {
+      throw new IllegalArgumentException("Spare connections cannot be negative");
+    }
+    logger.trace("setting spareConnections: {}", count);
+    spareConnections = count;
+  }
+
+
   @Override
   public String toString()
   {
     return
       String.format(
         "[%s@%d::minPoolSize=%s, maxPoolSize=%s, validateOnCheckIn=%s, validateOnCheckOut=%s, " +
-        "validatePeriodically=%s, validatePeriod=%s, validateTimeout=%s]",
+        "validatePeriodically=%s, validatePeriod=%s, validateTimeout=%s, validateBatchSize=%s, " +
+        "spareConnections=%s]",
         getClass().getName(),
         hashCode(),
         minPoolSize,
@@ -250,6 +324,8 @@ public class PoolConfig extends AbstractConfig
         validateOnCheckOut,
         validatePeriodically,
         validatePeriod,
-        validateTimeout);
+        validateTimeout,
+        validateBatchSize,
+        spareConnections);
   }
 }
@@ -2,12 +2,13 @@
 package org.ldaptive.pool;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
 
 /**
  * Statistics associated with a connection's activity in the pool. Exposes the timestamps when this connection entered
- * both the available pool and the active pool. A size of 512 uses approximately 50 kilobytes of memory per connection.
+ * both the available pool and the active pool. Timestamps are stored as epoch milliseconds in fixed size ring buffers,
+ * so recording a statistic does not allocate. A size of 512 uses approximately 8 kilobytes of memory per connection.
  *
  * @author  Middleware Services
  */
@@ -18,10 +19,10 @@ public class PooledConnectionStatistics
   private final int size;
 
   /** Available stats. */
-  private final Deque<Instant> availableStats;
+  private final TimestampBuffer availableStats;
 
   /** Active stats. */
-  private final Deque<Instant> activeStats;
+  private final TimestampBuffer activeStats;
 
 
   /**
@@ -32,51 +33,21 @@ public class PooledConnectionStatistics
   public PooledConnectionStatistics(final int i)
   {
     size = i;
-    availableStats = new LinkedList<Instant>() {
-
-
-      @Override
-      public boolean add(final Instant e)
-      {
-        if (size < 1) {
-          return false;
-        }
-
-        final boolean b = super.add(e);
-        while (size() > size) {
-          remove();
-        }
-        return b;
-      }
-    };
-    activeStats = new LinkedList<Instant>() {
-
-
-      @Override
-      public boolean add(final Instant e)
-      {
-        if (size < 1) {
-          return false;
-        }
-
-        final boolean b = super.add(e);
-        while (size() > size) {
-          remove();
-        }
-        return b;
-      }
-    };
+    availableStats = new TimestampBuffer(i);
+    activeStats = new TimestampBuffer(i);
   }
 
 
   /**
-   * Returns all the available timestamp statistics.
+   * Returns all the available timestamp statistics. The returned deque is a snapshot ordered from oldest to newest;
+   * changes to it are not reflected in these statistics and later stats are not added to it. Prior versions
+   * returned the live deque.
    *
    * @return  available timestamp statistics
    */
-  public Deque<Instant> getAvailableStats()
+  public synchronized Deque<Instant> getAvailableStats()
   {
-    return availableStats;
+    return availableStats.toDeque();
   }
 
 
@@ -85,27 +56,29 @@ public class PooledConnectionStatistics
    *
    * @return  millisecond timestamp
    */
-  public Instant getLastAvailableState()
+  public synchronized Instant getLastAvailableState()
   {
-    return availableStats.peekLast();
+    return availableStats.last();
   }
 
 
   /** Inserts the current timestamp into the available statistics. */
   public synchronized void addAvailableStat()
   {
-    availableStats.add(Instant.now());
+    availableStats.add(System.currentTimeMillis());
   }
 
 
   /**
-   * Returns all the active timestamp statistics.
+   * Returns all the active timestamp statistics. The returned deque is a snapshot ordered from oldest to newest;
+   * changes to it are not reflected in these statistics and later stats are not added to it. Prior versions
+   * returned the live deque.
    *
    * @return  active timestamp statistics
    */
-  public Deque<Instant> getActiveStats()
+  public synchronized Deque<Instant> getActiveStats()
   {
-    return activeStats;
+    return activeStats.toDeque();
   }
 
 
@@ -114,16 +87,16 @@ public class PooledConnectionStatistics
    *
    * @return  millisecond timestamp
    */
-  public Instant getLastActiveStat()
+  public synchronized Instant getLastActiveStat()
   {
-    return activeStats.peekLast();
+    return activeStats.last();
   }
 
 
   /** Inserts the current timestamp into the active statistics. */
   public synchronized void addActiveStat()
   {
-    activeStats.add(Instant.now());
+    activeStats.add(System.currentTimeMillis());
   }
 
 
@@ -132,4 +105,78 @@ public class PooledConnectionStatistics
   {
     return String.format("[%s@%d::size=%s]", getClass().getName(), hashCode(), size);
   }
+
+
+  /** Ring buffer of epoch millisecond timestamps. Not thread safe, access is guarded by the enclosing statistics. */
+  private static class TimestampBuffer
+  {
+
+    /** Timestamps. */
+    private final long[] timestamps;
+
+    /** Index of the next timestamp to write. */
+    private int next;
+
+    /** Number of timestamps stored. */
+    private int count;
+
+
+    /**
+     * Creates a new timestamp buffer.
+     *
+     * @param  i  number of timestamps to store
+     */
+    TimestampBuffer(final int i)
+    {
+      timestamps = new long[i > 0 ? i : 0];
+    }
+
+
+    /**
+     * Adds a timestamp, overwriting the oldest timestamp if the buffer is full.
+     *
+     * @param  millis  epoch milliseconds
+     */
+    void add(final long millis)
+    {
+      if (timestamps.length == 0) {
+        return;
+      }
+      timestamps[next] = millis;
+      next = (next + 1) % timestamps.length;
+      if (count < timestamps.length) {
+        count++;
+      }
+    }
+
+
+    /**
+     * Returns the most recent timestamp.
+     *
+     * @return  most recent timestamp or null if the buffer is empty
+     */
+    Instant last()
+    {
+      if (count == 0) {
+        return null;
+      }
+      return Instant.ofEpochMilli(timestamps[(next - 1 + timestamps.length) % timestamps.length]);
+    }
+
+
+    /**
+     * Returns the timestamps in this buffer ordered from oldest to newest.
+     *
+     * @return  timestamps
+     */
+    Deque<Instant> toDeque()
+    {
+      final Deque<Instant> deque = new ArrayDeque<>(count);
+      final int start = (next - count + timestamps.length) % Math.max(timestamps.length, 1);
+      for (int i = 0; i < count; i++) {
+        deque.add(Instant.ofEpochMilli(timestamps[(start + i) % timestamps.length]));
+      }
+      return deque;
+    }
+  }
 }
@@ -52,6 +52,17 @@ public class Queue<T> implements Iterable<T>
   }
 
 
+  /**
+   * Adds an object to the end of the queue regardless of the queue type. See {@link Deque#addLast(Object)}.
+   *
+   * @param  t  to add
+   */
+  public void addLast(final T t)
+  {
+    queue.addLast(t);
+  }
+
+
   /**
    * Removes the first element in the queue. See {@link Deque#removeFirst()}.
    *
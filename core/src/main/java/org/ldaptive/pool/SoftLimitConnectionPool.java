@@ -10,7 +10,9 @@ import org.ldaptive.DefaultConnectionFactory;
  * as necessary based on it's current load. Pool size will return to it's minimum based on the configuration of the
  * prune strategy. See {@link PruneStrategy}. This implementation should be used when you have some flexibility in the
  * number of connections that can be created to handle spikes in load. See {@link AbstractConnectionPool}. Note that
- * this pool will begin blocking if it cannot create new connections.
+ * this pool will begin blocking if it cannot create new connections. If {@link PoolConfig#getSpareConnections()} is
+ * configured, spare connections are opened in the background up to the maximum size, but a request that finds no
+ * available connection still opens one itself.
  *
  * @author  Middleware Services
  */
@@ -51,6 +53,7 @@ public class SoftLimitConnectionPool extends BlockingConnectionPool
   {
     throwIfNotInitialized();
 
+    final long startTime = System.nanoTime();
     PooledConnectionProxy pc = null;
     logger.trace("waiting on pool lock for check out {}", poolLock.getQueueLength());
     poolLock.lock();
@@ -61,6 +64,7 @@ public class SoftLimitConnectionPool extends BlockingConnectionPool
         try {
           logger.trace("retrieve available connection");
           pc = retrieveAvailableConnection();
+          growInBackground(0);
         } catch (NoSuchElementException e) {
           logger.error("could not remove connection from list", e);
           throw new IllegalStateException("Pool is empty", e);
@@ -76,6 +80,7 @@ public class SoftLimitConnectionPool extends BlockingConnectionPool
       if (pc == null) {
         if (available.isEmpty() && active.isEmpty()) {
           logger.error("Could not service check out request");
+          getConnectionPoolMetrics().incrementExhaustedCount();
           throw new PoolExhaustedException("Pool is empty and connection creation failed");
         }
         logger.debug("create failed, block until a connection is available");
@@ -89,9 +94,11 @@ public class SoftLimitConnectionPool extends BlockingConnectionPool
       activateAndValidateConnection(pc);
     } else {
       logger.error("Could not service check out request");
+      getConnectionPoolMetrics().incrementExhaustedCount();
       throw new PoolExhaustedException("Pool is empty and connection creation failed");
     }
 
+    getConnectionPoolMetrics().getCheckOutTime().record(System.nanoTime() - startTime);
     return createConnectionProxy(pc);
   }
 }
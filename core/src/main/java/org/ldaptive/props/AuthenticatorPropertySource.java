@@ -2,13 +2,16 @@
 package org.ldaptive.props;
 
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.Set;
 import org.ldaptive.ConnectionFactoryManager;
 import org.ldaptive.DefaultConnectionFactory;
 import org.ldaptive.auth.AuthenticationHandler;
+import org.ldaptive.auth.AuthenticationResponseHandler;
 import org.ldaptive.auth.Authenticator;
 import org.ldaptive.auth.BindAuthenticationHandler;
+import org.ldaptive.auth.CachingDnResolver;
 import org.ldaptive.auth.DnResolver;
 import org.ldaptive.auth.SearchDnResolver;
 import org.ldaptive.pool.PooledConnectionFactory;
@@ -101,13 +104,27 @@ public final class AuthenticatorPropertySource extends AbstractPropertySource<Au
         propertiesDomain,
         properties);
       dnPropSource.initialize();
-      object.setDnResolver(dnResolver);
+      object.setDnResolver(dnPropSource.getDnResolver());
     } else {
       final SimplePropertySource<DnResolver> sPropSource = new SimplePropertySource<>(
         dnResolver,
         propertiesDomain,
         properties);
       sPropSource.initialize();
+      if (dnResolver instanceof CachingDnResolver) {
+        dnResolver = ((CachingDnResolver) dnResolver).getDnResolver();
+      } else {
+        final CachingDnResolver cachingDnResolver = SearchDnResolverPropertySource.createCachingDnResolver(
+          dnResolver,
+          propertiesDomain,
+          properties);
+        if (cachingDnResolver != null) {
+          object.setDnResolver(cachingDnResolver);
+        }
+      }
+    }
+    if (object.getDnResolver() instanceof CachingDnResolver) {
+      addAuthenticationResponseHandler((CachingDnResolver) object.getDnResolver());
     }
     if (dnResolver instanceof PooledConnectionFactoryManager) {
       final PooledConnectionFactoryManager cfm = (PooledConnectionFactoryManager) dnResolver;
@@ -155,6 +172,25 @@ public final class AuthenticatorPropertySource extends AbstractPropertySource<Au
   }
 
 
+  /**
+   * Adds the supplied handler to the authentication response handlers of the authenticator, unless it is already
+   * present.
+   *
+   * @param  handler  to add
+   */
+  private void addAuthenticationResponseHandler(final AuthenticationResponseHandler handler)
+  {
+    final AuthenticationResponseHandler[] handlers = object.getAuthenticationResponseHandlers();
+    if (handlers == null || handlers.length == 0) {
+      object.setAuthenticationResponseHandlers(handler);
+    } else if (!Arrays.asList(handlers).contains(handler)) {
+      final AuthenticationResponseHandler[] newHandlers = Arrays.copyOf(handlers, handlers.length + 1);
+      newHandlers[handlers.length] = handler;
+      object.setAuthenticationResponseHandlers(newHandlers);
+    }
+  }
+
+
   /**
    * Initializes the supplied connection factory manager using the properties in this property source.
    *
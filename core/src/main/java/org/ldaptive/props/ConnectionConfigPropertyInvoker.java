@@ -2,6 +2,7 @@
 package org.ldaptive.props;
 
 import org.ldaptive.ActivePassiveConnectionStrategy;
+import org.ldaptive.AdaptiveConnectionStrategy;
 import org.ldaptive.ConnectionInitializer;
 import org.ldaptive.ConnectionStrategy;
 import org.ldaptive.DefaultConnectionStrategy;
@@ -44,6 +45,8 @@ public class ConnectionConfigPropertyInvoker extends AbstractPropertyInvoker
           newValue = new RoundRobinConnectionStrategy();
         } else if ("RANDOM".equals(value)) {
           newValue = new RandomConnectionStrategy();
+        } else if ("ADAPTIVE".equals(value)) {
+          newValue = new AdaptiveConnectionStrategy();
         } else {
           newValue = createTypeFromPropertyValue(ConnectionStrategy.class, value);
         }
@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.Properties;
 import java.util.Set;
 import org.ldaptive.pool.BlockingConnectionPool;
+import org.ldaptive.pool.ConcurrentConnectionPool;
 import org.ldaptive.pool.ConnectionPool;
 import org.ldaptive.pool.ConnectionPoolType;
 import org.ldaptive.pool.PooledConnectionFactory;
@@ -124,6 +125,14 @@ public final class PooledConnectionFactoryPropertySource extends AbstractPropert
         propertiesDomain,
         properties);
       cpPropSource.initialize();
+    } else if (poolType == ConnectionPoolType.CONCURRENT) {
+      cp = new ConcurrentConnectionPool();
+
+      final BlockingConnectionPoolPropertySource cpPropSource = new BlockingConnectionPoolPropertySource(
+        (ConcurrentConnectionPool) cp,
+        propertiesDomain,
+        properties);
+      cpPropSource.initialize();
     } else {
       throw new IllegalStateException("Unknown pool type: " + poolType);
     }
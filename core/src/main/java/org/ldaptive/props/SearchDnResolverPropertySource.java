@@ -4,19 +4,43 @@ package org.ldaptive.props;
 import java.io.Reader;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Stream;
+import org.ldaptive.ResultCode;
+import org.ldaptive.auth.CachingDnResolver;
+import org.ldaptive.auth.DnResolver;
 import org.ldaptive.auth.SearchDnResolver;
 
 /**
- * Reads properties specific to {@link SearchDnResolver} and returns an initialized object of that type.
+ * Reads properties specific to {@link SearchDnResolver} and returns an initialized object of that type. Properties of
+ * {@link CachingDnResolver} prefixed with {@link #CACHE_PREFIX}, e.g. dnCacheTimeToLive, wrap the search dn resolver
+ * in a caching dn resolver, see {@link #getDnResolver()}.
  *
  * @author  Middleware Services
  */
 public final class SearchDnResolverPropertySource extends AbstractPropertySource<SearchDnResolver>
 {
 
+  /** Prefix of caching dn resolver properties, value is {@value}. */
+  public static final String CACHE_PREFIX = "dnCache";
+
   /** Invoker for search dn resolver. */
   private static final SimplePropertyInvoker INVOKER = new SimplePropertyInvoker(SearchDnResolver.class);
 
+  /** Invoker for caching dn resolver. */
+  private static final SimplePropertyInvoker CACHE_INVOKER = new SimplePropertyInvoker(CachingDnResolver.class) {
+    @Override
+    protected Object convertValue(final Class<?> type, final String value)
+    {
+      if (ResultCode[].class == type) {
+        return Stream.of(value.split(",")).map(s -> ResultCode.valueOf(s.trim())).toArray(ResultCode[]::new);
+      }
+      return super.convertValue(type, value);
+    }
+  };
+
+  /** Caching dn resolver, null if no caching properties are set. */
+  private CachingDnResolver cachingDnResolver;
+
 
   /**
    * Creates a new search dn resolver property source using the default properties file.
@@ -85,6 +109,54 @@ public final class SearchDnResolverPropertySource extends AbstractPropertySource
   public void initialize()
   {
     initializeObject(INVOKER);
+
+    cachingDnResolver = createCachingDnResolver(object, propertiesDomain, properties);
+  }
+
+
+  /**
+   * Returns a caching dn resolver that wraps the supplied dn resolver if any properties prefixed with {@link
+   * #CACHE_PREFIX} are set.
+   *
+   * @param  resolver  to wrap
+   * @param  domain  that properties are in
+   * @param  props  to read properties from
+   *
+   * @return  caching dn resolver or null if no caching properties are set
+   */
+  public static CachingDnResolver createCachingDnResolver(
+    final DnResolver resolver,
+    final PropertyDomain domain,
+    final Properties props)
+  {
+    final String prefix = domain.value() + CACHE_PREFIX;
+    CachingDnResolver cachingResolver = null;
+    for (String name : props.stringPropertyNames()) {
+      if (name.startsWith(prefix) && name.length() > prefix.length()) {
+        final String propName = name.substring(prefix.length(), prefix.length() + 1).toLowerCase() +
+          name.substring(prefix.length() + 1);
+        if (CACHE_INVOKER.hasProperty(propName)) {
+          if (cachingResolver == null) {
+            cachingResolver = new CachingDnResolver(resolver);
+          }
+          CACHE_INVOKER.setProperty(cachingResolver, propName, props.getProperty(name));
+        }
+      }
+    }
+    return cachingResolver;
+  }
+
+
+  /**
+   * Returns the dn resolver configured by this property source. This is a {@link CachingDnResolver} that wraps the
+   * search dn resolver if any caching properties are set, otherwise the search dn resolver. Must be invoked after
+   * {@link #initialize()}.
+   *
+   * @return  dn resolver
+   */
+  public DnResolver getDnResolver()
+  {
+    return cachingDnResolver != null ? cachingDnResolver : object;
   }
 
 
@@ -97,4 +169,15 @@ public final class SearchDnResolverPropertySource extends AbstractPropertySource
   {
     return INVOKER.getProperties();
   }
+
+
+  /**
+   * Returns the caching dn resolver property names for this property source, without {@link #CACHE_PREFIX}.
+   *
+   * @return  caching property names
+   */
+  public static Set<String> getCacheProperties()
+  {
+    return CACHE_INVOKER.getProperties();
+  }
 }
@@ -1,9 +1,13 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.provider;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.ldaptive.ConnectionFactoryMetadata;
 import org.ldaptive.ConnectionStrategy;
 import org.ldaptive.LdapException;
+import org.ldaptive.LdapUrlMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,15 +83,22 @@ public abstract class AbstractProviderConnectionFactory<T extends ProviderConfig
 
     ProviderConnection conn = null;
     for (String url : urls) {
+      final LdapUrlMetrics urlMetrics = metadata.getLdapUrlMetrics(url);
+      urlMetrics.connectStarted();
+      final long startTime = System.nanoTime();
+      boolean success = false;
       try {
         logger.trace("[{}] Attempting connection to {} for strategy {}", metadata, url, connectionStrategy);
         conn = createInternal(url);
+        success = true;
         metadata.incrementCount();
         lastThrown = null;
         break;
       } catch (ConnectionException e) {
         lastThrown = e;
         logger.debug("Error connecting to LDAP URL: {}", url, e);
+      } finally {
+        urlMetrics.connectFinished(System.nanoTime() - startTime, success);
       }
     }
     if (lastThrown != null) {
@@ -131,7 +142,10 @@ public abstract class AbstractProviderConnectionFactory<T extends ProviderConfig
     private final String ldapUrl;
 
     /** connection count. */
-    private int count;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /** Connection attempt metrics by LDAP URL. */
+    private final Map<String, LdapUrlMetrics> urlMetrics = new ConcurrentHashMap<>();
 
 
     /**
@@ -155,18 +169,22 @@ public abstract class AbstractProviderConnectionFactory<T extends ProviderConfig
     @Override
     public int getConnectionCount()
     {
-      return count;
+      return count.get();
+    }
+
+
+    @Override
+    public LdapUrlMetrics getLdapUrlMetrics(final String url)
+    {
+      return urlMetrics.computeIfAbsent(url, LdapUrlMetrics::new);
     }
 
 
     /** Increments the connection count. */
     private void incrementCount()
     {
-      count++;
       // reset the count if it exceeds the size of an integer
-      if (count < 0) {
-        count = 0;
-      }
+      count.updateAndGet(i -> i == Integer.MAX_VALUE ? 0 : i + 1);
     }
 
 
@@ -1,6 +1,7 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.provider;
 
+import java.util.concurrent.CompletableFuture;
 import org.ldaptive.AddRequest;
 import org.ldaptive.BindRequest;
 import org.ldaptive.CompareRequest;
@@ -36,6 +37,23 @@ public interface ProviderConnection
     throws LdapException;
 
 
+  /**
+   * Bind to the ldap without waiting for the response. The default implementation performs the operation synchronously
+   * and returns a completed future.
+   *
+   * @param  request  containing the data necessary to perform the operation
+   *
+   * @return  future response associated with the bind operation
+   *
+   * @throws  LdapException  if an error occurs sending the request
+   */
+  default CompletableFuture<Response<Void>> bindAsync(final BindRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> bind(request));
+  }
+
+
   /**
    * Add an entry to an ldap.
    *
@@ -49,6 +67,23 @@ public interface ProviderConnection
     throws LdapException;
 
 
+  /**
+   * Add an entry to an ldap without waiting for the response. The default implementation performs the operation
+   * synchronously and returns a completed future.
+   *
+   * @param  request  containing the data necessary to perform the operation
+   *
+   * @return  future response associated with the add operation
+   *
+   * @throws  LdapException  if an error occurs sending the request
+   */
+  default CompletableFuture<Response<Void>> addAsync(final AddRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> add(request));
+  }
+
+
   /**
    * Compare an entry in the ldap.
    *
@@ -62,6 +97,23 @@ public interface ProviderConnection
     throws LdapException;
 
 
+  /**
+   * Compare an entry in the ldap without waiting for the response. The default implementation performs the operation
+   * synchronously and returns a completed future.
+   *
+   * @param  request  containing the data necessary to perform the operation
+   *
+   * @return  future response associated with the compare operation
+   *
+   * @throws  LdapException  if an error occurs sending the request
+   */
+  default CompletableFuture<Response<Boolean>> compareAsync(final CompareRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> compare(request));
+  }
+
+
   /**
    * Delete an entry in the ldap.
    *
@@ -75,6 +127,23 @@ public interface ProviderConnection
     throws LdapException;
 
 
+  /**
+   * Delete an entry in the ldap without waiting for the response. The default implementation performs the operation
+   * synchronously and returns a completed future.
+   *
+   * @param  request  containing the data necessary to perform the operation
+   *
+   * @return  future response associated with the delete operation
+   *
+   * @throws  LdapException  if an error occurs sending the request
+   */
+  default CompletableFuture<Response<Void>> deleteAsync(final DeleteRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> delete(request));
+  }
+
+
   /**
    * Modify an entry in the ldap.
    *
@@ -88,6 +157,23 @@ public interface ProviderConnection
     throws LdapException;
 
 
+  /**
+   * Modify an entry in the ldap without waiting for the response. The default implementation performs the operation
+   * synchronously and returns a completed future.
+   *
+   * @param  request  containing the data necessary to perform the operation
+   *
+   * @return  future response associated with the modify operation
+   *
+   * @throws  LdapException  if an error occurs sending the request
+   */
+  default CompletableFuture<Response<Void>> modifyAsync(final ModifyRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> modify(request));
+  }
+
+
   /**
    * Modify the DN of an entry in the ldap.
    *
@@ -101,6 +187,23 @@ public interface ProviderConnection
     throws LdapException;
 
 
+  /**
+   * Modify the DN of an entry in the ldap without waiting for the response. The default implementation performs the
+   * operation synchronously and returns a completed future.
+   *
+   * @param  request  containing the data necessary to perform the operation
+   *
+   * @return  future response associated with the modify dn operation
+   *
+   * @throws  LdapException  if an error occurs sending the request
+   */
+  default CompletableFuture<Response<Void>> modifyDnAsync(final ModifyDnRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> modifyDn(request));
+  }
+
+
   /**
    * Search the ldap.
    *
@@ -151,6 +254,23 @@ public interface ProviderConnection
     throws LdapException;
 
 
+  /**
+   * Perform an extended operation in the ldap without waiting for the response. The default implementation performs the
+   * operation synchronously and returns a completed future.
+   *
+   * @param  request  containing the data necessary to perform the operation
+   *
+   * @return  future response associated with the extended operation
+   *
+   * @throws  LdapException  if an error occurs sending the request
+   */
+  default CompletableFuture<Response<?>> extendedOperationAsync(final ExtendedRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> extendedOperation(request));
+  }
+
+
   /**
    * Adds a listener to receive unsolicited notifications.
    *
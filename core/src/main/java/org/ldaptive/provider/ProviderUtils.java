@@ -1,6 +1,8 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.provider;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import org.ldaptive.LdapException;
 import org.ldaptive.OperationException;
 import org.ldaptive.ResultCode;
@@ -19,6 +21,30 @@ public final class ProviderUtils
   private ProviderUtils() {}
 
 
+  /**
+   * Performs the supplied operation and returns a future that has already completed with its response. Used by
+   * providers that do not support asynchronous operations.
+   *
+   * @param  <T>  type of response
+   * @param  operation  to perform
+   *
+   * @return  completed future
+   *
+   * @throws  LdapException  if the operation fails
+   */
+  public static <T> CompletableFuture<T> complete(final Callable<T> operation)
+    throws LdapException
+  {
+    try {
+      return CompletableFuture.completedFuture(operation.call());
+    } catch (LdapException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new LdapException(e);
+    }
+  }
+
+
   /**
    * Determines whether to throw operation exception or ldap exception. If operation exception is thrown, the operation
    * will be retried. Otherwise the exception is propagated out.
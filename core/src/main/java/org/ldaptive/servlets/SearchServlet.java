@@ -16,7 +16,7 @@ import org.slf4j.LoggerFactory;
  * servlet:
  *
  * <ul>
- *   <li>poolType - BLOCKING or SOFTLIMIT</li>
+ *   <li>poolType - BLOCKING, SOFTLIMIT or CONCURRENT</li>
  *   <li>searchExecutorClass - fully qualified class name that implements ServletSearchExecutor</li>
  * </ul>
  *
@@ -4,6 +4,7 @@ package org.ldaptive.ssl;
 import java.security.cert.X509Certificate;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLSession;
+import org.ldaptive.LdapUtils;
 
 /**
  * Hostname verifier that returns true for any hostname. Use with caution.
@@ -13,6 +14,9 @@ import javax.net.ssl.SSLSession;
 public class AllowAnyHostnameVerifier implements HostnameVerifier, CertificateHostnameVerifier
 {
 
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 1033;
+
 
   @Override
   public boolean verify(final String hostname, final SSLSession session)
@@ -26,4 +30,18 @@ public class AllowAnyHostnameVerifier implements HostnameVerifier, CertificateHo
   {
     return true;
   }
+
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    return o == this || o != null && getClass() == o.getClass();
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    return LdapUtils.computeHashCode(HASH_CODE_SEED);
+  }
 }
@@ -4,6 +4,7 @@ package org.ldaptive.ssl;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import javax.net.ssl.X509TrustManager;
+import org.ldaptive.LdapUtils;
 
 /**
  * Trust manager that trusts any certificate. Use with caution.
@@ -13,6 +14,9 @@ import javax.net.ssl.X509TrustManager;
 public class AllowAnyTrustManager implements X509TrustManager
 {
 
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 1021;
+
 
   @Override
   public void checkClientTrusted(final X509Certificate[] chain, final String authType)
@@ -29,4 +33,18 @@ public class AllowAnyTrustManager implements X509TrustManager
   {
     return new X509Certificate[0];
   }
+
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    return o == this || o != null && getClass() == o.getClass();
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    return LdapUtils.computeHashCode(HASH_CODE_SEED);
+  }
 }
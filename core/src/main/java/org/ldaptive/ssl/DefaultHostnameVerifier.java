@@ -34,6 +34,9 @@ import org.slf4j.LoggerFactory;
 public class DefaultHostnameVerifier implements HostnameVerifier, CertificateHostnameVerifier
 {
 
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 1031;
+
   /** Enum for subject alt name types. */
   private enum SubjectAltNameType {
 
@@ -269,4 +272,18 @@ public class DefaultHostnameVerifier implements HostnameVerifier, CertificateHos
     }
     return match;
   }
+
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    return o == this || o != null && getClass() == o.getClass();
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    return LdapUtils.computeHashCode(HASH_CODE_SEED);
+  }
 }
@@ -11,6 +11,7 @@ import java.util.List;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
+import org.ldaptive.LdapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +23,9 @@ import org.slf4j.LoggerFactory;
 public class DefaultTrustManager implements X509TrustManager
 {
 
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 1019;
+
   /** Logger for this class. */
   protected final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -81,4 +85,18 @@ public class DefaultTrustManager implements X509TrustManager
     }
     return issuers.toArray(new X509Certificate[issuers.size()]);
   }
+
+
+  @Override
+  public boolean equals(final Object o)
+  {
+    return o == this || o != null && getClass() == o.getClass();
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    return LdapUtils.computeHashCode(HASH_CODE_SEED);
+  }
 }
@@ -0,0 +1,118 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.ssl;
+
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Counts TLS handshakes and how many of them resumed a cached session. A handshake is considered resumed if its session
+ * was created before the handshake started. TLS 1.3 resumption creates a new session, so it is counted as a full
+ * handshake. Counters are updated without locking.
+ *
+ * @author  Middleware Services
+ */
+public class HandshakeStatistics
+{
+
+  /** Number of completed handshakes. */
+  private final LongAdder handshakeCount = new LongAdder();
+
+  /** Number of completed handshakes that resumed a session. */
+  private final LongAdder resumedCount = new LongAdder();
+
+
+  /**
+   * Returns the number of completed handshakes.
+   *
+   * @return  handshake count
+   */
+  public long getHandshakeCount()
+  {
+    return handshakeCount.sum();
+  }
+
+
+  /**
+   * Returns the number of completed handshakes that resumed a session.
+   *
+   * @return  resumed handshake count
+   */
+  public long getResumedCount()
+  {
+    return resumedCount.sum();
+  }
+
+
+  /**
+   * Returns the number of completed handshakes that negotiated a new session.
+   *
+   * @return  full handshake count
+   */
+  public long getFullHandshakeCount()
+  {
+    return handshakeCount.sum() - resumedCount.sum();
+  }
+
+
+  /**
+   * Returns the fraction of handshakes that resumed a session.
+   *
+   * @return  resumption ratio between 0 and 1, or 0 if there have been no handshakes
+   */
+  public double getResumptionRatio()
+  {
+    final long resumed = resumedCount.sum();
+    final long total = handshakeCount.sum();
+    return total > 0 ? (double) resumed / total : 0;
+  }
+
+
+  /**
+   * Records a completed handshake.
+   *
+   * @param  session  negotiated by the handshake
+   * @param  startTime  time in milliseconds at which the handshake started
+   */
+  public void recordHandshake(final SSLSession session, final long startTime)
+  {
+    handshakeCount.increment();
+    if (session.getCreationTime() < startTime) {
+      resumedCount.increment();
+    }
+  }
+
+
+  /**
+   * Records the handshakes of the supplied socket. Must be invoked before the socket starts its handshake.
+   *
+   * @param  socket  to record handshakes for
+   */
+  void register(final SSLSocket socket)
+  {
+    final long startTime = System.currentTimeMillis();
+    socket.addHandshakeCompletedListener(e -> recordHandshake(e.getSession(), startTime));
+  }
+
+
+  /** Resets all counters to zero. */
+  public void reset()
+  {
+    handshakeCount.reset();
+    resumedCount.reset();
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::handshakeCount=%s, resumedCount=%s, resumptionRatio=%s]",
+        getClass().getName(),
+        hashCode(),
+        getHandshakeCount(),
+        getResumedCount(),
+        getResumptionRatio());
+  }
+}
@@ -5,6 +5,7 @@ import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import javax.net.ssl.X509TrustManager;
+import org.ldaptive.LdapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +18,9 @@ import org.slf4j.LoggerFactory;
 public class HostnameVerifyingTrustManager implements X509TrustManager
 {
 
+  /** hash code seed. */
+  private static final int HASH_CODE_SEED = 1039;
+
   /** Logger for this class. */
   protected final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -91,6 +95,27 @@ public class HostnameVerifyingTrustManager implements X509TrustManager
   }
 
 
+  @Override
+  public boolean equals(final Object o)
+  {
+    if (o == this) {
+      return true;
+    }
+    if (o != null && getClass() == o.getClass()) {
+      final HostnameVerifyingTrustManager v = (HostnameVerifyingTrustManager) o;
+      return LdapUtils.areEqual(hostnameVerifier, v.hostnameVerifier) && LdapUtils.areEqual(hostnames, v.hostnames);
+    }
+    return false;
+  }
+
+
+  @Override
+  public int hashCode()
+  {
+    return LdapUtils.computeHashCode(HASH_CODE_SEED, hostnameVerifier, hostnames);
+  }
+
+
   @Override
   public String toString()
   {
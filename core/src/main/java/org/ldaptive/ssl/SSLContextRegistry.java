@@ -0,0 +1,426 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.ssl;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import org.ldaptive.LdapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares SSL contexts between socket factories that use the same protocol, credential config and trust managers. TLS
+ * sessions are cached by the SSL context, so connections created from a shared context can resume sessions instead of
+ * performing a full handshake on every reconnect. Credential configs are compared by value, trust managers provided
+ * by this package are compared by value and any other trust manager by identity.
+ *
+ * <p>Registered contexts expire after {@link #getTimeToLive()}. The next request for an expired context creates a new
+ * one, which reloads the key and trust material of the credential config, so rotated certificates take effect.
+ * Expired contexts are also removed when the registry is full, so contexts for trust managers compared by identity do
+ * not occupy the registry permanently.</p>
+ *
+ * @author  Middleware Services
+ */
+public class SSLContextRegistry
+{
+
+  /** Default maximum number of registered contexts, value is {@value}. */
+  public static final int DEFAULT_MAX_SIZE = 64;
+
+  /** Default time a context stays registered. */
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+
+  /** Registry used by socket factories unless configured otherwise. */
+  private static final SSLContextRegistry DEFAULT = new SSLContextRegistry();
+
+  /** Logger for this class. */
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Registered contexts. */
+  private final Map<Key, Registration> contexts = new ConcurrentHashMap<>();
+
+  /** Handshake statistics for sockets created from registered contexts. */
+  private final HandshakeStatistics statistics = new HandshakeStatistics();
+
+  /** Maximum number of registered contexts. */
+  private int maxSize = DEFAULT_MAX_SIZE;
+
+  /** Time a context stays registered, zero if contexts do not expire. */
+  private Duration timeToLive = DEFAULT_TIME_TO_LIVE;
+
+  /** Client session cache size, -1 to use the provider default. */
+  private int sessionCacheSize = -1;
+
+  /** Client session timeout, null to use the provider default. */
+  private Duration sessionTimeout;
+
+
+  /**
+   * Returns the registry used by socket factories unless configured otherwise.
+   *
+   * @return  default registry
+   */
+  public static SSLContextRegistry getDefault()
+  {
+    return DEFAULT;
+  }
+
+
+  /**
+   * Returns the maximum number of registered contexts. Contexts requested after this limit has been reached are
+   * created for each request and not shared.
+   *
+   * @return  maximum number of registered contexts
+   */
+  public int getMaxSize()
+  {
+    return maxSize;
+  }
+
+
+  /**
+   * Sets the maximum number of registered contexts.
+   *
+   * @param  size  maximum number of registered contexts
+   */
+  public void setMaxSize(final int size)
+  {
+    if (size < 0) {
+      throw new IllegalArgumentException("Max size cannot be negative");
+    }
+    maxSize = size;
+  }
+
+
+  /**
+   * Returns the time a context stays registered. A context requested after it expires is created again, which reloads
+   * its key and trust material.
+   *
+   * @return  time to live or zero if contexts do not expire
+   */
+  public Duration getTimeToLive()
+  {
+    return timeToLive;
+  }
+
+
+  /**
+   * Sets the time a context stays registered. Applies to registered contexts and contexts created later.
+   *
+   * @param  time  time to live, zero if contexts should not expire
+   */
+  public void setTimeToLive(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Time to live cannot be null or negative");
+    }
+    timeToLive = time;
+  }
+
+
+  /**
+   * Returns the number of sessions cached by the client session context of each SSL context.
+   *
+   * @return  session cache size or -1 if the provider default is used
+   */
+  public int getSessionCacheSize()
+  {
+    return sessionCacheSize;
+  }
+
+
+  /**
+   * Sets the number of sessions cached by the client session context of each SSL context. A value of 0 means no limit.
+   * Applies to registered contexts and contexts created later.
+   *
+   * @param  size  session cache size
+   */
+  public void setSessionCacheSize(final int size)
+  {
+    if (size < 0) {
+      throw new IllegalArgumentException("Session cache size cannot be negative");
+    }
+    sessionCacheSize = size;
+    contexts.values().forEach(r -> configureSessionContext(r.context));
+  }
+
+
+  /**
+   * Returns the time a cached session can be resumed.
+   *
+   * @return  session timeout or null if the provider default is used
+   */
+  public Duration getSessionTimeout()
+  {
+    return sessionTimeout;
+  }
+
+
+  /**
+   * Sets the time a cached session can be resumed. Applies to registered contexts and contexts created later.
+   *
+   * @param  time  session timeout
+   */
+  public void setSessionTimeout(final Duration time)
+  {
+    if (time == null || time.isNegative()) {
+      throw new IllegalArgumentException("Session timeout cannot be null or negative");
+    }
+    sessionTimeout = time;
+    contexts.values().forEach(r -> configureSessionContext(r.context));
+  }
+
+
+  /**
+   * Returns the handshake statistics for sockets created by socket factories that use this registry.
+   *
+   * @return  handshake statistics
+   */
+  public HandshakeStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+
+  /**
+   * Returns the number of registered contexts, including expired contexts that have not been removed.
+   *
+   * @return  number of registered contexts
+   */
+  public int size()
+  {
+    return contexts.size();
+  }
+
+
+  /** Removes all registered contexts. Sessions cached by those contexts can no longer be resumed. */
+  public void clear()
+  {
+    contexts.clear();
+  }
+
+
+  /** Removes the registered contexts that have expired. */
+  public void removeExpired()
+  {
+    final long now = System.nanoTime();
+    contexts.values().removeIf(r -> r.isExpired(now));
+  }
+
+
+  /**
+   * Returns the SSL context for the supplied protocol and SSL config, creating and registering it if necessary. An
+   * expired context is replaced by a new one.
+   *
+   * @param  protocol  SSL protocol
+   * @param  config  SSL config, may be null
+   *
+   * @return  SSL context
+   *
+   * @throws  GeneralSecurityException  if the SSL context cannot be created
+   */
+  public SSLContext getSSLContext(final String protocol, final SslConfig config)
+    throws GeneralSecurityException
+  {
+    final Key key = new Key(protocol, config);
+    final Registration current = contexts.get(key);
+    SSLContext ctx;
+    if (current != null && !current.isExpired(System.nanoTime())) {
+      ctx = current.context;
+    } else {
+      ctx = createSSLContext(protocol, config);
+      configureSessionContext(ctx);
+      if (current != null) {
+        logger.debug("SSL context for {} expired, replacing it", config);
+        contexts.remove(key, current);
+      }
+      if (contexts.size() >= maxSize) {
+        removeExpired();
+      }
+      if (contexts.size() < maxSize) {
+        final Registration registered = contexts.putIfAbsent(key, new Registration(ctx));
+        if (registered != null) {
+          ctx = registered.context;
+        }
+      } else {
+        logger.debug("Registry is full, SSL context for {} will not be shared", config);
+      }
+    }
+    return ctx;
+  }
+
+
+  /**
+   * Creates a new SSL context for the supplied protocol and SSL config.
+   *
+   * @param  protocol  SSL protocol
+   * @param  config  SSL config, may be null
+   *
+   * @return  SSL context
+   *
+   * @throws  GeneralSecurityException  if the SSL context cannot be created
+   */
+  protected SSLContext createSSLContext(final String protocol, final SslConfig config)
+    throws GeneralSecurityException
+  {
+    SSLContextInitializer contextInitializer;
+    if (config != null) {
+      final CredentialConfig credConfig = config.getCredentialConfig();
+      final TrustManager[] managers = config.getTrustManagers();
+      if (credConfig != null) {
+        contextInitializer = credConfig.createSSLContextInitializer();
+      } else {
+        if (managers != null) {
+          contextInitializer = new DefaultSSLContextInitializer(false);
+        } else {
+          contextInitializer = new DefaultSSLContextInitializer(true);
+        }
+      }
+
+      if (managers != null) {
+        contextInitializer.setTrustManagers(managers);
+      }
+    } else {
+      contextInitializer = new DefaultSSLContextInitializer();
+    }
+
+    logger.trace("Using SSLContextInitializer={}", contextInitializer);
+    return contextInitializer.initSSLContext(protocol);
+  }
+
+
+  /**
+   * Applies the session cache size and timeout to the client session context of the supplied SSL context.
+   *
+   * @param  ctx  SSL context
+   */
+  private void configureSessionContext(final SSLContext ctx)
+  {
+    final SSLSessionContext sessionContext = ctx.getClientSessionContext();
+    if (sessionContext != null) {
+      if (sessionCacheSize >= 0) {
+        sessionContext.setSessionCacheSize(sessionCacheSize);
+      }
+      if (sessionTimeout != null) {
+        sessionContext.setSessionTimeout((int) Math.min(Integer.MAX_VALUE, sessionTimeout.getSeconds()));
+      }
+    }
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::size=%s, maxSize=%s, timeToLive=%s, sessionCacheSize=%s, sessionTimeout=%s, statistics=%s]",
+        getClass().getName(),
+        hashCode(),
+        contexts.size(),
+        maxSize,
+        timeToLive,
+        sessionCacheSize,
+        sessionTimeout,
+        statistics);
+  }
+
+
+  /** A registered SSL context and the time it was registered. */
+  private final class Registration
+  {
+
+    /** Registered SSL context. */
+    private final SSLContext context;
+
+    /** Value of {@link System#nanoTime()} when the context was registered. */
+    private final long registeredTime = System.nanoTime();
+
+
+    /**
+     * Creates a new registration.
+     *
+     * @param  ctx  SSL context
+     */
+    Registration(final SSLContext ctx)
+    {
+      context = ctx;
+    }
+
+
+    /**
+     * Returns whether this registration is older than the time to live of the registry.
+     *
+     * @param  now  value of {@link System#nanoTime()}
+     *
+     * @return  whether this registration has expired
+     */
+    boolean isExpired(final long now)
+    {
+      final Duration ttl = timeToLive;
+      return !ttl.isZero() && now - registeredTime >= ttl.toNanos();
+    }
+  }
+
+
+  /** Identifies the SSL context produced by a protocol, credential config and trust managers. */
+  private static final class Key
+  {
+
+    /** hash code seed. */
+    private static final int HASH_CODE_SEED = 1049;
+
+    /** SSL protocol. */
+    private final String protocol;
+
+    /** Credential config. */
+    private final CredentialConfig credentialConfig;
+
+    /** Trust managers. */
+    private final List<TrustManager> trustManagers;
+
+
+    /**
+     * Creates a new key.
+     *
+     * @param  p  SSL protocol
+     * @param  config  SSL config, may be null
+     */
+    Key(final String p, final SslConfig config)
+    {
+      protocol = p;
+      credentialConfig = config != null ? config.getCredentialConfig() : null;
+      trustManagers = config != null && config.getTrustManagers() != null ?
+        Collections.unmodifiableList(Arrays.asList(config.getTrustManagers().clone())) : null;
+    }
+
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof Key) {
+        final Key v = (Key) o;
+        return LdapUtils.areEqual(protocol, v.protocol) &&
+               LdapUtils.areEqual(credentialConfig, v.credentialConfig) &&
+               LdapUtils.areEqual(trustManagers, v.trustManagers);
+      }
+      return false;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+      return LdapUtils.computeHashCode(HASH_CODE_SEED, protocol, credentialConfig, trustManagers);
+    }
+  }
+}
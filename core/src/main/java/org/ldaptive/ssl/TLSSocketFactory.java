@@ -1,11 +1,12 @@
 /* See LICENSE for licensing and NOTICE for copyright. */
 package org.ldaptive.ssl;
 
+import java.io.IOException;
 import java.security.GeneralSecurityException;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
 
 /**
  * An extension of SSLSocketFactory that leverages an SSL context initializer. Note that {@link #initialize()} must be
@@ -18,9 +19,36 @@ public class TLSSocketFactory extends AbstractTLSSocketFactory
 {
 
 
+  /** Registry that provides the SSL context. */
+  private SSLContextRegistry sslContextRegistry = SSLContextRegistry.getDefault();
+
+
+  /**
+   * Returns the registry that provides the SSL context of this factory.
+   *
+   * @return  SSL context registry
+   */
+  public SSLContextRegistry getSSLContextRegistry()
+  {
+    return sslContextRegistry;
+  }
+
+
+  /**
+   * Sets the registry that provides the SSL context of this factory. Defaults to {@link
+   * SSLContextRegistry#getDefault()}. A registry with a max size of zero creates a new SSL context for every factory.
+   *
+   * @param  registry  SSL context registry
+   */
+  public void setSSLContextRegistry(final SSLContextRegistry registry)
+  {
+    sslContextRegistry = registry;
+  }
+
+
   /**
-   * Creates the underlying SSLContext using truststore and keystore attributes and makes this factory ready for use.
-   * Must be called before factory can be used.
+   * Retrieves the SSLContext for the truststore and keystore attributes from the SSL context registry and makes this
+   * factory ready for use. Must be called before factory can be used.
    *
    * @throws  GeneralSecurityException  if the SSLContext cannot be created
    */
@@ -28,31 +56,18 @@ public class TLSSocketFactory extends AbstractTLSSocketFactory
   public void initialize()
     throws GeneralSecurityException
   {
-    SSLContextInitializer contextInitializer;
-    final SslConfig sslConfig = getSslConfig();
-    if (sslConfig != null) {
-      final CredentialConfig credConfig = sslConfig.getCredentialConfig();
-      final TrustManager[] managers = sslConfig.getTrustManagers();
-      if (credConfig != null) {
-        contextInitializer = credConfig.createSSLContextInitializer();
-      } else {
-        if (managers != null) {
-          contextInitializer = new DefaultSSLContextInitializer(false);
-        } else {
-          contextInitializer = new DefaultSSLContextInitializer(true);
-        }
-      }
+    final SSLContext ctx = sslContextRegistry.getSSLContext(DEFAULT_PROTOCOL, getSslConfig());
+    factory = ctx.getSocketFactory();
+  }
 
-      if (managers != null) {
-        contextInitializer.setTrustManagers(managers);
-      }
-    } else {
-      contextInitializer = new DefaultSSLContextInitializer();
-    }
 
-    logger.trace("Using SSLContextInitializer={}", contextInitializer);
-    final SSLContext ctx = contextInitializer.initSSLContext(DEFAULT_PROTOCOL);
-    factory = ctx.getSocketFactory();
+  @Override
+  protected SSLSocket initSSLSocket(final SSLSocket socket)
+    throws IOException
+  {
+    final SSLSocket s = super.initSSLSocket(socket);
+    sslContextRegistry.getStatistics().register(s);
+    return s;
   }
 
 
@@ -0,0 +1,180 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link AdaptiveConnectionStrategy}.
+ *
+ * @author  Middleware Services
+ */
+public class AdaptiveConnectionStrategyTest
+{
+
+  /** URLs used by the tests. */
+  private static final String URLS =
+    "ldap://directory-1.ldaptive.org ldap://directory-2.ldaptive.org ldap://directory-3.ldaptive.org";
+
+
+  /** URLs without metrics keep their configured order. */
+  @Test(groups = {"provider"})
+  public void noMetrics()
+  {
+    final AdaptiveConnectionStrategy strategy = new AdaptiveConnectionStrategy();
+    Assert.assertNull(strategy.getLdapUrls(new TestConnectionFactoryMetadata()));
+    Assert.assertEquals(
+      strategy.getLdapUrls(new TestConnectionFactoryMetadata(URLS)),
+      URLS.split(" "));
+    Assert.assertEquals(
+      strategy.getLdapUrls(new MetricsMetadata(URLS)),
+      URLS.split(" "));
+  }
+
+
+  /** URLs are ordered by connection latency. */
+  @Test(groups = {"provider"})
+  public void leastLatency()
+  {
+    final AdaptiveConnectionStrategy strategy = new AdaptiveConnectionStrategy();
+    final MetricsMetadata metadata = new MetricsMetadata(URLS);
+    connect(metadata, "ldap://directory-1.ldaptive.org", 300, true);
+    connect(metadata, "ldap://directory-2.ldaptive.org", 200, true);
+    connect(metadata, "ldap://directory-3.ldaptive.org", 100, true);
+    Assert.assertEquals(
+      strategy.getLdapUrls(metadata),
+      new String[] {
+        "ldap://directory-3.ldaptive.org",
+        "ldap://directory-2.ldaptive.org",
+        "ldap://directory-1.ldaptive.org",
+      });
+  }
+
+
+  /** URLs are ordered by in-flight connection attempts, then by latency. */
+  @Test(groups = {"provider"})
+  public void leastOutstanding()
+  {
+    final AdaptiveConnectionStrategy strategy = new AdaptiveConnectionStrategy(
+      AdaptiveConnectionStrategy.Ranking.LEAST_OUTSTANDING);
+    final MetricsMetadata metadata = new MetricsMetadata(URLS);
+    connect(metadata, "ldap://directory-1.ldaptive.org", 100, true);
+    connect(metadata, "ldap://directory-2.ldaptive.org", 300, true);
+    connect(metadata, "ldap://directory-3.ldaptive.org", 200, true);
+    metadata.getLdapUrlMetrics("ldap://directory-1.ldaptive.org").connectStarted();
+    Assert.assertEquals(
+      strategy.getLdapUrls(metadata),
+      new String[] {
+        "ldap://directory-3.ldaptive.org",
+        "ldap://directory-2.ldaptive.org",
+        "ldap://directory-1.ldaptive.org",
+      });
+  }
+
+
+  /**
+   * Failing URLs are ejected and reinstated after a successful probe.
+   *
+   * @throws  Exception  on test failure
+   */
+  @Test(groups = {"provider"})
+  public void ejection()
+    throws Exception
+  {
+    final AdaptiveConnectionStrategy strategy = new AdaptiveConnectionStrategy() {
+      @Override
+      protected boolean probe(final String url)
+      {
+        return true;
+      }
+    };
+    strategy.setBaseEjectionTime(Duration.ofMillis(50));
+    final MetricsMetadata metadata = new MetricsMetadata(URLS);
+    final LdapUrlMetrics metrics = metadata.getLdapUrlMetrics("ldap://directory-1.ldaptive.org");
+    for (int i = 0; i < strategy.getFailureThreshold(); i++) {
+      connect(metadata, "ldap://directory-1.ldaptive.org", 100, false);
+    }
+    Assert.assertEquals(
+      strategy.getLdapUrls(metadata),
+      new String[] {
+        "ldap://directory-2.ldaptive.org",
+        "ldap://directory-3.ldaptive.org",
+        "ldap://directory-1.ldaptive.org",
+      });
+    Assert.assertTrue(metrics.isEjected());
+    Assert.assertEquals(metrics.getEjectionCount(), 1);
+
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (metrics.isEjected() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertFalse(metrics.isEjected());
+    Assert.assertEquals(metrics.getConsecutiveFailures(), 0);
+    Assert.assertEquals(strategy.getLdapUrls(metadata)[2], "ldap://directory-1.ldaptive.org");
+  }
+
+
+  /** Ejection time doubles for each attempt up to the maximum. */
+  @Test(groups = {"provider"})
+  public void ejectionTime()
+  {
+    final AdaptiveConnectionStrategy strategy = new AdaptiveConnectionStrategy();
+    strategy.setBaseEjectionTime(Duration.ofSeconds(1));
+    strategy.setMaxEjectionTime(Duration.ofSeconds(10));
+    Assert.assertEquals(strategy.getEjectionTime(1), Duration.ofSeconds(1));
+    Assert.assertEquals(strategy.getEjectionTime(2), Duration.ofSeconds(2));
+    Assert.assertEquals(strategy.getEjectionTime(4), Duration.ofSeconds(8));
+    Assert.assertEquals(strategy.getEjectionTime(5), Duration.ofSeconds(10));
+    Assert.assertEquals(strategy.getEjectionTime(100), Duration.ofSeconds(10));
+  }
+
+
+  /**
+   * Records a connection attempt.
+   *
+   * @param  metadata  to record the attempt in
+   * @param  url  of the attempt
+   * @param  nanos  duration of the attempt
+   * @param  success  whether the attempt succeeded
+   */
+  private static void connect(
+    final MetricsMetadata metadata,
+    final String url,
+    final long nanos,
+    final boolean success)
+  {
+    final LdapUrlMetrics m = metadata.getLdapUrlMetrics(url);
+    m.connectStarted();
+    m.connectFinished(nanos, success);
+  }
+
+
+  /** Metadata that tracks URL metrics. */
+  private static class MetricsMetadata extends TestConnectionFactoryMetadata
+  {
+
+    /** URL metrics. */
+    private final Map<String, LdapUrlMetrics> metrics = new ConcurrentHashMap<>();
+
+
+    /**
+     * Creates a new metrics metadata.
+     *
+     * @param  url  ldap url
+     */
+    MetricsMetadata(final String url)
+    {
+      super(url);
+    }
+
+
+    @Override
+    public LdapUrlMetrics getLdapUrlMetrics(final String url)
+    {
+      return metrics.computeIfAbsent(url, LdapUrlMetrics::new);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import org.ldaptive.provider.ProviderConnectionFactory;
+import org.ldaptive.provider.jndi.JndiProvider;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link DefaultConnectionFactory}.
+ *
+ * @author  Middleware Services
+ */
+public class DefaultConnectionFactoryTest
+{
+
+
+  /** Provider connection factory is created once and shared by connections. */
+  @Test(groups = {"provider"})
+  public void providerConnectionFactoryReuse()
+  {
+    final DefaultConnectionFactory factory = new DefaultConnectionFactory("ldap://directory.ldaptive.org");
+    final ProviderConnectionFactory<?> cf = factory.getProviderConnectionFactory();
+    Assert.assertNotNull(cf);
+    factory.getConnection();
+    factory.getConnection();
+    Assert.assertSame(factory.getProviderConnectionFactory(), cf);
+  }
+
+
+  /** Provider connection factory is recreated when the factory configuration changes. */
+  @Test(groups = {"provider"})
+  public void providerConnectionFactoryInvalidation()
+  {
+    final DefaultConnectionFactory factory = new DefaultConnectionFactory("ldap://directory.ldaptive.org");
+    ProviderConnectionFactory<?> cf = factory.getProviderConnectionFactory();
+
+    factory.invalidateProviderConnectionFactory();
+    Assert.assertNotSame(factory.getProviderConnectionFactory(), cf);
+
+    cf = factory.getProviderConnectionFactory();
+    factory.setConnectionConfig(new ConnectionConfig("ldap://directory-2.ldaptive.org"));
+    Assert.assertNotSame(factory.getProviderConnectionFactory(), cf);
+
+    cf = factory.getProviderConnectionFactory();
+    factory.setProvider(new JndiProvider());
+    Assert.assertNotSame(factory.getProviderConnectionFactory(), cf);
+  }
+}
@@ -0,0 +1,736 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import org.ldaptive.asn1.ApplicationDERTag;
+import org.ldaptive.asn1.ConstructedDEREncoder;
+import org.ldaptive.asn1.DEREncoder;
+import org.ldaptive.asn1.IntegerType;
+import org.ldaptive.asn1.OctetStringType;
+import org.ldaptive.asn1.UniversalDERTag;
+
+/**
+ * In-process LDAP server that stands in for a directory in tests and benchmarks. It listens on a loopback port and
+ * serves a fixed set of entries: the base DN, a people container, a service account and {@link #getUserCount()} users.
+ * Only the operations needed to authenticate are implemented: simple binds, searches with equality, presence, and, or
+ * and not filters, abandon and unbind. Any other operation fails with {@link ResultCode#UNWILLING_TO_PERFORM}. Each
+ * connection is served by its own thread and requests on a connection are processed in order. Connections use LDAPS if
+ * an SSL context is set before the server is started, see {@link #createSSLContext()}.
+ *
+ * @author  Middleware Services
+ */
+public class EmbeddedLdapServer implements Closeable
+{
+
+  /** Base DN of the seeded entries. */
+  public static final String BASE_DN = "dc=ldaptive,dc=org";
+
+  /** DN of the container holding the users. */
+  public static final String PEOPLE_DN = "ou=people," + BASE_DN;
+
+  /** DN of the service account. */
+  public static final String MANAGER_DN = "cn=manager," + BASE_DN;
+
+  /** Password of the service account. */
+  public static final String MANAGER_PASSWORD = "manager-secret";
+
+  /** Classpath location of the keystore holding the self-signed certificate of this server. */
+  private static final String KEYSTORE = "/org/ldaptive/embedded-ldap.keystore";
+
+  /** Password of the keystore and its key. */
+  private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+  /** Attribute holding passwords, which is never returned by searches. */
+  private static final String PASSWORD_ATTR = "userPassword";
+
+  /** Tag of a bind request. */
+  private static final int BIND_REQUEST = 0x60;
+
+  /** Tag of an unbind request. */
+  private static final int UNBIND_REQUEST = 0x42;
+
+  /** Tag of a search request. */
+  private static final int SEARCH_REQUEST = 0x63;
+
+  /** Tag of an abandon request. */
+  private static final int ABANDON_REQUEST = 0x50;
+
+  /** Tag of an and filter. */
+  private static final int AND_FILTER = 0xA0;
+
+  /** Tag of an or filter. */
+  private static final int OR_FILTER = 0xA1;
+
+  /** Tag of a not filter. */
+  private static final int NOT_FILTER = 0xA2;
+
+  /** Tag of an equality filter. */
+  private static final int EQUALITY_FILTER = 0xA3;
+
+  /** Tag of a presence filter. */
+  private static final int PRESENT_FILTER = 0x87;
+
+  /** Mask of the tag number in a tag. */
+  private static final int TAG_NUMBER_MASK = 0x1F;
+
+  /** Application tag number of a search result entry. */
+  private static final int SEARCH_ENTRY = 4;
+
+  /** Application tag number of a search result done. */
+  private static final int SEARCH_DONE = 5;
+
+  /** Encoding of an empty attribute list. */
+  private static final DEREncoder EMPTY_SEQUENCE = () -> new byte[] {(byte) UniversalDERTag.SEQ.getTagByte(), 0};
+
+  /** Entries keyed by normalized DN. */
+  private final Map<String, LdapEntry> entries = new ConcurrentHashMap<>();
+
+  /** Open client sockets. */
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+  /** Number of seeded users. */
+  private final int userCount;
+
+  /** Number of bind requests received. */
+  private final LongAdder bindCount = new LongAdder();
+
+  /** Number of search requests received. */
+  private final LongAdder searchCount = new LongAdder();
+
+  /** SSL context for LDAPS, null for clear connections. */
+  private SSLContext sslContext;
+
+  /** Socket accepting connections. */
+  private ServerSocket server;
+
+
+  /**
+   * Creates a new embedded LDAP server.
+   *
+   * @param  users  number of users to seed
+   */
+  public EmbeddedLdapServer(final int users)
+  {
+    userCount = users;
+    addEntry(new LdapEntry(BASE_DN, new LdapAttribute("objectClass", "top", "domain")));
+    addEntry(new LdapEntry(PEOPLE_DN, new LdapAttribute("objectClass", "top", "organizationalUnit")));
+    addEntry(
+      new LdapEntry(
+        MANAGER_DN,
+        new LdapAttribute("objectClass", "top", "person"),
+        new LdapAttribute("cn", "manager"),
+        new LdapAttribute(PASSWORD_ATTR, MANAGER_PASSWORD)));
+    for (int i = 0; i < users; i++) {
+      addEntry(
+        new LdapEntry(
+          getUserDn(i),
+          new LdapAttribute("objectClass", "top", "person", "inetOrgPerson"),
+          new LdapAttribute("uid", getUserId(i)),
+          new LdapAttribute("cn", "User " + i),
+          new LdapAttribute("sn", String.valueOf(i)),
+          new LdapAttribute("mail", getUserId(i) + "@ldaptive.org"),
+          new LdapAttribute(PASSWORD_ATTR, getUserPassword(i))));
+    }
+  }
+
+
+  /**
+   * Returns the identifier of the supplied user.
+   *
+   * @param  i  user number
+   *
+   * @return  user identifier
+   */
+  public static String getUserId(final int i)
+  {
+    return "user" + i;
+  }
+
+
+  /**
+   * Returns the DN of the supplied user.
+   *
+   * @param  i  user number
+   *
+   * @return  user DN
+   */
+  public static String getUserDn(final int i)
+  {
+    return "uid=" + getUserId(i) + "," + PEOPLE_DN;
+  }
+
+
+  /**
+   * Returns the password of the supplied user.
+   *
+   * @param  i  user number
+   *
+   * @return  user password
+   */
+  public static String getUserPassword(final int i)
+  {
+    return "password" + i;
+  }
+
+
+  /**
+   * Returns the number of seeded users.
+   *
+   * @return  number of users
+   */
+  public int getUserCount()
+  {
+    return userCount;
+  }
+
+
+  /**
+   * Returns an SSL context whose key manager presents the self-signed certificate of this server, for localhost and
+   * 127.0.0.1, and whose trust manager trusts only that certificate. The same context can be used by the server and
+   * its clients.
+   *
+   * @return  SSL context
+   *
+   * @throws  GeneralSecurityException  if the SSL context cannot be initialized
+   * @throws  IOException  if the keystore cannot be read
+   */
+  public static SSLContext createSSLContext()
+    throws GeneralSecurityException, IOException
+  {
+    final KeyStore ks = KeyStore.getInstance("JKS");
+    try (InputStream in = EmbeddedLdapServer.class.getResourceAsStream(KEYSTORE)) {
+      ks.load(in, KEYSTORE_PASSWORD);
+    }
+    final KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    kmf.init(ks, KEYSTORE_PASSWORD);
+    final TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    tmf.init(ks);
+    final SSLContext context = SSLContext.getInstance("TLS");
+    context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+    return context;
+  }
+
+
+  /**
+   * Sets the SSL context used to serve LDAPS. Must be invoked before {@link #start()}.
+   *
+   * @param  context  SSL context or null for clear connections
+   */
+  public void setSSLContext(final SSLContext context)
+  {
+    sslContext = context;
+  }
+
+
+  /**
+   * Returns the number of bind requests received.
+   *
+   * @return  bind count
+   */
+  public long getBindCount()
+  {
+    return bindCount.sum();
+  }
+
+
+  /**
+   * Returns the number of search requests received.
+   *
+   * @return  search count
+   */
+  public long getSearchCount()
+  {
+    return searchCount.sum();
+  }
+
+
+  /**
+   * Starts listening on an ephemeral loopback port.
+   *
+   * @throws  IOException  if the server socket cannot be created
+   */
+  public void start()
+    throws IOException
+  {
+    server = sslContext != null ?
+      sslContext.getServerSocketFactory().createServerSocket(0, 0, InetAddress.getLoopbackAddress()) :
+      new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+    startThread(this::accept, "acceptor");
+  }
+
+
+  /**
+   * Returns the LDAP URL of this server.
+   *
+   * @return  ldap url
+   */
+  public String getLdapUrl()
+  {
+    return (sslContext != null ? "ldaps://" : "ldap://") +
+      server.getInetAddress().getHostAddress() + ":" + server.getLocalPort();
+  }
+
+
+  /** Stops listening and closes all client connections. */
+  @Override
+  public void close()
+  {
+    close(server);
+    for (Socket s : clients) {
+      close(s);
+    }
+  }
+
+
+  /**
+   * Adds the supplied entry.
+   *
+   * @param  entry  to add
+   */
+  private void addEntry(final LdapEntry entry)
+  {
+    entries.put(normalize(entry.getDn()), entry);
+  }
+
+
+  /** Accepts connections until the server socket is closed. */
+  private void accept()
+  {
+    try {
+      while (!server.isClosed()) {
+        final Socket s = server.accept();
+        s.setTcpNoDelay(true);
+        clients.add(s);
+        startThread(() -> serve(s), "connection-" + s.getPort());
+      }
+    } catch (IOException e) {
+      if (!server.isClosed()) {
+        throw new IllegalStateException("Error accepting connections", e);
+      }
+    }
+  }
+
+
+  /**
+   * Processes requests on the supplied connection until it is closed or an unbind is received.
+   *
+   * @param  s  client socket
+   */
+  private void serve(final Socket s)
+  {
+    try {
+      final DataInputStream in = new DataInputStream(s.getInputStream());
+      final OutputStream out = new BufferedOutputStream(s.getOutputStream());
+      boolean open = true;
+      while (open) {
+        open = process(readMessage(in), out);
+        out.flush();
+      }
+    } catch (EOFException | SocketException e) {
+      // connection closed by the client
+    } catch (IOException e) {
+      throw new IllegalStateException("Error reading from " + s, e);
+    } finally {
+      clients.remove(s);
+      close(s);
+    }
+  }
+
+
+  /**
+   * Processes a single LDAP message.
+   *
+   * @param  message  LDAP message without its sequence header
+   * @param  out  to write responses to
+   *
+   * @return  whether the connection should remain open
+   *
+   * @throws  IOException  if a response cannot be written
+   */
+  private boolean process(final ByteBuffer message, final OutputStream out)
+    throws IOException
+  {
+    final int messageId = new BigInteger(readBytes(readValue(message))).intValue();
+    final int tag = peekTag(message);
+    final ByteBuffer op = readValue(message);
+    if (tag == BIND_REQUEST) {
+      bindCount.increment();
+      bind(messageId, op, out);
+    } else if (tag == SEARCH_REQUEST) {
+      searchCount.increment();
+      search(messageId, op, out);
+    } else if (tag != UNBIND_REQUEST && tag != ABANDON_REQUEST) {
+      // every other request has a constructed response with the next tag number
+      final int responseTagNo = (tag & TAG_NUMBER_MASK) + 1;
+      writeResult(out, messageId, responseTagNo, ResultCode.UNWILLING_TO_PERFORM, "Operation not supported");
+    }
+    return tag != UNBIND_REQUEST;
+  }
+
+
+  /**
+   * Processes a simple bind request. Empty names are anonymous binds.
+   *
+   * @param  messageId  of the request
+   * @param  op  bind request value
+   * @param  out  to write the response to
+   *
+   * @throws  IOException  if the response cannot be written
+   */
+  private void bind(final int messageId, final ByteBuffer op, final OutputStream out)
+    throws IOException
+  {
+    readValue(op);
+    final String dn = readString(op);
+    final String password = readString(op);
+
+    ResultCode code = ResultCode.SUCCESS;
+    if (!dn.isEmpty()) {
+      final LdapEntry entry = entries.get(normalize(dn));
+      final LdapAttribute attr = entry != null ? entry.getAttribute(PASSWORD_ATTR) : null;
+      if (attr == null || !attr.getStringValues().contains(password)) {
+        code = ResultCode.INVALID_CREDENTIALS;
+      }
+    }
+    writeResult(out, messageId, 1, code, "");
+  }
+
+
+  /**
+   * Processes a search request.
+   *
+   * @param  messageId  of the request
+   * @param  op  search request value
+   * @param  out  to write the responses to
+   *
+   * @throws  IOException  if a response cannot be written
+   */
+  private void search(final int messageId, final ByteBuffer op, final OutputStream out)
+    throws IOException
+  {
+    final String baseDn = normalize(readString(op));
+    final int scope = readValue(op).get();
+    // skip deref aliases, size limit, time limit and types only
+    readValue(op);
+    readValue(op);
+    readValue(op);
+    readValue(op);
+    final int filterTag = peekTag(op);
+    final ByteBuffer filter = readValue(op);
+    final List<String> attrs = new ArrayList<>();
+    final ByteBuffer attrList = readValue(op);
+    while (attrList.hasRemaining()) {
+      attrs.add(readString(attrList));
+    }
+
+    if (!baseDn.isEmpty() && !entries.containsKey(baseDn)) {
+      writeResult(out, messageId, SEARCH_DONE, ResultCode.NO_SUCH_OBJECT, "");
+      return;
+    }
+    for (Map.Entry<String, LdapEntry> e : entries.entrySet()) {
+      if (inScope(e.getKey(), baseDn, scope) && matches(e.getValue(), filterTag, filter.duplicate())) {
+        out.write(createMessage(messageId, createSearchEntry(e.getValue(), attrs)).encode());
+      }
+    }
+    writeResult(out, messageId, SEARCH_DONE, ResultCode.SUCCESS, "");
+  }
+
+
+  /**
+   * Returns whether the supplied DN is in the scope of the search.
+   *
+   * @param  dn  normalized DN of the entry
+   * @param  baseDn  normalized base DN of the search
+   * @param  scope  0 for object, 1 for one level, 2 for subtree
+   *
+   * @return  whether the DN is in scope
+   */
+  private boolean inScope(final String dn, final String baseDn, final int scope)
+  {
+    if (scope == 0) {
+      return dn.equals(baseDn);
+    }
+    final int comma = dn.indexOf(',');
+    final String parent = comma >= 0 ? dn.substring(comma + 1) : "";
+    return scope == 1 ? parent.equals(baseDn) : dn.equals(baseDn) || dn.endsWith("," + baseDn);
+  }
+
+
+  /**
+   * Evaluates the supplied filter against the supplied entry.
+   *
+   * @param  entry  to evaluate
+   * @param  tag  of the filter
+   * @param  filter  value of the filter
+   *
+   * @return  whether the entry matches
+   */
+  private boolean matches(final LdapEntry entry, final int tag, final ByteBuffer filter)
+  {
+    boolean match;
+    if (tag == AND_FILTER || tag == OR_FILTER) {
+      match = tag == AND_FILTER;
+      while (filter.hasRemaining()) {
+        final int childTag = peekTag(filter);
+        final boolean childMatch = matches(entry, childTag, readValue(filter));
+        match = tag == AND_FILTER ? match && childMatch : match || childMatch;
+      }
+    } else if (tag == NOT_FILTER) {
+      final int childTag = peekTag(filter);
+      match = !matches(entry, childTag, readValue(filter));
+    } else if (tag == EQUALITY_FILTER) {
+      final LdapAttribute attr = entry.getAttribute(readString(filter));
+      final String value = readString(filter);
+      match = attr != null && attr.getStringValues().stream().anyMatch(value::equalsIgnoreCase);
+    } else if (tag == PRESENT_FILTER) {
+      match = entry.getAttribute(new String(readBytes(filter), StandardCharsets.UTF_8)) != null;
+    } else {
+      match = false;
+    }
+    return match;
+  }
+
+
+  /**
+   * Creates a search result entry containing the requested attributes. No attributes or '*' returns all attributes
+   * except passwords, '1.1' returns none.
+   *
+   * @param  entry  to encode
+   * @param  attrs  requested attributes
+   *
+   * @return  search result entry encoder
+   */
+  private DEREncoder createSearchEntry(final LdapEntry entry, final List<String> attrs)
+  {
+    final boolean all = attrs.isEmpty() || attrs.contains("*");
+    final List<DEREncoder> encoders = new ArrayList<>();
+    for (LdapAttribute attr : entry.getAttributes()) {
+      final boolean requested = all ?
+        !PASSWORD_ATTR.equalsIgnoreCase(attr.getName()) : attrs.stream().anyMatch(attr.getName()::equalsIgnoreCase);
+      if (requested) {
+        encoders.add(
+          new ConstructedDEREncoder(
+            UniversalDERTag.SEQ,
+            new OctetStringType(attr.getName()),
+            new ConstructedDEREncoder(
+              UniversalDERTag.SET,
+              attr.getStringValues().stream().map(OctetStringType::new).toArray(DEREncoder[]::new))));
+      }
+    }
+    return new ConstructedDEREncoder(
+      new ApplicationDERTag(SEARCH_ENTRY, true),
+      new OctetStringType(entry.getDn()),
+      encoders.isEmpty() ?
+        EMPTY_SEQUENCE : new ConstructedDEREncoder(UniversalDERTag.SEQ, encoders.toArray(new DEREncoder[0])));
+  }
+
+
+  /**
+   * Writes an LDAP result.
+   *
+   * @param  out  to write to
+   * @param  messageId  of the request
+   * @param  tagNo  application tag number of the response
+   * @param  code  result code
+   * @param  message  diagnostic message
+   *
+   * @throws  IOException  if the result cannot be written
+   */
+  private void writeResult(
+    final OutputStream out,
+    final int messageId,
+    final int tagNo,
+    final ResultCode code,
+    final String message)
+    throws IOException
+  {
+    out.write(
+      createMessage(
+        messageId,
+        new ConstructedDEREncoder(
+          new ApplicationDERTag(tagNo, true),
+          new IntegerType(UniversalDERTag.ENUM, code.value()),
+          new OctetStringType(""),
+          new OctetStringType(message))).encode());
+  }
+
+
+  /**
+   * Creates an LDAP message.
+   *
+   * @param  messageId  of the message
+   * @param  op  protocol operation
+   *
+   * @return  LDAP message encoder
+   */
+  private static DEREncoder createMessage(final int messageId, final DEREncoder op)
+  {
+    return new ConstructedDEREncoder(UniversalDERTag.SEQ, new IntegerType(messageId), op);
+  }
+
+
+  /**
+   * Reads an LDAP message from the supplied stream.
+   *
+   * @param  in  to read from
+   *
+   * @return  value of the LDAP message sequence
+   *
+   * @throws  IOException  if the stream is closed or cannot be read
+   */
+  private static ByteBuffer readMessage(final DataInputStream in)
+    throws IOException
+  {
+    in.readUnsignedByte();
+    final int first = in.readUnsignedByte();
+    int length = first;
+    // CheckStyle:MagicNumber OFF
+    if ((first & 0x80) != 0) {
+      length = 0;
+      for (int i = 0; i < (first & 0x7F); i++) {
+        length = (length << 8) | in.readUnsignedByte();
+      }
+    }
+    // CheckStyle:MagicNumber ON
+    final byte[] value = new byte[length];
+    in.readFully(value);
+    return ByteBuffer.wrap(value);
+  }
+
+
+  /**
+   * Returns the tag at the current position of the supplied buffer without consuming it.
+   *
+   * @param  buffer  to read from
+   *
+   * @return  tag
+   */
+  private static int peekTag(final ByteBuffer buffer)
+  {
+    return Byte.toUnsignedInt(buffer.get(buffer.position()));
+  }
+
+
+  /**
+   * Reads a tag and length and returns the value, leaving the buffer positioned after it.
+   *
+   * @param  buffer  to read from
+   *
+   * @return  value
+   */
+  private static ByteBuffer readValue(final ByteBuffer buffer)
+  {
+    buffer.get();
+    final int first = Byte.toUnsignedInt(buffer.get());
+    int length = first;
+    // CheckStyle:MagicNumber OFF
+    if ((first & 0x80) != 0) {
+      length = 0;
+      for (int i = 0; i < (first & 0x7F); i++) {
+        length = (length << 8) | Byte.toUnsignedInt(buffer.get());
+      }
+    }
+    // CheckStyle:MagicNumber ON
+    final ByteBuffer value = buffer.slice();
+    value.limit(length);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+
+  /**
+   * Reads an octet string.
+   *
+   * @param  buffer  to read from
+   *
+   * @return  UTF-8 decoded value
+   */
+  private static String readString(final ByteBuffer buffer)
+  {
+    return new String(readBytes(readValue(buffer)), StandardCharsets.UTF_8);
+  }
+
+
+  /**
+   * Returns the remaining bytes of the supplied buffer.
+   *
+   * @param  buffer  to read
+   *
+   * @return  bytes
+   */
+  private static byte[] readBytes(final ByteBuffer buffer)
+  {
+    final byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+
+  /**
+   * Returns the normalized form of the supplied DN for lookups.
+   *
+   * @param  dn  to normalize
+   *
+   * @return  lower case DN without spaces after commas
+   */
+  private static String normalize(final String dn)
+  {
+    return dn.toLowerCase(Locale.ROOT).replaceAll(",\\s+", ",");
+  }
+
+
+  /**
+   * Starts a daemon thread.
+   *
+   * @param  r  to run
+   * @param  name  suffix of the thread name
+   */
+  private static void startThread(final Runnable r, final String name)
+  {
+    final Thread t = new Thread(r, "ldaptive-embedded-ldap-" + name);
+    t.setDaemon(true);
+    t.start();
+  }
+
+
+  /**
+   * Closes the supplied resource, ignoring errors.
+   *
+   * @param  c  to close
+   */
+  private static void close(final Closeable c)
+  {
+    if (c != null) {
+      try {
+        c.close();
+      } catch (IOException e) {
+        // already closed
+      }
+    }
+  }
+}
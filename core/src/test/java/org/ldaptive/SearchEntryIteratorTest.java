@@ -0,0 +1,270 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.ldaptive.handler.HandlerResult;
+import org.ldaptive.handler.SearchEntryHandler;
+import org.ldaptive.provider.SearchItem;
+import org.ldaptive.provider.SearchIterator;
+import org.ldaptive.referral.ReferralHandler;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link SearchEntryIterator}.
+ *
+ * @author  Middleware Services
+ */
+public class SearchEntryIteratorTest
+{
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"search"})
+  public void iterate()
+    throws Exception
+  {
+    final TestSearchIterator si = new TestSearchIterator(5);
+    final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=*"));
+    request.setSearchEntryHandlers(new SkipHandler("uid=1,dc=ldaptive,dc=org"));
+    try (SearchEntryIterator iter = new SearchEntryIterator(new SearchOperation(null), request, si)) {
+      AssertJUnit.assertTrue(iter.hasNext());
+      AssertJUnit.assertEquals("uid=0,dc=ldaptive,dc=org", iter.next().getDn());
+      // only one item is read ahead of the caller
+      AssertJUnit.assertEquals(4, si.items.size());
+      AssertJUnit.assertEquals("uid=2,dc=ldaptive,dc=org", iter.next().getDn());
+      AssertJUnit.assertEquals("uid=3,dc=ldaptive,dc=org", iter.next().getDn());
+      AssertJUnit.assertEquals("uid=4,dc=ldaptive,dc=org", iter.next().getDn());
+      AssertJUnit.assertFalse(iter.hasNext());
+      AssertJUnit.assertNotNull(iter.getResponse());
+    }
+    AssertJUnit.assertTrue(si.closed);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"search"})
+  public void streamEarlyClose()
+    throws Exception
+  {
+    final TestSearchIterator si = new TestSearchIterator(100);
+    final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=*"));
+    try (Stream<LdapEntry> stream = new SearchEntryIterator(new SearchOperation(null), request, si).stream()) {
+      AssertJUnit.assertEquals(
+        "uid=0,dc=ldaptive,dc=org,uid=1,dc=ldaptive,dc=org",
+        stream.limit(2).map(LdapEntry::getDn).collect(Collectors.joining(",")));
+      AssertJUnit.assertEquals(98, si.items.size());
+    }
+    AssertJUnit.assertTrue(si.closed);
+    AssertJUnit.assertNull(si.getResponse());
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"search"})
+  public void abort()
+    throws Exception
+  {
+    final TestSearchIterator si = new TestSearchIterator(10);
+    final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=*"));
+    request.setSearchEntryHandlers(new AbortHandler("uid=2,dc=ldaptive,dc=org"));
+    try (Stream<LdapEntry> stream = new SearchEntryIterator(new SearchOperation(null), request, si).stream()) {
+      AssertJUnit.assertEquals(3, stream.count());
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"search"})
+  public void resultCode()
+    throws Exception
+  {
+    final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=*"));
+    try (SearchEntryIterator iter = new SearchEntryIterator(
+        new SearchOperation(null),
+        request,
+        new TestSearchIterator(2, ResultCode.SIZE_LIMIT_EXCEEDED))) {
+      AssertJUnit.assertEquals("uid=0,dc=ldaptive,dc=org", iter.next().getDn());
+      AssertJUnit.assertEquals("uid=1,dc=ldaptive,dc=org", iter.next().getDn());
+      AssertJUnit.assertFalse(iter.hasNext());
+      AssertJUnit.assertEquals(ResultCode.SIZE_LIMIT_EXCEEDED, iter.getResponse().getResultCode());
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"search"})
+  public void referral()
+    throws Exception
+  {
+    final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=*"));
+    request.setReferralHandler(
+      new ReferralHandler<SearchRequest, SearchResult>() {
+        @Override
+        public HandlerResult<Response<SearchResult>> handle(
+          final Connection conn,
+          final SearchRequest r,
+          final Response<SearchResult> response)
+        {
+          final SearchEntry entry = new SearchEntry(-1, null);
+          entry.setDn("uid=referral,dc=ldaptive,dc=org");
+          response.getResult().addEntry(entry);
+          return new HandlerResult<>(new Response<>(response.getResult(), ResultCode.SUCCESS));
+        }
+
+        @Override
+        public void initializeRequest(final SearchRequest r) {}
+      });
+    try (SearchEntryIterator iter = new SearchEntryIterator(
+        new SearchOperation(null),
+        request,
+        new TestSearchIterator(1, ResultCode.REFERRAL))) {
+      AssertJUnit.assertEquals("uid=0,dc=ldaptive,dc=org", iter.next().getDn());
+      AssertJUnit.assertEquals("uid=referral,dc=ldaptive,dc=org", iter.next().getDn());
+      AssertJUnit.assertFalse(iter.hasNext());
+      AssertJUnit.assertEquals(ResultCode.SUCCESS, iter.getResponse().getResultCode());
+    }
+  }
+
+
+  /** Handler that removes a single entry. */
+  private static class SkipHandler implements SearchEntryHandler
+  {
+
+    /** DN to skip. */
+    private final String skipDn;
+
+
+    /**
+     * Creates a new skip handler.
+     *
+     * @param  dn  to skip
+     */
+    SkipHandler(final String dn)
+    {
+      skipDn = dn;
+    }
+
+
+    @Override
+    public HandlerResult<SearchEntry> handle(
+      final Connection conn,
+      final SearchRequest request,
+      final SearchEntry entry)
+    {
+      return new HandlerResult<>(skipDn.equals(entry.getDn()) ? null : entry);
+    }
+
+
+    @Override
+    public void initializeRequest(final SearchRequest request) {}
+  }
+
+
+  /** Handler that aborts the search after a single entry. */
+  private static class AbortHandler implements SearchEntryHandler
+  {
+
+    /** DN to abort on. */
+    private final String abortDn;
+
+
+    /**
+     * Creates a new abort handler.
+     *
+     * @param  dn  to abort on
+     */
+    AbortHandler(final String dn)
+    {
+      abortDn = dn;
+    }
+
+
+    @Override
+    public HandlerResult<SearchEntry> handle(
+      final Connection conn,
+      final SearchRequest request,
+      final SearchEntry entry)
+    {
+      return new HandlerResult<>(entry, abortDn.equals(entry.getDn()));
+    }
+
+
+    @Override
+    public void initializeRequest(final SearchRequest request) {}
+  }
+
+
+  /** Search iterator that produces entries on demand. */
+  private static class TestSearchIterator implements SearchIterator
+  {
+
+    /** Items not yet read. */
+    private final Queue<SearchItem> items = new ArrayDeque<>();
+
+    /** Result code of the search. */
+    private final ResultCode resultCode;
+
+    /** Whether close was invoked. */
+    private boolean closed;
+
+
+    /**
+     * Creates a new test search iterator that completes successfully.
+     *
+     * @param  count  number of entries
+     */
+    TestSearchIterator(final int count)
+    {
+      this(count, ResultCode.SUCCESS);
+    }
+
+
+    /**
+     * Creates a new test search iterator.
+     *
+     * @param  count  number of entries
+     * @param  code  result code of the search
+     */
+    TestSearchIterator(final int count, final ResultCode code)
+    {
+      resultCode = code;
+      for (int i = 0; i < count; i++) {
+        final SearchEntry entry = new SearchEntry(i, null);
+        entry.setDn("uid=" + i + ",dc=ldaptive,dc=org");
+        items.add(new SearchItem(entry));
+      }
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+      return !items.isEmpty();
+    }
+
+
+    @Override
+    public SearchItem next()
+    {
+      return items.remove();
+    }
+
+
+    @Override
+    public Response<Void> getResponse()
+    {
+      return items.isEmpty() ? new Response<>(null, resultCode) : null;
+    }
+
+
+    @Override
+    public void close()
+    {
+      closed = true;
+    }
+  }
+}
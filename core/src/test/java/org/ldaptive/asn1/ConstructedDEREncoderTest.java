@@ -0,0 +1,154 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.asn1;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link ConstructedDEREncoder}.
+ *
+ * @author  Middleware Services
+ */
+public class ConstructedDEREncoderTest
+{
+
+
+  /**
+   * Encoder test data.
+   *
+   * @return  test data
+   */
+  @DataProvider(name = "encoders")
+  public Object[][] createData()
+  {
+    final byte[] large = new byte[200];
+    Arrays.fill(large, (byte) 0x61);
+    final byte[] largeEncoded = new byte[large.length + 12];
+    largeEncoded[0] = (byte) 0x30;
+    largeEncoded[1] = (byte) 0x84;
+    largeEncoded[5] = (byte) 0xCE;
+    largeEncoded[6] = (byte) 0x04;
+    largeEncoded[7] = (byte) 0x84;
+    largeEncoded[11] = (byte) 0xC8;
+    System.arraycopy(large, 0, largeEncoded, 12, large.length);
+    return
+      new Object[][] {
+        // SEQ { INT 5, SEQ { OCTSTR "ab", BOOL true } }
+        new Object[] {
+          new ConstructedDEREncoder(
+            UniversalDERTag.SEQ,
+            new IntegerType(5),
+            new ConstructedDEREncoder(UniversalDERTag.SEQ, new OctetStringType("ab"), new BooleanType(true))),
+          new byte[] {
+            (byte) 0x30, (byte) 0x0C,
+            (byte) 0x02, (byte) 0x01, (byte) 0x05,
+            (byte) 0x30, (byte) 0x07,
+            (byte) 0x04, (byte) 0x02, (byte) 0x61, (byte) 0x62,
+            (byte) 0x01, (byte) 0x01, (byte) 0xFF,
+          },
+        },
+        // SEQ { INT 1, <encoder that only produces bytes> }
+        new Object[] {
+          new ConstructedDEREncoder(
+            UniversalDERTag.SEQ,
+            new IntegerType(1),
+            () -> new byte[] {(byte) 0x05, (byte) 0x00}),
+          new byte[] {
+            (byte) 0x30, (byte) 0x05,
+            (byte) 0x02, (byte) 0x01, (byte) 0x01,
+            (byte) 0x05, (byte) 0x00,
+          },
+        },
+        // SEQ { OCTSTR 200 bytes }, long form lengths
+        new Object[] {
+          new ConstructedDEREncoder(UniversalDERTag.SEQ, new OctetStringType(large)),
+          largeEncoded,
+        },
+      };
+  }
+
+
+  /**
+   * @param  encoder  to test
+   * @param  expected  encoding
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = {"asn1"}, dataProvider = "encoders")
+  public void encode(final ConstructedDEREncoder encoder, final byte[] expected)
+    throws Exception
+  {
+    Assert.assertEquals(encoder.getEncodedLength(), expected.length);
+    Assert.assertEquals(encoder.encode(), expected);
+
+    final ByteBuffer buffer = ByteBuffer.allocate(expected.length + 4);
+    buffer.putShort((short) 0x7F7F);
+    encoder.encode(buffer);
+    Assert.assertEquals(buffer.position(), expected.length + 2);
+    Assert.assertEquals(Arrays.copyOfRange(buffer.array(), 2, expected.length + 2), expected);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"asn1"})
+  public void concurrentEncode()
+    throws Exception
+  {
+    final AtomicInteger childEncodes = new AtomicInteger();
+    final ConstructedDEREncoder encoder = new ConstructedDEREncoder(
+      UniversalDERTag.SEQ,
+      new OctetStringType("ab"),
+      () -> {
+        childEncodes.incrementAndGet();
+        return new byte[] {(byte) 0x05, (byte) 0x00};
+      },
+      new ConstructedDEREncoder(UniversalDERTag.SEQ, new IntegerType(5), () -> new byte[] {(byte) 0x05, (byte) 0x00}));
+    final byte[] expected = {
+      (byte) 0x30, (byte) 0x0D,
+      (byte) 0x04, (byte) 0x02, (byte) 0x61, (byte) 0x62,
+      (byte) 0x05, (byte) 0x00,
+      (byte) 0x30, (byte) 0x05,
+      (byte) 0x02, (byte) 0x01, (byte) 0x05,
+      (byte) 0x05, (byte) 0x00,
+    };
+
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<Boolean>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(
+          executor.submit(
+            () -> {
+              start.await();
+              for (int j = 0; j < 1000; j++) {
+                if (!Arrays.equals(encoder.encode(), expected)) {
+                  return false;
+                }
+              }
+              return true;
+            }));
+      }
+      start.countDown();
+      for (Future<Boolean> f : futures) {
+        Assert.assertTrue(f.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    // children without a buffer encoding are encoded exactly once
+    Assert.assertEquals(childEncodes.get(), 1);
+  }
+}
@@ -0,0 +1,115 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.asn1;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link DERParser}.
+ *
+ * @author  Middleware Services
+ */
+public class DERParserTest
+{
+
+  /** SEQ { INT 5, OCTSTR "ab", SEQ { INT 1 }, INT 7 }. */
+  private static final byte[] ENCODED = new byte[] {
+    (byte) 0x30, (byte) 0x0F,
+    (byte) 0x02, (byte) 0x01, (byte) 0x05,
+    (byte) 0x04, (byte) 0x02, (byte) 0x61, (byte) 0x62,
+    (byte) 0x30, (byte) 0x03, (byte) 0x02, (byte) 0x01, (byte) 0x01,
+    (byte) 0x02, (byte) 0x01, (byte) 0x07,
+  };
+
+
+  /**
+   * DER path test data.
+   *
+   * @return  paths and the values they match
+   */
+  @DataProvider(name = "paths")
+  public Object[][] createPaths()
+  {
+    return
+      new Object[][] {
+        new Object[] {"/SEQ/INT", new String[] {"5", "7"}},
+        new Object[] {"/SEQ/INT[0]", new String[] {"5"}},
+        new Object[] {"/SEQ/INT[3]", new String[] {"7"}},
+        new Object[] {"/SEQ[0]/SEQ[2]/INT[0]", new String[] {"1"}},
+        new Object[] {"/SEQ/SEQ/INT", new String[] {"1"}},
+        new Object[] {"/SEQ/INT[1]", new String[0]},
+        new Object[] {"/SEQ/SEQ/INT[1]", new String[0]},
+        new Object[] {"/SET/INT", new String[0]},
+      };
+  }
+
+
+  /**
+   * @param  path  to register
+   * @param  expected  integer values matched by the path
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = {"asn1"}, dataProvider = "paths")
+  public void parse(final String path, final String[] expected)
+    throws Exception
+  {
+    final List<String> values = new ArrayList<>();
+    final DERParser parser = new DERParser();
+    parser.registerHandler(path, (p, e) -> values.add(IntegerType.decode(e).toString()));
+    parser.parse(ByteBuffer.wrap(ENCODED));
+    Assert.assertEquals(values.toArray(), expected);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"asn1"})
+  public void parseMultipleHandlers()
+    throws Exception
+  {
+    final List<String> values = new ArrayList<>();
+    final DERParser parser = new DERParser();
+    parser.registerHandler("/SEQ/OCTSTR", (p, e) -> values.add(OctetStringType.decode(e)));
+    parser.registerHandler("/SEQ/OCTSTR[1]", (p, e) -> values.add(OctetStringType.decode(e).toUpperCase()));
+    parser.registerHandler("/SEQ/INT[3]", (p, e) -> values.add(IntegerType.decode(e).toString()));
+    parser.parse(ByteBuffer.wrap(ENCODED));
+    Assert.assertEquals(values.toArray(), new String[] {"ab", "AB", "7"});
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"asn1"})
+  public void parseSlice()
+    throws Exception
+  {
+    final byte[] padded = new byte[ENCODED.length + 6];
+    System.arraycopy(ENCODED, 0, padded, 3, ENCODED.length);
+    // trailing bytes look like another INT that must not be read
+    padded[padded.length - 3] = (byte) 0x02;
+    padded[padded.length - 2] = (byte) 0x01;
+    padded[padded.length - 1] = (byte) 0x09;
+
+    final ByteBuffer buffer = ByteBuffer.wrap(padded, 3, ENCODED.length).slice().asReadOnlyBuffer();
+    final List<String> values = new ArrayList<>();
+    final DERParser parser = new DERParser();
+    parser.registerHandler("/SEQ/INT", (p, e) -> values.add(IntegerType.decode(e).toString()));
+    parser.parse(buffer);
+    Assert.assertEquals(values.toArray(), new String[] {"5", "7"});
+    Assert.assertEquals(buffer.position(), ENCODED.length);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"asn1"}, expectedExceptions = IllegalArgumentException.class)
+  public void parseInvalidLength()
+    throws Exception
+  {
+    final DERParser parser = new DERParser();
+    parser.registerHandler("/SEQ/INT", (p, e) -> {});
+    parser.parse(ByteBuffer.wrap(new byte[] {(byte) 0x30, (byte) 0x05, (byte) 0x02, (byte) 0x01, (byte) 0x05}));
+  }
+}
@@ -0,0 +1,331 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.async;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.Connection;
+import org.ldaptive.LdapException;
+import org.ldaptive.OperationException;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchEntry;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.handler.HandlerResult;
+import org.ldaptive.handler.SearchEntryHandler;
+import org.ldaptive.provider.ProviderConnection;
+import org.ldaptive.provider.SearchItem;
+import org.ldaptive.provider.SearchListener;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link AsyncSearchOperation}.
+ *
+ * @author  Middleware Services
+ */
+public class AsyncSearchOperationTest
+{
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"async"})
+  public void singleThreadedListener()
+    throws Exception
+  {
+    final AsyncSearchOperation search = new AsyncSearchOperation(createConnection(50, null, null, null));
+    final Response<SearchResult> response = search.execute(new SearchRequest("dc=ldaptive,dc=org", "uid=*"));
+    AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+    AssertJUnit.assertEquals(50, response.getResult().size());
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"async"})
+  public void multiThreadedListener()
+    throws Exception
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final AtomicInteger processing = new AtomicInteger();
+      final AtomicInteger maxProcessing = new AtomicInteger();
+      final AtomicInteger pauses = new AtomicInteger();
+      final AsyncSearchOperation search = new AsyncSearchOperation(
+        createConnection(500, null, pauses, null),
+        executor);
+      search.setUseMultiThreadedListener(true);
+      search.setListenerQueueSize(4);
+
+      final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", "uid=*");
+      request.setSearchEntryHandlers(new CountingHandler(processing, maxProcessing));
+      final Response<SearchResult> response = search.execute(request);
+      AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+      AssertJUnit.assertEquals(500, response.getResult().size());
+      AssertJUnit.assertEquals(0, processing.get());
+      AssertJUnit.assertTrue(maxProcessing.get() <= 4);
+      AssertJUnit.assertTrue(pauses.get() > 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"async"})
+  public void multiThreadedListenerWithoutPause()
+    throws Exception
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch delivered = new CountDownLatch(1);
+    try {
+      final AsyncSearchOperation search = new AsyncSearchOperation(
+        createConnection(100, null, null, delivered),
+        executor);
+      search.setUseMultiThreadedListener(true);
+      search.setListenerQueueSize(4);
+
+      final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", "uid=*");
+      request.setSearchEntryHandlers(
+        new SearchEntryHandler() {
+          @Override
+          public HandlerResult<SearchEntry> handle(
+            final Connection conn,
+            final SearchRequest request,
+            final SearchEntry entry)
+          {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            }
+            return new HandlerResult<>(entry);
+          }
+
+          @Override
+          public void initializeRequest(final SearchRequest request) {}
+        });
+      final CompletableFuture<Response<SearchResult>> future = search.executeAsync(request);
+
+      // the provider cannot pause, so its thread processes results once the queue is full
+      AssertJUnit.assertFalse(delivered.await(1, TimeUnit.SECONDS));
+      AssertJUnit.assertFalse(future.isDone());
+      release.countDown();
+      AssertJUnit.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+      final Response<SearchResult> response = future.get(5, TimeUnit.SECONDS);
+      AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+      AssertJUnit.assertEquals(100, response.getResult().size());
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"async"})
+  public void exception()
+    throws Exception
+  {
+    final AtomicInteger exceptions = new AtomicInteger();
+    final AsyncSearchOperation search = new AsyncSearchOperation(
+      createConnection(5, new LdapException("Search failed"), null, null));
+    search.setExceptionHandler(
+      (conn, request, e) -> {
+        exceptions.incrementAndGet();
+        return new HandlerResult<>(e);
+      });
+    try {
+      search.execute(new SearchRequest("dc=ldaptive,dc=org", "uid=*")).getResult();
+      AssertJUnit.fail("Should have thrown IllegalStateException");
+    } catch (IllegalStateException e) {
+      AssertJUnit.assertTrue(e.getCause().getCause() instanceof LdapException);
+    }
+    AssertJUnit.assertEquals(1, exceptions.get());
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"async"})
+  public void operationException()
+    throws Exception
+  {
+    final AtomicInteger exceptions = new AtomicInteger();
+    final AsyncSearchOperation search = new AsyncSearchOperation(
+      createConnection(5, new OperationException("Connection closed"), null, null));
+    search.setExceptionHandler(
+      (conn, request, e) -> {
+        exceptions.incrementAndGet();
+        return new HandlerResult<>(e);
+      });
+
+    // the default reopen handler retries the search, which succeeds
+    final Response<SearchResult> response = search.execute(new SearchRequest("dc=ldaptive,dc=org", "uid=*"));
+    AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+    AssertJUnit.assertEquals(5, response.getResult().size());
+    AssertJUnit.assertEquals(0, exceptions.get());
+  }
+
+
+  /**
+   * Returns a connection whose provider delivers the supplied number of entries from a separate thread and then either
+   * a successful response or the supplied exception. The exception is delivered for the first search only, later
+   * searches succeed. The provider stops delivering entries while reading is paused.
+   *
+   * @param  count  number of entries to deliver
+   * @param  exception  to deliver instead of a response, or null
+   * @param  pauses  incremented each time reading is paused, or null if the provider does not support pausing
+   * @param  delivered  counted down once the response has been delivered, or null
+   *
+   * @return  connection
+   */
+  private static Connection createConnection(
+    final int count,
+    final Exception exception,
+    final AtomicInteger pauses,
+    final CountDownLatch delivered)
+  {
+    final AtomicBoolean failed = new AtomicBoolean();
+    final ProviderConnection pc = (ProviderConnection) Proxy.newProxyInstance(
+      AsyncSearchOperationTest.class.getClassLoader(),
+      new Class<?>[] {ProviderConnection.class},
+      (proxy, method, args) -> {
+        final SearchListener listener = (SearchListener) args[1];
+        final AtomicBoolean paused = new AtomicBoolean();
+        final boolean fail = exception != null && !failed.getAndSet(true);
+        new Thread(
+          () -> {
+            listener.asyncRequestReceived(new TestAsyncRequest(paused, pauses));
+            for (int i = 0; i < count; i++) {
+              while (paused.get()) {
+                Thread.yield();
+              }
+              final SearchEntry entry = new SearchEntry(i + 1, null);
+              entry.setDn("uid=" + i + ",dc=ldaptive,dc=org");
+              listener.searchItemReceived(new SearchItem(entry));
+            }
+            if (fail) {
+              listener.exceptionReceived(exception);
+            } else {
+              listener.responseReceived(new Response<>(null, ResultCode.SUCCESS));
+            }
+            if (delivered != null) {
+              delivered.countDown();
+            }
+          }).start();
+        return null;
+      });
+    return (Connection) Proxy.newProxyInstance(
+      AsyncSearchOperationTest.class.getClassLoader(),
+      new Class<?>[] {Connection.class},
+      (proxy, method, args) -> "getProviderConnection".equals(method.getName()) ? pc : null);
+  }
+
+
+  /** Async request that records whether the provider should pause reading. */
+  private static class TestAsyncRequest implements AsyncRequest
+  {
+
+    /** Whether reading is paused. */
+    private final AtomicBoolean paused;
+
+    /** Number of times reading was paused, null if pausing is not supported. */
+    private final AtomicInteger pauses;
+
+
+    /**
+     * Creates a new test async request.
+     *
+     * @param  b  whether reading is paused
+     * @param  count  number of times reading was paused, null if pausing is not supported
+     */
+    TestAsyncRequest(final AtomicBoolean b, final AtomicInteger count)
+    {
+      paused = b;
+      pauses = count;
+    }
+
+
+    @Override
+    public int getMessageId()
+    {
+      return 1;
+    }
+
+
+    @Override
+    public void abandon() {}
+
+
+    @Override
+    public void abandon(final RequestControl[] controls) {}
+
+
+    @Override
+    public boolean pauseReading()
+    {
+      if (pauses == null) {
+        return false;
+      }
+      pauses.incrementAndGet();
+      paused.set(true);
+      return true;
+    }
+
+
+    @Override
+    public void resumeReading()
+    {
+      paused.set(false);
+    }
+  }
+
+
+  /** Handler that records how many entries are processed concurrently. */
+  private static class CountingHandler implements SearchEntryHandler
+  {
+
+    /** Entries currently being processed. */
+    private final AtomicInteger processing;
+
+    /** Largest number of entries processed at once. */
+    private final AtomicInteger maxProcessing;
+
+
+    /**
+     * Creates a new counting handler.
+     *
+     * @param  current  entries currently being processed
+     * @param  max  largest number of entries processed at once
+     */
+    CountingHandler(final AtomicInteger current, final AtomicInteger max)
+    {
+      processing = current;
+      maxProcessing = max;
+    }
+
+
+    @Override
+    public HandlerResult<SearchEntry> handle(
+      final Connection conn,
+      final SearchRequest request,
+      final SearchEntry entry)
+    {
+      maxProcessing.accumulateAndGet(processing.incrementAndGet(), Math::max);
+      Thread.yield();
+      processing.decrementAndGet();
+      return new HandlerResult<>(entry);
+    }
+
+
+    @Override
+    public void initializeRequest(final SearchRequest request) {}
+  }
+}
@@ -0,0 +1,204 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.Connection;
+import org.ldaptive.Credential;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link AggregateDnResolver}.
+ *
+ * @author  Middleware Services
+ */
+public class AggregateDnResolverTest
+{
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void firstSuccess()
+    throws Exception
+  {
+    final SlowDnResolver slow = new SlowDnResolver();
+    final Map<String, DnResolver> resolvers = new LinkedHashMap<>();
+    resolvers.put("slow", slow);
+    resolvers.put("fast", slow.after(new FormatDnResolver("uid=%s,dc=ldaptive,dc=org")));
+    final AggregateDnResolver resolver = new AggregateDnResolver(resolvers);
+    resolver.setAllowMultipleDns(true);
+
+    final long start = System.nanoTime();
+    Assert.assertEquals(resolver.resolve(new User("alice")), "fast:uid=alice,dc=ldaptive,dc=org");
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    Assert.assertTrue(slow.started.await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(slow.cancelled.await(5, TimeUnit.SECONDS));
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void timeout()
+    throws Exception
+  {
+    final SlowDnResolver slow = new SlowDnResolver();
+    final Map<String, DnResolver> resolvers = new LinkedHashMap<>();
+    resolvers.put("slow", slow);
+    resolvers.put("fast", slow.after(new FormatDnResolver("uid=%s,dc=ldaptive,dc=org")));
+    final AggregateDnResolver resolver = new AggregateDnResolver(resolvers);
+    resolver.setResolveTimeout(Duration.ofMillis(100));
+
+    // duplicates cannot be detected, but the resolved DN is returned
+    Assert.assertEquals(resolver.resolve(new User("alice")), "fast:uid=alice,dc=ldaptive,dc=org");
+    Assert.assertTrue(slow.started.await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(slow.cancelled.await(5, TimeUnit.SECONDS));
+
+    final SlowDnResolver slower = new SlowDnResolver();
+    resolvers.put("slow", slower);
+    resolvers.put("fast", slower.after(user -> null));
+    try {
+      resolver.resolve(new User("alice"));
+      Assert.fail("Should have thrown LdapException");
+    } catch (LdapException e) {
+      Assert.assertTrue(slower.started.await(5, TimeUnit.SECONDS));
+      Assert.assertTrue(slower.cancelled.await(5, TimeUnit.SECONDS));
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void multipleDns()
+    throws Exception
+  {
+    final Map<String, DnResolver> resolvers = new LinkedHashMap<>();
+    resolvers.put("a", new FormatDnResolver("uid=%s,dc=a,dc=org"));
+    resolvers.put("b", new FormatDnResolver("uid=%s,dc=b,dc=org"));
+    final AggregateDnResolver resolver = new AggregateDnResolver(resolvers);
+    try {
+      resolver.resolve(new User("alice"));
+      Assert.fail("Should have thrown LdapException");
+    } catch (LdapException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Found more than (1) DN"));
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void entryAttributes()
+    throws Exception
+  {
+    final AtomicInteger searchCount = new AtomicInteger();
+    final AbstractSearchDnResolver searchResolver = new AbstractSearchDnResolver() {
+      @Override
+      protected SearchResult performLdapSearch(final SearchRequest request)
+      {
+        searchCount.incrementAndGet();
+        final LdapEntry entry = new LdapEntry("uid=alice,dc=ldaptive,dc=org");
+        for (String attr : request.getReturnAttributes()) {
+          entry.addAttribute(new LdapAttribute(attr, "value"));
+        }
+        return new SearchResult(entry);
+      }
+
+      @Override
+      protected Connection getConnection()
+      {
+        return null;
+      }
+    };
+    searchResolver.setUserFilter("(uid={user})");
+    final Map<String, DnResolver> resolvers = new LinkedHashMap<>();
+    resolvers.put("ldaptive", searchResolver);
+    final AggregateDnResolver resolver = new AggregateDnResolver(resolvers);
+    resolver.setEntryAttributes("mail", "cn");
+
+    final AtomicInteger entryCount = new AtomicInteger();
+    final EntryResolver entryResolver = resolver.createEntryResolver(
+      (criteria, response) -> {
+        entryCount.incrementAndGet();
+        return new LdapEntry(criteria.getDn());
+      });
+
+    final String dn = resolver.resolve(new User("alice"));
+    Assert.assertEquals(dn, "ldaptive:uid=alice,dc=ldaptive,dc=org");
+    LdapEntry entry = entryResolver.resolve(
+      new AuthenticationCriteria(dn, new AuthenticationRequest("alice", new Credential("secret"), "mail")),
+      null);
+    Assert.assertEquals(entry.getAttribute("mail").getStringValue(), "value");
+    Assert.assertEquals(searchCount.get(), 1);
+    Assert.assertEquals(entryCount.get(), 0);
+
+    // the resolved entry is only returned once
+    entry = entryResolver.resolve(
+      new AuthenticationCriteria(dn, new AuthenticationRequest("alice", new Credential("secret"), "mail")),
+      null);
+    Assert.assertNull(entry.getAttribute("mail"));
+    Assert.assertEquals(entryCount.get(), 1);
+
+    // attributes that were not retrieved require another search
+    resolver.resolve(new User("alice"));
+    entry = entryResolver.resolve(
+      new AuthenticationCriteria(dn, new AuthenticationRequest("alice", new Credential("secret"), "uid")),
+      null);
+    Assert.assertNull(entry.getAttribute("uid"));
+    Assert.assertEquals(entryCount.get(), 2);
+  }
+
+
+  /** DN resolver that blocks until it is interrupted. */
+  private static class SlowDnResolver implements DnResolver
+  {
+
+    /** Counted down when this resolver starts resolving. */
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /** Counted down when this resolver is cancelled. */
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+
+    /**
+     * Returns a DN resolver that waits for this resolver to start before delegating to the supplied resolver, so that
+     * this resolver is running when it is cancelled.
+     *
+     * @param  resolver  to delegate to
+     *
+     * @return  DN resolver
+     */
+    DnResolver after(final DnResolver resolver)
+    {
+      return user -> {
+        try {
+          started.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new LdapException(e);
+        }
+        return resolver.resolve(user);
+      };
+    }
+
+
+    @Override
+    public String resolve(final User user)
+    {
+      started.countDown();
+      try {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        cancelled.countDown();
+      }
+      return "uid=" + user.getIdentifier() + ",dc=slow,dc=org";
+    }
+  }
+}
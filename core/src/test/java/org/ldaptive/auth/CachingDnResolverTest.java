@@ -0,0 +1,158 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.ResultCode;
+import org.ldaptive.props.AuthenticatorPropertySource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link CachingDnResolver}.
+ *
+ * @author  Middleware Services
+ */
+public class CachingDnResolverTest
+{
+
+  /** Number of times the underlying resolver is invoked. */
+  private final AtomicInteger resolveCount = new AtomicInteger();
+
+  /** Resolves every user except 'unknown' under a fixed base DN. */
+  private final DnResolver resolver = user -> {
+    resolveCount.incrementAndGet();
+    return "unknown".equals(user.getIdentifier()) ? null : "uid=" + user.getIdentifier() + ",dc=ldaptive,dc=org";
+  };
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void resolve()
+    throws Exception
+  {
+    resolveCount.set(0);
+    final CachingDnResolver cache = new CachingDnResolver(resolver);
+    Assert.assertEquals(cache.resolve(new User("alice")), "uid=alice,dc=ldaptive,dc=org");
+    Assert.assertEquals(cache.resolve(new User("alice")), "uid=alice,dc=ldaptive,dc=org");
+    Assert.assertEquals(resolveCount.get(), 1);
+    Assert.assertEquals(cache.getStatistics().getHitCount(), 1);
+    Assert.assertEquals(cache.getStatistics().getMissCount(), 1);
+
+    // users with a context are not cached
+    cache.resolve(new User("alice", "context"));
+    Assert.assertEquals(resolveCount.get(), 2);
+
+    // negative caching is disabled by default
+    Assert.assertNull(cache.resolve(new User("unknown")));
+    Assert.assertNull(cache.resolve(new User("unknown")));
+    Assert.assertEquals(resolveCount.get(), 4);
+    Assert.assertEquals(cache.size(), 1);
+
+    cache.invalidate(new User("alice"));
+    cache.resolve(new User("alice"));
+    Assert.assertEquals(resolveCount.get(), 5);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void negativeCache()
+    throws Exception
+  {
+    resolveCount.set(0);
+    final CachingDnResolver cache = new CachingDnResolver(resolver);
+    cache.setNegativeTimeToLive(Duration.ofMillis(50));
+    Assert.assertNull(cache.resolve(new User("unknown")));
+    Assert.assertNull(cache.resolve(new User("unknown")));
+    Assert.assertEquals(resolveCount.get(), 1);
+    Thread.sleep(100);
+    Assert.assertNull(cache.resolve(new User("unknown")));
+    Assert.assertEquals(resolveCount.get(), 2);
+    Assert.assertEquals(cache.getStatistics().getExpirationCount(), 1);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void maxSize()
+    throws Exception
+  {
+    resolveCount.set(0);
+    final CachingDnResolver cache = new CachingDnResolver(resolver);
+    cache.setMaxSize(2);
+    cache.resolve(new User("alice"));
+    cache.resolve(new User("bob"));
+    cache.resolve(new User("alice"));
+    cache.resolve(new User("carol"));
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertEquals(cache.getStatistics().getEvictionCount(), 1);
+
+    // bob was least recently used
+    cache.resolve(new User("alice"));
+    Assert.assertEquals(resolveCount.get(), 3);
+    cache.resolve(new User("bob"));
+    Assert.assertEquals(resolveCount.get(), 4);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void invalidateOnFailure()
+    throws Exception
+  {
+    resolveCount.set(0);
+    final CachingDnResolver cache = new CachingDnResolver(resolver);
+    cache.resolve(new User("alice"));
+    cache.resolve(new User("bob"));
+
+    cache.handle(
+      new AuthenticationResponse(
+        AuthenticationResultCode.AUTHENTICATION_HANDLER_FAILURE,
+        ResultCode.INVALID_CREDENTIALS,
+        "uid=alice,dc=ldaptive,dc=org",
+        null));
+    cache.handle(
+      new AuthenticationResponse(
+        AuthenticationResultCode.AUTHENTICATION_HANDLER_FAILURE,
+        ResultCode.UNWILLING_TO_PERFORM,
+        "uid=bob,dc=ldaptive,dc=org",
+        null));
+    Assert.assertEquals(cache.size(), 1);
+    cache.resolve(new User("alice"));
+    cache.resolve(new User("bob"));
+    Assert.assertEquals(resolveCount.get(), 3);
+  }
+
+
+  /** Caching properties wrap the search dn resolver and register it as a response handler. */
+  @Test(groups = {"auth"})
+  public void properties()
+  {
+    final Properties props = new Properties();
+    props.setProperty("org.ldaptive.auth.baseDn", "dc=ldaptive,dc=org");
+    props.setProperty("org.ldaptive.auth.dnCacheTimeToLive", "PT5M");
+    props.setProperty("org.ldaptive.auth.dnCacheNegativeTimeToLive", "PT10S");
+    props.setProperty("org.ldaptive.auth.dnCacheMaxSize", "50");
+    props.setProperty("org.ldaptive.auth.dnCacheInvalidateResultCodes", "INVALID_CREDENTIALS");
+
+    final Authenticator auth = new Authenticator();
+    new AuthenticatorPropertySource(auth, props).initialize();
+    Assert.assertTrue(auth.getDnResolver() instanceof CachingDnResolver);
+
+    final CachingDnResolver cache = (CachingDnResolver) auth.getDnResolver();
+    Assert.assertEquals(cache.getTimeToLive(), Duration.ofMinutes(5));
+    Assert.assertEquals(cache.getNegativeTimeToLive(), Duration.ofSeconds(10));
+    Assert.assertEquals(cache.getMaxSize(), 50);
+    Assert.assertEquals(cache.getInvalidateResultCodes(), new ResultCode[] {ResultCode.INVALID_CREDENTIALS});
+    Assert.assertEquals(((SearchDnResolver) cache.getDnResolver()).getBaseDn(), "dc=ldaptive,dc=org");
+    Assert.assertNotNull(((SearchDnResolver) cache.getDnResolver()).getConnectionFactory());
+    Assert.assertEquals(auth.getAuthenticationResponseHandlers(), new AuthenticationResponseHandler[] {cache});
+
+    final Authenticator noCache = new Authenticator();
+    props.stringPropertyNames().stream().filter(s -> s.contains("dnCache")).forEach(props::remove);
+    new AuthenticatorPropertySource(noCache, props).initialize();
+    Assert.assertTrue(noCache.getDnResolver() instanceof SearchDnResolver);
+  }
+}
@@ -0,0 +1,148 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.auth;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.BindRequest;
+import org.ldaptive.Connection;
+import org.ldaptive.Credential;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.pool.PooledConnectionFactory;
+import org.ldaptive.provider.ProviderConnection;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link PipelinedBindAuthenticationHandler}.
+ *
+ * @author  Middleware Services
+ */
+public class PipelinedBindAuthenticationHandlerTest
+{
+
+  /** Number of binds executed. */
+  private final AtomicInteger bindCount = new AtomicInteger();
+
+  /** Number of fast bind operations executed. */
+  private final AtomicInteger fastBindCount = new AtomicInteger();
+
+  /** Counted down when a bind is executed. */
+  private volatile CountDownLatch bound;
+
+  /** Single pooled connection that accepts the password 'secret'. */
+  private final Connection connection = createConnection();
+
+  /** Bind pool that always returns the same connection. */
+  private final PooledConnectionFactory bindPool = new PooledConnectionFactory() {
+    @Override
+    public Connection getConnection()
+    {
+      return connection;
+    }
+  };
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void authenticate()
+    throws Exception
+  {
+    bindCount.set(0);
+    fastBindCount.set(0);
+    final PipelinedBindAuthenticationHandler handler = new PipelinedBindAuthenticationHandler(bindPool);
+    handler.setFastBind(true);
+    // the lookup only completes once the bind has been executed, so it must run in parallel
+    handler.setEntryResolver(
+      (criteria, response) -> {
+        try {
+          Assert.assertNull(response);
+          Assert.assertTrue(bound.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          throw new LdapException(e);
+        }
+        return new LdapEntry(criteria.getDn());
+      });
+    final Authenticator auth = new Authenticator(new FormatDnResolver("uid=%s,dc=ldaptive,dc=org"), handler);
+    auth.setEntryResolver(handler.createEntryResolver());
+    try {
+      for (int i = 0; i < 3; i++) {
+        bound = new CountDownLatch(1);
+        final AuthenticationResponse response = auth.authenticate(
+          new AuthenticationRequest("alice", new Credential("secret")));
+        Assert.assertTrue(response.getResult());
+        Assert.assertEquals(response.getLdapEntry().getDn(), "uid=alice,dc=ldaptive,dc=org");
+      }
+      Assert.assertEquals(bindCount.get(), 3);
+      Assert.assertEquals(fastBindCount.get(), 1);
+
+      bound = new CountDownLatch(1);
+      final AuthenticationResponse response = auth.authenticate(
+        new AuthenticationRequest("alice", new Credential("wrong")));
+      Assert.assertFalse(response.getResult());
+      Assert.assertEquals(response.getResultCode(), ResultCode.INVALID_CREDENTIALS);
+      Assert.assertEquals(bindCount.get(), 4);
+    } finally {
+      handler.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"auth"})
+  public void noEntryResolver()
+    throws Exception
+  {
+    bindCount.set(0);
+    fastBindCount.set(0);
+    bound = new CountDownLatch(1);
+    final PipelinedBindAuthenticationHandler handler = new PipelinedBindAuthenticationHandler(bindPool);
+    final Authenticator auth = new Authenticator(new FormatDnResolver("uid=%s,dc=ldaptive,dc=org"), handler);
+    auth.setEntryResolver(handler.createEntryResolver());
+    try {
+      final AuthenticationResponse response = auth.authenticate(
+        new AuthenticationRequest("alice", new Credential("secret")));
+      Assert.assertTrue(response.getResult());
+      Assert.assertEquals(response.getLdapEntry().getDn(), "uid=alice,dc=ldaptive,dc=org");
+      Assert.assertEquals(bindCount.get(), 1);
+      Assert.assertEquals(fastBindCount.get(), 0);
+    } finally {
+      handler.shutdown();
+    }
+  }
+
+
+  /**
+   * Creates a connection whose binds succeed for the password 'secret'.
+   *
+   * @return  connection
+   */
+  private Connection createConnection()
+  {
+    final ProviderConnection pc = (ProviderConnection) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] {ProviderConnection.class},
+      (proxy, method, args) -> {
+        if ("hashCode".equals(method.getName())) {
+          return System.identityHashCode(proxy);
+        } else if ("bind".equals(method.getName())) {
+          bindCount.incrementAndGet();
+          bound.countDown();
+          if (!"secret".equals(((BindRequest) args[0]).getCredential().getString())) {
+            throw new LdapException("Invalid credentials", ResultCode.INVALID_CREDENTIALS);
+          }
+        } else if ("extendedOperation".equals(method.getName())) {
+          fastBindCount.incrementAndGet();
+        }
+        return "equals".equals(method.getName()) ? proxy == args[0] : new Response<Void>(null, ResultCode.SUCCESS);
+      });
+    return (Connection) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] {Connection.class},
+      (proxy, method, args) -> "getProviderConnection".equals(method.getName()) ? pc : null);
+  }
+}
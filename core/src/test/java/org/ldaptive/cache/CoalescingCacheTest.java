@@ -0,0 +1,135 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchFilter;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link CoalescingCache}.
+ *
+ * @author  Middleware Services
+ */
+public class CoalescingCacheTest
+{
+
+  /** Number of concurrent searches. */
+  private static final int THREADS = 20;
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"cache"})
+  public void coalesce()
+    throws Exception
+  {
+    final ConcurrentCache<SearchRequest> delegate = new ConcurrentCache<>(
+      10,
+      Duration.ofSeconds(60),
+      Duration.ofSeconds(1));
+    final CoalescingCache<SearchRequest> cache = new CoalescingCache<>(delegate);
+    final SearchResult result = new SearchResult(new LdapEntry("uid=1,ou=test,dc=ldaptive,dc=org"));
+    final AtomicInteger searchCount = new AtomicInteger();
+    final CountDownLatch latch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Response<SearchResult>>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        final Callable<Response<SearchResult>> c = () -> {
+          latch.await();
+          return cache.get(
+            new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")),
+            request -> {
+              searchCount.incrementAndGet();
+              sleep();
+              return new Response<>(result, ResultCode.SUCCESS);
+            });
+        };
+        futures.add(executor.submit(c));
+      }
+      latch.countDown();
+      for (Future<Response<SearchResult>> f : futures) {
+        AssertJUnit.assertEquals(result, f.get().getResult());
+      }
+      AssertJUnit.assertEquals(1, searchCount.get());
+      AssertJUnit.assertEquals(0, cache.getInFlightCount());
+      AssertJUnit.assertEquals(
+        result,
+        delegate.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"))));
+    } finally {
+      executor.shutdown();
+      delegate.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"cache"})
+  public void failure()
+    throws Exception
+  {
+    final ConcurrentCache<SearchRequest> delegate = new ConcurrentCache<>(
+      10,
+      Duration.ofSeconds(60),
+      Duration.ofSeconds(1));
+    final CoalescingCache<SearchRequest> cache = new CoalescingCache<>(delegate);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Response<SearchResult>>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        final Callable<Response<SearchResult>> c = () -> {
+          latch.await();
+          return cache.get(
+            new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=2")),
+            request -> {
+              sleep();
+              throw new LdapException("Search failed", ResultCode.BUSY);
+            });
+        };
+        futures.add(executor.submit(c));
+      }
+      latch.countDown();
+      for (Future<Response<SearchResult>> f : futures) {
+        try {
+          f.get();
+          AssertJUnit.fail("Should have thrown LdapException");
+        } catch (ExecutionException e) {
+          AssertJUnit.assertEquals(LdapException.class, e.getCause().getClass());
+          AssertJUnit.assertEquals(ResultCode.BUSY, ((LdapException) e.getCause()).getResultCode());
+        }
+      }
+      AssertJUnit.assertEquals(0, cache.getInFlightCount());
+      AssertJUnit.assertEquals(0, delegate.size());
+    } finally {
+      executor.shutdown();
+      delegate.close();
+    }
+  }
+
+
+  /** Sleeps long enough for all concurrent searches to begin. */
+  private static void sleep()
+  {
+    try {
+      Thread.sleep(500);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import java.time.Duration;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.SearchFilter;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link ConcurrentCache}.
+ *
+ * @author  Middleware Services
+ */
+public class ConcurrentCacheTest
+{
+
+  /** Cache for testing. */
+  private final ConcurrentCache<SearchRequest> cache = new ConcurrentCache<>(
+    5,
+    Duration.ofSeconds(60),
+    Duration.ofSeconds(3));
+
+
+  /** @throws  Exception  On test failure. */
+  @BeforeClass(groups = {"cache"})
+  public void initialize()
+    throws Exception
+  {
+    fillCache();
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @AfterClass(groups = {"cache"})
+  public void clear()
+    throws Exception
+  {
+    fillCache();
+    AssertJUnit.assertEquals(5, cache.size());
+    cache.clear();
+    AssertJUnit.assertEquals(0, cache.size());
+    AssertJUnit.assertEquals(0, cache.getWeight());
+    cache.close();
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"cache"}, threadPoolSize = 5, invocationCount = 100, timeOut = 60000)
+  public void get()
+    throws Exception
+  {
+    SearchResult result = cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=3")));
+    AssertJUnit.assertEquals(new SearchResult(new LdapEntry("uid=3,ou=test,dc=ldaptive,dc=org")), result);
+    result = cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=4")));
+    AssertJUnit.assertEquals(new SearchResult(new LdapEntry("uid=4,ou=test,dc=ldaptive,dc=org")), result);
+    result = cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=5")));
+    AssertJUnit.assertEquals(new SearchResult(new LdapEntry("uid=5,ou=test,dc=ldaptive,dc=org")), result);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"cache"}, dependsOnMethods = {"get"})
+  public void put()
+    throws Exception
+  {
+    AssertJUnit.assertEquals(5, cache.size());
+    cache.put(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=%s", new Object[] {"101"})),
+      new SearchResult(new LdapEntry("uid=101,ou=test,dc=ldaptive,dc=org")));
+    cache.put(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=102")),
+      new SearchResult(new LdapEntry("uid=102,ou=test,dc=ldaptive,dc=org")));
+    AssertJUnit.assertEquals(5, cache.size());
+    AssertJUnit.assertEquals(5, cache.getWeight());
+
+    SearchResult result = cache.get(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=%s", new Object[] {"101"})));
+    AssertJUnit.assertEquals(new SearchResult(new LdapEntry("uid=101,ou=test,dc=ldaptive,dc=org")), result);
+    result = cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=102")));
+    AssertJUnit.assertEquals(new SearchResult(new LdapEntry("uid=102,ou=test,dc=ldaptive,dc=org")), result);
+    AssertJUnit.assertNull(cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"))));
+    AssertJUnit.assertEquals(2, cache.getStatistics().getEvictionCount());
+    AssertJUnit.assertTrue(cache.getStatistics().getHitCount() > 0);
+    AssertJUnit.assertTrue(cache.getStatistics().getMissCount() > 0);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"cache"})
+  public void weigh()
+    throws Exception
+  {
+    final SearchResult small = new SearchResult(
+      new LdapEntry("uid=1,ou=test,dc=ldaptive,dc=org", new LdapAttribute("cn", "1")));
+    final SearchResult large = new SearchResult();
+    for (int i = 0; i < 100; i++) {
+      large.addEntry(new LdapEntry("uid=" + i + ",ou=test,dc=ldaptive,dc=org", new LdapAttribute("cn", "" + i)));
+    }
+
+    final Weigher weigher = new SearchResultWeigher();
+    AssertJUnit.assertTrue(weigher.weigh(large) > weigher.weigh(small) * 50);
+
+    final ConcurrentCache<SearchRequest> weighted = new ConcurrentCache<>(
+      weigher.weigh(large) + weigher.weigh(small) * 2,
+      weigher,
+      Duration.ofSeconds(60),
+      Duration.ofSeconds(1));
+    try {
+      weighted.put(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")), small);
+      weighted.put(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=2")), small);
+      weighted.put(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=*")), large);
+      AssertJUnit.assertEquals(3, weighted.size());
+      weighted.put(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=3")), small);
+      AssertJUnit.assertEquals(3, weighted.size());
+      AssertJUnit.assertNull(weighted.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"))));
+      AssertJUnit.assertEquals(large, weighted.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=*"))));
+      AssertJUnit.assertTrue(weighted.getWeight() <= weigher.weigh(large) + weigher.weigh(small) * 2);
+    } finally {
+      weighted.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"cache"})
+  public void expire()
+    throws Exception
+  {
+    final ConcurrentCache<SearchRequest> expiring = new ConcurrentCache<>(
+      10,
+      Duration.ofMillis(200),
+      Duration.ofMillis(50));
+    try {
+      expiring.put(
+        new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")),
+        new SearchResult(new LdapEntry("uid=1,ou=test,dc=ldaptive,dc=org")));
+      expiring.put(
+        new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=2")),
+        new SearchResult(new LdapEntry("uid=2,ou=test,dc=ldaptive,dc=org")));
+      AssertJUnit.assertNotNull(expiring.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"))));
+      Thread.sleep(1000);
+      AssertJUnit.assertEquals(0, expiring.size());
+      AssertJUnit.assertEquals(0, expiring.getWeight());
+      AssertJUnit.assertEquals(2, expiring.getStatistics().getExpirationCount());
+      AssertJUnit.assertNull(expiring.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"))));
+    } finally {
+      expiring.close();
+    }
+  }
+
+
+  /** Fills the cache with data. */
+  private void fillCache()
+  {
+    cache.put(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")),
+      new SearchResult(new LdapEntry("uid=1,ou=test,dc=ldaptive,dc=org")));
+    cache.put(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=2")),
+      new SearchResult(new LdapEntry("uid=2,ou=test,dc=ldaptive,dc=org")));
+    cache.put(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=3")),
+      new SearchResult(new LdapEntry("uid=3,ou=test,dc=ldaptive,dc=org")));
+    cache.put(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=4")),
+      new SearchResult(new LdapEntry("uid=4,ou=test,dc=ldaptive,dc=org")));
+    cache.put(
+      new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=5")),
+      new SearchResult(new LdapEntry("uid=5,ou=test,dc=ldaptive,dc=org")));
+    // ensure uid=1 and uid=2 get evicted first
+    cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=3")));
+    cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=4")));
+    cache.get(new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=5")));
+  }
+}
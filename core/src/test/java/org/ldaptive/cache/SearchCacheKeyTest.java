@@ -0,0 +1,149 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.cache;
+
+import org.ldaptive.SearchFilter;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchScope;
+import org.ldaptive.handler.CaseChangeEntryHandler;
+import org.ldaptive.handler.CaseChangeEntryHandler.CaseChange;
+import org.ldaptive.handler.DnAttributeEntryHandler;
+import org.ldaptive.handler.MergeAttributeEntryHandler;
+import org.testng.AssertJUnit;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link SearchCacheKey}.
+ *
+ * @author  Middleware Services
+ */
+public class SearchCacheKeyTest
+{
+
+
+  /**
+   * Search request test data.
+   *
+   * @return  test data
+   */
+  @DataProvider(name = "equivalent")
+  public Object[][] createEquivalent()
+  {
+    final SearchRequest handlers1 = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"));
+    handlers1.setSearchEntryHandlers(new DnAttributeEntryHandler());
+    final SearchRequest handlers2 = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"));
+    handlers2.setSearchEntryHandlers(new DnAttributeEntryHandler());
+    return
+      new Object[][] {
+        new Object[] {
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")),
+          new SearchRequest("DC=ldaptive, DC=org", new SearchFilter("(uid=1)")),
+        },
+        new Object[] {
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid={0}", new Object[] {"1"})),
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")),
+        },
+        new Object[] {
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"), "cn", "mail"),
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"), "MAIL", "cn"),
+        },
+        new Object[] {handlers1, handlers2},
+      };
+  }
+
+
+  /**
+   * Search request test data.
+   *
+   * @return  test data
+   */
+  @DataProvider(name = "different")
+  public Object[][] createDifferent()
+  {
+    final SearchRequest scope = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"));
+    scope.setSearchScope(SearchScope.ONELEVEL);
+    final SearchRequest handlers = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"));
+    handlers.setSearchEntryHandlers(new MergeAttributeEntryHandler());
+    final CaseChangeEntryHandler upperHandler = new CaseChangeEntryHandler();
+    upperHandler.setAttributeValueCaseChange(CaseChange.UPPER);
+    final SearchRequest upper = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"));
+    upper.setSearchEntryHandlers(upperHandler);
+    final CaseChangeEntryHandler lowerHandler = new CaseChangeEntryHandler();
+    lowerHandler.setAttributeValueCaseChange(CaseChange.LOWER);
+    final SearchRequest lower = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"));
+    lower.setSearchEntryHandlers(lowerHandler);
+    return
+      new Object[][] {
+        new Object[] {
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")),
+          new SearchRequest("dc=ldaptive\\, inc,dc=org", new SearchFilter("uid=1")),
+        },
+        new Object[] {
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")),
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=2")),
+        },
+        new Object[] {
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"), "cn"),
+          new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"), "cn", "mail"),
+        },
+        new Object[] {new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")), scope},
+        new Object[] {new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1")), handlers},
+        new Object[] {upper, lower},
+      };
+  }
+
+
+  /**
+   * @param  r1  search request
+   * @param  r2  equivalent search request
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = {"cache"}, dataProvider = "equivalent")
+  public void equivalent(final SearchRequest r1, final SearchRequest r2)
+    throws Exception
+  {
+    final SearchCacheKey k1 = new SearchCacheKey(r1);
+    final SearchCacheKey k2 = new SearchCacheKey(r2);
+    AssertJUnit.assertEquals(k1, k2);
+    AssertJUnit.assertEquals(k1.hashCode(), k2.hashCode());
+  }
+
+
+  /**
+   * @param  r1  search request
+   * @param  r2  different search request
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(groups = {"cache"}, dataProvider = "different")
+  public void different(final SearchRequest r1, final SearchRequest r2)
+    throws Exception
+  {
+    AssertJUnit.assertFalse(new SearchCacheKey(r1).equals(new SearchCacheKey(r2)));
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"cache"})
+  public void immutable()
+    throws Exception
+  {
+    final SearchRequest request = new SearchRequest("dc=ldaptive,dc=org", new SearchFilter("uid=1"));
+    final SearchCacheKey key = new SearchCacheKey(request);
+    final int hashCode = key.hashCode();
+    request.setBaseDn("ou=test,dc=ldaptive,dc=org");
+    AssertJUnit.assertEquals(hashCode, key.hashCode());
+    AssertJUnit.assertEquals("dc=ldaptive,dc=org", key.getBaseDn());
+    AssertJUnit.assertEquals("(uid=1)", key.getFilter());
+
+    final CaseChangeEntryHandler handler = new CaseChangeEntryHandler();
+    handler.setAttributeValueCaseChange(CaseChange.UPPER);
+    request.setSearchEntryHandlers(handler);
+    final SearchCacheKey handlerKey = new SearchCacheKey(request);
+    final int handlerHashCode = handlerKey.hashCode();
+    handler.setAttributeValueCaseChange(CaseChange.LOWER);
+    AssertJUnit.assertEquals(handlerHashCode, handlerKey.hashCode());
+    AssertJUnit.assertFalse(handlerKey.equals(new SearchCacheKey(request)));
+  }
+}
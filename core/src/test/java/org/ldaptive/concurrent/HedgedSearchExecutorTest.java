@@ -0,0 +1,287 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchResult;
+import org.ldaptive.pool.BlockingConnectionPool;
+import org.ldaptive.pool.PoolConfig;
+import org.ldaptive.pool.PooledConnectionFactory;
+import org.ldaptive.provider.ProviderConnection;
+import org.ldaptive.provider.SearchIterator;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link HedgedSearchExecutor}.
+ *
+ * @author  Middleware Services
+ */
+public class HedgedSearchExecutorTest
+{
+
+
+  /**
+   * Waits up to five seconds for the supplied condition to become true.
+   *
+   * @param  condition  to wait for
+   *
+   * @return  whether the condition became true
+   *
+   * @throws  InterruptedException  if the thread is interrupted
+   */
+  private static boolean await(final BooleanSupplier condition)
+    throws InterruptedException
+  {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void fastPrimary()
+    throws Exception
+  {
+    final HedgedSearchExecutor executor = new HedgedSearchExecutor();
+    final TestConnectionFactory primary = new TestConnectionFactory(0, false);
+    final TestConnectionFactory secondary = new TestConnectionFactory(0, false);
+    try {
+      for (int i = 0; i < 25; i++) {
+        final Response<SearchResult> response = executor.search(primary, secondary, "(uid=*)");
+        AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+      }
+      AssertJUnit.assertEquals(25, executor.getSearchCount());
+      AssertJUnit.assertEquals(0, executor.getHedgeCount());
+      AssertJUnit.assertEquals(0.0, executor.getHedgeRate());
+      AssertJUnit.assertEquals(0, secondary.connections);
+      AssertJUnit.assertTrue(executor.getHedgeDelay().compareTo(executor.getMaxHedgeDelay()) < 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void slowPrimary()
+    throws Exception
+  {
+    final HedgedSearchExecutor executor = new HedgedSearchExecutor();
+    executor.setMaxHedgeDelay(Duration.ofMillis(50));
+    final TestConnectionFactory primary = new TestConnectionFactory(10000, false);
+    final TestConnectionFactory secondary = new TestConnectionFactory(0, false);
+    try {
+      final long start = System.nanoTime();
+      final Response<SearchResult> response = executor.search(primary, secondary, "(uid=*)");
+      AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+      AssertJUnit.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+      AssertJUnit.assertEquals(1, executor.getHedgeCount());
+      AssertJUnit.assertEquals(1, executor.getHedgeWinCount());
+      AssertJUnit.assertEquals(1.0, executor.getHedgeRate());
+      AssertJUnit.assertTrue(primary.closed.await(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void slowPooledPrimary()
+    throws Exception
+  {
+    final HedgedSearchExecutor executor = new HedgedSearchExecutor();
+    executor.setMaxHedgeDelay(Duration.ofMillis(50));
+    final TestConnectionFactory primary = new TestConnectionFactory(10000, false);
+    final TestConnectionFactory secondary = new TestConnectionFactory(0, false);
+    final PoolConfig pc = new PoolConfig();
+    pc.setMinPoolSize(1);
+    pc.setMaxPoolSize(1);
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, primary);
+    pool.initialize();
+    try {
+      final Response<SearchResult> response = executor.search(new PooledConnectionFactory(pool), secondary, "(uid=*)");
+      AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+      AssertJUnit.assertEquals(1, executor.getHedgeWinCount());
+
+      // the abandoned search is interrupted and its connection is returned to the pool once, without closing it
+      AssertJUnit.assertTrue(primary.interrupted.await(5, TimeUnit.SECONDS));
+      AssertJUnit.assertTrue(await(() -> pool.activeCount() == 0));
+      AssertJUnit.assertEquals(1, pool.availableCount());
+      AssertJUnit.assertEquals(1, primary.closed.getCount());
+      AssertJUnit.assertEquals(1, primary.connections);
+    } finally {
+      pool.close();
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void failedPrimary()
+    throws Exception
+  {
+    final HedgedSearchExecutor executor = new HedgedSearchExecutor();
+    final TestConnectionFactory primary = new TestConnectionFactory(0, true);
+    final TestConnectionFactory secondary = new TestConnectionFactory(0, false);
+    try {
+      final long start = System.nanoTime();
+      final Response<SearchResult> response = executor.search(primary, secondary, "(uid=*)");
+      AssertJUnit.assertEquals(ResultCode.SUCCESS, response.getResultCode());
+      AssertJUnit.assertTrue(System.nanoTime() - start < executor.getMaxHedgeDelay().toNanos());
+      AssertJUnit.assertEquals(1, executor.getHedgeCount());
+      AssertJUnit.assertEquals(1, executor.getHedgeWinCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void secondaryWinsNotSampled()
+    throws Exception
+  {
+    final HedgedSearchExecutor executor = new HedgedSearchExecutor();
+    final TestConnectionFactory primary = new TestConnectionFactory(0, true);
+    final TestConnectionFactory secondary = new TestConnectionFactory(0, false);
+    try {
+      for (int i = 0; i < 25; i++) {
+        executor.search(primary, secondary, "(uid=*)");
+      }
+      AssertJUnit.assertEquals(25, executor.getHedgeWinCount());
+      // only primary latencies are sampled, so the hedge delay is not lowered by fast secondary responses
+      AssertJUnit.assertEquals(executor.getMaxHedgeDelay(), executor.getHedgeDelay());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void failedBoth()
+    throws Exception
+  {
+    final HedgedSearchExecutor executor = new HedgedSearchExecutor();
+    try {
+      executor.search(new TestConnectionFactory(0, true), new TestConnectionFactory(0, true), "(uid=*)");
+      AssertJUnit.fail("Should have thrown LdapException");
+    } catch (LdapException e) {
+      AssertJUnit.assertEquals(1, executor.getHedgeCount());
+      AssertJUnit.assertEquals(0, executor.getHedgeWinCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /**
+   * Connection factory whose searches complete after a delay or fail, and abort when the connection is closed or the
+   * searching thread is interrupted.
+   */
+  private static class TestConnectionFactory extends DefaultConnectionFactory
+  {
+
+    /** Time in milliseconds each search takes. */
+    private final long delay;
+
+    /** Whether searches fail. */
+    private final boolean fail;
+
+    /** Counted down when a connection is closed. */
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    /** Counted down when a search is interrupted. */
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+
+    /** Number of connections returned. */
+    private volatile int connections;
+
+
+    /**
+     * Creates a new test connection factory.
+     *
+     * @param  d  search delay in milliseconds
+     * @param  f  whether searches fail
+     */
+    TestConnectionFactory(final long d, final boolean f)
+    {
+      super(new ConnectionConfig("ldap://localhost:389"));
+      delay = d;
+      fail = f;
+    }
+
+
+    @Override
+    public Connection getConnection()
+    {
+      connections++;
+      final CountDownLatch abort = new CountDownLatch(1);
+      final SearchIterator si = (SearchIterator) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] {SearchIterator.class},
+        (proxy, method, args) -> {
+          if ("hasNext".equals(method.getName())) {
+            return false;
+          }
+          return "getResponse".equals(method.getName()) ? new Response<Void>(null, ResultCode.SUCCESS) : null;
+        });
+      final ProviderConnection pc = (ProviderConnection) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] {ProviderConnection.class},
+        (proxy, method, args) -> {
+          try {
+            if (abort.await(delay, TimeUnit.MILLISECONDS)) {
+              throw new LdapException("Connection closed");
+            }
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw new LdapException("Search interrupted", e);
+          }
+          if (fail) {
+            throw new LdapException("Search failed");
+          }
+          return si;
+        });
+      return (Connection) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] {Connection.class},
+        (proxy, method, args) -> {
+          Object result = null;
+          if ("getProviderConnection".equals(method.getName())) {
+            result = pc;
+          } else if ("open".equals(method.getName())) {
+            result = new Response<Void>(null, ResultCode.SUCCESS);
+          } else if ("isOpen".equals(method.getName())) {
+            result = abort.getCount() > 0;
+          } else if ("hashCode".equals(method.getName())) {
+            result = System.identityHashCode(proxy);
+          } else if ("equals".equals(method.getName())) {
+            result = proxy == args[0];
+          } else if ("close".equals(method.getName())) {
+            abort.countDown();
+            closed.countDown();
+          }
+          return result;
+        });
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.concurrent;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.DeleteRequest;
+import org.ldaptive.LdapException;
+import org.ldaptive.ModifyRequest;
+import org.ldaptive.Request;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.provider.ProviderConnection;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link PipelinedOperationExecutor}.
+ *
+ * @author  Middleware Services
+ */
+public class PipelinedOperationExecutorTest
+{
+
+  /** Completes responses after a random delay. */
+  private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+
+  /** Number of requests currently outstanding. */
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  /** Largest number of requests outstanding at once. */
+  private final AtomicInteger maxOutstanding = new AtomicInteger();
+
+  /** Number of requests sent to the provider. */
+  private final AtomicInteger sent = new AtomicInteger();
+
+
+  /** Shuts down the responder. */
+  @AfterClass(groups = {"concurrent"})
+  public void shutdown()
+  {
+    responder.shutdown();
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void execute()
+    throws Exception
+  {
+    final PipelinedOperationExecutor executor = new PipelinedOperationExecutor(8);
+    final Request[] requests = new Request[100];
+    for (int i = 0; i < requests.length; i++) {
+      final String dn = "uid=" + i + ",dc=ldaptive,dc=org";
+      requests[i] = i % 10 == 0 ? new DeleteRequest(dn) : new ModifyRequest(dn);
+    }
+
+    final List<PipelinedOperationExecutor.Result> results = executor.execute(createConnection(null, null), requests);
+    AssertJUnit.assertEquals(requests.length, results.size());
+    for (int i = 0; i < requests.length; i++) {
+      final PipelinedOperationExecutor.Result result = results.get(i);
+      AssertJUnit.assertSame(requests[i], result.getRequest());
+      if (i % 10 == 0) {
+        AssertJUnit.assertTrue(result.isException());
+        AssertJUnit.assertTrue(result.getException() instanceof LdapException);
+      } else {
+        AssertJUnit.assertFalse(result.isException());
+        AssertJUnit.assertEquals(ResultCode.SUCCESS, result.getResponse().getResultCode());
+      }
+    }
+    AssertJUnit.assertTrue(maxOutstanding.get() <= executor.getMaxInFlight());
+    AssertJUnit.assertTrue(maxOutstanding.get() > 1);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void unsupportedRequest()
+    throws Exception
+  {
+    final PipelinedOperationExecutor executor = new PipelinedOperationExecutor(2);
+    final List<PipelinedOperationExecutor.Result> results = new ArrayList<>();
+    final List<Request> requests = new ArrayList<>();
+    requests.add(new ModifyRequest("uid=1,dc=ldaptive,dc=org"));
+    requests.add(new SearchRequest("dc=ldaptive,dc=org", "uid=*"));
+    try {
+      executor.execute(createConnection(null, null), requests.iterator(), results::add);
+      AssertJUnit.fail("Should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      AssertJUnit.assertEquals(1, results.size());
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrent"})
+  public void responseTimeout()
+    throws Exception
+  {
+    final PipelinedOperationExecutor executor = new PipelinedOperationExecutor(4);
+    final List<Request> requests = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      requests.add(new ModifyRequest("uid=" + i + ",dc=ldaptive,dc=org"));
+    }
+    sent.set(0);
+    final List<PipelinedOperationExecutor.Result> results = new ArrayList<>();
+    executor.execute(
+      createConnection(Duration.ofMillis(200), "uid=2,dc=ldaptive,dc=org"),
+      requests.iterator(),
+      results::add);
+
+    // requests 3, 4 and 5 are in flight when the response to request 2 times out, the rest are never sent
+    AssertJUnit.assertEquals(6, sent.get());
+    AssertJUnit.assertEquals(6, results.size());
+    AssertJUnit.assertFalse(results.get(0).isException());
+    AssertJUnit.assertFalse(results.get(1).isException());
+    AssertJUnit.assertSame(requests.get(2), results.get(2).getRequest());
+    AssertJUnit.assertEquals(ResultCode.LDAP_TIMEOUT, ((LdapException) results.get(2).getException()).getResultCode());
+    for (int i = 3; i < results.size(); i++) {
+      AssertJUnit.assertSame(requests.get(i), results.get(i).getRequest());
+      AssertJUnit.assertTrue(results.get(i).getException() instanceof CancellationException);
+    }
+  }
+
+
+  /**
+   * Returns a connection whose provider completes modify requests successfully and delete requests exceptionally, each
+   * after a random delay.
+   *
+   * @param  timeout  response timeout of the connection config
+   * @param  hangDn  DN of a modify request that never receives a response, may be null
+   *
+   * @return  connection
+   */
+  private Connection createConnection(final Duration timeout, final String hangDn)
+  {
+    final ConnectionConfig cc = new ConnectionConfig("ldap://localhost:389");
+    cc.setResponseTimeout(timeout);
+    final ProviderConnection pc = (ProviderConnection) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] {ProviderConnection.class},
+      (proxy, method, args) -> {
+        final CompletableFuture<Response<Void>> future = new CompletableFuture<>();
+        sent.incrementAndGet();
+        if ("modifyAsync".equals(method.getName()) && ((ModifyRequest) args[0]).getDn().equals(hangDn)) {
+          return future;
+        }
+        final int count = outstanding.incrementAndGet();
+        maxOutstanding.accumulateAndGet(count, Math::max);
+        responder.schedule(
+          () -> {
+            outstanding.decrementAndGet();
+            if ("deleteAsync".equals(method.getName())) {
+              future.completeExceptionally(new LdapException("Delete failed"));
+            } else {
+              future.complete(new Response<>(null, ResultCode.SUCCESS));
+            }
+          },
+          ThreadLocalRandom.current().nextInt(1000),
+          TimeUnit.MICROSECONDS);
+        return future;
+      });
+    return (Connection) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] {Connection.class},
+      (proxy, method, args) -> {
+        if ("getProviderConnection".equals(method.getName())) {
+          return pc;
+        }
+        return "getConnectionConfig".equals(method.getName()) ? cc : null;
+      });
+  }
+}
@@ -0,0 +1,255 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.jaas;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.ldaptive.Connection;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.SearchFilter;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link CachingRoleResolver} and batched role searches.
+ *
+ * @author  Middleware Services
+ */
+public class CachingRoleResolverTest
+{
+
+  /** Number of times the underlying resolver is invoked. */
+  private final AtomicInteger searchCount = new AtomicInteger();
+
+  /** Returns the 'user' filter parameter as the only role. */
+  private final RoleResolver resolver = request -> {
+    searchCount.incrementAndGet();
+    return LdapRole.toRoles(
+      Arrays.asList(new LdapAttribute("cn", request.getSearchFilter().getParameters().get("user").toString())));
+  };
+
+
+  /**
+   * Returns a role search request for the supplied user.
+   *
+   * @param  user  to search roles for
+   *
+   * @return  search request
+   */
+  private static SearchRequest createRequest(final String user)
+  {
+    final SearchFilter filter = new SearchFilter("(member={dn})");
+    filter.setParameter("dn", "uid=" + user + ",ou=people,dc=ldaptive,dc=org");
+    filter.setParameter("user", user);
+    return new SearchRequest("ou=groups,dc=ldaptive,dc=org", filter, "cn");
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"jaas"})
+  public void search()
+    throws Exception
+  {
+    searchCount.set(0);
+    final CachingRoleResolver cache = new CachingRoleResolver(resolver);
+    Assert.assertEquals(
+      cache.search(createRequest("alice")),
+      LdapRole.toRoles(Arrays.asList(new LdapAttribute("cn", "alice"))));
+    cache.search(createRequest("alice"));
+    cache.search(createRequest("bob"));
+    Assert.assertEquals(searchCount.get(), 2);
+    Assert.assertEquals(cache.getStatistics().getHitCount(), 1);
+    Assert.assertEquals(cache.size(), 2);
+
+    // returned roles do not modify the cache
+    cache.search(createRequest("alice")).clear();
+    Assert.assertEquals(cache.search(createRequest("alice")).size(), 1);
+
+    cache.invalidateDn("UID=alice,ou=people,dc=ldaptive,dc=org");
+    Assert.assertEquals(cache.size(), 1);
+    cache.search(createRequest("alice"));
+    Assert.assertEquals(searchCount.get(), 3);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"jaas"})
+  public void expiration()
+    throws Exception
+  {
+    searchCount.set(0);
+    final CachingRoleResolver cache = new CachingRoleResolver(resolver);
+    cache.setTimeToLive(Duration.ofMillis(50));
+    cache.search(createRequest("alice"));
+    cache.search(createRequest("alice"));
+    Assert.assertEquals(searchCount.get(), 1);
+    Thread.sleep(100);
+    cache.search(createRequest("alice"));
+    Assert.assertEquals(searchCount.get(), 2);
+    Assert.assertEquals(cache.getStatistics().getExpirationCount(), 1);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"jaas"})
+  public void maxSize()
+    throws Exception
+  {
+    searchCount.set(0);
+    final CachingRoleResolver cache = new CachingRoleResolver(resolver);
+    cache.setMaxSize(2);
+    cache.search(createRequest("alice"));
+    cache.search(createRequest("bob"));
+    cache.search(createRequest("alice"));
+    cache.search(createRequest("carol"));
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertEquals(cache.getStatistics().getEvictionCount(), 1);
+
+    // bob was least recently used
+    cache.search(createRequest("alice"));
+    Assert.assertEquals(searchCount.get(), 3);
+    cache.search(createRequest("bob"));
+    Assert.assertEquals(searchCount.get(), 4);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"jaas"})
+  public void singleFlight()
+    throws Exception
+  {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger count = new AtomicInteger();
+    final CachingRoleResolver cache = new CachingRoleResolver(request -> {
+      count.incrementAndGet();
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return LdapRole.toRoles(Arrays.asList(new LdapAttribute("cn", "admins")));
+    });
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final Future<Set<LdapRole>> first = executor.submit(() -> cache.search(createRequest("alice")));
+      Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+      final List<Future<Set<LdapRole>>> others = Arrays.asList(
+        executor.submit(() -> cache.search(createRequest("alice"))),
+        executor.submit(() -> cache.search(createRequest("alice"))),
+        executor.submit(() -> cache.search(createRequest("alice"))));
+      Thread.sleep(100);
+      release.countDown();
+      Assert.assertEquals(first.get(5, TimeUnit.SECONDS).size(), 1);
+      for (Future<Set<LdapRole>> f : others) {
+        Assert.assertEquals(f.get(5, TimeUnit.SECONDS).size(), 1);
+      }
+      Assert.assertEquals(count.get(), 1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"jaas"})
+  public void batchSearch()
+    throws Exception
+  {
+    final Map<String, String[]> groups = new HashMap<>();
+    groups.put("admins", new String[] {"uid=alice,dc=ldaptive,dc=org"});
+    groups.put("staff", new String[] {"UID=alice,dc=ldaptive,dc=org", "uid=bob,dc=ldaptive,dc=org"});
+    final List<SearchRequest> requests = new ArrayList<>();
+    final AbstractSearchRoleResolver rr = new AbstractSearchRoleResolver() {
+      @Override
+      protected SearchResult performLdapSearch(final SearchRequest request)
+      {
+        requests.add(request);
+        final List<String> dns = request.getSearchFilter().getParameters().values().stream().map(
+          Object::toString).collect(Collectors.toList());
+        final SearchResult result = new SearchResult();
+        groups.forEach((cn, members) -> {
+          if (Arrays.stream(members).anyMatch(m -> dns.stream().anyMatch(m::equalsIgnoreCase))) {
+            result.addEntry(
+              new LdapEntry(
+                "cn=" + cn + ",dc=ldaptive,dc=org",
+                new LdapAttribute("cn", cn),
+                new LdapAttribute("member", members)));
+          }
+        });
+        return result;
+      }
+
+      @Override
+      protected Connection getConnection()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+    rr.setBatchSize(2);
+
+    final Map<String, Set<LdapRole>> roles = rr.search(
+      new SearchRequest("dc=ldaptive,dc=org", "(member={dn})", "cn"),
+      Arrays.asList(
+        "uid=alice,dc=ldaptive,dc=org",
+        "uid=bob,dc=ldaptive,dc=org",
+        "uid=carol,dc=ldaptive,dc=org",
+        "uid=bob,dc=ldaptive,dc=org"));
+    Assert.assertEquals(requests.size(), 2);
+    Assert.assertEquals(
+      requests.get(0).getSearchFilter().format(),
+      "(|(member=uid=alice,dc=ldaptive,dc=org)(member=uid=bob,dc=ldaptive,dc=org))");
+    Assert.assertEquals(requests.get(0).getReturnAttributes(), new String[] {"cn", "member"});
+    Assert.assertEquals(requests.get(0).getBaseDn(), "dc=ldaptive,dc=org");
+
+    Assert.assertEquals(roles.size(), 3);
+    Assert.assertEquals(
+      roles.get("uid=alice,dc=ldaptive,dc=org"),
+      LdapRole.toRoles(Arrays.asList(new LdapAttribute("cn", "admins", "staff"))));
+    Assert.assertEquals(
+      roles.get("uid=bob,dc=ldaptive,dc=org"),
+      LdapRole.toRoles(Arrays.asList(new LdapAttribute("cn", "staff"))));
+    Assert.assertTrue(roles.get("uid=carol,dc=ldaptive,dc=org").isEmpty());
+  }
+
+
+  /** Role cache options wrap the role resolver and cache IDs share a single resolver. */
+  @Test(groups = {"jaas"})
+  public void properties()
+  {
+    final Map<String, String> options = new HashMap<>();
+    options.put("ldapUrl", "ldap://localhost:389");
+    options.put(PropertiesRoleResolverFactory.ROLE_CACHE_TIME_TO_LIVE, "PT5M");
+    options.put(PropertiesRoleResolverFactory.ROLE_CACHE_MAX_SIZE, "50");
+    options.put(AbstractPropertiesFactory.CACHE_ID, "caching-role-resolver-test");
+
+    final PropertiesRoleResolverFactory factory = new PropertiesRoleResolverFactory();
+    final RoleResolver rr = factory.createRoleResolver(options);
+    Assert.assertTrue(rr instanceof CachingRoleResolver);
+    Assert.assertEquals(((CachingRoleResolver) rr).getTimeToLive(), Duration.ofMinutes(5));
+    Assert.assertEquals(((CachingRoleResolver) rr).getMaxSize(), 50);
+    Assert.assertTrue(((CachingRoleResolver) rr).getRoleResolver() instanceof SearchRoleResolver);
+    Assert.assertSame(factory.createRoleResolver(options), rr);
+
+    options.remove(PropertiesRoleResolverFactory.ROLE_CACHE_TIME_TO_LIVE);
+    options.remove(PropertiesRoleResolverFactory.ROLE_CACHE_MAX_SIZE);
+    options.remove(AbstractPropertiesFactory.CACHE_ID);
+    Assert.assertTrue(factory.createRoleResolver(options) instanceof SearchRoleResolver);
+  }
+}
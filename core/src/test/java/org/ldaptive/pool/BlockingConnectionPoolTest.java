@@ -0,0 +1,331 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.ldaptive.Connection;
+import org.ldaptive.pool.MockConnectionFactory.MockConnection;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link BlockingConnectionPool} using a {@link MockConnectionFactory}.
+ *
+ * @author  Middleware Services
+ */
+public class BlockingConnectionPoolTest
+{
+
+
+  /**
+   * Creates a new pool config.
+   *
+   * @param  min  minimum pool size
+   * @param  max  maximum pool size
+   *
+   * @return  pool config
+   */
+  private static PoolConfig createPoolConfig(final int min, final int max)
+  {
+    final PoolConfig pc = new PoolConfig();
+    pc.setMinPoolSize(min);
+    pc.setMaxPoolSize(max);
+    return pc;
+  }
+
+
+  /**
+   * Returns the number of connections being opened in the background.
+   *
+   * @param  pool  to inspect
+   *
+   * @return  pending count
+   */
+  private static int pendingCount(final AbstractConnectionPool pool)
+  {
+    pool.poolLock.lock();
+    try {
+      return pool.getPendingCount();
+    } finally {
+      pool.poolLock.unlock();
+    }
+  }
+
+
+  /**
+   * Waits up to five seconds for the supplied condition to become true.
+   *
+   * @param  condition  to wait for
+   *
+   * @return  whether the condition became true
+   *
+   * @throws  InterruptedException  if the thread is interrupted
+   */
+  private static boolean await(final BooleanSupplier condition)
+    throws InterruptedException
+  {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void validateBatches()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final PoolConfig pc = createPoolConfig(5, 5);
+    pc.setValidatePeriodically(true);
+    pc.setValidateBatchSize(2);
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, factory);
+    pool.setValidator(c -> ((MockConnection) c).isValid());
+    pool.initialize();
+    try {
+      final List<MockConnection> initial = factory.getConnections();
+      Assert.assertEquals(initial.size(), 5);
+      initial.get(1).setValid(false);
+      initial.get(4).setValid(false);
+
+      pool.validate();
+      Assert.assertFalse(initial.get(1).isOpen());
+      Assert.assertFalse(initial.get(4).isOpen());
+      Assert.assertEquals(pool.getConnectionPoolMetrics().getValidateFailureCount(), 2);
+      Assert.assertEquals(pool.activeCount(), 0);
+      // failed connections are replaced to maintain the minimum size
+      Assert.assertEquals(pool.availableCount(), 5);
+      Assert.assertEquals(factory.getConnections().size(), 7);
+      Assert.assertEquals(factory.openConnectionCount(), 5);
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void validateTimeout()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final PoolConfig pc = createPoolConfig(3, 3);
+    pc.setValidatePeriodically(true);
+    pc.setValidateBatchSize(3);
+    pc.setValidateTimeout(Duration.ofMillis(100));
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, factory);
+    pool.setValidator(
+      c -> {
+        if (!((MockConnection) c).isValid()) {
+          try {
+            Thread.sleep(5000);
+          } catch (InterruptedException e) {
+            return false;
+          }
+        }
+        return true;
+      });
+    pool.initialize();
+    try {
+      // an invalid connection hangs its validation
+      final MockConnection slow = factory.getConnections().get(0);
+      slow.setValid(false);
+
+      final long start = System.nanoTime();
+      pool.validate();
+      // batch is validated concurrently, so the timeout is incurred once
+      Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+      Assert.assertFalse(slow.isOpen());
+      Assert.assertEquals(pool.getConnectionPoolMetrics().getValidateFailureCount(), 1);
+      Assert.assertEquals(pool.availableCount(), 3);
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void checkOutDuringValidation()
+    throws Exception
+  {
+    final CountDownLatch validating = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final PoolConfig pc = createPoolConfig(3, 3);
+    pc.setValidatePeriodically(true);
+    pc.setValidateBatchSize(1);
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, factory);
+    pool.setBlockWaitTime(Duration.ofSeconds(5));
+    pool.setValidator(
+      c -> {
+        validating.countDown();
+        try {
+          return release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          return false;
+        }
+      });
+    pool.initialize();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<?> validation = executor.submit((Runnable) pool::validate);
+      Assert.assertTrue(validating.await(5, TimeUnit.SECONDS));
+
+      // the pool lock is not held while a batch is validated
+      final Connection c1 = pool.getConnection();
+      final Connection c2 = pool.getConnection();
+      Assert.assertEquals(pool.availableCount(), 0);
+      Assert.assertEquals(pool.activeCount(), 3);
+
+      release.countDown();
+      validation.get(10, TimeUnit.SECONDS);
+      c1.close();
+      c2.close();
+      Assert.assertEquals(pool.availableCount(), 3);
+      Assert.assertEquals(pool.activeCount(), 0);
+      Assert.assertEquals(factory.getConnections().size(), 3);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void growInBackground()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final PoolConfig pc = createPoolConfig(0, 4);
+    pc.setSpareConnections(2);
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, factory);
+    pool.initialize();
+    try {
+      Assert.assertTrue(await(() -> pool.availableCount() == 2));
+      Assert.assertEquals(pendingCount(pool), 0);
+
+      // each check out is replaced in the background
+      final Connection c1 = pool.getConnection();
+      Assert.assertTrue(await(() -> pool.availableCount() == 2));
+      Assert.assertEquals(factory.getConnections().size(), 3);
+
+      // the pool does not grow beyond its maximum size
+      final Connection c2 = pool.getConnection();
+      final Connection c3 = pool.getConnection();
+      final Connection c4 = pool.getConnection();
+      Assert.assertTrue(await(() -> pendingCount(pool) == 0));
+      Assert.assertEquals(pool.availableCount(), 0);
+      Assert.assertEquals(pool.activeCount(), 4);
+      Assert.assertEquals(factory.getConnections().size(), 4);
+
+      c1.close();
+      c2.close();
+      c3.close();
+      c4.close();
+      Assert.assertEquals(pool.availableCount(), 4);
+      Assert.assertEquals(pendingCount(pool), 0);
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void blockOnPendingConnection()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    factory.setOpenDelay(200);
+    final PoolConfig pc = createPoolConfig(0, 2);
+    pc.setSpareConnections(1);
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, factory);
+    pool.setBlockWaitTime(Duration.ofSeconds(5));
+    pool.initialize();
+    try {
+      // the first spare is still opening, so the check out waits for it rather than creating another
+      final Connection c1 = pool.getConnection();
+      Assert.assertTrue(c1.isOpen());
+      Assert.assertEquals(pool.activeCount(), 1);
+      Assert.assertTrue(await(() -> pendingCount(pool) == 0 && pool.availableCount() == 1));
+      Assert.assertEquals(factory.getConnections().size(), 2);
+      c1.close();
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void exhaustedInBackground()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    factory.setOpenFailure(true);
+    final PoolConfig pc = createPoolConfig(0, 3);
+    pc.setSpareConnections(2);
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, factory);
+    pool.initialize();
+    try {
+      // every pending create fails, check outs fail fast instead of blocking indefinitely
+      final long start = System.nanoTime();
+      try {
+        pool.getConnection();
+        Assert.fail("Should have thrown PoolExhaustedException");
+      } catch (PoolExhaustedException e) {
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+      }
+      Assert.assertTrue(await(() -> pendingCount(pool) == 0));
+      Assert.assertEquals(pool.getConnectionPoolMetrics().getExhaustedCount(), 1);
+      Assert.assertTrue(pool.getConnectionPoolMetrics().getCreateFailureCount() >= 1);
+      Assert.assertEquals(pool.availableCount(), 0);
+      Assert.assertEquals(pool.activeCount(), 0);
+
+      // the pool recovers once connections can be opened
+      factory.setOpenFailure(false);
+      final Connection conn = pool.getConnection();
+      Assert.assertTrue(conn.isOpen());
+      conn.close();
+      // two spares plus the returned connection
+      Assert.assertTrue(await(() -> pendingCount(pool) == 0 && pool.availableCount() == 3));
+      Assert.assertEquals(factory.openConnectionCount(), 3);
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void closeWithPendingConnections()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    factory.setOpenDelay(200);
+    final PoolConfig pc = createPoolConfig(0, 3);
+    pc.setSpareConnections(2);
+    final BlockingConnectionPool pool = new BlockingConnectionPool(pc, factory);
+    pool.initialize();
+    Assert.assertEquals(pendingCount(pool), 2);
+    pool.close();
+
+    // connections opened after the pool is closed are discarded
+    Thread.sleep(500);
+    Assert.assertEquals(factory.openConnectionCount(), 0);
+  }
+}
@@ -0,0 +1,270 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.Connection;
+import org.ldaptive.pool.MockConnectionFactory.MockConnection;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link ConcurrentConnectionPool}.
+ *
+ * @author  Middleware Services
+ */
+public class ConcurrentConnectionPoolTest
+{
+
+
+  /**
+   * Creates a new initialized pool.
+   *
+   * @param  factory  connection factory
+   * @param  min  minimum pool size
+   * @param  max  maximum pool size
+   * @param  blockWaitTime  block wait time or null to block indefinitely
+   *
+   * @return  concurrent connection pool
+   */
+  private static ConcurrentConnectionPool createPool(
+    final MockConnectionFactory factory,
+    final int min,
+    final int max,
+    final Duration blockWaitTime)
+  {
+    final PoolConfig pc = new PoolConfig();
+    pc.setMinPoolSize(min);
+    pc.setMaxPoolSize(max);
+    final ConcurrentConnectionPool pool = new ConcurrentConnectionPool(pc, factory);
+    pool.setBlockWaitTime(blockWaitTime);
+    pool.setFailFastInitialize(false);
+    pool.initialize();
+    return pool;
+  }
+
+
+  /**
+   * Returns the mock connection underlying the supplied pooled connection.
+   *
+   * @param  pool  that the connection was checked out from
+   * @param  conn  pooled connection
+   *
+   * @return  mock connection
+   */
+  private static MockConnection unwrap(final AbstractConnectionPool pool, final Connection conn)
+  {
+    return (MockConnection) pool.retrieveConnectionProxy(conn).getConnection();
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void checkOutCheckIn()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final ConcurrentConnectionPool pool = createPool(factory, 2, 5, null);
+    try {
+      Assert.assertEquals(pool.availableCount(), 2);
+      Assert.assertEquals(pool.activeCount(), 0);
+
+      final Connection c1 = pool.getConnection();
+      final Connection c2 = pool.getConnection();
+      final Connection c3 = pool.getConnection();
+      Assert.assertEquals(pool.activeCount(), 3);
+      Assert.assertEquals(pool.availableCount(), 0);
+      Assert.assertEquals(factory.getConnections().size(), 3);
+
+      c1.close();
+      c2.close();
+      c3.close();
+      Assert.assertEquals(pool.activeCount(), 0);
+      Assert.assertEquals(pool.availableCount(), 3);
+
+      // returning a connection twice is ignored
+      c1.close();
+      Assert.assertEquals(pool.availableCount(), 3);
+
+      // the connection last returned by this thread is reused
+      final Connection c4 = pool.getConnection();
+      Assert.assertSame(unwrap(pool, c4), unwrap(pool, c3));
+      c4.close();
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void concurrentCheckOutCheckIn()
+    throws Exception
+  {
+    final int threads = 16;
+    final int iterations = 500;
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final ConcurrentConnectionPool pool = createPool(factory, 2, 5, Duration.ofSeconds(10));
+    final AtomicInteger inUse = new AtomicInteger();
+    final AtomicInteger maxInUse = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<Void>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(
+          executor.submit(
+            () -> {
+              start.await();
+              for (int j = 0; j < iterations; j++) {
+                final Connection conn = pool.getConnection();
+                final MockConnection mc = unwrap(pool, conn);
+                if (!mc.getInUse().compareAndSet(false, true)) {
+                  throw new IllegalStateException("Connection checked out twice: " + mc);
+                }
+                maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                Assert.assertTrue(conn.isOpen());
+                inUse.decrementAndGet();
+                mc.getInUse().set(false);
+                conn.close();
+              }
+              return null;
+            }));
+      }
+      start.countDown();
+      for (Future<Void> f : futures) {
+        f.get(30, TimeUnit.SECONDS);
+      }
+
+      Assert.assertTrue(maxInUse.get() <= 5);
+      Assert.assertTrue(factory.getConnections().size() <= 5);
+      Assert.assertEquals(pool.activeCount(), 0);
+      Assert.assertEquals(pool.availableCount(), factory.getConnections().size());
+      Assert.assertEquals(pool.getConnectionPoolMetrics().getBlockTimeoutCount(), 0);
+    } finally {
+      executor.shutdownNow();
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void closeWithActiveConnections()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final ConcurrentConnectionPool pool = createPool(factory, 3, 3, null);
+    final Connection c1 = pool.getConnection();
+    final Connection c2 = pool.getConnection();
+    Assert.assertEquals(factory.openConnectionCount(), 3);
+
+    pool.close();
+    Assert.assertEquals(factory.openConnectionCount(), 0);
+    Assert.assertFalse(c1.isOpen());
+    Assert.assertFalse(c2.isOpen());
+
+    // connections returned after the pool is closed are rejected and not reopened
+    try {
+      c1.close();
+      Assert.fail("Should have thrown IllegalStateException");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals(e.getClass(), IllegalStateException.class);
+    }
+    Assert.assertEquals(factory.getConnections().size(), 3);
+    Assert.assertEquals(factory.openConnectionCount(), 0);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void blockTimeout()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final ConcurrentConnectionPool pool = createPool(factory, 1, 2, Duration.ofMillis(100));
+    try {
+      final Connection c1 = pool.getConnection();
+      final Connection c2 = pool.getConnection();
+      final long start = System.nanoTime();
+      try {
+        pool.getConnection();
+        Assert.fail("Should have thrown BlockingTimeoutException");
+      } catch (BlockingTimeoutException e) {
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+      }
+      Assert.assertEquals(pool.getConnectionPoolMetrics().getBlockTimeoutCount(), 1);
+      Assert.assertEquals(factory.getConnections().size(), 2);
+      c1.close();
+      c2.close();
+    } finally {
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void blockUntilAvailable()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    final ConcurrentConnectionPool pool = createPool(factory, 1, 1, Duration.ofSeconds(10));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Connection c1 = pool.getConnection();
+      final MockConnection mc = unwrap(pool, c1);
+      final Future<MockConnection> waiter = executor.submit(
+        () -> {
+          final Connection conn = pool.getConnection();
+          final MockConnection m = unwrap(pool, conn);
+          conn.close();
+          return m;
+        });
+      Thread.sleep(100);
+      Assert.assertFalse(waiter.isDone());
+      c1.close();
+      Assert.assertSame(waiter.get(5, TimeUnit.SECONDS), mc);
+      Assert.assertEquals(factory.getConnections().size(), 1);
+    } finally {
+      executor.shutdownNow();
+      pool.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void exhausted()
+    throws Exception
+  {
+    final MockConnectionFactory factory = new MockConnectionFactory();
+    factory.setOpenFailure(true);
+    final ConcurrentConnectionPool pool = createPool(factory, 1, 2, Duration.ofMillis(100));
+    try {
+      Assert.assertEquals(pool.availableCount(), 0);
+      try {
+        pool.getConnection();
+        Assert.fail("Should have thrown PoolExhaustedException");
+      } catch (PoolExhaustedException e) {
+        Assert.assertEquals(pool.getConnectionPoolMetrics().getExhaustedCount(), 1);
+      }
+
+      // the pool recovers once connections can be opened
+      factory.setOpenFailure(false);
+      final Connection conn = pool.getConnection();
+      Assert.assertTrue(conn.isOpen());
+      conn.close();
+      Assert.assertEquals(pool.availableCount(), 1);
+    } finally {
+      pool.close();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.time.Duration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link LatencyHistogram}.
+ *
+ * @author  Middleware Services
+ */
+public class LatencyHistogramTest
+{
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void empty()
+    throws Exception
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    Assert.assertEquals(histogram.getCount(), 0);
+    Assert.assertEquals(histogram.getMean(), Duration.ZERO);
+    Assert.assertEquals(histogram.getMax(), Duration.ZERO);
+    Assert.assertEquals(histogram.getPercentile(99), Duration.ZERO);
+    Assert.assertEquals(histogram.getBucketCounts().length, histogram.getBucketBounds().length + 1);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void record()
+    throws Exception
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 98; i++) {
+      histogram.record(Duration.ofNanos(1500).toNanos());
+    }
+    histogram.record(Duration.ofMillis(3).toNanos());
+    histogram.record(Duration.ofSeconds(30).toNanos());
+
+    Assert.assertEquals(histogram.getCount(), 100);
+    Assert.assertEquals(histogram.getMax(), Duration.ofSeconds(30));
+    Assert.assertEquals(histogram.getPercentile(50), Duration.ofNanos(2000));
+    Assert.assertEquals(histogram.getPercentile(99), Duration.ofMillis(5));
+    Assert.assertEquals(histogram.getPercentile(100), Duration.ofSeconds(30));
+    Assert.assertEquals(histogram.getBucketCounts()[1], 98);
+    Assert.assertEquals(histogram.getBucketCounts()[histogram.getBucketBounds().length], 1);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"}, expectedExceptions = IllegalArgumentException.class)
+  public void invalidPercentile()
+    throws Exception
+  {
+    new LatencyHistogram().getPercentile(101);
+  }
+}
@@ -0,0 +1,249 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.ldaptive.BindRequest;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.provider.ProviderConnection;
+
+/**
+ * Connection factory for pool unit tests that returns {@link MockConnection}s, which never perform any I/O.
+ *
+ * @author  Middleware Services
+ */
+public class MockConnectionFactory extends DefaultConnectionFactory
+{
+
+  /** Every connection returned by this factory. */
+  private final List<MockConnection> connections = new CopyOnWriteArrayList<>();
+
+  /** Whether opening a connection fails. */
+  private volatile boolean openFailure;
+
+  /** Time in milliseconds it takes to open a connection. */
+  private volatile long openDelay;
+
+
+  /** Creates a new mock connection factory. */
+  public MockConnectionFactory()
+  {
+    super(new ConnectionConfig("ldap://localhost:389"));
+  }
+
+
+  /**
+   * Sets whether opening a connection fails.
+   *
+   * @param  b  whether open fails
+   */
+  public void setOpenFailure(final boolean b)
+  {
+    openFailure = b;
+  }
+
+
+  /**
+   * Sets the time in milliseconds it takes to open a connection.
+   *
+   * @param  millis  open delay
+   */
+  public void setOpenDelay(final long millis)
+  {
+    openDelay = millis;
+  }
+
+
+  /**
+   * Returns every connection returned by this factory.
+   *
+   * @return  connections
+   */
+  public List<MockConnection> getConnections()
+  {
+    return connections;
+  }
+
+
+  /**
+   * Returns the number of connections that have been opened successfully.
+   *
+   * @return  open count
+   */
+  public int openCount()
+  {
+    return (int) connections.stream().filter(c -> c.opened).count();
+  }
+
+
+  /**
+   * Returns the number of connections that are currently open.
+   *
+   * @return  number of open connections
+   */
+  public int openConnectionCount()
+  {
+    return (int) connections.stream().filter(MockConnection::isOpen).count();
+  }
+
+
+  @Override
+  public Connection getConnection()
+  {
+    final MockConnection conn = new MockConnection(getConnectionConfig());
+    connections.add(conn);
+    return conn;
+  }
+
+
+  /** Connection that records its state and never performs any I/O. */
+  public final class MockConnection implements Connection
+  {
+
+    /** Whether this connection is checked out, maintained by the test. */
+    private final AtomicBoolean inUse = new AtomicBoolean();
+
+    /** Connection configuration. */
+    private final ConnectionConfig config;
+
+    /** Whether this connection is open. */
+    private volatile boolean open;
+
+    /** Whether this connection was ever opened. */
+    private volatile boolean opened;
+
+    /** Whether this connection passes validation. */
+    private volatile boolean valid = true;
+
+
+    /**
+     * Creates a new mock connection.
+     *
+     * @param  cc  connection config
+     */
+    private MockConnection(final ConnectionConfig cc)
+    {
+      config = cc;
+    }
+
+
+    /**
+     * Returns the flag that tests use to detect a connection that is checked out by two threads at once.
+     *
+     * @return  in use flag
+     */
+    public AtomicBoolean getInUse()
+    {
+      return inUse;
+    }
+
+
+    /**
+     * Returns whether this connection passes validation.
+     *
+     * @return  whether this connection is valid
+     */
+    public boolean isValid()
+    {
+      return valid;
+    }
+
+
+    /**
+     * Sets whether this connection passes validation.
+     *
+     * @param  b  whether this connection is valid
+     */
+    public void setValid(final boolean b)
+    {
+      valid = b;
+    }
+
+
+    @Override
+    public ConnectionConfig getConnectionConfig()
+    {
+      return config;
+    }
+
+
+    @Override
+    public Response<Void> open()
+      throws LdapException
+    {
+      if (openDelay > 0) {
+        try {
+          Thread.sleep(openDelay);
+        } catch (InterruptedException e) {
+          throw new LdapException(e);
+        }
+      }
+      if (openFailure) {
+        throw new LdapException("Open failed", ResultCode.CONNECT_ERROR);
+      }
+      open = true;
+      opened = true;
+      return new Response<>(null, ResultCode.SUCCESS);
+    }
+
+
+    @Override
+    public Response<Void> open(final BindRequest request)
+      throws LdapException
+    {
+      return open();
+    }
+
+
+    @Override
+    public boolean isOpen()
+    {
+      return open;
+    }
+
+
+    @Override
+    public ProviderConnection getProviderConnection()
+    {
+      return null;
+    }
+
+
+    @Override
+    public void close()
+    {
+      open = false;
+    }
+
+
+    @Override
+    public void close(final RequestControl[] controls)
+    {
+      close();
+    }
+
+
+    @Override
+    public Response<Void> reopen()
+      throws LdapException
+    {
+      close();
+      return open();
+    }
+
+
+    @Override
+    public Response<Void> reopen(final BindRequest request)
+      throws LdapException
+    {
+      return reopen();
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.pool;
+
+import java.time.Instant;
+import java.util.Deque;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link PooledConnectionStatistics}.
+ *
+ * @author  Middleware Services
+ */
+public class PooledConnectionStatisticsTest
+{
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void statistics()
+    throws Exception
+  {
+    final PooledConnectionStatistics stats = new PooledConnectionStatistics(3);
+    Assert.assertNull(stats.getLastAvailableState());
+    Assert.assertTrue(stats.getAvailableStats().isEmpty());
+    final Instant start = Instant.ofEpochMilli(System.currentTimeMillis());
+    for (int i = 0; i < 5; i++) {
+      stats.addAvailableStat();
+    }
+    stats.addActiveStat();
+    Assert.assertEquals(stats.getAvailableStats().size(), 3);
+    Assert.assertEquals(stats.getActiveStats().size(), 1);
+    Assert.assertFalse(stats.getLastAvailableState().isBefore(start));
+    Assert.assertEquals(stats.getAvailableStats().peekLast(), stats.getLastAvailableState());
+    Assert.assertEquals(stats.getActiveStats().peekLast(), stats.getLastActiveStat());
+
+    final PooledConnectionStatistics none = new PooledConnectionStatistics(0);
+    none.addAvailableStat();
+    Assert.assertNull(none.getLastAvailableState());
+    Assert.assertTrue(none.getAvailableStats().isEmpty());
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"pool"})
+  public void statsAreCopies()
+    throws Exception
+  {
+    final PooledConnectionStatistics stats = new PooledConnectionStatistics(3);
+    stats.addAvailableStat();
+    final Deque<Instant> available = stats.getAvailableStats();
+    available.clear();
+    Assert.assertEquals(stats.getAvailableStats().size(), 1);
+    stats.addAvailableStat();
+    Assert.assertTrue(available.isEmpty());
+  }
+}
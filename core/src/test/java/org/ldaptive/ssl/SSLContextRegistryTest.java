@@ -0,0 +1,131 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.ssl;
+
+import java.time.Duration;
+import javax.net.ssl.SSLContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link SSLContextRegistry}.
+ *
+ * @author  Middleware Services
+ */
+public class SSLContextRegistryTest
+{
+
+
+  /**
+   * SSL configs with equal credential configs and trust managers share a context.
+   *
+   * @throws  Exception  on test failure
+   */
+  @Test(groups = {"ssl"})
+  public void sharedContext()
+    throws Exception
+  {
+    final SSLContextRegistry registry = new SSLContextRegistry();
+    final SSLContext ctx = registry.getSSLContext("TLS", null);
+    Assert.assertSame(registry.getSSLContext("TLS", null), ctx);
+    Assert.assertSame(registry.getSSLContext("TLS", new SslConfig()), ctx);
+    Assert.assertEquals(registry.size(), 1);
+
+    final SSLContext verifying = registry.getSSLContext(
+      "TLS",
+      new SslConfig(
+        new DefaultTrustManager(),
+        new HostnameVerifyingTrustManager(new DefaultHostnameVerifier(), "directory.ldaptive.org")));
+    Assert.assertNotSame(verifying, ctx);
+    Assert.assertSame(
+      registry.getSSLContext(
+        "TLS",
+        new SslConfig(
+          new DefaultTrustManager(),
+          new HostnameVerifyingTrustManager(new DefaultHostnameVerifier(), "directory.ldaptive.org"))),
+      verifying);
+    Assert.assertNotSame(
+      registry.getSSLContext(
+        "TLS",
+        new SslConfig(
+          new DefaultTrustManager(),
+          new HostnameVerifyingTrustManager(new DefaultHostnameVerifier(), "directory-2.ldaptive.org"))),
+      verifying);
+    Assert.assertEquals(registry.size(), 3);
+
+    registry.clear();
+    Assert.assertEquals(registry.size(), 0);
+    Assert.assertNotSame(registry.getSSLContext("TLS", null), ctx);
+  }
+
+
+  /**
+   * Contexts are not registered once the max size is reached.
+   *
+   * @throws  Exception  on test failure
+   */
+  @Test(groups = {"ssl"})
+  public void maxSize()
+    throws Exception
+  {
+    final SSLContextRegistry registry = new SSLContextRegistry();
+    registry.setMaxSize(0);
+    Assert.assertNotSame(registry.getSSLContext("TLS", null), registry.getSSLContext("TLS", null));
+    Assert.assertEquals(registry.size(), 0);
+  }
+
+
+  /**
+   * Expired contexts are replaced and removed to make room for new contexts.
+   *
+   * @throws  Exception  on test failure
+   */
+  @Test(groups = {"ssl"})
+  public void timeToLive()
+    throws Exception
+  {
+    final SSLContextRegistry registry = new SSLContextRegistry();
+    Assert.assertEquals(registry.getTimeToLive(), SSLContextRegistry.DEFAULT_TIME_TO_LIVE);
+    registry.setMaxSize(1);
+    registry.setTimeToLive(Duration.ofMillis(100));
+    final SSLContext ctx = registry.getSSLContext("TLS", null);
+    Assert.assertSame(registry.getSSLContext("TLS", null), ctx);
+
+    Thread.sleep(150);
+    final SSLContext reloaded = registry.getSSLContext("TLS", null);
+    Assert.assertNotSame(reloaded, ctx);
+    Assert.assertSame(registry.getSSLContext("TLS", null), reloaded);
+    Assert.assertEquals(registry.size(), 1);
+
+    // a full registry makes room by removing expired contexts
+    Thread.sleep(150);
+    final SSLContext other = registry.getSSLContext("TLSv1.2", null);
+    Assert.assertSame(registry.getSSLContext("TLSv1.2", null), other);
+    Assert.assertEquals(registry.size(), 1);
+
+    registry.setTimeToLive(Duration.ZERO);
+    Thread.sleep(150);
+    Assert.assertSame(registry.getSSLContext("TLSv1.2", null), other);
+  }
+
+
+  /**
+   * Session cache settings are applied to registered contexts.
+   *
+   * @throws  Exception  on test failure
+   */
+  @Test(groups = {"ssl"})
+  public void sessionContext()
+    throws Exception
+  {
+    final SSLContextRegistry registry = new SSLContextRegistry();
+    final SSLContext ctx = registry.getSSLContext("TLS", null);
+    registry.setSessionCacheSize(10);
+    registry.setSessionTimeout(Duration.ofMinutes(5));
+    Assert.assertEquals(ctx.getClientSessionContext().getSessionCacheSize(), 10);
+    Assert.assertEquals(ctx.getClientSessionContext().getSessionTimeout(), 300);
+
+    final SSLContext other = registry.getSSLContext("TLSv1.2", null);
+    Assert.assertEquals(other.getClientSessionContext().getSessionCacheSize(), 10);
+    Assert.assertEquals(other.getClientSessionContext().getSessionTimeout(), 300);
+  }
+}
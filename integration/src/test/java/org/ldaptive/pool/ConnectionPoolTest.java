@@ -64,6 +64,9 @@ public class ConnectionPoolTest extends AbstractTest
   /** LdapPool instance for concurrency testing. */
   private BlockingConnectionPool connStrategyPool;
 
+  /** LdapPool instance for concurrency testing. */
+  private ConcurrentConnectionPool concurrentPool;
+
   /** Time in millis it takes the pool test to run. */
   private long softLimitRuntime;
 
@@ -73,6 +76,9 @@ public class ConnectionPoolTest extends AbstractTest
   /** Time in millis it takes the pool test to run. */
   private long blockingTimeoutRuntime;
 
+  /** Time in millis it takes the pool test to run. */
+  private long concurrentRuntime;
+
 
   /**
    * @param  host  to connect to.
@@ -90,7 +96,8 @@ public class ConnectionPoolTest extends AbstractTest
       "softlimitpool",
       "blockingpool",
       "blockingtimeoutpool",
-      "connstrategypool"})
+      "connstrategypool",
+      "concurrentpool"})
   public void createPools(final String host, final String dn)
     throws Exception
   {
@@ -126,6 +133,15 @@ public class ConnectionPoolTest extends AbstractTest
     blockingTimeoutPool.setBlockWaitTime(Duration.ofSeconds(1));
     blockingTimeoutPool.setValidator(new SearchValidator());
 
+    final PoolConfig concurrentPc = new PoolConfig();
+    concurrentPc.setValidateOnCheckIn(true);
+    concurrentPc.setValidateOnCheckOut(true);
+    concurrentPc.setValidatePeriodically(true);
+    concurrentPc.setValidatePeriod(Duration.ofSeconds(5));
+    concurrentPool = new ConcurrentConnectionPool(concurrentPc, new DefaultConnectionFactory(cc));
+    concurrentPool.setPruneStrategy(new IdlePruneStrategy(Duration.ofSeconds(5), Duration.ofSeconds(1)));
+    concurrentPool.setValidator(new SearchValidator());
+
     final ConnectionConfig connStrategyCc = TestUtils.readConnectionConfig(null);
     connStrategyCc.setLdapUrl(String.format("%s ldap://dne.middleware.vt.edu", host));
     connStrategyCc.setConnectionStrategy(new RoundRobinConnectionStrategy());
@@ -165,7 +181,8 @@ public class ConnectionPoolTest extends AbstractTest
       "softlimitpool",
       "blockingpool",
       "blockingtimeoutpool",
-      "connstrategypool"
+      "connstrategypool",
+      "concurrentpool"
       },
     dependsOnMethods = {"createPools"})
   // CheckStyle:ParameterNumber OFF
@@ -201,6 +218,7 @@ public class ConnectionPoolTest extends AbstractTest
     blockingPool.initialize();
     blockingTimeoutPool.initialize();
     connStrategyPool.initialize();
+    concurrentPool.initialize();
   }
   // CheckStyle:ParameterNumber ON
 
@@ -235,7 +253,8 @@ public class ConnectionPoolTest extends AbstractTest
       "softlimitpool",
       "blockingpool",
       "blockingtimeoutpool",
-      "connstrategypool"})
+      "connstrategypool",
+      "concurrentpool"})
   // CheckStyle:ParameterNumber OFF
   public void loadPoolSearchResults(
     final String ldifFile2,
@@ -270,7 +289,8 @@ public class ConnectionPoolTest extends AbstractTest
       "softlimitpool",
       "blockingpool",
       "blockingtimeoutpool",
-      "connstrategypool"})
+      "connstrategypool",
+      "concurrentpool"})
   public void deletePoolEntry()
     throws Exception
   {
@@ -296,6 +316,9 @@ public class ConnectionPoolTest extends AbstractTest
     connStrategyPool.close();
     AssertJUnit.assertEquals(connStrategyPool.availableCount(), 0);
     AssertJUnit.assertEquals(connStrategyPool.activeCount(), 0);
+    concurrentPool.close();
+    AssertJUnit.assertEquals(concurrentPool.availableCount(), 0);
+    AssertJUnit.assertEquals(concurrentPool.activeCount(), 0);
   }
 
 
@@ -624,6 +647,78 @@ public class ConnectionPoolTest extends AbstractTest
   }
 
 
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrentpool"})
+  public void checkConcurrentPoolImmutable()
+    throws Exception
+  {
+    try {
+      concurrentPool.getPoolConfig().setMinPoolSize(8);
+      AssertJUnit.fail("Expected illegalstateexception to be thrown");
+    } catch (IllegalStateException e) {
+      AssertJUnit.assertEquals(IllegalStateException.class, e.getClass());
+    }
+  }
+
+
+  /**
+   * @param  request  to search with
+   * @param  results  to expect from the search.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(
+    groups = {"concurrentpool"}, dataProvider = "pool-data", threadPoolSize = 3, invocationCount = 50, timeOut = 60000)
+  public void concurrentSmallSearch(final SearchRequest request, final LdapEntry results)
+    throws Exception
+  {
+    concurrentRuntime += search(concurrentPool, request, results);
+  }
+
+
+  /**
+   * @param  request  to search with
+   * @param  results  to expect from the search.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(
+    groups = {"concurrentpool"}, dataProvider = "pool-data", threadPoolSize = 10, invocationCount = 100,
+    timeOut = 60000, dependsOnMethods = {"concurrentSmallSearch"})
+  public void concurrentMediumSearch(final SearchRequest request, final LdapEntry results)
+    throws Exception
+  {
+    concurrentRuntime += search(concurrentPool, request, results);
+  }
+
+
+  /**
+   * @param  request  to search with
+   * @param  results  to expect from the search.
+   *
+   * @throws  Exception  On test failure.
+   */
+  @Test(
+    groups = {"concurrentpool"}, dataProvider = "pool-data", threadPoolSize = 50, invocationCount = 1000,
+    timeOut = 60000, dependsOnMethods = {"concurrentMediumSearch"})
+  public void concurrentLargeSearch(final SearchRequest request, final LdapEntry results)
+    throws Exception
+  {
+    concurrentRuntime += search(concurrentPool, request, results);
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"concurrentpool"}, dependsOnMethods = {"concurrentLargeSearch"})
+  public void concurrentMaxClean()
+    throws Exception
+  {
+    Thread.sleep(10000);
+    AssertJUnit.assertEquals(0, concurrentPool.activeCount());
+    AssertJUnit.assertEquals(PoolConfig.DEFAULT_MIN_POOL_SIZE, concurrentPool.availableCount());
+  }
+
+
   /**
    * @param  pool  to get ldap object from.
    * @param  request  to search with
@@ -0,0 +1,380 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.ldaptive.asn1.BooleanType;
+import org.ldaptive.asn1.ConstructedDEREncoder;
+import org.ldaptive.asn1.ContextDERTag;
+import org.ldaptive.asn1.ContextType;
+import org.ldaptive.asn1.DEREncoder;
+import org.ldaptive.asn1.OctetStringType;
+import org.ldaptive.asn1.UniversalDERTag;
+
+/**
+ * Parses a string search filter as defined in RFC 4515 and encodes it as the filter element of a search request as
+ * defined in RFC 4511:
+ *
+ * <pre>
+   Filter ::= CHOICE {
+     and             [0] SET SIZE (1..MAX) OF filter Filter,
+     or              [1] SET SIZE (1..MAX) OF filter Filter,
+     not             [2] Filter,
+     equalityMatch   [3] AttributeValueAssertion,
+     substrings      [4] SubstringFilter,
+     greaterOrEqual  [5] AttributeValueAssertion,
+     lessOrEqual     [6] AttributeValueAssertion,
+     present         [7] AttributeDescription,
+     approxMatch     [8] AttributeValueAssertion,
+     extensibleMatch [9] MatchingRuleAssertion,
+     ...  }
+ * </pre>
+ *
+ * @author  Middleware Services
+ */
+public final class FilterEncoder
+{
+
+  /** Context index of the and filter. */
+  private static final int AND = 0;
+
+  /** Context index of the or filter. */
+  private static final int OR = 1;
+
+  /** Context index of the not filter. */
+  private static final int NOT = 2;
+
+  /** Context index of the equality filter. */
+  private static final int EQUALITY = 3;
+
+  /** Context index of the substrings filter. */
+  private static final int SUBSTRINGS = 4;
+
+  /** Context index of the greater or equal filter. */
+  private static final int GREATER_OR_EQUAL = 5;
+
+  /** Context index of the less or equal filter. */
+  private static final int LESS_OR_EQUAL = 6;
+
+  /** Context index of the present filter. */
+  private static final int PRESENT = 7;
+
+  /** Context index of the approximate filter. */
+  private static final int APPROXIMATE = 8;
+
+  /** Context index of the extensible filter. */
+  private static final int EXTENSIBLE = 9;
+
+  /** Radix of escaped filter values. */
+  private static final int HEX_RADIX = 16;
+
+  /** Length of an escape sequence, a backslash followed by two hex digits. */
+  private static final int ESCAPE_LENGTH = 3;
+
+  /** Filter to parse. */
+  private final String filter;
+
+  /** Current position in the filter. */
+  private int pos;
+
+
+  /**
+   * Creates a new filter encoder.
+   *
+   * @param  f  filter to parse
+   */
+  private FilterEncoder(final String f)
+  {
+    filter = f;
+  }
+
+
+  /**
+   * Parses the supplied filter and returns its encoder. The filter may omit its enclosing parentheses.
+   *
+   * @param  filter  to encode
+   *
+   * @return  filter encoder
+   *
+   * @throws  IllegalArgumentException  if the filter cannot be parsed
+   */
+  public static DEREncoder encode(final String filter)
+  {
+    if (filter == null || filter.trim().isEmpty()) {
+      return new OctetStringType(new ContextDERTag(PRESENT, false), "objectClass");
+    }
+
+    final String s = filter.trim();
+    final FilterEncoder parser = new FilterEncoder(s.startsWith("(") ? s : "(" + s + ")");
+    final DEREncoder encoder = parser.readFilter();
+    if (parser.pos != parser.filter.length()) {
+      throw new IllegalArgumentException("Unexpected characters at position " + parser.pos + " in " + filter);
+    }
+    return encoder;
+  }
+
+
+  /**
+   * Reads a parenthesized filter starting at the current position.
+   *
+   * @return  filter encoder
+   */
+  private DEREncoder readFilter()
+  {
+    expect('(');
+
+    final DEREncoder encoder;
+    switch (peek()) {
+
+    case '&':
+      pos++;
+      encoder = new ConstructedDEREncoder(new ContextDERTag(AND, true), readFilterList());
+      break;
+
+    case '|':
+      pos++;
+      encoder = new ConstructedDEREncoder(new ContextDERTag(OR, true), readFilterList());
+      break;
+
+    case '!':
+      pos++;
+      encoder = new ConstructedDEREncoder(new ContextDERTag(NOT, true), readFilter());
+      break;
+
+    default:
+      encoder = readItem();
+      break;
+    }
+    expect(')');
+    return encoder;
+  }
+
+
+  /**
+   * Reads one or more filters up to the closing parenthesis of the enclosing filter.
+   *
+   * @return  filter encoders
+   */
+  private DEREncoder[] readFilterList()
+  {
+    final List<DEREncoder> filters = new ArrayList<>();
+    while (peek() == '(') {
+      filters.add(readFilter());
+    }
+    if (filters.isEmpty()) {
+      throw new IllegalArgumentException("Empty filter list at position " + pos + " in " + filter);
+    }
+    return filters.toArray(new DEREncoder[filters.size()]);
+  }
+
+
+  /**
+   * Reads a simple, present, substrings or extensible filter up to the closing parenthesis.
+   *
+   * @return  filter encoder
+   */
+  private DEREncoder readItem()
+  {
+    final int end = filter.indexOf(')', pos);
+    final int eq = filter.indexOf('=', pos);
+    if (end < 0 || eq < 0 || eq > end) {
+      throw new IllegalArgumentException("Invalid filter item at position " + pos + " in " + filter);
+    }
+
+    final char op = eq > pos ? filter.charAt(eq - 1) : 0;
+    final String attr;
+    final DEREncoder encoder;
+    final String value = filter.substring(eq + 1, end);
+    if (op == ':') {
+      encoder = extensible(filter.substring(pos, eq - 1), value);
+    } else if (op == '~' || op == '>' || op == '<') {
+      attr = readAttribute(eq - 1);
+      final int index = op == '~' ? APPROXIMATE : op == '>' ? GREATER_OR_EQUAL : LESS_OR_EQUAL;
+      encoder = ava(index, attr, unescape(value));
+    } else {
+      attr = readAttribute(eq);
+      if ("*".equals(value)) {
+        encoder = new OctetStringType(new ContextDERTag(PRESENT, false), attr);
+      } else if (value.indexOf('*') >= 0) {
+        encoder = substrings(attr, value);
+      } else {
+        encoder = ava(EQUALITY, attr, unescape(value));
+      }
+    }
+    pos = end;
+    return encoder;
+  }
+
+
+  /**
+   * Returns the attribute description between the current position and the supplied index.
+   *
+   * @param  end  index after the attribute description
+   *
+   * @return  attribute description
+   */
+  private String readAttribute(final int end)
+  {
+    final String attr = filter.substring(pos, end).trim();
+    if (attr.isEmpty()) {
+      throw new IllegalArgumentException("Missing attribute description at position " + pos + " in " + filter);
+    }
+    return attr;
+  }
+
+
+  /**
+   * Returns an attribute value assertion encoder.
+   *
+   * @param  index  context index of the filter type
+   * @param  attr  attribute description
+   * @param  value  assertion value
+   *
+   * @return  attribute value assertion encoder
+   */
+  private static DEREncoder ava(final int index, final String attr, final byte[] value)
+  {
+    return new ConstructedDEREncoder(
+      new ContextDERTag(index, true),
+      new OctetStringType(attr),
+      new OctetStringType(value));
+  }
+
+
+  /**
+   * Returns a substrings filter encoder.
+   *
+   * @param  attr  attribute description
+   * @param  value  containing at least one asterisk
+   *
+   * @return  substrings filter encoder
+   */
+  private static DEREncoder substrings(final String attr, final String value)
+  {
+    final String[] parts = value.split("\\*", -1);
+    final List<DEREncoder> substrings = new ArrayList<>(parts.length);
+    for (int i = 0; i < parts.length; i++) {
+      if (!parts[i].isEmpty()) {
+        final int index = i == 0 ? 0 : i == parts.length - 1 ? 2 : 1;
+        substrings.add(new ContextType(index, unescape(parts[i])));
+      }
+    }
+    return new ConstructedDEREncoder(
+      new ContextDERTag(SUBSTRINGS, true),
+      new OctetStringType(attr),
+      new ConstructedDEREncoder(UniversalDERTag.SEQ, substrings.toArray(new DEREncoder[substrings.size()])));
+  }
+
+
+  /**
+   * Returns an extensible match filter encoder.
+   *
+   * @param  description  of the form attr[:dn][:rule] or [:dn]:rule
+   * @param  value  assertion value
+   *
+   * @return  extensible match filter encoder
+   */
+  private DEREncoder extensible(final String description, final String value)
+  {
+    final String[] parts = description.split(":", -1);
+    String type = null;
+    String rule = null;
+    boolean dnAttributes = false;
+    for (int i = 0; i < parts.length; i++) {
+      final String part = parts[i].trim();
+      if (i == 0) {
+        type = part.isEmpty() ? null : part;
+      } else if ("dn".equalsIgnoreCase(part)) {
+        dnAttributes = true;
+      } else if (!part.isEmpty()) {
+        rule = part;
+      }
+    }
+    if (type == null && rule == null) {
+      throw new IllegalArgumentException("Extensible filter requires a type or matching rule in " + filter);
+    }
+
+    final List<DEREncoder> elements = new ArrayList<>();
+    if (rule != null) {
+      elements.add(new ContextType(1, rule));
+    }
+    if (type != null) {
+      elements.add(new ContextType(2, type));
+    }
+    // CheckStyle:MagicNumber OFF
+    elements.add(new ContextType(3, unescape(value)));
+    if (dnAttributes) {
+      elements.add(new BooleanType(new ContextDERTag(4, false), true));
+    }
+    // CheckStyle:MagicNumber ON
+    return new ConstructedDEREncoder(
+      new ContextDERTag(EXTENSIBLE, true),
+      elements.toArray(new DEREncoder[elements.size()]));
+  }
+
+
+  /**
+   * Converts the supplied filter value to bytes, replacing each backslash escape with the byte it represents.
+   *
+   * @param  value  to unescape
+   *
+   * @return  value bytes
+   */
+  private static byte[] unescape(final String value)
+  {
+    if (value.indexOf('\\') < 0) {
+      return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(value.length());
+    int start = 0;
+    int i = value.indexOf('\\');
+    while (i >= 0) {
+      final byte[] b = value.substring(start, i).getBytes(StandardCharsets.UTF_8);
+      out.write(b, 0, b.length);
+      if (i + 2 >= value.length()) {
+        throw new IllegalArgumentException("Invalid escape in filter value " + value);
+      }
+      try {
+        out.write(Integer.parseInt(value.substring(i + 1, i + ESCAPE_LENGTH), HEX_RADIX));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid escape in filter value " + value, e);
+      }
+      start = i + ESCAPE_LENGTH;
+      i = value.indexOf('\\', start);
+    }
+    final byte[] b = value.substring(start).getBytes(StandardCharsets.UTF_8);
+    out.write(b, 0, b.length);
+    return out.toByteArray();
+  }
+
+
+  /**
+   * Returns the character at the current position.
+   *
+   * @return  current character
+   */
+  private char peek()
+  {
+    if (pos >= filter.length()) {
+      throw new IllegalArgumentException("Unexpected end of filter " + filter);
+    }
+    return filter.charAt(pos);
+  }
+
+
+  /**
+   * Consumes the supplied character at the current position.
+   *
+   * @param  c  expected character
+   */
+  private void expect(final char c)
+  {
+    if (peek() != c) {
+      throw new IllegalArgumentException("Expected '" + c + "' at position " + pos + " in " + filter);
+    }
+    pos++;
+  }
+}
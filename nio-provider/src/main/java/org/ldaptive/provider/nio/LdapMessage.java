@@ -0,0 +1,392 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchEntry;
+import org.ldaptive.SearchReference;
+import org.ldaptive.control.ResponseControl;
+
+/**
+ * Contains the elements of a single LDAP message received from the server. Only the elements that apply to the type
+ * of the message are set.
+ *
+ * @author  Middleware Services
+ */
+public class LdapMessage
+{
+
+  /** Application tag number of a bind response. */
+  public static final int BIND_RESPONSE = 1;
+
+  /** Application tag number of a search result entry. */
+  public static final int SEARCH_RESULT_ENTRY = 4;
+
+  /** Application tag number of a search result done. */
+  public static final int SEARCH_RESULT_DONE = 5;
+
+  /** Application tag number of a modify response. */
+  public static final int MODIFY_RESPONSE = 7;
+
+  /** Application tag number of an add response. */
+  public static final int ADD_RESPONSE = 9;
+
+  /** Application tag number of a delete response. */
+  public static final int DELETE_RESPONSE = 11;
+
+  /** Application tag number of a modify DN response. */
+  public static final int MODIFY_DN_RESPONSE = 13;
+
+  /** Application tag number of a compare response. */
+  public static final int COMPARE_RESPONSE = 15;
+
+  /** Application tag number of a search result reference. */
+  public static final int SEARCH_RESULT_REFERENCE = 19;
+
+  /** Application tag number of an extended response. */
+  public static final int EXTENDED_RESPONSE = 24;
+
+  /** Application tag number of an intermediate response. */
+  public static final int INTERMEDIATE_RESPONSE = 25;
+
+  /** Message ID. */
+  private int messageId;
+
+  /** Application tag number of the protocol operation. */
+  private int protocolOp = -1;
+
+  /** Result code. */
+  private int resultCode;
+
+  /** Matched DN. */
+  private String matchedDn;
+
+  /** Diagnostic message. */
+  private String diagnosticMessage;
+
+  /** Referral URLs or search result reference URLs. */
+  private List<String> urls;
+
+  /** Response controls. */
+  private List<ResponseControl> controls;
+
+  /** DN of a search result entry. */
+  private String dn;
+
+  /** Attributes of a search result entry. */
+  private List<LdapAttribute> attributes;
+
+  /** Name of an extended or intermediate response. */
+  private String responseName;
+
+  /** Value of an extended or intermediate response. */
+  private byte[] responseValue;
+
+
+  /**
+   * Returns the message ID.
+   *
+   * @return  message ID
+   */
+  public int getMessageId()
+  {
+    return messageId;
+  }
+
+
+  /**
+   * Sets the message ID.
+   *
+   * @param  id  message ID
+   */
+  void setMessageId(final int id)
+  {
+    messageId = id;
+  }
+
+
+  /**
+   * Returns the application tag number of the protocol operation.
+   *
+   * @return  protocol operation or -1 if none was decoded
+   */
+  public int getProtocolOp()
+  {
+    return protocolOp;
+  }
+
+
+  /**
+   * Sets the application tag number of the protocol operation.
+   *
+   * @param  op  protocol operation
+   */
+  void setProtocolOp(final int op)
+  {
+    protocolOp = op;
+  }
+
+
+  /**
+   * Returns whether this message is a search result entry, search result reference or intermediate response, which
+   * are followed by further messages for the same request.
+   *
+   * @return  whether this message is followed by a final response
+   */
+  public boolean isIntermediate()
+  {
+    return
+      protocolOp == SEARCH_RESULT_ENTRY ||
+      protocolOp == SEARCH_RESULT_REFERENCE ||
+      protocolOp == INTERMEDIATE_RESPONSE;
+  }
+
+
+  /**
+   * Returns the result code.
+   *
+   * @return  result code
+   */
+  public ResultCode getResultCode()
+  {
+    return ResultCode.valueOf(resultCode);
+  }
+
+
+  /**
+   * Returns the numeric result code.
+   *
+   * @return  result code value
+   */
+  public int getResultCodeValue()
+  {
+    return resultCode;
+  }
+
+
+  /**
+   * Sets the result code.
+   *
+   * @param  code  result code value
+   */
+  void setResultCode(final int code)
+  {
+    resultCode = code;
+  }
+
+
+  /**
+   * Returns the matched DN.
+   *
+   * @return  matched DN
+   */
+  public String getMatchedDn()
+  {
+    return matchedDn;
+  }
+
+
+  /**
+   * Sets the matched DN.
+   *
+   * @param  s  matched DN
+   */
+  void setMatchedDn(final String s)
+  {
+    matchedDn = s;
+  }
+
+
+  /**
+   * Returns the diagnostic message.
+   *
+   * @return  diagnostic message
+   */
+  public String getDiagnosticMessage()
+  {
+    return diagnosticMessage;
+  }
+
+
+  /**
+   * Sets the diagnostic message.
+   *
+   * @param  s  diagnostic message
+   */
+  void setDiagnosticMessage(final String s)
+  {
+    diagnosticMessage = s;
+  }
+
+
+  /**
+   * Returns the referral URLs of a result or the URLs of a search result reference.
+   *
+   * @return  URLs or null
+   */
+  public String[] getUrls()
+  {
+    return urls != null ? urls.toArray(new String[urls.size()]) : null;
+  }
+
+
+  /**
+   * Adds a referral or search result reference URL.
+   *
+   * @param  url  to add
+   */
+  void addUrl(final String url)
+  {
+    if (urls == null) {
+      urls = new ArrayList<>(1);
+    }
+    urls.add(url);
+  }
+
+
+  /**
+   * Returns the response controls.
+   *
+   * @return  response controls or null
+   */
+  public ResponseControl[] getControls()
+  {
+    return controls != null ? controls.toArray(new ResponseControl[controls.size()]) : null;
+  }
+
+
+  /**
+   * Adds a response control.
+   *
+   * @param  control  to add
+   */
+  void addControl(final ResponseControl control)
+  {
+    if (controls == null) {
+      controls = new ArrayList<>(1);
+    }
+    controls.add(control);
+  }
+
+
+  /**
+   * Sets the DN of a search result entry.
+   *
+   * @param  s  DN
+   */
+  void setDn(final String s)
+  {
+    dn = s;
+  }
+
+
+  /**
+   * Adds an attribute of a search result entry.
+   *
+   * @param  attr  to add
+   */
+  void addAttribute(final LdapAttribute attr)
+  {
+    if (attributes == null) {
+      attributes = new ArrayList<>();
+    }
+    attributes.add(attr);
+  }
+
+
+  /**
+   * Returns the name of an extended or intermediate response.
+   *
+   * @return  response name
+   */
+  public String getResponseName()
+  {
+    return responseName;
+  }
+
+
+  /**
+   * Sets the name of an extended or intermediate response.
+   *
+   * @param  s  response name
+   */
+  void setResponseName(final String s)
+  {
+    responseName = s;
+  }
+
+
+  /**
+   * Returns the value of an extended or intermediate response.
+   *
+   * @return  response value
+   */
+  public byte[] getResponseValue()
+  {
+    return responseValue;
+  }
+
+
+  /**
+   * Sets the value of an extended or intermediate response.
+   *
+   * @param  b  response value
+   */
+  void setResponseValue(final byte[] b)
+  {
+    responseValue = b;
+  }
+
+
+  /**
+   * Returns a search entry containing the DN and attributes of this search result entry.
+   *
+   * @param  request  search request that produced this entry, used for its sort behavior
+   *
+   * @return  search entry
+   */
+  public SearchEntry toSearchEntry(final org.ldaptive.SearchRequest request)
+  {
+    final SearchEntry entry = new SearchEntry(messageId, getControls(), request.getSortBehavior());
+    entry.setDn(dn);
+    if (attributes != null) {
+      entry.addAttributes(attributes);
+    }
+    return entry;
+  }
+
+
+  /**
+   * Returns a search reference containing the URLs of this search result reference.
+   *
+   * @return  search reference
+   */
+  public SearchReference toSearchReference()
+  {
+    return new SearchReference(messageId, getControls(), getUrls());
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::messageId=%s, protocolOp=%s, resultCode=%s, matchedDn=%s, diagnosticMessage=%s, urls=%s, " +
+        "controls=%s, dn=%s, attributes=%s, responseName=%s]",
+        getClass().getName(),
+        hashCode(),
+        messageId,
+        protocolOp,
+        resultCode,
+        matchedDn,
+        diagnosticMessage,
+        urls,
+        controls,
+        dn,
+        attributes,
+        responseName);
+  }
+}
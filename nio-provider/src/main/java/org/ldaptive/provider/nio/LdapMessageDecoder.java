@@ -0,0 +1,259 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SortBehavior;
+import org.ldaptive.asn1.AbstractDERType;
+import org.ldaptive.asn1.BooleanType;
+import org.ldaptive.asn1.DERParser;
+import org.ldaptive.asn1.IntegerType;
+import org.ldaptive.asn1.OctetStringType;
+import org.ldaptive.control.ControlFactory;
+
+/**
+ * Decodes LDAP messages as defined in RFC 4511. A decoder holds state for the message being decoded and must only be
+ * used by a single thread.
+ *
+ * @author  Middleware Services
+ */
+public class LdapMessageDecoder
+{
+
+  /** Application tag numbers of responses that contain an LDAPResult. */
+  private static final int[] RESULT_OPS = new int[] {
+    LdapMessage.BIND_RESPONSE,
+    LdapMessage.SEARCH_RESULT_DONE,
+    LdapMessage.MODIFY_RESPONSE,
+    LdapMessage.ADD_RESPONSE,
+    LdapMessage.DELETE_RESPONSE,
+    LdapMessage.MODIFY_DN_RESPONSE,
+    LdapMessage.COMPARE_RESPONSE,
+    LdapMessage.EXTENDED_RESPONSE,
+  };
+
+  /** Tag of the LDAPMessage sequence. */
+  private static final int SEQUENCE_TAG = 0x30;
+
+  /** Bit that indicates a multi-byte length. */
+  private static final int LONG_LENGTH = 0x80;
+
+  /** Largest number of length bytes accepted. */
+  private static final int MAX_LENGTH_BYTES = 4;
+
+  /** Parser that invokes the handlers of this decoder. */
+  private final DERParser parser = new DERParser();
+
+  /** Returns the search request for a message ID, used to determine binary attributes and sort behavior. */
+  private final IntFunction<SearchRequest> searchRequests;
+
+  /** Message being decoded. */
+  private LdapMessage message;
+
+  /** Search request of the message being decoded. */
+  private SearchRequest searchRequest;
+
+  /** Attribute being decoded. */
+  private LdapAttribute attribute;
+
+  /** OID of the control being decoded. */
+  private String controlOid;
+
+  /** Criticality of the control being decoded. */
+  private boolean controlCritical;
+
+  /** Value of the control being decoded. */
+  private byte[] controlValue;
+
+
+  /**
+   * Creates a new LDAP message decoder.
+   *
+   * @param  requests  returns the search request for a message ID or null if the message ID does not belong to a search
+   */
+  public LdapMessageDecoder(final IntFunction<SearchRequest> requests)
+  {
+    searchRequests = requests;
+    parser.registerHandler(
+      "/SEQ/INT[0]",
+      (p, e) -> {
+        message.setMessageId(IntegerType.decode(e).intValue());
+        searchRequest = searchRequests.apply(message.getMessageId());
+      });
+    for (int op : RESULT_OPS) {
+      registerResultHandlers(op);
+    }
+    registerOpHandler(LdapMessage.SEARCH_RESULT_ENTRY);
+    registerOpHandler(LdapMessage.SEARCH_RESULT_REFERENCE);
+    registerOpHandler(LdapMessage.INTERMEDIATE_RESPONSE);
+
+    parser.registerHandler("/SEQ/APP(4)/OCTSTR[0]", (p, e) -> message.setDn(OctetStringType.decode(e)));
+    parser.registerHandler("/SEQ/APP(4)/SEQ[1]/SEQ/OCTSTR[0]", (p, e) -> startAttribute(OctetStringType.decode(e)));
+    parser.registerHandler(
+      "/SEQ/APP(4)/SEQ[1]/SEQ/SET[1]/OCTSTR",
+      (p, e) -> {
+        if (attribute.isBinary()) {
+          attribute.addBinaryValue(AbstractDERType.readBuffer(e));
+        } else {
+          attribute.addStringValue(OctetStringType.decode(e));
+        }
+      });
+    parser.registerHandler("/SEQ/APP(19)/OCTSTR", (p, e) -> message.addUrl(OctetStringType.decode(e)));
+
+    // CheckStyle:MagicNumber OFF
+    parser.registerHandler("/SEQ/APP(24)/CTX(10)", (p, e) -> message.setResponseName(OctetStringType.decode(e)));
+    parser.registerHandler("/SEQ/APP(24)/CTX(11)", (p, e) -> message.setResponseValue(AbstractDERType.readBuffer(e)));
+    // CheckStyle:MagicNumber ON
+    parser.registerHandler("/SEQ/APP(25)/CTX(0)", (p, e) -> message.setResponseName(OctetStringType.decode(e)));
+    parser.registerHandler("/SEQ/APP(25)/CTX(1)", (p, e) -> message.setResponseValue(AbstractDERType.readBuffer(e)));
+
+    parser.registerHandler(
+      "/SEQ/CTX(0)/SEQ",
+      (p, e) -> {
+        finishControl();
+        controlCritical = false;
+        controlValue = null;
+      });
+    parser.registerHandler("/SEQ/CTX(0)/SEQ/OCTSTR[0]", (p, e) -> controlOid = OctetStringType.decode(e));
+    parser.registerHandler("/SEQ/CTX(0)/SEQ/BOOL[1]", (p, e) -> controlCritical = BooleanType.decode(e));
+    parser.registerHandler("/SEQ/CTX(0)/SEQ/OCTSTR[1]", (p, e) -> controlValue = AbstractDERType.readBuffer(e));
+    parser.registerHandler("/SEQ/CTX(0)/SEQ/OCTSTR[2]", (p, e) -> controlValue = AbstractDERType.readBuffer(e));
+  }
+
+
+  /**
+   * Returns the length of the LDAP message at the current position of the supplied buffer, including its tag and
+   * length bytes. The position of the buffer is not changed.
+   *
+   * @param  buffer  containing the start of an LDAP message
+   *
+   * @return  message length or -1 if the buffer does not contain enough bytes to determine the length
+   *
+   * @throws  IllegalArgumentException  if the buffer does not contain an LDAP message
+   */
+  public static int frameLength(final ByteBuffer buffer)
+  {
+    final int start = buffer.position();
+    if (buffer.remaining() < 2) {
+      return -1;
+    }
+    // CheckStyle:MagicNumber OFF
+    if ((buffer.get(start) & 0xFF) != SEQUENCE_TAG) {
+      throw new IllegalArgumentException("Invalid LDAP message tag " + buffer.get(start));
+    }
+
+    final int b = buffer.get(start + 1) & 0xFF;
+    // CheckStyle:MagicNumber ON
+    int headerLength = 2;
+    int length = b;
+    if ((b & LONG_LENGTH) != 0) {
+      final int len = b & ~LONG_LENGTH;
+      if (len == 0 || len > MAX_LENGTH_BYTES) {
+        throw new IllegalArgumentException("Invalid LDAP message length of " + len + " bytes");
+      }
+      headerLength += len;
+      length = 0;
+      for (int i = 0; i < len && buffer.remaining() >= headerLength; i++) {
+        // CheckStyle:MagicNumber OFF
+        length = (length << 8) | (buffer.get(start + 2 + i) & 0xFF);
+        // CheckStyle:MagicNumber ON
+      }
+      if (length < 0) {
+        throw new IllegalArgumentException("Invalid LDAP message length " + length);
+      }
+    }
+    return buffer.remaining() >= headerLength ? headerLength + length : -1;
+  }
+
+
+  /**
+   * Decodes the LDAP message between the position and limit of the supplied buffer.
+   *
+   * @param  buffer  containing a single complete LDAP message
+   *
+   * @return  LDAP message
+   *
+   * @throws  IllegalArgumentException  if the message cannot be decoded
+   */
+  public LdapMessage decode(final ByteBuffer buffer)
+  {
+    message = new LdapMessage();
+    try {
+      parser.parse(buffer);
+      finishControl();
+      return message;
+    } finally {
+      message = null;
+      searchRequest = null;
+      attribute = null;
+      controlOid = null;
+    }
+  }
+
+
+  /**
+   * Registers the handler that records the protocol operation of the supplied response type.
+   *
+   * @param  op  application tag number of the response
+   */
+  private void registerOpHandler(final int op)
+  {
+    parser.registerHandler(String.format("/SEQ/APP(%d)", op), (p, e) -> message.setProtocolOp(op));
+  }
+
+
+  /**
+   * Registers the handlers for the LDAPResult elements of the supplied response type.
+   *
+   * @param  op  application tag number of the response
+   */
+  private void registerResultHandlers(final int op)
+  {
+    registerOpHandler(op);
+
+    final String path = String.format("/SEQ/APP(%d)", op);
+    parser.registerHandler(path + "/ENUM[0]", (p, e) -> message.setResultCode(IntegerType.decode(e).intValue()));
+    parser.registerHandler(path + "/OCTSTR[1]", (p, e) -> message.setMatchedDn(OctetStringType.decode(e)));
+    parser.registerHandler(path + "/OCTSTR[2]", (p, e) -> message.setDiagnosticMessage(OctetStringType.decode(e)));
+    parser.registerHandler(path + "/CTX(3)/OCTSTR", (p, e) -> message.addUrl(OctetStringType.decode(e)));
+  }
+
+
+  /**
+   * Adds a new attribute with the supplied name to the search entry being decoded. Attributes with the binary option
+   * and attributes listed as binary by the search request hold binary values.
+   *
+   * @param  name  of the attribute
+   */
+  private void startAttribute(final String name)
+  {
+    boolean binary = name.toLowerCase().endsWith(";binary");
+    SortBehavior sb = SortBehavior.getDefaultSortBehavior();
+    if (searchRequest != null) {
+      sb = searchRequest.getSortBehavior();
+      if (!binary && searchRequest.getBinaryAttributes() != null) {
+        for (String s : searchRequest.getBinaryAttributes()) {
+          if (s.equalsIgnoreCase(name)) {
+            binary = true;
+            break;
+          }
+        }
+      }
+    }
+    attribute = new LdapAttribute(sb, binary);
+    attribute.setName(name);
+    message.addAttribute(attribute);
+  }
+
+
+  /** Adds the control being decoded, if any, to the message. */
+  private void finishControl()
+  {
+    if (controlOid != null) {
+      message.addControl(ControlFactory.createResponseControl(controlOid, controlCritical, controlValue));
+      controlOid = null;
+    }
+  }
+}
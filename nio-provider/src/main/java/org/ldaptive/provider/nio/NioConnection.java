@@ -0,0 +1,1486 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import org.ldaptive.AddRequest;
+import org.ldaptive.BindRequest;
+import org.ldaptive.CompareRequest;
+import org.ldaptive.DeleteRequest;
+import org.ldaptive.LdapException;
+import org.ldaptive.ModifyDnRequest;
+import org.ldaptive.ModifyRequest;
+import org.ldaptive.Request;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.asn1.DEREncoder;
+import org.ldaptive.async.AsyncRequest;
+import org.ldaptive.control.Control;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.control.ResponseControl;
+import org.ldaptive.extended.ExtendedRequest;
+import org.ldaptive.extended.ExtendedResponseFactory;
+import org.ldaptive.extended.UnsolicitedNotificationListener;
+import org.ldaptive.intermediate.IntermediateResponseFactory;
+import org.ldaptive.provider.ConnectionException;
+import org.ldaptive.provider.ProviderConnection;
+import org.ldaptive.provider.ProviderUtils;
+import org.ldaptive.provider.SearchItem;
+import org.ldaptive.provider.SearchIterator;
+import org.ldaptive.provider.SearchListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * NIO provider implementation of ldap operations. Requests are encoded with the ldaptive ASN.1 codec and written by
+ * the calling thread. Responses are read and decoded by a thread of a {@link SelectorThreadGroup} and matched to their
+ * request by message ID, so any number of operations may be outstanding on a connection at once.
+ *
+ * @author  Middleware Services
+ */
+public class NioConnection implements ProviderConnection
+{
+
+  /** OID of the startTLS extended operation. */
+  public static final String START_TLS_OID = "1.3.6.1.4.1.1466.20037";
+
+  /** Initial size of the buffer that holds decrypted response bytes. */
+  private static final int BUFFER_SIZE = 8192;
+
+  /** Empty buffer used to drive TLS handshakes. */
+  private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+  /** Logger for this class. */
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Socket channel. */
+  private final SocketChannel channel;
+
+  /** Provider configuration. */
+  private final NioProviderConfig config;
+
+  /** Amount of time to wait for responses and for the socket to accept writes, null to wait indefinitely. */
+  private final Duration responseTimeout;
+
+  /** Last message ID that was used. */
+  private final AtomicInteger messageId = new AtomicInteger();
+
+  /** Handlers for outstanding requests keyed by message ID. */
+  private final Map<Integer, AbstractResponseHandler> pending = new ConcurrentHashMap<>();
+
+  /** Decodes responses, only used by the reading thread. */
+  private final LdapMessageDecoder decoder;
+
+  /** Receives unsolicited notifications. */
+  private final Queue<UnsolicitedNotificationListener> notificationListeners = new ConcurrentLinkedQueue<>();
+
+  /** Guards writes to the channel and the TLS engine. */
+  private final Object writeLock = new Object();
+
+  /** Whether this connection has been closed. */
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /** Message IDs of the operations that have paused reading, guarded by itself. */
+  private final Set<Integer> pausedReads = new HashSet<>();
+
+  /** Selection key of the channel, null until a selector thread has registered it. */
+  private volatile SelectionKey selectionKey;
+
+  /** TLS engine, null for clear connections. */
+  private SSLEngine sslEngine;
+
+  /** Encrypted bytes read from the channel. */
+  private ByteBuffer netIn;
+
+  /** Encrypted bytes to write to the channel, guarded by the write lock. */
+  private ByteBuffer netOut;
+
+  /** Response bytes that have not been decoded. */
+  private ByteBuffer appIn = ByteBuffer.allocate(BUFFER_SIZE);
+
+
+  /**
+   * Creates a new NIO connection.
+   *
+   * @param  ch  connected socket channel
+   * @param  pc  provider configuration
+   * @param  timeout  response timeout, null or zero to wait indefinitely
+   *
+   * @throws  IOException  if the channel cannot be put in non-blocking mode
+   */
+  public NioConnection(final SocketChannel ch, final NioProviderConfig pc, final Duration timeout)
+    throws IOException
+  {
+    channel = ch;
+    channel.configureBlocking(false);
+    config = pc;
+    responseTimeout = isIndefinite(timeout) ? null : timeout;
+    decoder = new LdapMessageDecoder(
+      id -> {
+        final AbstractResponseHandler handler = pending.get(id);
+        return handler != null ? handler.getSearchRequest() : null;
+      });
+  }
+
+
+  /**
+   * Opens a socket channel and connects it to the supplied address.
+   *
+   * @param  address  to connect to
+   * @param  timeout  connect timeout, null or zero to wait indefinitely
+   *
+   * @return  connected socket channel
+   *
+   * @throws  IOException  if the connection cannot be established
+   */
+  public static SocketChannel connect(final InetSocketAddress address, final Duration timeout)
+    throws IOException
+  {
+    final SocketChannel ch = SocketChannel.open();
+    try {
+      ch.configureBlocking(false);
+      ch.socket().setTcpNoDelay(true);
+      if (!ch.connect(address)) {
+        await(ch, SelectionKey.OP_CONNECT, timeout);
+        ch.finishConnect();
+      }
+    } catch (IOException | RuntimeException e) {
+      ch.close();
+      throw e;
+    }
+    return ch;
+  }
+
+
+  /**
+   * Waits until the supplied channel is ready for the supplied operation.
+   *
+   * @param  ch  to wait for
+   * @param  op  selection key operation
+   * @param  timeout  to wait, null or zero to wait indefinitely
+   *
+   * @throws  IOException  if the channel is not ready before the timeout expires
+   */
+  private static void await(final SelectableChannel ch, final int op, final Duration timeout)
+    throws IOException
+  {
+    try (Selector selector = Selector.open()) {
+      ch.register(selector, op);
+      if (selector.select(isIndefinite(timeout) ? 0 : Math.max(1, timeout.toMillis())) == 0) {
+        throw new SocketTimeoutException("Timed out waiting for channel after " + timeout);
+      }
+    }
+  }
+
+
+  /**
+   * Returns whether the supplied timeout means wait indefinitely, which is the case for null, zero and negative
+   * durations. A zero timeout means no timeout, as it does for the JNDI read timeout.
+   *
+   * @param  timeout  to check
+   *
+   * @return  whether to wait indefinitely
+   */
+  static boolean isIndefinite(final Duration timeout)
+  {
+    return timeout == null || timeout.isZero() || timeout.isNegative();
+  }
+
+
+  /**
+   * Returns the socket channel of this connection.
+   *
+   * @return  socket channel
+   */
+  public SocketChannel getChannel()
+  {
+    return channel;
+  }
+
+
+  /**
+   * Performs the startTLS extended operation. Must be invoked before {@link #start(SelectorThreadGroup)}. The TLS
+   * handshake must be performed with {@link #handshake(SSLEngine)} afterwards.
+   *
+   * @throws  IOException  if the operation cannot be performed
+   * @throws  LdapException  if the server does not accept the operation
+   */
+  public void startTLS()
+    throws IOException, LdapException
+  {
+    final int id = nextMessageId();
+    write(ByteBuffer.wrap(RequestEncoder.encode(id, RequestEncoder.extended(START_TLS_OID, null), null)));
+
+    LdapMessage message = null;
+    while (message == null) {
+      appIn.flip();
+      try {
+        final int length = LdapMessageDecoder.frameLength(appIn);
+        if (length > 0 && appIn.remaining() >= length) {
+          final ByteBuffer frame = appIn.slice();
+          frame.limit(length);
+          message = decoder.decode(frame);
+          appIn.position(appIn.position() + length);
+        }
+      } finally {
+        appIn.compact();
+      }
+      if (message == null) {
+        if (!appIn.hasRemaining()) {
+          appIn = grow(appIn, BUFFER_SIZE);
+        }
+        readFully(appIn);
+      }
+    }
+    if (message.getResultCodeValue() != ResultCode.SUCCESS.value()) {
+      throw new ConnectionException("StartTLS failed: " + message.getDiagnosticMessage(), message.getResultCode());
+    }
+  }
+
+
+  /**
+   * Performs a TLS handshake with the supplied engine. Must be invoked before {@link #start(SelectorThreadGroup)}. All
+   * subsequent reads and writes are encrypted.
+   *
+   * @param  engine  configured for client mode
+   *
+   * @throws  IOException  if the handshake fails
+   */
+  public void handshake(final SSLEngine engine)
+    throws IOException
+  {
+    sslEngine = engine;
+    netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+    netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+    if (appIn.capacity() < engine.getSession().getApplicationBufferSize()) {
+      appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+    }
+
+    engine.beginHandshake();
+    SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+    while (status != SSLEngineResult.HandshakeStatus.FINISHED &&
+           status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+      switch (status) {
+
+      case NEED_WRAP:
+        write(EMPTY_BUFFER);
+        break;
+
+      case NEED_TASK:
+        runDelegatedTasks();
+        break;
+
+      default:
+        netIn.flip();
+        final SSLEngineResult result;
+        try {
+          result = engine.unwrap(netIn, appIn);
+        } finally {
+          netIn.compact();
+        }
+        if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+          if (!netIn.hasRemaining()) {
+            netIn = grow(netIn, engine.getSession().getPacketBufferSize());
+          }
+          readFully(netIn);
+        } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+          appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+        } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+          throw new SSLException("TLS session closed during handshake");
+        }
+        break;
+      }
+      status = engine.getHandshakeStatus();
+    }
+  }
+
+
+  /**
+   * Registers this connection with the supplied selector thread group, after which responses are read by that group.
+   *
+   * @param  group  to read responses with
+   */
+  public void start(final SelectorThreadGroup group)
+  {
+    group.register(this);
+  }
+
+
+  /**
+   * Invoked by the selector thread once the channel has been registered for reads.
+   *
+   * @param  key  selection key of the channel
+   */
+  void registered(final SelectionKey key)
+  {
+    selectionKey = key;
+    updateReadInterest();
+  }
+
+
+  /**
+   * Stops the selector thread from reading this connection until {@link #resumeReading(int)} is invoked for the
+   * supplied message ID. Responses share the connection, so responses to every operation are delayed while any
+   * operation has paused reading. Responses that have already been read are still delivered.
+   *
+   * @param  id  message ID of the operation that pauses reading
+   */
+  public void pauseReading(final int id)
+  {
+    synchronized (pausedReads) {
+      pausedReads.add(id);
+      updateReadInterest();
+    }
+  }
+
+
+  /**
+   * Resumes reading this connection after {@link #pauseReading(int)}, once no other operation has paused reading.
+   *
+   * @param  id  message ID of the operation that paused reading
+   */
+  public void resumeReading(final int id)
+  {
+    synchronized (pausedReads) {
+      if (pausedReads.remove(id)) {
+        updateReadInterest();
+      }
+    }
+  }
+
+
+  /** Registers interest in reads with the selector unless an operation has paused reading. */
+  private void updateReadInterest()
+  {
+    synchronized (pausedReads) {
+      final SelectionKey key = selectionKey;
+      if (key != null) {
+        try {
+          key.interestOps(pausedReads.isEmpty() ? SelectionKey.OP_READ : 0);
+          key.selector().wakeup();
+        } catch (CancelledKeyException e) {
+          logger.debug("Connection closed before read interest was updated", e);
+        }
+      }
+    }
+  }
+
+
+  @Override
+  public void close(final RequestControl[] controls)
+    throws LdapException
+  {
+    if (closed.get()) {
+      return;
+    }
+    try {
+      send(null, RequestEncoder.unbind(), controls);
+    } catch (LdapException e) {
+      logger.debug("Problem sending unbind", e);
+    }
+    if (closed.compareAndSet(false, true)) {
+      if (sslEngine != null) {
+        sslEngine.closeOutbound();
+        try {
+          write(EMPTY_BUFFER);
+        } catch (IOException e) {
+          logger.debug("Problem sending TLS close notify", e);
+        }
+      }
+      closeChannel();
+      failPending(new ConnectionException("Connection closed", ResultCode.SERVER_DOWN));
+    }
+  }
+
+
+  @Override
+  public Response<Void> bind(final BindRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    return await(handler.getFuture(), send(handler, RequestEncoder.bind(request), request.getControls()));
+  }
+
+
+  @Override
+  public CompletableFuture<Response<Void>> bindAsync(final BindRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    send(handler, RequestEncoder.bind(request), request.getControls());
+    return handler.getFuture();
+  }
+
+
+  @Override
+  public Response<Void> add(final AddRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    return await(handler.getFuture(), send(handler, RequestEncoder.add(request), request.getControls()));
+  }
+
+
+  @Override
+  public CompletableFuture<Response<Void>> addAsync(final AddRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    send(handler, RequestEncoder.add(request), request.getControls());
+    return handler.getFuture();
+  }
+
+
+  @Override
+  public Response<Boolean> compare(final CompareRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Boolean> handler = new ResultHandler<>(
+      request,
+      m -> m.getResultCodeValue() == ResultCode.COMPARE_TRUE.value());
+    return await(handler.getFuture(), send(handler, RequestEncoder.compare(request), request.getControls()));
+  }
+
+
+  @Override
+  public CompletableFuture<Response<Boolean>> compareAsync(final CompareRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Boolean> handler = new ResultHandler<>(
+      request,
+      m -> m.getResultCodeValue() == ResultCode.COMPARE_TRUE.value());
+    send(handler, RequestEncoder.compare(request), request.getControls());
+    return handler.getFuture();
+  }
+
+
+  @Override
+  public Response<Void> delete(final DeleteRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    return await(handler.getFuture(), send(handler, RequestEncoder.delete(request), request.getControls()));
+  }
+
+
+  @Override
+  public CompletableFuture<Response<Void>> deleteAsync(final DeleteRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    send(handler, RequestEncoder.delete(request), request.getControls());
+    return handler.getFuture();
+  }
+
+
+  @Override
+  public Response<Void> modify(final ModifyRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    return await(handler.getFuture(), send(handler, RequestEncoder.modify(request), request.getControls()));
+  }
+
+
+  @Override
+  public CompletableFuture<Response<Void>> modifyAsync(final ModifyRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    send(handler, RequestEncoder.modify(request), request.getControls());
+    return handler.getFuture();
+  }
+
+
+  @Override
+  public Response<Void> modifyDn(final ModifyDnRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    return await(handler.getFuture(), send(handler, RequestEncoder.modifyDn(request), request.getControls()));
+  }
+
+
+  @Override
+  public CompletableFuture<Response<Void>> modifyDnAsync(final ModifyDnRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Void> handler = new ResultHandler<>(request, m -> null);
+    send(handler, RequestEncoder.modifyDn(request), request.getControls());
+    return handler.getFuture();
+  }
+
+
+  @Override
+  public SearchIterator search(final SearchRequest request)
+    throws LdapException
+  {
+    final NioSearchIterator i = new NioSearchIterator();
+    i.initialize(send(new SearchHandler(request, i), encodeSearch(request), request.getControls()));
+    return i;
+  }
+
+
+  @Override
+  public void searchAsync(final SearchRequest request, final SearchListener listener)
+    throws LdapException
+  {
+    final int id = send(new SearchHandler(request, listener), encodeSearch(request), request.getControls());
+    listener.asyncRequestReceived(new NioAsyncRequest(id));
+  }
+
+
+  @Override
+  public void abandon(final int id, final RequestControl[] controls)
+    throws LdapException
+  {
+    pending.remove(id);
+    resumeReading(id);
+    send(null, RequestEncoder.abandon(id), controls);
+  }
+
+
+  @Override
+  public Response<?> extendedOperation(final ExtendedRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Object> handler = createExtendedHandler(request);
+    return await(handler.getFuture(), send(handler, RequestEncoder.extended(request), request.getControls()));
+  }
+
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<Response<?>> extendedOperationAsync(final ExtendedRequest request)
+    throws LdapException
+  {
+    final ResultHandler<Object> handler = createExtendedHandler(request);
+    send(handler, RequestEncoder.extended(request), request.getControls());
+    return (CompletableFuture<Response<?>>) (CompletableFuture<?>) handler.getFuture();
+  }
+
+
+  @Override
+  public void addUnsolicitedNotificationListener(final UnsolicitedNotificationListener listener)
+  {
+    notificationListeners.add(listener);
+  }
+
+
+  @Override
+  public void removeUnsolicitedNotificationListener(final UnsolicitedNotificationListener listener)
+  {
+    notificationListeners.remove(listener);
+  }
+
+
+  /**
+   * Reads available bytes from the channel and dispatches every complete response. Invoked by a selector thread when
+   * the channel is readable.
+   *
+   * @return  whether the channel should continue to be read
+   */
+  boolean read()
+  {
+    boolean open = true;
+    try {
+      if (sslEngine != null) {
+        final int count = channel.read(netIn);
+        unwrap();
+        open = count >= 0;
+      } else {
+        if (!appIn.hasRemaining()) {
+          appIn = grow(appIn, BUFFER_SIZE);
+        }
+        open = channel.read(appIn) >= 0;
+      }
+      dispatchMessages();
+      if (!open) {
+        readFailed(new EOFException("Connection closed by server"));
+      }
+    } catch (IOException | RuntimeException e) {
+      readFailed(e);
+      open = false;
+    }
+    return open;
+  }
+
+
+  /**
+   * Closes this connection after it failed and fails all outstanding requests.
+   *
+   * @param  e  that caused the failure
+   */
+  void readFailed(final Exception e)
+  {
+    if (closed.compareAndSet(false, true)) {
+      logger.debug("Connection failed", e);
+      closeChannel();
+      failPending(new ConnectionException(e, ResultCode.SERVER_DOWN));
+    }
+  }
+
+
+  /**
+   * Decrypts the bytes read from the channel.
+   *
+   * @throws  IOException  if the bytes cannot be decrypted
+   */
+  private void unwrap()
+    throws IOException
+  {
+    netIn.flip();
+    try {
+      boolean progress = true;
+      while (progress && netIn.hasRemaining()) {
+        final SSLEngineResult result = sslEngine.unwrap(netIn, appIn);
+        if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+          appIn = grow(appIn, sslEngine.getSession().getApplicationBufferSize());
+        } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+          throw new EOFException("TLS session closed by server");
+        } else {
+          progress = result.getStatus() == SSLEngineResult.Status.OK &&
+            (result.bytesConsumed() > 0 || result.bytesProduced() > 0);
+          if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            runDelegatedTasks();
+          }
+          if (sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+            write(EMPTY_BUFFER);
+          }
+        }
+      }
+    } finally {
+      netIn.compact();
+    }
+    if (!netIn.hasRemaining()) {
+      netIn = grow(netIn, sslEngine.getSession().getPacketBufferSize());
+    }
+  }
+
+
+  /**
+   * Decodes and dispatches every complete response in the response buffer.
+   */
+  private void dispatchMessages()
+  {
+    appIn.flip();
+    try {
+      int length = LdapMessageDecoder.frameLength(appIn);
+      while (length > 0 && appIn.remaining() >= length) {
+        final ByteBuffer frame = appIn.slice();
+        frame.limit(length);
+        appIn.position(appIn.position() + length);
+        dispatch(decoder.decode(frame));
+        length = LdapMessageDecoder.frameLength(appIn);
+      }
+    } finally {
+      appIn.compact();
+    }
+  }
+
+
+  /**
+   * Delivers the supplied response to the handler of its request or, for message ID zero, to the unsolicited
+   * notification listeners.
+   *
+   * @param  message  to dispatch
+   */
+  private void dispatch(final LdapMessage message)
+  {
+    logger.trace("received message: {}", message);
+    if (message.getMessageId() == 0) {
+      final Response<Void> response = createResponse(message, null);
+      for (UnsolicitedNotificationListener listener : notificationListeners) {
+        listener.notificationReceived(message.getResponseName(), response);
+      }
+    } else {
+      final AbstractResponseHandler handler = message.isIntermediate() ?
+        pending.get(message.getMessageId()) : pending.remove(message.getMessageId());
+      if (handler != null) {
+        handler.handle(message);
+      } else {
+        logger.debug("Ignoring response to unknown message ID: {}", message);
+      }
+    }
+  }
+
+
+  /**
+   * Encodes and writes a request. The supplied handler is registered before the request is written so that it cannot
+   * miss the response.
+   *
+   * @param  handler  to receive responses or null if the request has no response
+   * @param  protocolOp  encoded request
+   * @param  controls  request controls
+   *
+   * @return  message ID of the request
+   *
+   * @throws  LdapException  if the connection is closed or the request cannot be written
+   */
+  protected int send(
+    final AbstractResponseHandler handler,
+    final DEREncoder protocolOp,
+    final RequestControl[] controls)
+    throws LdapException
+  {
+    if (closed.get()) {
+      throw new ConnectionException("Connection closed", ResultCode.SERVER_DOWN);
+    }
+
+    final int id = nextMessageId();
+    final ByteBuffer encoded = ByteBuffer.wrap(RequestEncoder.encode(id, protocolOp, processRequestControls(controls)));
+    if (handler != null) {
+      pending.put(id, handler);
+    }
+    try {
+      write(encoded);
+    } catch (IOException e) {
+      pending.remove(id);
+      readFailed(e);
+      throw new ConnectionException(e, ResultCode.SERVER_DOWN);
+    }
+    if (closed.get() && handler != null && pending.remove(id) != null) {
+      throw new ConnectionException("Connection closed", ResultCode.SERVER_DOWN);
+    }
+    return id;
+  }
+
+
+  /**
+   * Waits for a response to a request. If the response timeout expires the request is abandoned.
+   *
+   * @param  <T>  type of response
+   * @param  future  response of the request
+   * @param  id  message ID of the request
+   *
+   * @return  response
+   *
+   * @throws  LdapException  if the request failed or the response timeout expired
+   */
+  protected <T> T await(final CompletableFuture<T> future, final int id)
+    throws LdapException
+  {
+    try {
+      return responseTimeout != null ? future.get(responseTimeout.toMillis(), TimeUnit.MILLISECONDS) : future.get();
+    } catch (TimeoutException e) {
+      abandon(id, null);
+      throw new LdapException("Response timeout after " + responseTimeout, e, ResultCode.LDAP_TIMEOUT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LdapException("Interrupted waiting for response", e, ResultCode.LOCAL_ERROR);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LdapException) {
+        throw (LdapException) e.getCause();
+      }
+      throw new LdapException(e, ResultCode.LOCAL_ERROR);
+    }
+  }
+
+
+  /**
+   * Writes the supplied bytes to the channel, encrypting them if TLS is in use. Blocks until all bytes are written.
+   *
+   * @param  src  bytes to write
+   *
+   * @throws  IOException  if the bytes cannot be written
+   */
+  private void write(final ByteBuffer src)
+    throws IOException
+  {
+    synchronized (writeLock) {
+      if (sslEngine == null) {
+        flush(src);
+      } else {
+        boolean wrap = true;
+        while (wrap) {
+          netOut.clear();
+          final SSLEngineResult result = sslEngine.wrap(src, netOut);
+          if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            netOut = ByteBuffer.allocate(netOut.capacity() * 2);
+          } else {
+            netOut.flip();
+            flush(netOut);
+            if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+              runDelegatedTasks();
+            }
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+              if (src.hasRemaining()) {
+                throw new SSLException("TLS session closed");
+              }
+              wrap = false;
+            } else {
+              wrap = src.hasRemaining() ||
+                sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP;
+            }
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Writes all remaining bytes of the supplied buffer to the channel, waiting for the channel to accept more bytes when
+   * the socket send buffer is full.
+   *
+   * @param  buffer  to write
+   *
+   * @throws  IOException  if the bytes cannot be written within the response timeout
+   */
+  private void flush(final ByteBuffer buffer)
+    throws IOException
+  {
+    while (buffer.hasRemaining()) {
+      if (channel.write(buffer) == 0) {
+        await(channel, SelectionKey.OP_WRITE, responseTimeout);
+      }
+    }
+  }
+
+
+  /**
+   * Reads at least one byte from the channel into the supplied buffer, waiting up to the response timeout. Only used
+   * before this connection is registered with a selector thread group.
+   *
+   * @param  buffer  to read into
+   *
+   * @throws  IOException  if no bytes can be read
+   */
+  private void readFully(final ByteBuffer buffer)
+    throws IOException
+  {
+    int count = channel.read(buffer);
+    while (count == 0) {
+      await(channel, SelectionKey.OP_READ, responseTimeout);
+      count = channel.read(buffer);
+    }
+    if (count < 0) {
+      throw new EOFException("Connection closed by server");
+    }
+  }
+
+
+  /** Runs the delegated tasks of the TLS engine on the current thread. */
+  private void runDelegatedTasks()
+  {
+    Runnable task = sslEngine.getDelegatedTask();
+    while (task != null) {
+      task.run();
+      task = sslEngine.getDelegatedTask();
+    }
+  }
+
+
+  /** Closes the channel, ignoring any errors. */
+  private void closeChannel()
+  {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.debug("Problem closing channel", e);
+    }
+  }
+
+
+  /**
+   * Removes every outstanding request and fails it with the supplied exception.
+   *
+   * @param  e  to fail requests with
+   */
+  private void failPending(final LdapException e)
+  {
+    for (Integer id : pending.keySet()) {
+      final AbstractResponseHandler handler = pending.remove(id);
+      if (handler != null) {
+        handler.fail(e);
+      }
+    }
+  }
+
+
+  /**
+   * Returns the next message ID, wrapping around to one after the maximum integer value.
+   *
+   * @return  message ID
+   */
+  private int nextMessageId()
+  {
+    return messageId.updateAndGet(i -> i == Integer.MAX_VALUE ? 1 : i + 1);
+  }
+
+
+  /**
+   * Returns an encoder for the supplied search request.
+   *
+   * @param  request  search request
+   *
+   * @return  search request encoder
+   *
+   * @throws  LdapException  if the search filter cannot be encoded
+   */
+  private DEREncoder encodeSearch(final SearchRequest request)
+    throws LdapException
+  {
+    try {
+      return RequestEncoder.search(request);
+    } catch (IllegalArgumentException e) {
+      throw new LdapException("Invalid search filter", e, ResultCode.FILTER_ERROR);
+    }
+  }
+
+
+  /**
+   * Returns a handler for the supplied extended request that produces the value of the extended response.
+   *
+   * @param  request  extended request
+   *
+   * @return  result handler
+   */
+  private ResultHandler<Object> createExtendedHandler(final ExtendedRequest request)
+  {
+    return new ResultHandler<>(
+      request,
+      m -> ExtendedResponseFactory.createExtendedResponse(
+        request.getOID(),
+        m.getResponseName(),
+        m.getResponseValue()).getValue());
+  }
+
+
+  /**
+   * Converts the supplied request controls with the control processor of the provider configuration.
+   *
+   * @param  controls  to convert
+   *
+   * @return  request controls or null
+   */
+  private RequestControl[] processRequestControls(final RequestControl[] controls)
+  {
+    final Control[] processed = config.getControlProcessor().processRequestControls(controls);
+    if (processed == null) {
+      return null;
+    }
+
+    final RequestControl[] requestControls = new RequestControl[processed.length];
+    for (int i = 0; i < processed.length; i++) {
+      requestControls[i] = (RequestControl) processed[i];
+    }
+    return requestControls;
+  }
+
+
+  /**
+   * Creates an operation response from the supplied message.
+   *
+   * @param  <T>  type of result
+   * @param  message  containing an LDAPResult
+   * @param  result  of the operation
+   *
+   * @return  operation response
+   */
+  protected <T> Response<T> createResponse(final LdapMessage message, final T result)
+  {
+    return
+      new Response<>(
+        result,
+        message.getResultCode(),
+        message.getDiagnosticMessage(),
+        message.getMatchedDn(),
+        processResponseControls(message.getControls()),
+        message.getUrls(),
+        message.getMessageId());
+  }
+
+
+  /**
+   * Returns the exception for the supplied message, which contains a result code that indicates failure.
+   *
+   * @param  message  containing an LDAPResult
+   *
+   * @return  operation exception or ldap exception
+   */
+  protected LdapException createException(final LdapMessage message)
+  {
+    try {
+      ProviderUtils.throwOperationException(
+        config.getOperationExceptionResultCodes(),
+        String.format(
+          "resultCode=%s, diagnosticMessage=%s",
+          message.getResultCode(),
+          message.getDiagnosticMessage()),
+        message.getResultCodeValue(),
+        message.getMatchedDn(),
+        processResponseControls(message.getControls()),
+        message.getUrls(),
+        true);
+    } catch (LdapException e) {
+      return e;
+    }
+    throw new IllegalStateException("Operation exception not thrown for " + message);
+  }
+
+
+  /**
+   * Converts the supplied response controls with the control processor of the provider configuration.
+   *
+   * @param  controls  to convert
+   *
+   * @return  response controls or null
+   */
+  private ResponseControl[] processResponseControls(final ResponseControl[] controls)
+  {
+    return config.getControlProcessor().processResponseControls(controls);
+  }
+
+
+  /**
+   * Returns whether the supplied result code is returned as a response rather than thrown.
+   *
+   * @param  code  result code value
+   *
+   * @return  whether the result code indicates success
+   */
+  private static boolean isSuccess(final int code)
+  {
+    return
+      code == ResultCode.SUCCESS.value() ||
+      code == ResultCode.COMPARE_FALSE.value() ||
+      code == ResultCode.COMPARE_TRUE.value() ||
+      code == ResultCode.REFERRAL.value() ||
+      code == ResultCode.SASL_BIND_IN_PROGRESS.value();
+  }
+
+
+  /**
+   * Returns a new buffer with at least the supplied amount of additional space that contains the bytes of the supplied
+   * buffer, which must be in write mode.
+   *
+   * @param  buffer  to grow
+   * @param  size  minimum amount of additional space
+   *
+   * @return  new buffer in write mode
+   */
+  private static ByteBuffer grow(final ByteBuffer buffer, final int size)
+  {
+    final ByteBuffer b = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+    buffer.flip();
+    b.put(buffer);
+    return b;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::channel=%s, config=%s, responseTimeout=%s, sslEngine=%s, pending=%s]",
+        getClass().getName(),
+        hashCode(),
+        channel,
+        config,
+        responseTimeout,
+        sslEngine,
+        pending.size());
+  }
+
+
+  /** Receives the responses to a single request. */
+  protected abstract class AbstractResponseHandler
+  {
+
+
+    /**
+     * Returns the search request this handler receives responses for.
+     *
+     * @return  search request or null if the request is not a search
+     */
+    protected SearchRequest getSearchRequest()
+    {
+      return null;
+    }
+
+
+    /**
+     * Handles a response to the request. Invoked on a selector thread.
+     *
+     * @param  message  response
+     */
+    protected abstract void handle(LdapMessage message);
+
+
+    /**
+     * Handles the failure of the connection before the final response was received.
+     *
+     * @param  e  exception that caused the failure
+     */
+    protected abstract void fail(LdapException e);
+  }
+
+
+  /**
+   * Completes a future with the response to a request. Results with a result code that indicates failure complete the
+   * future exceptionally.
+   *
+   * @param  <T>  type of result
+   */
+  protected class ResultHandler<T> extends AbstractResponseHandler
+  {
+
+    /** Request the operation was performed with. */
+    private final Request request;
+
+    /** Produces the result of the operation from the response. */
+    private final Function<LdapMessage, T> resultFunction;
+
+    /** Future to complete. */
+    private final CompletableFuture<Response<T>> future = new CompletableFuture<>();
+
+
+    /**
+     * Creates a new result handler.
+     *
+     * @param  r  request the operation was performed with
+     * @param  f  produces the result of the operation from the response
+     */
+    public ResultHandler(final Request r, final Function<LdapMessage, T> f)
+    {
+      request = r;
+      resultFunction = f;
+    }
+
+
+    /**
+     * Returns the future completed by this handler.
+     *
+     * @return  future response
+     */
+    public CompletableFuture<Response<T>> getFuture()
+    {
+      return future;
+    }
+
+
+    @Override
+    protected void handle(final LdapMessage message)
+    {
+      if (isSuccess(message.getResultCodeValue())) {
+        try {
+          future.complete(createResponse(message, resultFunction.apply(message)));
+        } catch (RuntimeException e) {
+          logger.debug("Could not create response for {}", request, e);
+          future.completeExceptionally(new LdapException(e, ResultCode.DECODING_ERROR));
+        }
+      } else {
+        future.completeExceptionally(createException(message));
+      }
+    }
+
+
+    @Override
+    protected void fail(final LdapException e)
+    {
+      future.completeExceptionally(e);
+    }
+  }
+
+
+  /** Delivers the responses to a search request to a search listener. */
+  protected class SearchHandler extends AbstractResponseHandler
+  {
+
+    /** Search request. */
+    private final SearchRequest request;
+
+    /** Search listener. */
+    private final SearchListener listener;
+
+
+    /**
+     * Creates a new search handler.
+     *
+     * @param  sr  search request
+     * @param  sl  search listener
+     */
+    public SearchHandler(final SearchRequest sr, final SearchListener sl)
+    {
+      request = sr;
+      listener = sl;
+    }
+
+
+    @Override
+    protected SearchRequest getSearchRequest()
+    {
+      return request;
+    }
+
+
+    @Override
+    protected void handle(final LdapMessage message)
+    {
+      switch (message.getProtocolOp()) {
+
+      case LdapMessage.SEARCH_RESULT_ENTRY:
+        listener.searchItemReceived(new SearchItem(message.toSearchEntry(request)));
+        break;
+
+      case LdapMessage.SEARCH_RESULT_REFERENCE:
+        listener.searchItemReceived(new SearchItem(message.toSearchReference()));
+        break;
+
+      case LdapMessage.INTERMEDIATE_RESPONSE:
+        listener.searchItemReceived(
+          new SearchItem(
+            IntermediateResponseFactory.createIntermediateResponse(
+              message.getResponseName(),
+              message.getResponseValue(),
+              processResponseControls(message.getControls()),
+              message.getMessageId())));
+        break;
+
+      default:
+        if (message.getResultCodeValue() == ResultCode.SUCCESS.value() || isIgnored(message.getResultCodeValue())) {
+          listener.responseReceived(createResponse(message, null));
+        } else {
+          listener.exceptionReceived(createException(message));
+        }
+        break;
+      }
+    }
+
+
+    @Override
+    protected void fail(final LdapException e)
+    {
+      listener.exceptionReceived(e);
+    }
+
+
+    /**
+     * Returns whether the supplied result code is configured to be ignored for searches.
+     *
+     * @param  code  result code value
+     *
+     * @return  whether the result code should be ignored
+     */
+    private boolean isIgnored(final int code)
+    {
+      if (config.getSearchIgnoreResultCodes() != null) {
+        for (ResultCode rc : config.getSearchIgnoreResultCodes()) {
+          if (rc.value() == code) {
+            logger.debug("Ignoring result code {} for {}", rc, request);
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+
+  /** Search iterator that reads the responses of a search as they are received. */
+  protected class NioSearchIterator implements SearchIterator, SearchListener
+  {
+
+    /** Search items, the final response, or an exception. */
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    /** Message ID of the search. */
+    private int searchMessageId;
+
+    /** Next search item. */
+    private SearchItem next;
+
+    /** Final response of the search. */
+    private Response<Void> response;
+
+    /** Whether the final response or an exception has been read. */
+    private boolean done;
+
+
+    /**
+     * Initializes this iterator with the message ID of the search.
+     *
+     * @param  id  message ID of the search
+     */
+    public void initialize(final int id)
+    {
+      searchMessageId = id;
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext()
+      throws LdapException
+    {
+      if (next == null && !done) {
+        final Object o;
+        try {
+          o = responseTimeout != null ?
+            queue.poll(responseTimeout.toMillis(), TimeUnit.MILLISECONDS) : queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new LdapException("Interrupted waiting for search response", e, ResultCode.LOCAL_ERROR);
+        }
+        if (o == null) {
+          close();
+          throw new LdapException("Response timeout after " + responseTimeout, ResultCode.LDAP_TIMEOUT);
+        } else if (o instanceof SearchItem) {
+          next = (SearchItem) o;
+        } else if (o instanceof LdapException) {
+          done = true;
+          throw (LdapException) o;
+        } else {
+          done = true;
+          response = (Response<Void>) o;
+        }
+      }
+      return next != null;
+    }
+
+
+    @Override
+    public SearchItem next()
+      throws LdapException
+    {
+      hasNext();
+
+      final SearchItem item = next;
+      next = null;
+      return item;
+    }
+
+
+    @Override
+    public Response<Void> getResponse()
+    {
+      return response;
+    }
+
+
+    @Override
+    public void close()
+      throws LdapException
+    {
+      if (!done) {
+        done = true;
+        abandon(searchMessageId, null);
+      }
+    }
+
+
+    @Override
+    public void asyncRequestReceived(final AsyncRequest request) {}
+
+
+    @Override
+    public void searchItemReceived(final SearchItem item)
+    {
+      queue.add(item);
+    }
+
+
+    @Override
+    public void responseReceived(final Response<Void> res)
+    {
+      queue.add(res);
+    }
+
+
+    @Override
+    public void exceptionReceived(final Exception exception)
+    {
+      queue.add(
+        exception instanceof LdapException ?
+          exception : new LdapException(exception, ResultCode.LOCAL_ERROR));
+    }
+  }
+
+
+  /** Async request to invoke abandons. */
+  protected class NioAsyncRequest implements AsyncRequest
+  {
+
+    /** Message ID of the request. */
+    private final int requestMessageId;
+
+
+    /**
+     * Creates a new NIO async request.
+     *
+     * @param  id  message ID of the request
+     */
+    public NioAsyncRequest(final int id)
+    {
+      requestMessageId = id;
+    }
+
+
+    @Override
+    public int getMessageId()
+    {
+      return requestMessageId;
+    }
+
+
+    @Override
+    public void abandon()
+      throws LdapException
+    {
+      NioConnection.this.abandon(requestMessageId, null);
+    }
+
+
+    @Override
+    public void abandon(final RequestControl[] controls)
+      throws LdapException
+    {
+      NioConnection.this.abandon(requestMessageId, controls);
+    }
+
+
+    @Override
+    public boolean pauseReading()
+    {
+      NioConnection.this.pauseReading(requestMessageId);
+      return true;
+    }
+
+
+    @Override
+    public void resumeReading()
+    {
+      NioConnection.this.resumeReading(requestMessageId);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.ldaptive.ConnectionStrategy;
+import org.ldaptive.LdapException;
+import org.ldaptive.LdapURL;
+import org.ldaptive.ResultCode;
+import org.ldaptive.provider.AbstractProviderConnectionFactory;
+import org.ldaptive.provider.ConnectionException;
+import org.ldaptive.ssl.SSLContextRegistry;
+import org.ldaptive.ssl.SslConfig;
+
+/**
+ * Creates ldap connections using non-blocking socket channels. Connections to an LDAPS URL perform a TLS handshake
+ * before they are used.
+ *
+ * @author  Middleware Services
+ */
+public class NioConnectionFactory extends AbstractProviderConnectionFactory<NioProviderConfig>
+{
+
+  /** SSL context for TLS connections, null for clear connections. */
+  private final SSLContext sslContext;
+
+  /** SSL configuration for enabled cipher suites and protocols. */
+  private final SslConfig sslConfig;
+
+  /** Amount of time to wait for a connection to be established. */
+  private final Duration connectTimeout;
+
+  /** Amount of time to wait for responses. */
+  private final Duration responseTimeout;
+
+
+  /**
+   * Creates a new NIO connection factory.
+   *
+   * @param  url  of the ldap to connect to
+   * @param  strategy  connection strategy
+   * @param  config  provider configuration
+   * @param  context  SSL context for TLS or null for clear connections
+   * @param  ssl  SSL configuration or null
+   * @param  connect  connect timeout or null
+   * @param  response  response timeout or null
+   */
+  // CheckStyle:ParameterNumber OFF
+  public NioConnectionFactory(
+    final String url,
+    final ConnectionStrategy strategy,
+    final NioProviderConfig config,
+    final SSLContext context,
+    final SslConfig ssl,
+    final Duration connect,
+    final Duration response)
+  {
+    super(url, strategy, config);
+    sslContext = context;
+    sslConfig = ssl;
+    connectTimeout = connect;
+    responseTimeout = response;
+  }
+  // CheckStyle:ParameterNumber ON
+
+
+  /**
+   * Returns the SSL context used for TLS.
+   *
+   * @return  SSL context or null for clear connections
+   */
+  public SSLContext getSSLContext()
+  {
+    return sslContext;
+  }
+
+
+  @Override
+  protected NioConnection createInternal(final String url)
+    throws LdapException
+  {
+    final LdapURL ldapUrl = new LdapURL(url);
+    final String host = ldapUrl.getLastEntry().getHostname();
+    final int port = ldapUrl.getLastEntry().getPort();
+    NioConnection conn = null;
+    boolean closeConn = false;
+    try {
+      conn = new NioConnection(
+        NioConnection.connect(new InetSocketAddress(host, port), connectTimeout),
+        getProviderConfig(),
+        responseTimeout);
+      initialize(conn, host, port);
+      conn.start(SelectorThreadGroup.getInstance(getProviderConfig().getIoThreads()));
+    } catch (IOException e) {
+      closeConn = true;
+      throw new ConnectionException(e, ResultCode.SERVER_DOWN);
+    } catch (LdapException | RuntimeException e) {
+      closeConn = true;
+      throw e;
+    } finally {
+      if (closeConn && conn != null) {
+        try {
+          conn.getChannel().close();
+        } catch (IOException e) {
+          logger.debug("Problem tearing down connection", e);
+        }
+      }
+    }
+    return conn;
+  }
+
+
+  /**
+   * Prepares a connected connection for use before it is registered with a selector thread. Performs a TLS handshake if
+   * this factory has an SSL context and records it in the statistics of the default {@link SSLContextRegistry}.
+   *
+   * @param  conn  connected connection
+   * @param  host  the connection was established with
+   * @param  port  the connection was established with
+   *
+   * @throws  IOException  if an I/O error occurs
+   * @throws  LdapException  if the server rejects an operation
+   */
+  protected void initialize(final NioConnection conn, final String host, final int port)
+    throws IOException, LdapException
+  {
+    if (sslContext != null) {
+      final SSLEngine engine = createSSLEngine(host, port);
+      final long startTime = System.currentTimeMillis();
+      conn.handshake(engine);
+      SSLContextRegistry.getDefault().getStatistics().recordHandshake(engine.getSession(), startTime);
+    }
+  }
+
+
+  /**
+   * Returns a client mode SSL engine configured with the enabled cipher suites and protocols of the SSL configuration.
+   *
+   * @param  host  to connect to
+   * @param  port  to connect to
+   *
+   * @return  SSL engine
+   */
+  protected SSLEngine createSSLEngine(final String host, final int port)
+  {
+    final SSLEngine engine = sslContext.createSSLEngine(host, port);
+    engine.setUseClientMode(true);
+    if (sslConfig != null) {
+      if (sslConfig.getEnabledCipherSuites() != null) {
+        engine.setEnabledCipherSuites(sslConfig.getEnabledCipherSuites());
+      }
+      if (sslConfig.getEnabledProtocols() != null) {
+        engine.setEnabledProtocols(sslConfig.getEnabledProtocols());
+      }
+    }
+    return engine;
+  }
+}
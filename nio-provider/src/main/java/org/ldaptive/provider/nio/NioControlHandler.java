@@ -0,0 +1,45 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import org.ldaptive.control.Control;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.control.ResponseControl;
+import org.ldaptive.provider.ControlHandler;
+
+/**
+ * NIO control handler. Request controls are encoded by the provider and response controls are decoded by the provider,
+ * so controls pass through this handler unchanged.
+ *
+ * @author  Middleware Services
+ */
+public class NioControlHandler implements ControlHandler<Control>
+{
+
+
+  @Override
+  public Class<Control> getControlType()
+  {
+    return Control.class;
+  }
+
+
+  @Override
+  public String getOID(final Control control)
+  {
+    return control.getOID();
+  }
+
+
+  @Override
+  public Control handleRequest(final RequestControl requestControl)
+  {
+    return requestControl;
+  }
+
+
+  @Override
+  public ResponseControl handleResponse(final Control responseControl)
+  {
+    return responseControl instanceof ResponseControl ? (ResponseControl) responseControl : null;
+  }
+}
@@ -0,0 +1,122 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.security.GeneralSecurityException;
+import javax.net.ssl.SSLContext;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.LdapURL;
+import org.ldaptive.provider.Provider;
+import org.ldaptive.provider.ProviderConnectionFactory;
+import org.ldaptive.ssl.AbstractTLSSocketFactory;
+import org.ldaptive.ssl.DefaultHostnameVerifier;
+import org.ldaptive.ssl.DefaultTrustManager;
+import org.ldaptive.ssl.HostnameVerifyingTrustManager;
+import org.ldaptive.ssl.SSLContextRegistry;
+import org.ldaptive.ssl.SslConfig;
+
+/**
+ * NIO provider implementation. Provides connection factories for clear, SSL, and TLS connections that encode and
+ * decode LDAP messages with the ldaptive ASN.1 codec and share a small number of selector threads for reading
+ * responses.
+ *
+ * @author  Middleware Services
+ */
+public class NioProvider implements Provider<NioProviderConfig>
+{
+
+  /** Provider configuration. */
+  private NioProviderConfig config = new NioProviderConfig();
+
+
+  @Override
+  public ProviderConnectionFactory<NioProviderConfig> getConnectionFactory(final ConnectionConfig cc)
+  {
+    SSLContext context = config.getSSLContext();
+    if (context == null && (cc.getUseStartTLS() || cc.getUseSSL())) {
+      context = createSSLContext(cc);
+    }
+
+    ProviderConnectionFactory<NioProviderConfig> cf;
+    if (cc.getUseStartTLS()) {
+      cf = new NioStartTLSConnectionFactory(
+        cc.getLdapUrl(),
+        cc.getConnectionStrategy(),
+        config,
+        context,
+        cc.getSslConfig(),
+        cc.getConnectTimeout(),
+        cc.getResponseTimeout());
+    } else if (cc.getUseSSL()) {
+      cf = new NioConnectionFactory(
+        cc.getLdapUrl(),
+        cc.getConnectionStrategy(),
+        config,
+        context,
+        cc.getSslConfig(),
+        cc.getConnectTimeout(),
+        cc.getResponseTimeout());
+    } else {
+      cf = new NioConnectionFactory(
+        cc.getLdapUrl(),
+        cc.getConnectionStrategy(),
+        config,
+        null,
+        null,
+        cc.getConnectTimeout(),
+        cc.getResponseTimeout());
+    }
+    return cf;
+  }
+
+
+  /**
+   * Returns the SSL context for the SSL configuration of the supplied connection configuration from the default {@link
+   * SSLContextRegistry}. If no trust managers are configured, a {@link HostnameVerifyingTrustManager} with {@link
+   * DefaultHostnameVerifier} is used.
+   *
+   * @param  cc  connection configuration
+   *
+   * @return  SSL context
+   */
+  protected SSLContext createSSLContext(final ConnectionConfig cc)
+  {
+    final SslConfig sslConfig = cc.getSslConfig() != null && !cc.getSslConfig().isEmpty() ?
+      SslConfig.newSslConfig(cc.getSslConfig()) : new SslConfig();
+    if (sslConfig.getTrustManagers() == null) {
+      final HostnameVerifyingTrustManager verifier = new HostnameVerifyingTrustManager(
+        new DefaultHostnameVerifier(),
+        new LdapURL(cc.getLdapUrl()).getHostnames());
+      if (sslConfig.getCredentialConfig() == null) {
+        sslConfig.setTrustManagers(new DefaultTrustManager(), verifier);
+      } else {
+        sslConfig.setTrustManagers(verifier);
+      }
+    }
+    try {
+      return SSLContextRegistry.getDefault().getSSLContext(AbstractTLSSocketFactory.DEFAULT_PROTOCOL, sslConfig);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+
+  @Override
+  public NioProviderConfig getProviderConfig()
+  {
+    return config;
+  }
+
+
+  @Override
+  public void setProviderConfig(final NioProviderConfig pc)
+  {
+    config = pc;
+  }
+
+
+  @Override
+  public NioProvider newInstance()
+  {
+    return new NioProvider();
+  }
+}
@@ -0,0 +1,134 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.util.Arrays;
+import javax.net.ssl.SSLContext;
+import org.ldaptive.ResultCode;
+import org.ldaptive.control.Control;
+import org.ldaptive.provider.ControlProcessor;
+import org.ldaptive.provider.ProviderConfig;
+
+/**
+ * Contains configuration data for the NIO provider.
+ *
+ * @author  Middleware Services
+ */
+public class NioProviderConfig extends ProviderConfig<Control>
+{
+
+  /** Number of selector threads that read responses for all connections. */
+  private int ioThreads = Runtime.getRuntime().availableProcessors();
+
+  /** SSL context for ldaps and startTLS connections. */
+  private SSLContext sslContext;
+
+  /** Search result codes to ignore. */
+  private ResultCode[] searchIgnoreResultCodes;
+
+
+  /** Default constructor. */
+  public NioProviderConfig()
+  {
+    setOperationExceptionResultCodes(ResultCode.SERVER_DOWN);
+    setControlProcessor(new ControlProcessor<>(new NioControlHandler()));
+    searchIgnoreResultCodes = new ResultCode[] {
+      ResultCode.TIME_LIMIT_EXCEEDED,
+      ResultCode.SIZE_LIMIT_EXCEEDED,
+      ResultCode.REFERRAL,
+    };
+  }
+
+
+  /**
+   * Returns the number of selector threads used to read responses. Connections that use the same number of threads
+   * share the same selector threads.
+   *
+   * @return  number of selector threads
+   */
+  public int getIoThreads()
+  {
+    return ioThreads;
+  }
+
+
+  /**
+   * Sets the number of selector threads used to read responses.
+   *
+   * @param  count  number of selector threads
+   */
+  public void setIoThreads(final int count)
+  {
+    checkImmutable();
+    if (count < 1) {
+      throw new IllegalArgumentException("IO threads must be greater than zero");
+    }
+    logger.trace("setting ioThreads: {}", count);
+    ioThreads = count;
+  }
+
+
+  /**
+   * Returns the SSL context to use for LDAPS and startTLS connections.
+   *
+   * @return  SSL context
+   */
+  public SSLContext getSSLContext()
+  {
+    return sslContext;
+  }
+
+
+  /**
+   * Sets the SSL context to use for LDAPS and startTLS connections.
+   *
+   * @param  context  SSL context
+   */
+  public void setSSLContext(final SSLContext context)
+  {
+    checkImmutable();
+    logger.trace("setting sslContext: {}", context);
+    sslContext = context;
+  }
+
+
+  /**
+   * Returns the search ignore result codes.
+   *
+   * @return  result codes to ignore
+   */
+  public ResultCode[] getSearchIgnoreResultCodes()
+  {
+    return searchIgnoreResultCodes;
+  }
+
+
+  /**
+   * Sets the search ignore result codes.
+   *
+   * @param  codes  to ignore
+   */
+  public void setSearchIgnoreResultCodes(final ResultCode[] codes)
+  {
+    checkImmutable();
+    logger.trace("setting searchIgnoreResultCodes: {}", Arrays.toString(codes));
+    searchIgnoreResultCodes = codes;
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return
+      String.format(
+        "[%s@%d::operationExceptionResultCodes=%s, properties=%s, controlProcessor=%s, ioThreads=%s, sslContext=%s, " +
+        "searchIgnoreResultCodes=%s]",
+        getClass().getName(),
+        hashCode(),
+        Arrays.toString(getOperationExceptionResultCodes()),
+        getProperties(),
+        getControlProcessor(),
+        ioThreads,
+        sslContext,
+        Arrays.toString(searchIgnoreResultCodes));
+  }
+}
@@ -0,0 +1,53 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.io.IOException;
+import java.time.Duration;
+import javax.net.ssl.SSLContext;
+import org.ldaptive.ConnectionStrategy;
+import org.ldaptive.LdapException;
+import org.ldaptive.ssl.SslConfig;
+
+/**
+ * Creates ldap connections using non-blocking socket channels and performs the startTLS extended operation.
+ *
+ * @author  Middleware Services
+ */
+public class NioStartTLSConnectionFactory extends NioConnectionFactory
+{
+
+
+  /**
+   * Creates a new NIO startTLS connection factory.
+   *
+   * @param  url  of the ldap to connect to
+   * @param  strategy  connection strategy
+   * @param  config  provider configuration
+   * @param  context  SSL context for startTLS
+   * @param  ssl  SSL configuration or null
+   * @param  connect  connect timeout or null
+   * @param  response  response timeout or null
+   */
+  // CheckStyle:ParameterNumber OFF
+  public NioStartTLSConnectionFactory(
+    final String url,
+    final ConnectionStrategy strategy,
+    final NioProviderConfig config,
+    final SSLContext context,
+    final SslConfig ssl,
+    final Duration connect,
+    final Duration response)
+  {
+    super(url, strategy, config, context, ssl, connect, response);
+  }
+  // CheckStyle:ParameterNumber ON
+
+
+  @Override
+  protected void initialize(final NioConnection conn, final String host, final int port)
+    throws IOException, LdapException
+  {
+    conn.startTLS();
+    super.initialize(conn, host, port);
+  }
+}
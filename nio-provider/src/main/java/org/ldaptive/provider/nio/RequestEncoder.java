@@ -0,0 +1,434 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.ldaptive.AddRequest;
+import org.ldaptive.AttributeModification;
+import org.ldaptive.BindRequest;
+import org.ldaptive.CompareRequest;
+import org.ldaptive.DeleteRequest;
+import org.ldaptive.DerefAliases;
+import org.ldaptive.DnParser;
+import org.ldaptive.LdapAttribute;
+import org.ldaptive.ModifyDnRequest;
+import org.ldaptive.ModifyRequest;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchScope;
+import org.ldaptive.asn1.ApplicationDERTag;
+import org.ldaptive.asn1.BooleanType;
+import org.ldaptive.asn1.ConstructedDEREncoder;
+import org.ldaptive.asn1.ContextDERTag;
+import org.ldaptive.asn1.ContextType;
+import org.ldaptive.asn1.DEREncoder;
+import org.ldaptive.asn1.DERTag;
+import org.ldaptive.asn1.IntegerType;
+import org.ldaptive.asn1.OctetStringType;
+import org.ldaptive.asn1.UniversalDERTag;
+import org.ldaptive.control.RequestControl;
+import org.ldaptive.extended.ExtendedRequest;
+import org.ldaptive.sasl.Mechanism;
+
+/**
+ * Encodes LDAP requests as defined in RFC 4511.
+ *
+ * <pre>
+   LDAPMessage ::= SEQUENCE {
+     messageID       MessageID,
+     protocolOp      CHOICE { ... },
+     controls       [0] Controls OPTIONAL }
+ * </pre>
+ *
+ * @author  Middleware Services
+ */
+public final class RequestEncoder
+{
+
+  /** LDAP protocol version. */
+  private static final int VERSION = 3;
+
+  /** Application tag number of a bind request. */
+  private static final int BIND_REQUEST = 0;
+
+  /** Application tag number of an unbind request. */
+  private static final int UNBIND_REQUEST = 2;
+
+  /** Application tag number of a search request. */
+  private static final int SEARCH_REQUEST = 3;
+
+  /** Application tag number of a modify request. */
+  private static final int MODIFY_REQUEST = 6;
+
+  /** Application tag number of an add request. */
+  private static final int ADD_REQUEST = 8;
+
+  /** Application tag number of a delete request. */
+  private static final int DELETE_REQUEST = 10;
+
+  /** Application tag number of a modify DN request. */
+  private static final int MODIFY_DN_REQUEST = 12;
+
+  /** Application tag number of a compare request. */
+  private static final int COMPARE_REQUEST = 14;
+
+  /** Application tag number of an abandon request. */
+  private static final int ABANDON_REQUEST = 16;
+
+  /** Application tag number of an extended request. */
+  private static final int EXTENDED_REQUEST = 23;
+
+  /** Context index of SASL credentials in a bind request. */
+  private static final int SASL_CREDENTIALS = 3;
+
+
+  /** Default constructor. */
+  private RequestEncoder() {}
+
+
+  /**
+   * Encodes an LDAP message containing the supplied protocol operation and controls.
+   *
+   * @param  messageId  of the message
+   * @param  protocolOp  encoded request
+   * @param  controls  request controls or null
+   *
+   * @return  encoded LDAP message
+   */
+  public static byte[] encode(final int messageId, final DEREncoder protocolOp, final RequestControl[] controls)
+  {
+    final DEREncoder[] elements;
+    if (controls != null && controls.length > 0) {
+      final DEREncoder[] encodedControls = new DEREncoder[controls.length];
+      for (int i = 0; i < controls.length; i++) {
+        encodedControls[i] = control(controls[i]);
+      }
+      elements = new DEREncoder[] {
+        new IntegerType(messageId),
+        protocolOp,
+        new ConstructedDEREncoder(new ContextDERTag(0, true), encodedControls),
+      };
+    } else {
+      elements = new DEREncoder[] {new IntegerType(messageId), protocolOp};
+    }
+    return new ConstructedDEREncoder(UniversalDERTag.SEQ, elements).encode();
+  }
+
+
+  /**
+   * Returns a bind request encoder. Simple binds are performed when the request has no SASL configuration, anonymous
+   * binds when it has neither a DN nor a credential.
+   *
+   * @param  request  bind request
+   *
+   * @return  bind request encoder
+   *
+   * @throws  UnsupportedOperationException  if the request uses a SASL mechanism other than EXTERNAL
+   */
+  public static DEREncoder bind(final BindRequest request)
+  {
+    final DEREncoder auth;
+    if (request.getSaslConfig() != null) {
+      final Mechanism mech = request.getSaslConfig().getMechanism();
+      if (mech != Mechanism.EXTERNAL) {
+        throw new UnsupportedOperationException("SASL mechanism not supported: " + mech);
+      }
+
+      final String authzId = request.getSaslConfig().getAuthorizationId();
+      auth = authzId != null ?
+        new ConstructedDEREncoder(
+          new ContextDERTag(SASL_CREDENTIALS, true),
+          new OctetStringType(mech.name()),
+          new OctetStringType(authzId)) :
+        new ConstructedDEREncoder(new ContextDERTag(SASL_CREDENTIALS, true), new OctetStringType(mech.name()));
+    } else {
+      auth = new ContextType(0, request.getCredential() != null ? request.getCredential().getBytes() : new byte[0]);
+    }
+    return new ConstructedDEREncoder(
+      new ApplicationDERTag(BIND_REQUEST, true),
+      new IntegerType(VERSION),
+      new OctetStringType(request.getDn() != null ? request.getDn() : ""),
+      auth);
+  }
+
+
+  /**
+   * Returns an unbind request encoder.
+   *
+   * @return  unbind request encoder
+   */
+  public static DEREncoder unbind()
+  {
+    return new OctetStringType(new ApplicationDERTag(UNBIND_REQUEST, false), new byte[0]);
+  }
+
+
+  /**
+   * Returns an abandon request encoder.
+   *
+   * @param  messageId  of the operation to abandon
+   *
+   * @return  abandon request encoder
+   */
+  public static DEREncoder abandon(final int messageId)
+  {
+    return new IntegerType(new ApplicationDERTag(ABANDON_REQUEST, false), messageId);
+  }
+
+
+  /**
+   * Returns a search request encoder. A null search scope is encoded as subtree and null alias dereferencing as never.
+   *
+   * @param  request  search request
+   *
+   * @return  search request encoder
+   */
+  public static DEREncoder search(final SearchRequest request)
+  {
+    final String[] attrs = request.getReturnAttributes();
+    final DEREncoder[] encodedAttrs = new DEREncoder[attrs != null ? attrs.length : 0];
+    for (int i = 0; i < encodedAttrs.length; i++) {
+      encodedAttrs[i] = new OctetStringType(attrs[i]);
+    }
+    return new ConstructedDEREncoder(
+      new ApplicationDERTag(SEARCH_REQUEST, true),
+      new OctetStringType(request.getBaseDn() != null ? request.getBaseDn() : ""),
+      new IntegerType(
+        UniversalDERTag.ENUM,
+        request.getSearchScope() != null ? request.getSearchScope().ordinal() : SearchScope.SUBTREE.ordinal()),
+      new IntegerType(
+        UniversalDERTag.ENUM,
+        request.getDerefAliases() != null ? request.getDerefAliases().ordinal() : DerefAliases.NEVER.ordinal()),
+      new IntegerType((int) Math.min(Integer.MAX_VALUE, request.getSizeLimit())),
+      new IntegerType(request.getTimeLimit() != null ? (int) request.getTimeLimit().getSeconds() : 0),
+      new BooleanType(request.getTypesOnly()),
+      FilterEncoder.encode(request.getSearchFilter() != null ? request.getSearchFilter().format() : null),
+      constructed(UniversalDERTag.SEQ, encodedAttrs));
+  }
+
+
+  /**
+   * Returns a modify request encoder.
+   *
+   * @param  request  modify request
+   *
+   * @return  modify request encoder
+   */
+  public static DEREncoder modify(final ModifyRequest request)
+  {
+    final AttributeModification[] mods = request.getAttributeModifications();
+    final DEREncoder[] changes = new DEREncoder[mods.length];
+    for (int i = 0; i < mods.length; i++) {
+      final int op;
+      switch (mods[i].getAttributeModificationType()) {
+
+      case ADD:
+        op = 0;
+        break;
+
+      case REMOVE:
+        op = 1;
+        break;
+
+      default:
+        op = 2;
+        break;
+      }
+      changes[i] = new ConstructedDEREncoder(
+        UniversalDERTag.SEQ,
+        new IntegerType(UniversalDERTag.ENUM, op),
+        attribute(mods[i].getAttribute()));
+    }
+    return new ConstructedDEREncoder(
+      new ApplicationDERTag(MODIFY_REQUEST, true),
+      new OctetStringType(request.getDn()),
+      constructed(UniversalDERTag.SEQ, changes));
+  }
+
+
+  /**
+   * Returns an add request encoder.
+   *
+   * @param  request  add request
+   *
+   * @return  add request encoder
+   */
+  public static DEREncoder add(final AddRequest request)
+  {
+    final Collection<LdapAttribute> attrs = request.getLdapAttributes();
+    final List<DEREncoder> encodedAttrs = new ArrayList<>(attrs.size());
+    for (LdapAttribute la : attrs) {
+      encodedAttrs.add(attribute(la));
+    }
+    return new ConstructedDEREncoder(
+      new ApplicationDERTag(ADD_REQUEST, true),
+      new OctetStringType(request.getDn()),
+      constructed(UniversalDERTag.SEQ, encodedAttrs.toArray(new DEREncoder[encodedAttrs.size()])));
+  }
+
+
+  /**
+   * Returns a delete request encoder.
+   *
+   * @param  request  delete request
+   *
+   * @return  delete request encoder
+   */
+  public static DEREncoder delete(final DeleteRequest request)
+  {
+    return new OctetStringType(new ApplicationDERTag(DELETE_REQUEST, false), request.getDn());
+  }
+
+
+  /**
+   * Returns a modify DN request encoder. The new DN of the request is split into the new RDN and, when it differs from
+   * the parent of the current DN, the new superior.
+   *
+   * @param  request  modify DN request
+   *
+   * @return  modify DN request encoder
+   */
+  public static DEREncoder modifyDn(final ModifyDnRequest request)
+  {
+    final String newRdn = DnParser.substring(request.getNewDn(), 0, 1);
+    final String newParent = DnParser.substring(request.getNewDn(), 1);
+    final String oldParent = DnParser.substring(request.getDn(), 1);
+    final List<DEREncoder> elements = new ArrayList<>(4);
+    elements.add(new OctetStringType(request.getDn()));
+    elements.add(new OctetStringType(newRdn));
+    elements.add(new BooleanType(request.getDeleteOldRDn()));
+    if (!newParent.equalsIgnoreCase(oldParent)) {
+      elements.add(new ContextType(0, newParent));
+    }
+    return new ConstructedDEREncoder(
+      new ApplicationDERTag(MODIFY_DN_REQUEST, true),
+      elements.toArray(new DEREncoder[elements.size()]));
+  }
+
+
+  /**
+   * Returns a compare request encoder.
+   *
+   * @param  request  compare request
+   *
+   * @return  compare request encoder
+   */
+  public static DEREncoder compare(final CompareRequest request)
+  {
+    final LdapAttribute la = request.getAttribute();
+    return new ConstructedDEREncoder(
+      new ApplicationDERTag(COMPARE_REQUEST, true),
+      new OctetStringType(request.getDn()),
+      new ConstructedDEREncoder(
+        UniversalDERTag.SEQ,
+        new OctetStringType(la.getName()),
+        new OctetStringType(la.getBinaryValue())));
+  }
+
+
+  /**
+   * Returns an extended request encoder.
+   *
+   * @param  request  extended request
+   *
+   * @return  extended request encoder
+   */
+  public static DEREncoder extended(final ExtendedRequest request)
+  {
+    return extended(request.getOID(), request.encode());
+  }
+
+
+  /**
+   * Returns an extended request encoder.
+   *
+   * @param  oid  request name
+   * @param  value  request value or null
+   *
+   * @return  extended request encoder
+   */
+  public static DEREncoder extended(final String oid, final byte[] value)
+  {
+    return value != null ?
+      new ConstructedDEREncoder(
+        new ApplicationDERTag(EXTENDED_REQUEST, true),
+        new ContextType(0, oid),
+        new ContextType(1, value)) :
+      new ConstructedDEREncoder(new ApplicationDERTag(EXTENDED_REQUEST, true), new ContextType(0, oid));
+  }
+
+
+  /**
+   * Returns an attribute encoder.
+   *
+   * <pre>
+     Attribute ::= SEQUENCE {
+       type       AttributeDescription,
+       vals       SET OF value AttributeValue }
+   * </pre>
+   *
+   * @param  la  attribute to encode
+   *
+   * @return  attribute encoder
+   */
+  private static DEREncoder attribute(final LdapAttribute la)
+  {
+    final Collection<byte[]> values = la.getBinaryValues();
+    final DEREncoder[] encodedValues = new DEREncoder[values.size()];
+    int i = 0;
+    for (byte[] value : values) {
+      encodedValues[i++] = new OctetStringType(value);
+    }
+    return new ConstructedDEREncoder(
+      UniversalDERTag.SEQ,
+      new OctetStringType(la.getName()),
+      constructed(UniversalDERTag.SET, encodedValues));
+  }
+
+
+  /**
+   * Returns an encoder for a constructed type that may have no elements.
+   *
+   * @param  tag  constructed tag
+   * @param  encoders  elements of the type
+   *
+   * @return  constructed type encoder
+   */
+  private static DEREncoder constructed(final DERTag tag, final DEREncoder[] encoders)
+  {
+    if (encoders.length == 0) {
+      return () -> new byte[] {(byte) tag.getTagByte(), 0};
+    }
+    return new ConstructedDEREncoder(tag, encoders);
+  }
+
+
+  /**
+   * Returns a control encoder.
+   *
+   * <pre>
+     Control ::= SEQUENCE {
+       controlType             LDAPOID,
+       criticality             BOOLEAN DEFAULT FALSE,
+       controlValue            OCTET STRING OPTIONAL }
+   * </pre>
+   *
+   * @param  control  to encode
+   *
+   * @return  control encoder
+   */
+  private static DEREncoder control(final RequestControl control)
+  {
+    final List<DEREncoder> elements = new ArrayList<>(3);
+    elements.add(new OctetStringType(control.getOID()));
+    if (control.getCriticality()) {
+      elements.add(new BooleanType(true));
+    }
+
+    final byte[] value = control.encode();
+    if (value != null) {
+      elements.add(new OctetStringType(value));
+    }
+    return new ConstructedDEREncoder(UniversalDERTag.SEQ, elements.toArray(new DEREncoder[elements.size()]));
+  }
+}
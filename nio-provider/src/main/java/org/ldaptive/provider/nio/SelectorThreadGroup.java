@@ -0,0 +1,160 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group of daemon threads that each run a selector and read responses for the connections registered with it. A small
+ * number of threads serves any number of connections, instead of one reader thread per connection. Groups are shared
+ * by all connections that request the same number of threads and live for the lifetime of the JVM.
+ *
+ * @author  Middleware Services
+ */
+public final class SelectorThreadGroup
+{
+
+  /** Groups keyed by number of threads. */
+  private static final Map<Integer, SelectorThreadGroup> GROUPS = new ConcurrentHashMap<>();
+
+  /** Logger for this class. */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Selector threads. */
+  private final SelectorThread[] threads;
+
+  /** Index of the thread to register the next connection with. */
+  private final AtomicInteger next = new AtomicInteger();
+
+
+  /**
+   * Creates a new selector thread group and starts its threads.
+   *
+   * @param  count  number of threads
+   */
+  private SelectorThreadGroup(final int count)
+  {
+    threads = new SelectorThread[count];
+    for (int i = 0; i < count; i++) {
+      try {
+        threads[i] = new SelectorThread(Selector.open(), String.format("ldaptive-nio-%d-%d", count, i));
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not open selector", e);
+      }
+      threads[i].start();
+    }
+  }
+
+
+  /**
+   * Returns the shared selector thread group with the supplied number of threads, creating it if necessary.
+   *
+   * @param  count  number of threads
+   *
+   * @return  selector thread group
+   */
+  public static SelectorThreadGroup getInstance(final int count)
+  {
+    return GROUPS.computeIfAbsent(count, SelectorThreadGroup::new);
+  }
+
+
+  /**
+   * Registers the supplied connection for reads with the next selector thread in this group.
+   *
+   * @param  conn  to register
+   */
+  void register(final NioConnection conn)
+  {
+    threads[Math.floorMod(next.getAndIncrement(), threads.length)].register(conn);
+  }
+
+
+  @Override
+  public String toString()
+  {
+    return String.format("[%s@%d::threads=%s]", getClass().getName(), hashCode(), threads.length);
+  }
+
+
+  /** Thread that selects readable connections and reads their responses. */
+  private class SelectorThread extends Thread
+  {
+
+    /** Selector for registered connections. */
+    private final Selector selector;
+
+    /** Connections waiting to be registered with the selector. */
+    private final Queue<NioConnection> registrations = new ConcurrentLinkedQueue<>();
+
+
+    /**
+     * Creates a new selector thread.
+     *
+     * @param  s  selector
+     * @param  name  of the thread
+     */
+    SelectorThread(final Selector s, final String name)
+    {
+      super(name);
+      setDaemon(true);
+      selector = s;
+    }
+
+
+    /**
+     * Queues the supplied connection for registration and wakes up the selector.
+     *
+     * @param  conn  to register
+     */
+    void register(final NioConnection conn)
+    {
+      registrations.add(conn);
+      selector.wakeup();
+    }
+
+
+    @Override
+    public void run()
+    {
+      while (true) {
+        try {
+          selector.select();
+          NioConnection conn = registrations.poll();
+          while (conn != null) {
+            try {
+              conn.registered(conn.getChannel().register(selector, SelectionKey.OP_READ, conn));
+            } catch (ClosedChannelException e) {
+              conn.readFailed(e);
+            }
+            conn = registrations.poll();
+          }
+
+          final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            final SelectionKey key = keys.next();
+            keys.remove();
+            if (key.isValid() && key.isReadable()) {
+              final NioConnection c = (NioConnection) key.attachment();
+              if (!c.read()) {
+                key.cancel();
+              }
+            }
+          }
+        } catch (IOException | RuntimeException e) {
+          logger.warn("Error in selector thread {}", getName(), e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,369 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.nio;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.BindOperation;
+import org.ldaptive.BindRequest;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.Credential;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.EmbeddedLdapServer;
+import org.ldaptive.LdapEntry;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchEntry;
+import org.ldaptive.SearchOperation;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.ldaptive.async.AsyncRequest;
+import org.ldaptive.async.AsyncSearchOperation;
+import org.ldaptive.handler.HandlerResult;
+import org.ldaptive.handler.SearchEntryHandler;
+import org.ldaptive.provider.SearchItem;
+import org.ldaptive.provider.SearchIterator;
+import org.ldaptive.provider.SearchListener;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link NioConnection} against an {@link EmbeddedLdapServer}.
+ *
+ * @author  Middleware Services
+ */
+public class NioConnectionTest
+{
+
+  /** Number of users in the server. */
+  private static final int USER_COUNT = 50;
+
+  /** Server to connect to. */
+  private EmbeddedLdapServer server;
+
+
+  /** @throws  Exception  On test failure. */
+  @BeforeClass(groups = {"nio"})
+  public void startServer()
+    throws Exception
+  {
+    server = new EmbeddedLdapServer(USER_COUNT);
+    server.start();
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @AfterClass(groups = {"nio"})
+  public void stopServer()
+    throws Exception
+  {
+    server.close();
+  }
+
+
+  /**
+   * Returns an opened connection to the supplied URL that is bound as the manager.
+   *
+   * @param  ldapUrl  to connect to
+   * @param  provider  to connect with
+   *
+   * @return  connection
+   *
+   * @throws  LdapException  if the connection cannot be opened
+   */
+  private static Connection openConnection(final String ldapUrl, final NioProvider provider)
+    throws LdapException
+  {
+    final ConnectionConfig cc = new ConnectionConfig(ldapUrl);
+    cc.setUseSSL(ldapUrl.startsWith("ldaps://"));
+    return openConnection(cc, provider);
+  }
+
+
+  /**
+   * Returns an opened connection with the supplied configuration that is bound as the manager.
+   *
+   * @param  cc  connection configuration
+   * @param  provider  to connect with
+   *
+   * @return  connection
+   *
+   * @throws  LdapException  if the connection cannot be opened
+   */
+  private static Connection openConnection(final ConnectionConfig cc, final NioProvider provider)
+    throws LdapException
+  {
+    final Connection conn = new DefaultConnectionFactory(cc, provider).getConnection();
+    conn.open(
+      new BindRequest(EmbeddedLdapServer.MANAGER_DN, new Credential(EmbeddedLdapServer.MANAGER_PASSWORD)));
+    return conn;
+  }
+
+
+  /**
+   * Searches for the supplied user and asserts that exactly that user is returned.
+   *
+   * @param  conn  to search on
+   * @param  i  index of the user
+   *
+   * @throws  LdapException  if the search fails
+   */
+  private static void assertUser(final Connection conn, final int i)
+    throws LdapException
+  {
+    final Response<SearchResult> response = new SearchOperation(conn).execute(
+      new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=" + EmbeddedLdapServer.getUserId(i) + ")"));
+    Assert.assertEquals(response.getResultCode(), ResultCode.SUCCESS);
+    Assert.assertEquals(response.getResult().size(), 1);
+    Assert.assertEquals(response.getResult().getEntry().getDn(), EmbeddedLdapServer.getUserDn(i));
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"nio"})
+  public void bind()
+    throws Exception
+  {
+    try (Connection conn = openConnection(server.getLdapUrl(), new NioProvider())) {
+      final BindOperation bind = new BindOperation(conn);
+      Assert.assertEquals(
+        bind.execute(
+          new BindRequest(EmbeddedLdapServer.getUserDn(1), new Credential(EmbeddedLdapServer.getUserPassword(1))))
+          .getResultCode(),
+        ResultCode.SUCCESS);
+      try {
+        bind.execute(new BindRequest(EmbeddedLdapServer.getUserDn(1), new Credential("wrong-password")));
+        Assert.fail("Should have thrown LdapException");
+      } catch (LdapException e) {
+        Assert.assertEquals(e.getResultCode(), ResultCode.INVALID_CREDENTIALS);
+      }
+      // a failed bind leaves the connection usable
+      assertUser(conn, 2);
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"nio"})
+  public void search()
+    throws Exception
+  {
+    try (Connection conn = openConnection(server.getLdapUrl(), new NioProvider())) {
+      assertUser(conn, 3);
+
+      final Response<SearchResult> response = new SearchOperation(conn).execute(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)", "uid"));
+      Assert.assertEquals(response.getResult().size(), USER_COUNT);
+      for (LdapEntry e : response.getResult().getEntries()) {
+        Assert.assertNotNull(e.getAttribute("uid"));
+        Assert.assertNull(e.getAttribute("userPassword"));
+      }
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"nio"})
+  public void zeroTimeout()
+    throws Exception
+  {
+    final ConnectionConfig cc = new ConnectionConfig(server.getLdapUrl());
+    cc.setConnectTimeout(Duration.ZERO);
+    cc.setResponseTimeout(Duration.ZERO);
+    try (Connection conn = openConnection(cc, new NioProvider())) {
+      assertUser(conn, 8);
+
+      final SearchIterator iter = conn.getProviderConnection().search(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)"));
+      int count = 0;
+      while (iter.hasNext()) {
+        Assert.assertTrue(iter.next().isSearchEntry());
+        count++;
+      }
+      Assert.assertEquals(count, USER_COUNT);
+      Assert.assertEquals(iter.getResponse().getResultCode(), ResultCode.SUCCESS);
+      iter.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"nio"})
+  public void streamEarlyClose()
+    throws Exception
+  {
+    try (Connection conn = openConnection(server.getLdapUrl(), new NioProvider())) {
+      final SearchIterator iter = conn.getProviderConnection().search(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)"));
+      for (int i = 0; i < 3; i++) {
+        Assert.assertTrue(iter.hasNext());
+        Assert.assertTrue(iter.next().isSearchEntry());
+      }
+      iter.close();
+      Assert.assertFalse(iter.hasNext());
+
+      // entries of the abandoned search are discarded rather than delivered to the next operation
+      assertUser(conn, 4);
+      assertUser(conn, 5);
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"nio"})
+  public void multiplexSearches()
+    throws Exception
+  {
+    final int searches = 20;
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (Connection conn = openConnection(server.getLdapUrl(), new NioProvider())) {
+      final List<CompletableFuture<List<String>>> futures = new ArrayList<>(searches);
+      for (int i = 0; i < searches; i++) {
+        final int user = i;
+        final CompletableFuture<List<String>> future = new CompletableFuture<>();
+        futures.add(future);
+        executor.execute(
+          () -> {
+            try {
+              conn.getProviderConnection().searchAsync(
+                new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=" + EmbeddedLdapServer.getUserId(user) + ")"),
+                new CollectingListener(future));
+            } catch (LdapException e) {
+              future.completeExceptionally(e);
+            }
+          });
+      }
+      for (int i = 0; i < searches; i++) {
+        Assert.assertEquals(futures.get(i).get(5, TimeUnit.SECONDS).size(), 1);
+        Assert.assertEquals(futures.get(i).get().get(0), EmbeddedLdapServer.getUserDn(i));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"nio"})
+  public void multiThreadedListener()
+    throws Exception
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (Connection conn = openConnection(server.getLdapUrl(), new NioProvider())) {
+      final AtomicInteger handled = new AtomicInteger();
+      final AsyncSearchOperation search = new AsyncSearchOperation(conn, executor);
+      search.setUseMultiThreadedListener(true);
+      search.setListenerQueueSize(2);
+
+      final SearchRequest request = new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)");
+      request.setSearchEntryHandlers(
+        new SearchEntryHandler() {
+          @Override
+          public HandlerResult<SearchEntry> handle(
+            final Connection c,
+            final SearchRequest r,
+            final SearchEntry entry)
+          {
+            handled.incrementAndGet();
+            return new HandlerResult<>(entry);
+          }
+
+          @Override
+          public void initializeRequest(final SearchRequest r) {}
+        });
+      final Response<SearchResult> response = search.execute(request);
+      Assert.assertEquals(response.getResultCode(), ResultCode.SUCCESS);
+      Assert.assertEquals(response.getResult().size(), USER_COUNT);
+      Assert.assertEquals(handled.get(), USER_COUNT);
+
+      // reading resumes after the listener drains
+      assertUser(conn, 6);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"nio"})
+  public void ldaps()
+    throws Exception
+  {
+    try (EmbeddedLdapServer ldaps = new EmbeddedLdapServer(USER_COUNT)) {
+      ldaps.setSSLContext(EmbeddedLdapServer.createSSLContext());
+      ldaps.start();
+      Assert.assertTrue(ldaps.getLdapUrl().startsWith("ldaps://"));
+
+      final NioProvider provider = new NioProvider();
+      provider.getProviderConfig().setSSLContext(EmbeddedLdapServer.createSSLContext());
+      try (Connection conn = openConnection(ldaps.getLdapUrl(), provider)) {
+        assertUser(conn, 7);
+        Assert.assertEquals(ldaps.getBindCount(), 1);
+        Assert.assertEquals(ldaps.getSearchCount(), 1);
+      }
+    }
+  }
+
+
+  /** Completes a future with the DNs of the entries returned by a search. */
+  private static class CollectingListener implements SearchListener
+  {
+
+    /** DNs of the entries received. */
+    private final List<String> dns = new ArrayList<>();
+
+    /** Future to complete. */
+    private final CompletableFuture<List<String>> future;
+
+
+    /**
+     * Creates a new collecting listener.
+     *
+     * @param  f  future to complete
+     */
+    CollectingListener(final CompletableFuture<List<String>> f)
+    {
+      future = f;
+    }
+
+
+    @Override
+    public void asyncRequestReceived(final AsyncRequest request) {}
+
+
+    @Override
+    public void searchItemReceived(final SearchItem item)
+    {
+      if (item.isSearchEntry()) {
+        dns.add(item.getSearchEntry().getDn());
+      }
+    }
+
+
+    @Override
+    public void responseReceived(final Response<Void> response)
+    {
+      if (response.getResultCode() == ResultCode.SUCCESS) {
+        future.complete(dns);
+      } else {
+        future.completeExceptionally(new LdapException("Search failed", response.getResultCode()));
+      }
+    }
+
+
+    @Override
+    public void exceptionReceived(final Exception exception)
+    {
+      future.completeExceptionally(exception);
+    }
+  }
+}
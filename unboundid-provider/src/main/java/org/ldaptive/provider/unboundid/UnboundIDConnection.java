@@ -3,9 +3,15 @@ package org.ldaptive.provider.unboundid;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.AsyncCompareResultListener;
 import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncResultListener;
 import com.unboundid.ldap.sdk.AsyncSearchResultListener;
 import com.unboundid.ldap.sdk.BindResult;
 import com.unboundid.ldap.sdk.CRAMMD5BindRequest;
@@ -302,13 +308,7 @@ public class UnboundIDConnection implements ProviderConnection
   {
     Response<Void> response = null;
     try {
-      final UnboundIDUtils util = new UnboundIDUtils();
-      final com.unboundid.ldap.sdk.AddRequest ar = new com.unboundid.ldap.sdk.AddRequest(
-        new DN(request.getDn()),
-        util.fromLdapAttributes(request.getLdapAttributes()),
-        config.getControlProcessor().processRequestControls(request.getControls()));
-
-      final LDAPResult result = connection.add(ar);
+      final LDAPResult result = connection.add(createAddRequest(request));
       response = createResponse(request, null, result);
     } catch (LDAPException e) {
       if (com.unboundid.ldap.sdk.ResultCode.REFERRAL == e.getResultCode()) {
@@ -321,28 +321,31 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
+  @Override
+  public CompletableFuture<Response<Void>> addAsync(final AddRequest request)
+    throws LdapException
+  {
+    if (connection.getConnectionOptions().useSynchronousMode()) {
+      return ProviderUtils.complete(() -> add(request));
+    }
+
+    final FutureResultListener<Void> listener = new FutureResultListener<>(request);
+    try {
+      connection.asyncAdd(createAddRequest(request), listener);
+    } catch (LDAPException e) {
+      processLDAPException(request, e);
+    }
+    return listener.getFuture();
+  }
+
+
   @Override
   public Response<Boolean> compare(final CompareRequest request)
     throws LdapException
   {
     Response<Boolean> response = null;
     try {
-      com.unboundid.ldap.sdk.CompareRequest cr;
-      if (request.getAttribute().isBinary()) {
-        cr = new com.unboundid.ldap.sdk.CompareRequest(
-          new DN(request.getDn()),
-          request.getAttribute().getName(),
-          request.getAttribute().getBinaryValue(),
-          config.getControlProcessor().processRequestControls(request.getControls()));
-      } else {
-        cr = new com.unboundid.ldap.sdk.CompareRequest(
-          new DN(request.getDn()),
-          request.getAttribute().getName(),
-          request.getAttribute().getStringValue(),
-          config.getControlProcessor().processRequestControls(request.getControls()));
-      }
-
-      final CompareResult result = connection.compare(cr);
+      final CompareResult result = connection.compare(createCompareRequest(request));
       response = createResponse(request, result.compareMatched(), result);
     } catch (LDAPException e) {
       if (com.unboundid.ldap.sdk.ResultCode.REFERRAL == e.getResultCode()) {
@@ -355,17 +358,31 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
+  @Override
+  public CompletableFuture<Response<Boolean>> compareAsync(final CompareRequest request)
+    throws LdapException
+  {
+    if (connection.getConnectionOptions().useSynchronousMode()) {
+      return ProviderUtils.complete(() -> compare(request));
+    }
+
+    final FutureResultListener<Boolean> listener = new FutureResultListener<>(request);
+    try {
+      connection.asyncCompare(createCompareRequest(request), listener);
+    } catch (LDAPException e) {
+      processLDAPException(request, e);
+    }
+    return listener.getFuture();
+  }
+
+
   @Override
   public Response<Void> delete(final DeleteRequest request)
     throws LdapException
   {
     Response<Void> response = null;
     try {
-      final com.unboundid.ldap.sdk.DeleteRequest dr = new com.unboundid.ldap.sdk.DeleteRequest(
-        new DN(request.getDn()),
-        config.getControlProcessor().processRequestControls(request.getControls()));
-
-      final LDAPResult result = connection.delete(dr);
+      final LDAPResult result = connection.delete(createDeleteRequest(request));
       response = createResponse(request, null, result);
     } catch (LDAPException e) {
       if (com.unboundid.ldap.sdk.ResultCode.REFERRAL == e.getResultCode()) {
@@ -378,19 +395,31 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
+  @Override
+  public CompletableFuture<Response<Void>> deleteAsync(final DeleteRequest request)
+    throws LdapException
+  {
+    if (connection.getConnectionOptions().useSynchronousMode()) {
+      return ProviderUtils.complete(() -> delete(request));
+    }
+
+    final FutureResultListener<Void> listener = new FutureResultListener<>(request);
+    try {
+      connection.asyncDelete(createDeleteRequest(request), listener);
+    } catch (LDAPException e) {
+      processLDAPException(request, e);
+    }
+    return listener.getFuture();
+  }
+
+
   @Override
   public Response<Void> modify(final ModifyRequest request)
     throws LdapException
   {
     Response<Void> response = null;
     try {
-      final UnboundIDUtils bu = new UnboundIDUtils();
-      final com.unboundid.ldap.sdk.ModifyRequest mr = new com.unboundid.ldap.sdk.ModifyRequest(
-        new DN(request.getDn()),
-        bu.fromAttributeModification(request.getAttributeModifications()),
-        config.getControlProcessor().processRequestControls(request.getControls()));
-
-      final LDAPResult result = connection.modify(mr);
+      final LDAPResult result = connection.modify(createModifyRequest(request));
       response = createResponse(request, null, result);
     } catch (LDAPException e) {
       if (com.unboundid.ldap.sdk.ResultCode.REFERRAL == e.getResultCode()) {
@@ -403,22 +432,31 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
+  @Override
+  public CompletableFuture<Response<Void>> modifyAsync(final ModifyRequest request)
+    throws LdapException
+  {
+    if (connection.getConnectionOptions().useSynchronousMode()) {
+      return ProviderUtils.complete(() -> modify(request));
+    }
+
+    final FutureResultListener<Void> listener = new FutureResultListener<>(request);
+    try {
+      connection.asyncModify(createModifyRequest(request), listener);
+    } catch (LDAPException e) {
+      processLDAPException(request, e);
+    }
+    return listener.getFuture();
+  }
+
+
   @Override
   public Response<Void> modifyDn(final ModifyDnRequest request)
     throws LdapException
   {
     Response<Void> response = null;
     try {
-      final DN dn = new DN(request.getDn());
-      final DN newDn = new DN(request.getNewDn());
-      final com.unboundid.ldap.sdk.ModifyDNRequest mdr = new com.unboundid.ldap.sdk.ModifyDNRequest(
-        dn,
-        newDn.getRDN(),
-        request.getDeleteOldRDn(),
-        newDn.getParent(),
-        config.getControlProcessor().processRequestControls(request.getControls()));
-
-      final LDAPResult result = connection.modifyDN(mdr);
+      final LDAPResult result = connection.modifyDN(createModifyDNRequest(request));
       response = createResponse(request, null, result);
     } catch (LDAPException e) {
       if (com.unboundid.ldap.sdk.ResultCode.REFERRAL == e.getResultCode()) {
@@ -431,6 +469,24 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
+  @Override
+  public CompletableFuture<Response<Void>> modifyDnAsync(final ModifyDnRequest request)
+    throws LdapException
+  {
+    if (connection.getConnectionOptions().useSynchronousMode()) {
+      return ProviderUtils.complete(() -> modifyDn(request));
+    }
+
+    final FutureResultListener<Void> listener = new FutureResultListener<>(request);
+    try {
+      connection.asyncModifyDN(createModifyDNRequest(request), listener);
+    } catch (LDAPException e) {
+      processLDAPException(request, e);
+    }
+    return listener.getFuture();
+  }
+
+
   @Override
   public SearchIterator search(final org.ldaptive.SearchRequest request)
     throws LdapException
@@ -491,6 +547,22 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
+  @Override
+  public CompletableFuture<Response<Void>> bindAsync(final BindRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> bind(request));
+  }
+
+
+  @Override
+  public CompletableFuture<Response<?>> extendedOperationAsync(final ExtendedRequest request)
+    throws LdapException
+  {
+    return ProviderUtils.complete(() -> extendedOperation(request));
+  }
+
+
   @Override
   public void addUnsolicitedNotificationListener(final UnsolicitedNotificationListener listener)
   {
@@ -505,6 +577,121 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
+  /**
+   * Creates an unbound id add request from the supplied request.
+   *
+   * @param  request  ldaptive add request
+   *
+   * @return  unbound id add request
+   *
+   * @throws  LDAPException  if the DN is invalid
+   */
+  protected com.unboundid.ldap.sdk.AddRequest createAddRequest(final AddRequest request)
+    throws LDAPException
+  {
+    final UnboundIDUtils util = new UnboundIDUtils();
+    return
+      new com.unboundid.ldap.sdk.AddRequest(
+        new DN(request.getDn()),
+        util.fromLdapAttributes(request.getLdapAttributes()),
+        config.getControlProcessor().processRequestControls(request.getControls()));
+  }
+
+
+  /**
+   * Creates an unbound id compare request from the supplied request.
+   *
+   * @param  request  ldaptive compare request
+   *
+   * @return  unbound id compare request
+   *
+   * @throws  LDAPException  if the DN is invalid
+   */
+  protected com.unboundid.ldap.sdk.CompareRequest createCompareRequest(final CompareRequest request)
+    throws LDAPException
+  {
+    com.unboundid.ldap.sdk.CompareRequest cr;
+    if (request.getAttribute().isBinary()) {
+      cr = new com.unboundid.ldap.sdk.CompareRequest(
+        new DN(request.getDn()),
+        request.getAttribute().getName(),
+        request.getAttribute().getBinaryValue(),
+        config.getControlProcessor().processRequestControls(request.getControls()));
+    } else {
+      cr = new com.unboundid.ldap.sdk.CompareRequest(
+        new DN(request.getDn()),
+        request.getAttribute().getName(),
+        request.getAttribute().getStringValue(),
+        config.getControlProcessor().processRequestControls(request.getControls()));
+    }
+    return cr;
+  }
+
+
+  /**
+   * Creates an unbound id delete request from the supplied request.
+   *
+   * @param  request  ldaptive delete request
+   *
+   * @return  unbound id delete request
+   *
+   * @throws  LDAPException  if the DN is invalid
+   */
+  protected com.unboundid.ldap.sdk.DeleteRequest createDeleteRequest(final DeleteRequest request)
+    throws LDAPException
+  {
+    return
+      new com.unboundid.ldap.sdk.DeleteRequest(
+        new DN(request.getDn()),
+        config.getControlProcessor().processRequestControls(request.getControls()));
+  }
+
+
+  /**
+   * Creates an unbound id modify request from the supplied request.
+   *
+   * @param  request  ldaptive modify request
+   *
+   * @return  unbound id modify request
+   *
+   * @throws  LDAPException  if the DN is invalid
+   */
+  protected com.unboundid.ldap.sdk.ModifyRequest createModifyRequest(final ModifyRequest request)
+    throws LDAPException
+  {
+    final UnboundIDUtils bu = new UnboundIDUtils();
+    return
+      new com.unboundid.ldap.sdk.ModifyRequest(
+        new DN(request.getDn()),
+        bu.fromAttributeModification(request.getAttributeModifications()),
+        config.getControlProcessor().processRequestControls(request.getControls()));
+  }
+
+
+  /**
+   * Creates an unbound id modify DN request from the supplied request.
+   *
+   * @param  request  ldaptive modify DN request
+   *
+   * @return  unbound id modify DN request
+   *
+   * @throws  LDAPException  if a DN is invalid
+   */
+  protected com.unboundid.ldap.sdk.ModifyDNRequest createModifyDNRequest(final ModifyDnRequest request)
+    throws LDAPException
+  {
+    final DN dn = new DN(request.getDn());
+    final DN newDn = new DN(request.getNewDn());
+    return
+      new com.unboundid.ldap.sdk.ModifyDNRequest(
+        dn,
+        newDn.getRDN(),
+        request.getDeleteOldRDn(),
+        newDn.getParent(),
+        config.getControlProcessor().processRequestControls(request.getControls()));
+  }
+
+
   /**
    * Creates an operation response with the supplied response data.
    *
@@ -551,16 +738,129 @@ public class UnboundIDConnection implements ProviderConnection
   }
 
 
-  /** Search iterator for unbound id search results. */
-  protected class UnboundIDSearchIterator extends AbstractUnboundIDSearch implements SearchIterator
+  /**
+   * Completes a future with the result of an asynchronous operation. Results with a result code that the synchronous
+   * operation would throw complete the future exceptionally.
+   *
+   * @param  <T>  type of response
+   */
+  protected class FutureResultListener<T> implements AsyncResultListener, AsyncCompareResultListener
   {
 
+    /** Request the operation was performed with. */
+    private final Request request;
+
+    /** Future to complete. */
+    private final CompletableFuture<Response<T>> future = new CompletableFuture<>();
+
+
+    /**
+     * Creates a new future result listener.
+     *
+     * @param  r  request the operation was performed with
+     */
+    public FutureResultListener(final Request r)
+    {
+      request = r;
+    }
+
+
+    /**
+     * Returns the future completed by this listener.
+     *
+     * @return  future response
+     */
+    public CompletableFuture<Response<T>> getFuture()
+    {
+      return future;
+    }
+
+
+    @Override
+    public void ldapResultReceived(final AsyncRequestID requestID, final LDAPResult ldapResult)
+    {
+      complete(ldapResult, null, com.unboundid.ldap.sdk.ResultCode.SUCCESS == ldapResult.getResultCode());
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void compareResultReceived(final AsyncRequestID requestID, final CompareResult compareResult)
+    {
+      final boolean success = com.unboundid.ldap.sdk.ResultCode.COMPARE_TRUE == compareResult.getResultCode() ||
+        com.unboundid.ldap.sdk.ResultCode.COMPARE_FALSE == compareResult.getResultCode();
+      complete(compareResult, success ? (T) Boolean.valueOf(compareResult.compareMatched()) : null, success);
+    }
+
+
+    /**
+     * Completes the future with a response or with the exception the synchronous operation would throw.
+     *
+     * @param  ldapResult  provider result
+     * @param  result  of the operation
+     * @param  success  whether the result code indicates success
+     */
+    private void complete(final LDAPResult ldapResult, final T result, final boolean success)
+    {
+      if (success || com.unboundid.ldap.sdk.ResultCode.REFERRAL == ldapResult.getResultCode()) {
+        future.complete(createResponse(request, result, ldapResult));
+      } else {
+        try {
+          processLDAPException(request, new LDAPException(ldapResult));
+        } catch (LdapException e) {
+          future.completeExceptionally(e);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Search iterator for unbound id search results. Items are handed from the connection reader to the iterator through
+   * a queue, so entries are available as soon as they are read. Once {@link
+   * UnboundIDProviderConfig#getSearchQueueSize()} items are unread, the connection reader waits until the iterator is
+   * read or closed, so a slow consumer does not cause results to accumulate in memory. The connection reader is shared
+   * by every operation on the connection, so responses to other operations on the connection are delayed while it
+   * waits. Connections in synchronous mode cannot search asynchronously, their results are read completely before the
+   * first item is returned.
+   */
+  protected class UnboundIDSearchIterator extends AbstractUnboundIDSearch
+    implements SearchIterator, AsyncSearchResultListener, IntermediateResponseListener
+  {
+
+    /** Search items, the final response, or an exception. */
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    /** Receives disconnect notifications for this search. */
+    private final DisconnectHandler handler;
+
+    /** Number of unread search items the connection reader may queue, zero in synchronous mode. */
+    private int queueSize;
+
+    /** Permits for the connection reader to queue a search item, released as items are read. */
+    private final Semaphore slots = new Semaphore(0);
+
+    /** Request ID of the search operation. */
+    private volatile AsyncRequestID requestID;
+
+    /** Next search item. */
+    private SearchItem next;
+
     /** Response data. */
     private org.ldaptive.Response<Void> response;
 
     /** Search result iterator. */
     private SearchResultIterator resultIterator;
 
+    /** Whether the final response or an exception has been read. */
+    private boolean done;
+
+    /** Whether this iterator has been closed. */
+    private volatile boolean closed;
+
+    /** Whether the connection reader was interrupted waiting to queue a search item. */
+    private volatile boolean interrupted;
+
 
     /**
      * Creates a new unbound id search iterator.
@@ -570,6 +870,20 @@ public class UnboundIDConnection implements ProviderConnection
     public UnboundIDSearchIterator(final org.ldaptive.SearchRequest sr)
     {
       super(sr);
+      handler = new DisconnectHandler() {
+        @Override
+        public void handleDisconnect(
+          final LDAPConnection ldapConnection,
+          final String host,
+          final int port,
+          final DisconnectType disconnectType,
+          final String message,
+          final Throwable throwable)
+        {
+          disconnectHandler.removeDisconnectHandler(this);
+          enqueue(new LdapException(new Exception(message, throwable), ResultCode.SERVER_DOWN));
+        }
+      };
     }
 
 
@@ -581,12 +895,12 @@ public class UnboundIDConnection implements ProviderConnection
     public void initialize()
       throws org.ldaptive.LdapException
     {
-      resultIterator = search(connection, request);
+      asyncSearch(connection, request);
     }
 
 
     /**
-     * Executes an ldap search.
+     * Executes an ldap search and reads every result before returning.
      *
      * @param  conn  to search with
      * @param  sr  to read properties from
@@ -594,7 +908,10 @@ public class UnboundIDConnection implements ProviderConnection
      * @return  ldap search results
      *
      * @throws  LdapException  if an error occurs
+     *
+     * @deprecated  results are streamed by {@link #asyncSearch(LDAPConnection, org.ldaptive.SearchRequest)}
      */
+    @Deprecated
     protected SearchResultIterator search(final LDAPConnection conn, final org.ldaptive.SearchRequest sr)
       throws LdapException
     {
@@ -627,15 +944,90 @@ public class UnboundIDConnection implements ProviderConnection
             e.getResponseControls()));
         logger.debug("created response from exception: {}", response);
       }
+      resultIterator = i;
       return i;
     }
 
 
+    /**
+     * Executes an ldap search whose results are delivered to this iterator as they are read.
+     *
+     * @param  conn  to search with
+     * @param  sr  to read properties from
+     *
+     * @throws  LdapException  if an error occurs
+     */
+    protected void asyncSearch(final LDAPConnection conn, final org.ldaptive.SearchRequest sr)
+      throws LdapException
+    {
+      final boolean synchronous = conn.getConnectionOptions().useSynchronousMode();
+      queueSize = synchronous ? 0 : config.getSearchQueueSize();
+      slots.release(queueSize);
+      try {
+        final SearchRequest unboundIdSr = getSearchRequest(sr, this, this);
+        final Control[] c = config.getControlProcessor().processRequestControls(sr.getControls());
+        unboundIdSr.addControls(c);
+        logger.debug("performing search: {}", unboundIdSr);
+        if (synchronous) {
+          searchResultReceived(null, conn.search(unboundIdSr));
+        } else {
+          disconnectHandler.addDisconnectHandler(handler);
+          requestID = conn.asyncSearch(unboundIdSr);
+        }
+      } catch (LDAPSearchException e) {
+        disconnectHandler.removeDisconnectHandler(handler);
+        final ResultCode rc = ignoreSearchException(config.getSearchIgnoreResultCodes(), e);
+        if (rc == null) {
+          processLDAPException(sr, e);
+        }
+        searchResultReceived(
+          null,
+          new SearchResult(
+            -1,
+            e.getResultCode(),
+            e.getDiagnosticMessage(),
+            e.getMatchedDN(),
+            e.getReferralURLs(),
+            e.getEntryCount(),
+            e.getReferenceCount(),
+            e.getResponseControls()));
+      } catch (LDAPException e) {
+        disconnectHandler.removeDisconnectHandler(handler);
+        processLDAPException(sr, e);
+      }
+    }
+
+
     @Override
+    @SuppressWarnings("unchecked")
     public boolean hasNext()
       throws org.ldaptive.LdapException
     {
-      return resultIterator != null && resultIterator.hasNext();
+      if (resultIterator != null) {
+        return resultIterator.hasNext();
+      }
+      if (next == null && !done) {
+        final Object o;
+        try {
+          o = queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new LdapException("Interrupted waiting for search response", e, ResultCode.LOCAL_ERROR);
+        }
+        if (o instanceof SearchItem) {
+          next = (SearchItem) o;
+          if (queueSize > 0) {
+            slots.release();
+          }
+        } else if (o instanceof LdapException) {
+          done = true;
+          throw (LdapException) o;
+        } else {
+          done = true;
+          response = (org.ldaptive.Response<Void>) o;
+        }
+      }
+      return next != null;
     }
 
 
@@ -643,7 +1035,14 @@ public class UnboundIDConnection implements ProviderConnection
     public SearchItem next()
       throws org.ldaptive.LdapException
     {
-      return resultIterator.next();
+      if (resultIterator != null) {
+        return resultIterator.next();
+      }
+      hasNext();
+
+      final SearchItem item = next;
+      next = null;
+      return item;
     }
 
 
@@ -654,9 +1053,121 @@ public class UnboundIDConnection implements ProviderConnection
     }
 
 
+    /**
+     * Abandons the search if its final response has not been read and discards any buffered items. A connection reader
+     * waiting to queue an item is released.
+     *
+     * @throws  LdapException  if the abandon fails
+     */
     @Override
     public void close()
-      throws LdapException {}
+      throws LdapException
+    {
+      if (!closed) {
+        closed = true;
+        disconnectHandler.removeDisconnectHandler(handler);
+        next = null;
+        queue.clear();
+        // only the connection reader waits for a slot and it checks closed before waiting again
+        slots.release(queueSize);
+        try {
+          if (!done && !interrupted && requestID != null) {
+            connection.abandon(requestID);
+          }
+        } catch (LDAPException e) {
+          processLDAPException(request, e);
+        } finally {
+          done = true;
+        }
+      }
+    }
+
+
+    @Override
+    public void searchEntryReturned(final SearchResultEntry entry)
+    {
+      enqueue(processSearchResultEntry(entry));
+    }
+
+
+    @Override
+    public void searchReferenceReturned(final SearchResultReference ref)
+    {
+      enqueue(processSearchResultReference(ref));
+    }
+
+
+    @Override
+    public void intermediateResponseReturned(final IntermediateResponse res)
+    {
+      enqueue(processIntermediateResponse(res));
+    }
+
+
+    @Override
+    public void searchResultReceived(final AsyncRequestID id, final SearchResult res)
+    {
+      logger.trace("reading result: {}", res);
+
+      disconnectHandler.removeDisconnectHandler(handler);
+      Object o = null;
+      if (res.getResultCode() != com.unboundid.ldap.sdk.ResultCode.SUCCESS) {
+        final LDAPSearchException e = new LDAPSearchException(res);
+        if (ignoreSearchException(config.getSearchIgnoreResultCodes(), e) == null) {
+          try {
+            processLDAPException(request, e);
+          } catch (LdapException ex) {
+            o = ex;
+          }
+        }
+      }
+      enqueue(o != null ? o : createResponse(request, null, res));
+    }
+
+
+    /**
+     * Adds the supplied search item, response or exception to the queue. This method is invoked by the connection
+     * reader, which waits while the queue holds {@link #queueSize} unread search items. Responses and exceptions are
+     * always queued without waiting. Objects received after this iterator is closed are discarded. If the connection
+     * reader is interrupted while waiting, which happens when the connection is closed, the search is abandoned and the
+     * iterator fails with {@link ResultCode#LOCAL_ERROR}.
+     *
+     * @param  o  to add
+     */
+    private void enqueue(final Object o)
+    {
+      if (o instanceof SearchItem && queueSize > 0 && !closed && !interrupted) {
+        try {
+          slots.acquire();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          interrupted = true;
+          disconnectHandler.removeDisconnectHandler(handler);
+          logger.debug("interrupted waiting for {} unread items of {}, abandoning search", queueSize, request);
+          abandon();
+          queue.add(new LdapException("Interrupted waiting for search items to be read", e, ResultCode.LOCAL_ERROR));
+        }
+      }
+      if (closed || interrupted) {
+        logger.trace("discarding search result {} for {}", o, request);
+      } else {
+        queue.add(o);
+      }
+    }
+
+
+    /** Abandons the search, if its request ID is known. */
+    private void abandon()
+    {
+      final AsyncRequestID id = requestID;
+      if (id != null) {
+        try {
+          connection.abandon(id);
+        } catch (LDAPException e) {
+          logger.warn("Error abandoning search {}", request, e);
+        }
+      }
+    }
 
 
     /** Search results listener for storing entries returned by the search operation. */
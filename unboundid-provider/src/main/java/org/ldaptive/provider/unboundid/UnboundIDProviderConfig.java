@@ -18,6 +18,9 @@ import org.ldaptive.provider.ProviderConfig;
 public class UnboundIDProviderConfig extends ProviderConfig<Control>
 {
 
+  /** Default number of search items buffered by a search iterator. */
+  public static final int DEFAULT_SEARCH_QUEUE_SIZE = 100;
+
   /** Connection options. */
   private LDAPConnectionOptions connectionOptions;
 
@@ -30,6 +33,9 @@ public class UnboundIDProviderConfig extends ProviderConfig<Control>
   /** Search result codes to ignore. */
   private ResultCode[] searchIgnoreResultCodes;
 
+  /** Number of unread search items a search iterator buffers before the connection reader waits. */
+  private int searchQueueSize = DEFAULT_SEARCH_QUEUE_SIZE;
+
 
   /** Default constructor. */
   public UnboundIDProviderConfig()
@@ -138,13 +144,42 @@ public class UnboundIDProviderConfig extends ProviderConfig<Control>
   }
 
 
+  /**
+   * Returns the number of unread search items a search iterator buffers before the connection reader waits.
+   *
+   * @return  search queue size
+   */
+  public int getSearchQueueSize()
+  {
+    return searchQueueSize;
+  }
+
+
+  /**
+   * Sets the number of unread search items a search iterator buffers before the connection reader waits for the
+   * iterator to be read. The connection reader is shared by every operation on a connection, so responses to other
+   * operations on the connection are delayed while it waits.
+   *
+   * @param  size  search queue size
+   */
+  public void setSearchQueueSize(final int size)
+  {
+    checkImmutable();
+    if (size < 1) {
+      throw new IllegalArgumentException("Search queue size must be greater than zero");
+    }
+    logger.trace("setting searchQueueSize: {}", size);
+    searchQueueSize = size;
+  }
+
+
   @Override
   public String toString()
   {
     return
       String.format(
         "[%s@%d::operationExceptionResultCodes=%s, properties=%s, controlProcessor=%s, connectionOptions=%s, " +
-        "socketFactory=%s, sslSocketFactory=%s, searchIgnoreResultCodes=%s]",
+        "socketFactory=%s, sslSocketFactory=%s, searchIgnoreResultCodes=%s, searchQueueSize=%s]",
         getClass().getName(),
         hashCode(),
         Arrays.toString(getOperationExceptionResultCodes()),
@@ -153,6 +188,7 @@ public class UnboundIDProviderConfig extends ProviderConfig<Control>
         connectionOptions,
         socketFactory,
         sslSocketFactory,
-        Arrays.toString(searchIgnoreResultCodes));
+        Arrays.toString(searchIgnoreResultCodes),
+        searchQueueSize);
   }
 }
@@ -0,0 +1,180 @@
+/* See LICENSE for licensing and NOTICE for copyright. */
+package org.ldaptive.provider.unboundid;
+
+import org.ldaptive.BindRequest;
+import org.ldaptive.Connection;
+import org.ldaptive.ConnectionConfig;
+import org.ldaptive.Credential;
+import org.ldaptive.DefaultConnectionFactory;
+import org.ldaptive.EmbeddedLdapServer;
+import org.ldaptive.LdapException;
+import org.ldaptive.Response;
+import org.ldaptive.ResultCode;
+import org.ldaptive.SearchOperation;
+import org.ldaptive.SearchRequest;
+import org.ldaptive.SearchResult;
+import org.ldaptive.provider.SearchIterator;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the search iterator of {@link UnboundIDConnection} against an {@link EmbeddedLdapServer}.
+ *
+ * @author  Middleware Services
+ */
+public class UnboundIDConnectionTest
+{
+
+  /** Number of users in the server. */
+  private static final int USER_COUNT = 50;
+
+  /** Server to connect to. */
+  private EmbeddedLdapServer server;
+
+
+  /** @throws  Exception  On test failure. */
+  @BeforeClass(groups = {"unboundid"})
+  public void startServer()
+    throws Exception
+  {
+    server = new EmbeddedLdapServer(USER_COUNT);
+    server.start();
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @AfterClass(groups = {"unboundid"})
+  public void stopServer()
+    throws Exception
+  {
+    server.close();
+  }
+
+
+  /**
+   * Returns an opened connection that is bound as the manager.
+   *
+   * @param  queueSize  search queue size of the provider
+   *
+   * @return  connection
+   *
+   * @throws  LdapException  if the connection cannot be opened
+   */
+  private Connection openConnection(final int queueSize)
+    throws LdapException
+  {
+    final UnboundIDProvider provider = new UnboundIDProvider();
+    provider.getProviderConfig().setSearchQueueSize(queueSize);
+    final Connection conn = new DefaultConnectionFactory(
+      new ConnectionConfig(server.getLdapUrl()), provider).getConnection();
+    conn.open(
+      new BindRequest(EmbeddedLdapServer.MANAGER_DN, new Credential(EmbeddedLdapServer.MANAGER_PASSWORD)));
+    return conn;
+  }
+
+
+  /**
+   * Searches for the supplied user and asserts that exactly that user is returned.
+   *
+   * @param  conn  to search on
+   * @param  i  index of the user
+   *
+   * @throws  LdapException  if the search fails
+   */
+  private static void assertUser(final Connection conn, final int i)
+    throws LdapException
+  {
+    final Response<SearchResult> response = new SearchOperation(conn).execute(
+      new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=" + EmbeddedLdapServer.getUserId(i) + ")"));
+    Assert.assertEquals(response.getResult().size(), 1);
+    Assert.assertEquals(response.getResult().getEntry().getDn(), EmbeddedLdapServer.getUserDn(i));
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"unboundid"})
+  public void stream()
+    throws Exception
+  {
+    try (Connection conn = openConnection(UnboundIDProviderConfig.DEFAULT_SEARCH_QUEUE_SIZE)) {
+      final SearchIterator iter = conn.getProviderConnection().search(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)"));
+      int count = 0;
+      while (iter.hasNext()) {
+        Assert.assertTrue(iter.next().isSearchEntry());
+        count++;
+      }
+      Assert.assertEquals(count, USER_COUNT);
+      Assert.assertEquals(iter.getResponse().getResultCode(), ResultCode.SUCCESS);
+      iter.close();
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"unboundid"})
+  public void streamEarlyClose()
+    throws Exception
+  {
+    try (Connection conn = openConnection(UnboundIDProviderConfig.DEFAULT_SEARCH_QUEUE_SIZE)) {
+      final SearchIterator iter = conn.getProviderConnection().search(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)"));
+      Assert.assertTrue(iter.hasNext());
+      Assert.assertTrue(iter.next().isSearchEntry());
+      iter.close();
+      Assert.assertFalse(iter.hasNext());
+      assertUser(conn, 1);
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"unboundid"})
+  public void slowConsumer()
+    throws Exception
+  {
+    final int queueSize = 5;
+    try (Connection conn = openConnection(queueSize)) {
+      final SearchIterator iter = conn.getProviderConnection().search(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)"));
+      int count = 0;
+      while (iter.hasNext()) {
+        Assert.assertTrue(iter.next().isSearchEntry());
+        count++;
+        // the connection reader waits for the iterator rather than failing the search
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(count, USER_COUNT);
+      Assert.assertEquals(iter.getResponse().getResultCode(), ResultCode.SUCCESS);
+      iter.close();
+      assertUser(conn, 2);
+
+      // execute reads through the same iterator
+      final Response<SearchResult> response = new SearchOperation(conn).execute(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)"));
+      Assert.assertEquals(response.getResultCode(), ResultCode.SUCCESS);
+      Assert.assertEquals(response.getResult().size(), USER_COUNT);
+    }
+  }
+
+
+  /** @throws  Exception  On test failure. */
+  @Test(groups = {"unboundid"})
+  public void closeWhileQueueFull()
+    throws Exception
+  {
+    final int queueSize = 5;
+    try (Connection conn = openConnection(queueSize)) {
+      final SearchIterator iter = conn.getProviderConnection().search(
+        new SearchRequest(EmbeddedLdapServer.PEOPLE_DN, "(uid=*)"));
+      Assert.assertTrue(iter.hasNext());
+      // let the connection reader fill the queue and wait
+      Thread.sleep(500);
+      iter.close();
+      Assert.assertFalse(iter.hasNext());
+      assertUser(conn, 3);
+    }
+  }
+}